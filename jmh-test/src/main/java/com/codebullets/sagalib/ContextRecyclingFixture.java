@@ -0,0 +1,70 @@
+package com.codebullets.sagalib;
+
+import com.codebullets.sagalib.annotations.AnnotationFinishMessage;
+import com.codebullets.sagalib.annotations.AnnotationHandlerMessage;
+import com.codebullets.sagalib.annotations.AnnotationStartingMessage;
+import com.codebullets.sagalib.processing.ExecutionOptions;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the allocation rate with and without context recycling. Run with the GC
+ * profiler and compare the {@code gc.alloc.rate.norm} (bytes per operation) results.
+ */
+@State(Scope.Thread)
+public class ContextRecyclingFixture {
+    @Param({"false", "true"})
+    private boolean recycleContexts;
+
+    private SagaLibStream sagaLibStream;
+
+    private long key = 0;
+
+    @Setup
+    public void setup(final Blackhole bh) {
+        sagaLibStream = new SagaLibStream(bh, ExecutionOptions.defaults().setRecycleContexts(recycleContexts));
+    }
+
+    @TearDown
+    public void tearDown() {
+        sagaLibStream.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void measureAnnotationHandler() {
+        sagaLibStream.handle(new AnnotationHandlerMessage());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void measureAnnotationSaga() {
+        long sagaKey = key++;
+        sagaLibStream.handle(new AnnotationStartingMessage(sagaKey));
+        sagaLibStream.handle(new AnnotationFinishMessage(sagaKey));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ContextRecyclingFixture.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .measurementTime(TimeValue.seconds(10))
+                .warmupIterations(10)
+                .jvmArgsAppend("-XX:+UseG1GC", "-Xmx2048m", "-Xms1024m")
+                .measurementIterations(2)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
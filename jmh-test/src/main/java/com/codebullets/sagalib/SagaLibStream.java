@@ -21,6 +21,7 @@ import com.codebullets.sagalib.annotations.AnnotationSaga;
 import com.codebullets.sagalib.description.AutoTypedHandler;
 import com.codebullets.sagalib.description.DescriptionHandler;
 import com.codebullets.sagalib.description.DescriptionSaga;
+import com.codebullets.sagalib.processing.ExecutionOptions;
 import com.codebullets.sagalib.processing.SagaProviderFactory;
 import com.codebullets.sagalib.startup.EventStreamBuilder;
 import com.codebullets.sagalib.startup.TypeScanner;
@@ -35,9 +36,14 @@ public class SagaLibStream implements AutoCloseable {
     private final MessageStream messageStream;
 
     public SagaLibStream(final Blackhole bh) {
+        this(bh, ExecutionOptions.defaults());
+    }
+
+    public SagaLibStream(final Blackhole bh, final ExecutionOptions options) {
         messageStream = EventStreamBuilder.configure()
                 .usingScanner(createConstantTypeScanner())
                 .usingSagaProviderFactory(providerFactory(bh))
+                .usingExecutionOptions(options)
                 .build();
     }
 
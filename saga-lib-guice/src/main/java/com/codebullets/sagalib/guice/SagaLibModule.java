@@ -21,6 +21,7 @@ import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.SagaLifetimeInterceptor;
 import com.codebullets.sagalib.SagaModule;
 import com.codebullets.sagalib.context.CurrentExecutionContext;
+import com.codebullets.sagalib.processing.ExecutionOptions;
 import com.codebullets.sagalib.processing.InstanceResolver;
 import com.codebullets.sagalib.processing.KeyExtractor;
 import com.codebullets.sagalib.processing.SagaInstanceCreator;
@@ -39,6 +40,7 @@ import com.codebullets.sagalib.startup.HandlerDescriptionAnalyzer;
 import com.codebullets.sagalib.startup.SagaAnalyzer;
 import com.codebullets.sagalib.startup.TypeScanner;
 import com.codebullets.sagalib.storage.StateStorage;
+import com.codebullets.sagalib.timeout.InMemoryTimeoutManager;
 import com.codebullets.sagalib.timeout.TimeoutManager;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
@@ -73,6 +75,7 @@ class SagaLibModule extends AbstractModule {
     private Class<? extends HandlerInvoker> invoker;
     private Collection<Class<? extends Annotation>> startSagaAnnotations = new ArrayList<>();
     private Collection<Class<? extends Annotation>> handlerAnnotations = new ArrayList<>();
+    private ExecutionOptions executionOptions = ExecutionOptions.defaults();
 
     /**
      * {@inheritDoc}
@@ -80,7 +83,7 @@ class SagaLibModule extends AbstractModule {
     @Override
     protected void configure() {
         bindIfNotNull(StateStorage.class, stateStorage, Scopes.SINGLETON);
-        bindIfNotNull(TimeoutManager.class, timeoutManager, Scopes.SINGLETON);
+        bindTimeoutManager();
         bindIfNotNull(TypeScanner.class, scanner, Scopes.SINGLETON);
         bindIfNotNull(SagaProviderFactory.class, providerFactory, Scopes.SINGLETON);
         bindIfNotNull(StrategyFinder.class, strategyFinder, Scopes.SINGLETON);
@@ -90,6 +93,8 @@ class SagaLibModule extends AbstractModule {
         bindIfNotNull(CurrentExecutionContext.class, executionContext);
         bind(ExecutionContext.class).toProvider(binder().getProvider(CurrentExecutionContext.class));
 
+        executionOptions.setOrderedSagaTypes(preferredOrder);
+        bind(ExecutionOptions.class).toInstance(executionOptions);
         bind(SagaInstanceCreator.class).in(Singleton.class);
         bind(SagaInstanceFactory.class).in(Singleton.class);
         bind(InstanceResolver.class).to(StrategyInstanceResolver.class).in(Singleton.class);
@@ -101,6 +106,19 @@ class SagaLibModule extends AbstractModule {
         bindInterceptors();
     }
 
+    private void bindTimeoutManager() {
+        if (timeoutManager == InMemoryTimeoutManager.class) {
+            // the default manager uses the configured id generator
+            bind(TimeoutManager.class).toProvider(() -> {
+                InMemoryTimeoutManager manager = new InMemoryTimeoutManager();
+                manager.setIdGenerator(executionOptions.idGenerator());
+                return manager;
+            }).in(Scopes.SINGLETON);
+        } else {
+            bindIfNotNull(TimeoutManager.class, timeoutManager, Scopes.SINGLETON);
+        }
+    }
+
     private void bindInterceptors() {
         Multibinder<SagaLifetimeInterceptor> multiBinder = Multibinder.newSetBinder(binder(), SagaLifetimeInterceptor.class);
         for (Class<? extends SagaLifetimeInterceptor> interceptorType : interceptorTypes) {
@@ -264,4 +282,11 @@ class SagaLibModule extends AbstractModule {
     public void setCoordinatorFactory(final Class<? extends ModuleCoordinatorFactory> coordinatorFactory) {
         this.coordinatorFactory = coordinatorFactory;
     }
-}
\ No newline at end of file
+
+    /**
+     * Sets the options controlling message execution.
+     */
+    public void setExecutionOptions(final ExecutionOptions executionOptions) {
+        this.executionOptions = executionOptions;
+    }
+}
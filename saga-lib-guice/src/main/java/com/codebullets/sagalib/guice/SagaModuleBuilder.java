@@ -20,10 +20,15 @@ import com.codebullets.sagalib.SagaLifetimeInterceptor;
 import com.codebullets.sagalib.SagaModule;
 import com.codebullets.sagalib.context.CurrentExecutionContext;
 import com.codebullets.sagalib.context.SagaExecutionContext;
+import com.codebullets.sagalib.metrics.MetricsInterceptor;
+import com.codebullets.sagalib.metrics.MetricsModule;
+import com.codebullets.sagalib.metrics.SagaMetrics;
 import com.codebullets.sagalib.processing.DefaultStrategyFinder;
-import com.codebullets.sagalib.processing.invocation.DefaultModuleCoordinator;
+import com.codebullets.sagalib.processing.ExecutionOptions;
+import com.codebullets.sagalib.processing.SagaIdGenerator;
+import com.codebullets.sagalib.processing.SagaInstancePool;
+import com.codebullets.sagalib.processing.invocation.DefaultModuleCoordinatorFactory;
 import com.codebullets.sagalib.processing.invocation.HandlerInvoker;
-import com.codebullets.sagalib.processing.invocation.ModuleCoordinator;
 import com.codebullets.sagalib.processing.invocation.ModuleCoordinatorFactory;
 import com.codebullets.sagalib.processing.invocation.ReflectionInvoker;
 import com.codebullets.sagalib.processing.SagaProviderFactory;
@@ -80,6 +85,9 @@ public final class SagaModuleBuilder {
     private final Collection<Class<? extends Annotation>> startSagaAnnotations = new ArrayList<>();
     private final Collection<Class<? extends Annotation>> handlerAnnotations = new ArrayList<>();
     private Executor executor;
+    private ExecutionOptions executionOptions = ExecutionOptions.defaults();
+    private SagaInstancePool sagaPool;
+    private SagaIdGenerator idGenerator;
 
     /**
      * Prevent direct instance creation of class.
@@ -93,7 +101,7 @@ public final class SagaModuleBuilder {
         executionContext = SagaExecutionContext.class;
         strategyFinder = DefaultStrategyFinder.class;
         invoker = ReflectionInvoker.class;
-        coordinatorFactory = DefaultCoordinatorFactory.class;
+        coordinatorFactory = DefaultModuleCoordinatorFactory.class;
     }
 
     /**
@@ -251,6 +259,16 @@ public final class SagaModuleBuilder {
         return this;
     }
 
+    /**
+     * Records message and saga metrics. The registry is bound as singleton and
+     * can be retrieved by injecting {@link SagaMetrics}.
+     */
+    public SagaModuleBuilder collectMetrics() {
+        moduleTypes.add(MetricsModule.class);
+        interceptorTypes.add(MetricsInterceptor.class);
+        return this;
+    }
+
     /**
      * Optional: Sets the executor to use for asynchronous handling. This one is
      * used when calling {@link com.codebullets.sagalib.MessageStream#add(Object)} to trigger
@@ -298,10 +316,53 @@ public final class SagaModuleBuilder {
         return this;
     }
 
+    /**
+     * Sets the options controlling message execution, like the reuse of
+     * execution contexts. If not called all options are disabled.
+     */
+    public SagaModuleBuilder useExecutionOptions(final ExecutionOptions options) {
+        Objects.requireNonNull(options, "The execution options are not allowed to be null");
+        executionOptions = options;
+        return this;
+    }
+
+    /**
+     * Reuses instances of the provided saga types instead of creating a new instance
+     * for every message. The types need to implement {@link com.codebullets.sagalib.Recyclable},
+     * e.g. by extending {@link com.codebullets.sagalib.AbstractSaga}.
+     *
+     * @param maxPerType The maximum number of idle instances kept per type and thread.
+     * @param sagaTypes The saga types to pool.
+     */
+    public SagaModuleBuilder usingSagaPooling(final int maxPerType, final Collection<Class<? extends Saga>> sagaTypes) {
+        Objects.requireNonNull(sagaTypes, "The pooled saga types are not allowed to be null");
+        sagaPool = new SagaInstancePool(maxPerType, sagaTypes);
+        return this;
+    }
+
+    /**
+     * Sets the generator of the ids of new sagas and timeouts. Timeout ids are only generated
+     * using this instance if the default timeout manager is used.
+     */
+    public SagaModuleBuilder usingIdGenerator(final SagaIdGenerator generator) {
+        Objects.requireNonNull(generator, "The id generator is not allowed to be null");
+        idGenerator = generator;
+        return this;
+    }
+
     /**
      * Creates the module containing all saga lib bindings.
      */
     public Module build() {
+        if (sagaPool != null) {
+            executionOptions.setSagaPool(sagaPool);
+        }
+
+        if (idGenerator != null) {
+            executionOptions.setIdGenerator(idGenerator);
+        }
+
+
         SagaLibModule module = new SagaLibModule();
         module.setStateStorage(stateStorage);
         module.setTimeoutManager(timeoutMgr);
@@ -315,17 +376,8 @@ public final class SagaModuleBuilder {
         module.setStrategyFinder(strategyFinder);
         module.setInvoker(invoker);
         module.setCoordinatorFactory(coordinatorFactory);
+        module.setExecutionOptions(executionOptions);
 
         return module;
     }
-
-    /**
-     * A factory always returning a new {@link DefaultModuleCoordinator}.
-     */
-    private static class DefaultCoordinatorFactory implements ModuleCoordinatorFactory {
-        @Override
-        public ModuleCoordinator create(final Iterable<SagaModule> modules) {
-            return new DefaultModuleCoordinator(modules);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -32,6 +32,9 @@ import java.util.Collections;
  * <p>Compared to {@link AbstractSingleEventSaga} this class is using
  * the direct handler description feature and does not rely on annotations.</p>
  *
+ * <p>Subclasses without per message fields can be marked as {@link StatelessHandler}
+ * to reuse their instances instead of creating one for every message.</p>
+ *
  * @param <T> The type of event to handle.
  */
 public abstract class AbstractHandler<T> implements Saga, NeedContext, DescribesHandlers {
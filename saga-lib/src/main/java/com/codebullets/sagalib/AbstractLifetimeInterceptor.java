@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+/**
+ * Base class of lifetime interceptors only interested in some of the callbacks.
+ * All methods are empty. Methods not overwritten are detected at startup and the
+ * interceptor will not be called for these hooks at all.
+ */
+public abstract class AbstractLifetimeInterceptor implements SagaLifetimeInterceptor {
+    @Override
+    public void onStarting(final Saga<?> saga, final ExecutionContext context, final Object message) {
+    }
+
+    @Override
+    public void onHandlerExecuting(final Saga<?> saga, final ExecutionContext context, final Object message) {
+    }
+
+    @Override
+    public void onHandlerExecuted(final Saga<?> saga, final ExecutionContext context, final Object message) {
+    }
+
+    @Override
+    public void onFinished(final Saga<?> saga, final ExecutionContext context) {
+    }
+}
@@ -26,9 +26,13 @@ import java.util.concurrent.TimeUnit;
 /**
  * Base implementation of the {@link Saga} interface.
  *
+ * <p>Instances can be reused for later messages if their type is pooled using a
+ * {@link com.codebullets.sagalib.processing.SagaInstancePool}. Subclasses holding
+ * additional fields need to override {@link #recycle()} to clear them.</p>
+ *
  * @param <SAGA_STATE> Type of the state object attached to this saga.
  */
-public abstract class AbstractSaga<SAGA_STATE extends SagaState> implements Saga<SAGA_STATE>, NeedTimeouts, NeedContext {
+public abstract class AbstractSaga<SAGA_STATE extends SagaState> implements Saga<SAGA_STATE>, NeedTimeouts, NeedContext, Recyclable {
     private SAGA_STATE state;
     private boolean completed;
     private TimeoutManager timeoutManager;
@@ -132,4 +136,16 @@ public abstract class AbstractSaga<SAGA_STATE extends SagaState> implements Saga
     public void setExecutionContext(final ExecutionContext executionContext) {
         this.context = executionContext;
     }
+
+    /**
+     * Clears state, completion flag, timeout manager and context before the instance
+     * is put back into the pool. Overriding methods need to call this implementation.
+     */
+    @Override
+    public void recycle() {
+        state = null;
+        completed = false;
+        timeoutManager = null;
+        context = null;
+    }
 }
@@ -15,6 +15,8 @@
  */
 package com.codebullets.sagalib;
 
+import com.google.common.collect.Sets;
+
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashSet;
@@ -27,14 +29,28 @@ import java.util.Set;
  * <p>The instance key method is intentionally missing. This one should
  * be modelled and implemented individually for each saga.
  * @param <KEY> The type of the instance to match state and messages.</p>
+ *
+ * <p>Changes of the instance keys are recorded as {@link InstanceKeyChanges} until
+ * a storage has persisted them. Once the recorded changes outnumber the current keys, the
+ * journal is replaced by a copy of the persisted keys and the changes are determined by
+ * comparing them with the current keys. The memory used is therefore bounded by the number of
+ * keys, even if the storage never calls {@link #instanceKeysPersisted()}.</p>
  */
-public abstract class AbstractSagaState<KEY> implements SagaState<KEY>, Serializable {
+public abstract class AbstractSagaState<KEY> implements SagaState<KEY>, InstanceKeyChanges<KEY>, Serializable {
     private static final long serialVersionUID = 1L;
+    private static final int MIN_JOURNAL_SIZE = 16;
 
     private String sagaId;
     private String sagaType;
     private final Set<KEY> instanceKeys = new HashSet<>(8);
 
+    // created on first change only, deserialized states have no pending changes
+    private transient Set<KEY> addedKeys;
+    private transient Set<KEY> removedKeys;
+
+    // replaces the journal once it grew too large, the keys as of the last persist
+    private transient Set<KEY> persistedKeys;
+
     /**
      * {@inheritDoc}
      */
@@ -71,20 +87,33 @@ public abstract class AbstractSagaState<KEY> implements SagaState<KEY>, Serializ
      * Adds a single instance key to the list of matched keys.
      */
     public void addInstanceKey(final KEY key) {
-        instanceKeys.add(key);
+        if (instanceKeys.add(key) && persistedKeys == null && (removedKeys == null || !removedKeys.remove(key))) {
+            if (addedKeys == null) {
+                addedKeys = new HashSet<>();
+            }
+
+            addedKeys.add(key);
+            compactJournalIfNeeded();
+        }
     }
 
     /**
      * Removes a single instance from the list of matching keys.
      */
     public void removeInstanceKey(final KEY key) {
-        instanceKeys.remove(key);
+        if (instanceKeys.remove(key)) {
+            keyRemoved(key);
+        }
     }
 
     /**
      * Clears all instances key currently assigned to the saga state.
      */
     public void clearInstanceKeys() {
+        for (KEY key : instanceKeys) {
+            keyRemoved(key);
+        }
+
         instanceKeys.clear();
     }
 
@@ -96,4 +125,80 @@ public abstract class AbstractSagaState<KEY> implements SagaState<KEY>, Serializ
     public Set<KEY> instanceKeys() {
         return Collections.unmodifiableSet(instanceKeys);
     }
-}
\ No newline at end of file
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<KEY> addedInstanceKeys() {
+        Set<KEY> added;
+
+        if (persistedKeys != null) {
+            added = Sets.difference(instanceKeys, persistedKeys);
+        } else {
+            added = addedKeys != null ? Collections.unmodifiableSet(addedKeys) : Collections.emptySet();
+        }
+
+        return added;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<KEY> removedInstanceKeys() {
+        Set<KEY> removed;
+
+        if (persistedKeys != null) {
+            removed = Sets.difference(persistedKeys, instanceKeys);
+        } else {
+            removed = removedKeys != null ? Collections.unmodifiableSet(removedKeys) : Collections.emptySet();
+        }
+
+        return removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void instanceKeysPersisted() {
+        addedKeys = null;
+        removedKeys = null;
+        persistedKeys = null;
+    }
+
+    private void keyRemoved(final KEY key) {
+        if (persistedKeys == null && (addedKeys == null || !addedKeys.remove(key))) {
+            if (removedKeys == null) {
+                removedKeys = new HashSet<>();
+            }
+
+            removedKeys.add(key);
+            compactJournalIfNeeded();
+        }
+    }
+
+    /**
+     * Replaces the recorded changes by the keys as of the last persist, once there are
+     * more changes than keys.
+     */
+    private void compactJournalIfNeeded() {
+        int journalSize = (addedKeys != null ? addedKeys.size() : 0) + (removedKeys != null ? removedKeys.size() : 0);
+
+        if (journalSize > Math.max(instanceKeys.size(), MIN_JOURNAL_SIZE)) {
+            Set<KEY> keys = new HashSet<>(instanceKeys);
+            if (addedKeys != null) {
+                keys.removeAll(addedKeys);
+            }
+
+            if (removedKeys != null) {
+                keys.addAll(removedKeys);
+            }
+
+            persistedKeys = keys;
+            addedKeys = null;
+            removedKeys = null;
+        }
+    }
+}
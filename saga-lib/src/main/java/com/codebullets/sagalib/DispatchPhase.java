@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+/**
+ * The individual phases of dispatching a message to its saga handlers,
+ * as recorded by {@link PhaseTimings}.
+ */
+public enum DispatchPhase {
+    /**
+     * Finding the saga types and resolve strategies handling a message.
+     */
+    ROUTING,
+
+    /**
+     * Reading the saga instance keys from the message.
+     */
+    KEY_EXTRACTION,
+
+    /**
+     * Loading existing saga states from the state storage.
+     */
+    STATE_LOAD,
+
+    /**
+     * Creating saga instances using the saga provider.
+     */
+    SAGA_INSTANTIATION,
+
+    /**
+     * Calling the {@link SagaLifetimeInterceptor} hooks.
+     */
+    INTERCEPTORS,
+
+    /**
+     * Executing the saga message handler methods.
+     */
+    HANDLER_INVOCATION,
+
+    /**
+     * Saving or deleting saga states and canceling timeouts of finished sagas.
+     */
+    STATE_UPDATE
+}
@@ -27,8 +27,17 @@ import java.lang.annotation.Target;
  * a message to start a new sage us the {@link StartsSaga} annotation.</p>
  *
  * <p>The method needs to return void and have only one parameter.</p>
+ *
+ * <p>Handlers marked as {@link #batch()} take a {@code List<T>} of the handled message
+ * type {@code T}. Messages of that type queued for the same saga instance are delivered
+ * together in a single invocation, followed by a single state update. Which messages end
+ * up in the same batch depends on the message stream, the list may hold a single message.</p>
  */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface EventHandler {
+    /**
+     * Indicates whether the handler receives a list of messages instead of a single one.
+     */
+    boolean batch() default false;
 }
@@ -99,4 +99,33 @@ public interface ExecutionContext {
      * execution block.</p>
      */
     Optional<Exception> error();
+
+    /**
+     * Gets the timings of the individual dispatch phases of the current message.
+     * If the message has not been sampled, or the context implementation does not
+     * support timings, a disabled instance is returned.
+     *
+     * @see com.codebullets.sagalib.processing.ExecutionOptions#phaseTimings()
+     */
+    default PhaseTimings phaseTimings() {
+        return PhaseTimings.disabled();
+    }
+
+    /**
+     * Gets whether any saga has been found to handle the current message. Messages no saga
+     * has been found for are handled as {@link DeadMessage} in a separate execution. The
+     * default implementation always returns true.
+     */
+    default boolean sagasFound() {
+        return true;
+    }
+
+    /**
+     * Gets the {@link System#nanoTime()} at which handling of the current message has started,
+     * or -1 if not known. Available to modules finishing the message on a different thread
+     * than it has been started on. The default implementation always returns -1.
+     */
+    default long startNanos() {
+        return -1;
+    }
 }
\ No newline at end of file
@@ -18,6 +18,9 @@ package com.codebullets.sagalib;
 
 import javax.annotation.concurrent.Immutable;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A typed Header represented by a name.
@@ -25,16 +28,30 @@ import java.util.Objects;
  * <p>The name is what makes headers unique. The type is used as a
  * compile type check only. It is not available at runtime.</p>
  *
+ * <p>Instances are interned. All calls using the same name return the same
+ * instance, which carries a small integer id assigned on first use. This allows
+ * header storage to compare keys by identity and avoids allocating new header
+ * keys for every message. As interned names are never released, header names are
+ * expected to be a fixed set of constants and not be generated from message data.
+ * Names only known at runtime are resolved using {@link #forUntypedName(String)}, which
+ * never adds to the interned names.</p>
+ *
  * @param <T> The type of the value associated with the header.
  */
 @Immutable
 @SuppressWarnings("UnusedDeclaration")
 public final class HeaderName<T> {
     private static final long serialVersionUID = 1L;
+    private static final ConcurrentMap<String, HeaderName<?>> INTERNED = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    private static final int NOT_INTERNED = -1;
+
     private final String name;
+    private final int id;
 
-    private HeaderName(final String name) {
+    private HeaderName(final String name, final int id) {
         this.name = name;
+        this.id = id;
     }
 
     /**
@@ -42,7 +59,7 @@ public final class HeaderName<T> {
      * used as key.
      */
     public static <T> HeaderName<T> forName(final String name) {
-        return new HeaderName<>(name);
+        return intern(name);
     }
 
     /**
@@ -54,7 +71,53 @@ public final class HeaderName<T> {
      * the header value type explicit.</p>
      */
     public static <T> HeaderName<T> forType(final Class<T> headerType, final String name) {
-        return new HeaderName<>(name);
+        return intern(name);
+    }
+
+    /**
+     * Gets the interned instance of the name if it is already in use. Otherwise a new
+     * instance is returned, which is neither interned nor assigned an id. Used for
+     * header names taken from untyped maps or message data.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> HeaderName<T> forUntypedName(final String name) {
+        Objects.requireNonNull(name, "Header name must not be null.");
+
+        HeaderName<?> headerName = INTERNED.get(name);
+        if (headerName == null) {
+            headerName = new HeaderName<>(name, NOT_INTERNED);
+        }
+
+        return (HeaderName<T>) headerName;
+    }
+
+    /**
+     * Gets the small integer id assigned to this header name. The id is
+     * unique per name for the lifetime of the JVM, or {@code -1} if the
+     * name is not interned.
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * Gets whether this is the interned instance of the name. Only interned
+     * names can be compared by identity.
+     */
+    public boolean isInterned() {
+        return id != NOT_INTERNED;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> HeaderName<T> intern(final String name) {
+        Objects.requireNonNull(name, "Header name must not be null.");
+
+        HeaderName<?> headerName = INTERNED.get(name);
+        if (headerName == null) {
+            headerName = INTERNED.computeIfAbsent(name, n -> new HeaderName<>(n, NEXT_ID.getAndIncrement()));
+        }
+
+        return (HeaderName<T>) headerName;
     }
 
     @Override
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+import java.util.Set;
+
+/**
+ * Optionally implemented by {@link SagaState} instances recording the instance keys
+ * added and removed since the state has been persisted the last time. Storages can use
+ * this journal to update their key index in proportion to the number of changes, instead
+ * of comparing all keys of the state on every save.
+ *
+ * <p>The journal is relative to a single storage. A storage using the journal must call
+ * {@link #instanceKeysPersisted()} once it has applied the changes, storages keeping state objects
+ * in memory otherwise keep the journal alive as long as the state. States deserialized from a storage
+ * start with an empty journal.</p>
+ *
+ * @param <KEY> The type of the instance keys.
+ */
+public interface InstanceKeyChanges<KEY> {
+    /**
+     * Gets the keys added since the last call to {@link #instanceKeysPersisted()}.
+     */
+    Set<KEY> addedInstanceKeys();
+
+    /**
+     * Gets the keys removed since the last call to {@link #instanceKeysPersisted()}.
+     * Keys added and removed again in between are part of neither set.
+     */
+    Set<KEY> removedInstanceKeys();
+
+    /**
+     * Clears the journal once the current keys have been persisted.
+     */
+    void instanceKeysPersisted();
+}
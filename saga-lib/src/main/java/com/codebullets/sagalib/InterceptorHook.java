@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+/**
+ * The individual callbacks of a {@link SagaLifetimeInterceptor}.
+ */
+public enum InterceptorHook {
+    /**
+     * See {@link SagaLifetimeInterceptor#onStarting(Saga, ExecutionContext, Object)}.
+     */
+    STARTING,
+
+    /**
+     * See {@link SagaLifetimeInterceptor#onHandlerExecuting(Saga, ExecutionContext, Object)}.
+     */
+    HANDLER_EXECUTING,
+
+    /**
+     * See {@link SagaLifetimeInterceptor#onHandlerExecuted(Saga, ExecutionContext, Object)}.
+     */
+    HANDLER_EXECUTED,
+
+    /**
+     * See {@link SagaLifetimeInterceptor#onFinished(Saga, ExecutionContext)}.
+     */
+    FINISHED
+}
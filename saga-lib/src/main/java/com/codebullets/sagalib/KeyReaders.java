@@ -15,6 +15,10 @@
  */
 package com.codebullets.sagalib;
 
+import com.codebullets.sagalib.context.LookupContext;
+
+import java.util.function.ToLongFunction;
+
 /**
  * Utility class to create new key readers.
  */
@@ -49,4 +53,43 @@ public final class KeyReaders {
             final ContextKeyExtractFunction<MESSAGE, KEY> extractFunction) {
         return FunctionKeyReader.create(messageClass, extractFunction);
     }
-}
\ No newline at end of file
+
+    /**
+     * Create a new reader of primitive {@code long} keys for a specific message class.
+     *
+     * @param messageClass    The class of the message for which a key reader is to be created.
+     * @param extractFunction The function to extract the key, returning {@link LongKeyReader#NO_KEY} if not available.
+     * @param <MESSAGE>       The type of the message this reader is for.
+     * @return Returns a new key reader instance.
+     */
+    public static <MESSAGE> LongKeyReader<MESSAGE> forLongKey(
+            final Class<MESSAGE> messageClass,
+            final ToLongFunction<MESSAGE> extractFunction) {
+        return new FunctionLongKeyReader<>(messageClass, extractFunction);
+    }
+
+    /**
+     * Reads long keys using a function.
+     *
+     * @param <MESSAGE> The type of the message this reader is for.
+     */
+    private static final class FunctionLongKeyReader<MESSAGE> implements LongKeyReader<MESSAGE> {
+        private final Class<MESSAGE> messageClass;
+        private final ToLongFunction<MESSAGE> extractFunction;
+
+        private FunctionLongKeyReader(final Class<MESSAGE> messageClass, final ToLongFunction<MESSAGE> extractFunction) {
+            this.messageClass = messageClass;
+            this.extractFunction = extractFunction;
+        }
+
+        @Override
+        public long readLongKey(final MESSAGE message, final LookupContext lookupContext) {
+            return extractFunction.applyAsLong(message);
+        }
+
+        @Override
+        public Class<MESSAGE> getMessageClass() {
+            return messageClass;
+        }
+    }
+}
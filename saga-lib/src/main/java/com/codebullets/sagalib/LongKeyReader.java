@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+import com.codebullets.sagalib.context.LookupContext;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reads primitive {@code long} instance keys from a message without boxing. Used together
+ * with {@link LongKeySagaState} the key is looked up in the storage as a primitive as well,
+ * see {@link com.codebullets.sagalib.storage.StateStorage#loadByLongKey(String, long)}.
+ *
+ * @param <MESSAGE> The type of the message to read the key from.
+ */
+public interface LongKeyReader<MESSAGE> extends KeyReader<MESSAGE, Long> {
+    /**
+     * Value returned by {@link #readLongKey(Object, LookupContext)} if the message does not contain a key.
+     */
+    long NO_KEY = Long.MIN_VALUE;
+
+    /**
+     * Reads the saga instance key from the provided message.
+     *
+     * @return instance key of the message or {@link #NO_KEY} if not found.
+     */
+    long readLongKey(MESSAGE message, LookupContext lookupContext);
+
+    /**
+     * Reads the boxed saga instance key from the provided message.
+     */
+    @Nullable
+    @Override
+    default Long readKey(final MESSAGE message, final LookupContext lookupContext) {
+        long key = readLongKey(message, lookupContext);
+        return key != NO_KEY ? key : null;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>State implementation keeping {@code long} instance keys in a primitive array instead
+ * of a set of boxed values. Sagas usually have only a few keys, lookups scan the array.</p>
+ *
+ * <p>Storages aware of this type index the keys without boxing, see
+ * {@link com.codebullets.sagalib.storage.MemoryStorage}. Use a {@link LongKeyReader}
+ * to read the keys of the messages.</p>
+ */
+public abstract class LongKeySagaState implements SagaState<Long>, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final long[] NO_KEYS = new long[0];
+    private static final int INITIAL_CAPACITY = 2;
+
+    private String sagaId;
+    private String sagaType;
+    private long[] instanceKeys = NO_KEYS;
+    private int keyCount;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSagaId() {
+        return sagaId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSagaId(final String sagaId) {
+        this.sagaId = sagaId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getType() {
+        return sagaType;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setType(final String type) {
+        sagaType = type;
+    }
+
+    /**
+     * Adds a single instance key to the list of matched keys.
+     */
+    public void addInstanceKey(final long key) {
+        if (indexOf(key) < 0) {
+            if (keyCount == instanceKeys.length) {
+                instanceKeys = Arrays.copyOf(instanceKeys, Math.max(INITIAL_CAPACITY, keyCount * 2));
+            }
+
+            instanceKeys[keyCount++] = key;
+        }
+    }
+
+    /**
+     * Removes a single instance from the list of matching keys.
+     */
+    public void removeInstanceKey(final long key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            --keyCount;
+            instanceKeys[index] = instanceKeys[keyCount];
+        }
+    }
+
+    /**
+     * Clears all instances key currently assigned to the saga state.
+     */
+    public void clearInstanceKeys() {
+        keyCount = 0;
+    }
+
+    /**
+     * Gets whether the key is assigned to this state.
+     */
+    public boolean hasInstanceKey(final long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Calls the consumer for every assigned instance key.
+     */
+    public void forEachInstanceKey(final LongConsumer consumer) {
+        for (int i = 0; i < keyCount; ++i) {
+            consumer.accept(instanceKeys[i]);
+        }
+    }
+
+    /**
+     * Gets a copy of the assigned instance keys.
+     */
+    public long[] longInstanceKeys() {
+        return Arrays.copyOf(instanceKeys, keyCount);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Returns a boxed copy of the keys added using {@link #addInstanceKey(long)}. Prefer
+     * {@link #forEachInstanceKey(LongConsumer)} to avoid boxing.</p>
+     */
+    @Override
+    public Set<Long> instanceKeys() {
+        Set<Long> keys = new LinkedHashSet<>(keyCount * 2);
+        forEachInstanceKey(keys::add);
+        return Collections.unmodifiableSet(keys);
+    }
+
+    private int indexOf(final long key) {
+        int index = -1;
+        for (int i = 0; i < keyCount; ++i) {
+            if (instanceKeys[i] == key) {
+                index = i;
+                break;
+            }
+        }
+
+        return index;
+    }
+}
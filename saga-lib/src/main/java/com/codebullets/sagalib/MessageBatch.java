@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Several messages of the same type handled by a single saga instance in one go.
+ * Used as message of the execution context if a saga handles queued messages using
+ * a handler marked as {@link EventHandler#batch()}. Modules and interceptors see
+ * this instance instead of the single messages.
+ *
+ * @param <T> The type of the messages of the batch.
+ */
+public final class MessageBatch<T> {
+    private final Class<T> messageType;
+    private final List<T> messages;
+
+    /**
+     * Generates a new instance of MessageBatch.
+     */
+    public MessageBatch(final Class<T> messageType, final List<T> messages) {
+        this.messageType = messageType;
+        this.messages = Collections.unmodifiableList(messages);
+    }
+
+    /**
+     * Gets the type of all messages of the batch.
+     */
+    public Class<T> messageType() {
+        return messageType;
+    }
+
+    /**
+     * Gets the messages in the order they have been added to the stream.
+     */
+    public List<T> messages() {
+        return messages;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageBatch{" + messageType.getSimpleName() + " x " + messages.size() + "}";
+    }
+}
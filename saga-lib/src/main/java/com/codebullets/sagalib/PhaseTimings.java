@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Nanosecond timings of the individual {@link DispatchPhase}s of a single message.
+ *
+ * <p>Timings are only collected for sampled messages. Messages not being sampled
+ * share the {@link #disabled()} instance, which ignores all recordings without
+ * reading the clock. Instances are filled while a message is handled and can be
+ * read by a {@link SagaModule} in {@link SagaModule#onFinished(ExecutionContext)}.
+ * The class is not thread safe.</p>
+ */
+public final class PhaseTimings {
+    private static final DispatchPhase[] PHASES = DispatchPhase.values();
+    private static final PhaseTimings DISABLED = new PhaseTimings(false);
+
+    private final boolean enabled;
+    private final long[] phaseNanos;
+    private long dispatchNanos;
+
+    private PhaseTimings(final boolean enabled) {
+        this.enabled = enabled;
+        this.phaseNanos = new long[enabled ? PHASES.length : 0];
+    }
+
+    /**
+     * Creates a new instance recording the timings of a message.
+     */
+    public static PhaseTimings create() {
+        return new PhaseTimings(true);
+    }
+
+    /**
+     * Gets the shared instance used for messages not being sampled.
+     */
+    public static PhaseTimings disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Gets whether timings are recorded by this instance.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks the start of a measurement.
+     *
+     * @return Returns the current {@link System#nanoTime()} or 0 if recording is disabled.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds the time elapsed since {@code startNanos} to the provided phase.
+     *
+     * @param phase The phase the time has been spent in.
+     * @param startNanos The value returned by {@link #start()}.
+     */
+    public void stop(final DispatchPhase phase, final long startNanos) {
+        if (enabled) {
+            phaseNanos[phase.ordinal()] += System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * Adds the provided amount of nanoseconds to a phase.
+     */
+    public void add(final DispatchPhase phase, final long nanos) {
+        if (enabled) {
+            phaseNanos[phase.ordinal()] += nanos;
+        }
+    }
+
+    /**
+     * Gets the nanoseconds spent in the provided phase.
+     */
+    public long nanos(final DispatchPhase phase) {
+        return enabled ? phaseNanos[phase.ordinal()] : 0;
+    }
+
+    /**
+     * Gets the sum of all recorded phases.
+     */
+    public long phaseTotalNanos() {
+        long total = 0;
+        for (long nanos : phaseNanos) {
+            total += nanos;
+        }
+
+        return total;
+    }
+
+    /**
+     * Gets the nanoseconds spent dispatching the message, from resolving the sagas
+     * up to the last state update. The time not covered by {@link #phaseTotalNanos()}
+     * has been spent in the lib itself or in nested executions.
+     */
+    public long dispatchNanos() {
+        return dispatchNanos;
+    }
+
+    /**
+     * Sets the overall dispatch time of the message.
+     */
+    public void setDispatchNanos(final long nanos) {
+        if (enabled) {
+            dispatchNanos = nanos;
+        }
+    }
+
+    /**
+     * Returns the recorded phases as a new map.
+     */
+    public Map<DispatchPhase, Long> toMap() {
+        Map<DispatchPhase, Long> map = new EnumMap<>(DispatchPhase.class);
+        if (enabled) {
+            for (DispatchPhase phase : PHASES) {
+                map.put(phase, phaseNanos[phase.ordinal()]);
+            }
+        }
+
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "PhaseTimings{dispatchNanos=" + dispatchNanos + ", phases=" + toMap() + '}';
+    }
+}
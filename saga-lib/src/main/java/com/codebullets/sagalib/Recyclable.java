@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+/**
+ * Implemented by objects the saga lib is able to reuse for handling
+ * multiple messages, in case context recycling has been enabled using
+ * {@link com.codebullets.sagalib.processing.ExecutionOptions#setRecycleContexts(boolean)}
+ * or saga instances are pooled using {@link com.codebullets.sagalib.processing.ExecutionOptions#setSagaPool}.
+ *
+ * <p>Instances are only reused on the thread they have been created and
+ * released on. They are never used for two messages at the same time.</p>
+ */
+public interface Recyclable {
+    /**
+     * Called after message handling has finished. Clears all state of the
+     * previous execution. The instance is not expected to be used until
+     * {@link #reuse()} is called.
+     */
+    void recycle();
+
+    /**
+     * Called before a previously recycled instance is used again.
+     */
+    default void reuse() {
+    }
+}
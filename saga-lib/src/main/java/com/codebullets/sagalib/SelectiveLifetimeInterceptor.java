@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifetime interceptor declaring the callbacks and saga types it is interested in.
+ * The saga lib evaluates both once per saga type and will not call the interceptor
+ * for any other hook or saga.
+ */
+public interface SelectiveLifetimeInterceptor extends SagaLifetimeInterceptor {
+    /**
+     * Gets the hooks this interceptor is to be called for. By default
+     * all hooks are called.
+     */
+    default Set<InterceptorHook> hooks() {
+        return EnumSet.allOf(InterceptorHook.class);
+    }
+
+    /**
+     * Gets whether the interceptor is to be called for sagas of the provided type.
+     * By default all saga types are intercepted.
+     */
+    default boolean interceptsSagaType(final Class<? extends Saga> sagaType) {
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Marks a saga type as stateless handler, like subclasses of {@link AbstractHandler}
+ * or {@link AbstractAutoTypedHandler}. Instead of creating a new instance for every message
+ * the saga-lib creates one instance per thread and reuses it for all following messages
+ * handled on that thread. No new saga state and saga id are created for it.</p>
+ *
+ * <p>The saga must only start on messages, always be finished and provide its own fixed
+ * state. Fields of the instance are kept between messages, any per message data must not
+ * be stored on the instance.</p>
+ *
+ * <p>Streams invoking sagas on a different thread than the one resolving them, like the
+ * mailbox or staged execution, may use the same instance for several messages at the same
+ * time. Handlers used with these streams need to be thread safe and must not rely on the
+ * execution context set on the instance.</p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatelessHandler {
+}
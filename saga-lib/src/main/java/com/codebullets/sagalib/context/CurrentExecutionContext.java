@@ -6,6 +6,8 @@
 package com.codebullets.sagalib.context;
 
 import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.HeaderName;
+import com.codebullets.sagalib.PhaseTimings;
 import com.codebullets.sagalib.Saga;
 
 /**
@@ -47,4 +49,45 @@ public interface CurrentExecutionContext extends ExecutionContext {
      * possible recursive executions.</p>
      */
     boolean hasBeenStored(final String sagaId);
+
+    /**
+     * Sets the timings recorded for the current message. The default implementation
+     * ignores the timings.
+     */
+    default void setPhaseTimings(final PhaseTimings timings) {
+    }
+
+    /**
+     * Sets whether any saga has been found to handle the current message. The default
+     * implementation ignores the value.
+     */
+    default void setSagasFound(final boolean found) {
+    }
+
+    /**
+     * Sets the {@link System#nanoTime()} at which handling of the current message has started.
+     * The default implementation ignores the value.
+     */
+    default void setStartNanos(final long startNanos) {
+    }
+
+    /**
+     * Copies all provided headers into this context, overwriting values of
+     * already existing headers.
+     *
+     * <p>The default implementation sets every header individually. Implementations
+     * may override this to share the header storage instead of copying it.</p>
+     */
+    @SuppressWarnings("unchecked")
+    default void putAllHeaders(final HeaderMap headers) {
+        headers.forEach((name, value) -> setHeaderValue((HeaderName<Object>) name, value));
+    }
+
+    /**
+     * Returns a separate copy of all headers of this context. Changes to the
+     * returned map are not reflected in the context.
+     */
+    default HeaderMap copyHeaders() {
+        return HeaderMap.copyOf(getAllHeaders());
+    }
 }
\ No newline at end of file
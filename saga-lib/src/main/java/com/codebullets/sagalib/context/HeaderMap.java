@@ -0,0 +1,289 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.context;
+
+import com.codebullets.sagalib.HeaderName;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Compact, array backed storage of header values keyed by interned {@link HeaderName}
+ * instances.
+ *
+ * <p>Messages usually carry only a handful of headers, so a linear scan comparing keys
+ * by identity is cheaper than hashing. A bit mask of the header ids is kept to answer
+ * lookups of missing headers without scanning. Names which are not interned are
+ * compared by value and disable the bit mask of the instance containing them.</p>
+ *
+ * <p>Instances can be handed on from the lookup to the execution context using
+ * {@link #share()}. Shared instances reference the same arrays until one of them
+ * is modified, at which point the modified instance creates its own copy. The
+ * class is not thread safe.</p>
+ */
+public final class HeaderMap {
+    private static final int DEFAULT_CAPACITY = 4;
+    private static final int ID_MASK_BITS = 64;
+    private static final long ALL_BITS = -1L;
+    private static final HeaderName<?>[] NO_NAMES = new HeaderName<?>[0];
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private HeaderName<?>[] names;
+    private Object[] values;
+    private int size;
+    private long idMask;
+    private boolean shared;
+
+    /**
+     * Creates a new empty header map.
+     */
+    public HeaderMap() {
+        names = NO_NAMES;
+        values = NO_VALUES;
+    }
+
+    private HeaderMap(final HeaderName<?>[] names, final Object[] values, final int size, final long idMask) {
+        this.names = names;
+        this.values = values;
+        this.size = size;
+        this.idMask = idMask;
+        this.shared = true;
+    }
+
+    /**
+     * Creates a new header map containing all entries of the provided map.
+     */
+    public static HeaderMap copyOf(@Nullable final Map<HeaderName<?>, Object> headers) {
+        HeaderMap headerMap = new HeaderMap();
+        if (headers != null) {
+            headerMap.ensureCapacity(headers.size());
+            headers.forEach(headerMap::put);
+        }
+
+        return headerMap;
+    }
+
+    /**
+     * Creates a new header map containing all entries of the provided stream.
+     * In case of duplicate header names the last entry wins.
+     */
+    public static HeaderMap copyOf(@Nullable final Stream<Map.Entry<HeaderName<?>, Object>> headers) {
+        HeaderMap headerMap = new HeaderMap();
+        if (headers != null) {
+            headers.forEachOrdered(e -> headerMap.put(e.getKey(), e.getValue()));
+        }
+
+        return headerMap;
+    }
+
+    /**
+     * Creates a new header map converting the string keys into their
+     * {@link HeaderName} counterparts. Keys not used as header name so far
+     * are not interned, see {@link HeaderName#forUntypedName(String)}.
+     */
+    public static HeaderMap copyOfUntyped(@Nullable final Map<String, Object> headers) {
+        HeaderMap headerMap = new HeaderMap();
+        if (headers != null) {
+            headerMap.ensureCapacity(headers.size());
+            headers.forEach((name, value) -> headerMap.put(HeaderName.forUntypedName(name), value));
+        }
+
+        return headerMap;
+    }
+
+    /**
+     * Gets the value of the provided header or {@code null} if not set.
+     */
+    @Nullable
+    public Object get(final HeaderName<?> name) {
+        Object value = null;
+
+        if ((idMask & maskBit(name)) != 0) {
+            int index = indexOf(name);
+            if (index >= 0) {
+                value = values[index];
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Sets the header value, overwriting a possible existing entry.
+     */
+    public void put(final HeaderName<?> name, @Nullable final Object value) {
+        ensureExclusive();
+
+        int index = indexOf(name);
+        if (index >= 0) {
+            values[index] = value;
+        } else {
+            ensureCapacity(size + 1);
+            names[size] = name;
+            values[size] = value;
+            size++;
+            idMask |= maskBit(name);
+        }
+    }
+
+    /**
+     * Copies all entries of the provided map into this instance, overwriting
+     * values of already existing headers.
+     */
+    public void putAll(final HeaderMap other) {
+        if (size == 0 && !other.isEmpty()) {
+            adopt(other);
+        } else {
+            other.forEach(this::put);
+        }
+    }
+
+    /**
+     * Removes all header values.
+     */
+    public void clear() {
+        names = NO_NAMES;
+        values = NO_VALUES;
+        size = 0;
+        idMask = 0;
+        shared = false;
+    }
+
+    /**
+     * Gets the number of headers stored.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets a value indicating whether no header is stored.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a new instance with the same content as this one. No data is
+     * copied until one of the instances is modified.
+     */
+    public HeaderMap share() {
+        shared = true;
+        return new HeaderMap(names, values, size, idMask);
+    }
+
+    /**
+     * Calls the consumer for every stored header.
+     */
+    public void forEach(final BiConsumer<HeaderName<?>, Object> consumer) {
+        HeaderName<?>[] currentNames = names;
+        Object[] currentValues = values;
+        int currentSize = size;
+
+        for (int i = 0; i < currentSize; ++i) {
+            consumer.accept(currentNames[i], currentValues[i]);
+        }
+    }
+
+    /**
+     * Gets a stream of all stored headers.
+     */
+    public Stream<Map.Entry<HeaderName<?>, Object>> stream() {
+        HeaderName<?>[] currentNames = names;
+        Object[] currentValues = values;
+
+        return IntStream.range(0, size).mapToObj(i -> new AbstractMap.SimpleImmutableEntry<>(currentNames[i], currentValues[i]));
+    }
+
+    /**
+     * Gets the list of header names as strings.
+     */
+    public Collection<String> names() {
+        Collection<String> headerNames = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            headerNames.add(names[i].toString());
+        }
+
+        return headerNames;
+    }
+
+    /**
+     * Creates a new hash map containing all headers.
+     */
+    public Map<HeaderName<?>, Object> toMap() {
+        Map<HeaderName<?>, Object> map = new HashMap<>();
+        forEach(map::put);
+        return map;
+    }
+
+    private void adopt(final HeaderMap other) {
+        other.shared = true;
+        names = other.names;
+        values = other.values;
+        size = other.size;
+        idMask = other.idMask;
+        shared = true;
+    }
+
+    private int indexOf(final HeaderName<?> name) {
+        int index = -1;
+
+        // interned header names are the same instance, only names not interned need to be compared by value
+        for (int i = 0; i < size; ++i) {
+            if (names[i] == name || (!(names[i].isInterned() && name.isInterned()) && names[i].equals(name))) {
+                index = i;
+                break;
+            }
+        }
+
+        return index;
+    }
+
+    private void ensureExclusive() {
+        if (shared) {
+            names = Arrays.copyOf(names, Math.max(names.length, DEFAULT_CAPACITY));
+            values = Arrays.copyOf(values, names.length);
+            shared = false;
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > names.length) {
+            int newLength = Math.max(Math.max(capacity, DEFAULT_CAPACITY), names.length * 2);
+            names = Arrays.copyOf(names, newLength);
+            values = Arrays.copyOf(values, newLength);
+            shared = false;
+        }
+    }
+
+    private static long maskBit(final HeaderName<?> name) {
+        return name.isInterned() ? 1L << (name.id() % ID_MASK_BITS) : ALL_BITS;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -17,6 +17,7 @@ package com.codebullets.sagalib.context;
 
 import com.codebullets.sagalib.ExecutionContext;
 import com.codebullets.sagalib.HeaderName;
+import com.codebullets.sagalib.PhaseTimings;
 
 import javax.annotation.Nullable;
 import java.util.Map;
@@ -79,4 +80,13 @@ public interface LookupContext {
      */
     @Nullable
     ExecutionContext parentContext();
+
+    /**
+     * Gets the timings of the message being looked up. Resolve strategies record
+     * the time spent for routing, key extraction, loading and saga creation into
+     * this instance.
+     */
+    default PhaseTimings phaseTimings() {
+        return PhaseTimings.disabled();
+    }
 }
\ No newline at end of file
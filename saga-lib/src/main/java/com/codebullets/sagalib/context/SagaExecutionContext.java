@@ -17,25 +17,28 @@ package com.codebullets.sagalib.context;
 
 import com.codebullets.sagalib.ExecutionContext;
 import com.codebullets.sagalib.HeaderName;
+import com.codebullets.sagalib.PhaseTimings;
+import com.codebullets.sagalib.Recyclable;
 import com.codebullets.sagalib.Saga;
 
 import javax.annotation.Nullable;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Execution context used in the saga lib.
  */
-public class SagaExecutionContext implements CurrentExecutionContext {
+public class SagaExecutionContext implements CurrentExecutionContext, Recyclable {
+    private boolean released;
     private boolean dispatchingStopped;
+    private boolean sagasFound;
+    private long startNanos = -1;
     private Object message;
     private Saga saga;
-    private Map<HeaderName<?>, Object> headers = new HashMap<>();
+    private HeaderMap headers = new HeaderMap();
     private Set<String> storedSagas = new HashSet<>();
 
     @Nullable
@@ -44,11 +47,14 @@ public class SagaExecutionContext implements CurrentExecutionContext {
     @Nullable
     private Exception error;
 
+    private PhaseTimings phaseTimings = PhaseTimings.disabled();
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void stopDispatchingCurrentMessageToHandlers() {
+        checkActive();
         dispatchingStopped = true;
     }
 
@@ -57,88 +63,150 @@ public class SagaExecutionContext implements CurrentExecutionContext {
      */
     @Override
     public boolean dispatchingStopped() {
+        checkActive();
         return dispatchingStopped;
     }
 
     @Override
     public Object message() {
+        checkActive();
         return message;
     }
 
     @Override
     public Saga saga() {
+        checkActive();
         return saga;
     }
 
     @Override
     public Iterable<String> getHeaders() {
+        checkActive();
         // Iterable contract requires the ability to
         // scan over the items multiple times, which is something
         // Stream does not support
-        return headers.keySet().stream()
-                .map(HeaderName::toString)
-                .collect(Collectors.toList());
+        return headers.names();
     }
 
     @Override
     public Stream<Map.Entry<HeaderName<?>, Object>> getAllHeaders() {
-        return headers.entrySet().stream();
+        checkActive();
+        return headers.stream();
     }
 
     @Override
     public Object getHeaderValue(final String header) {
-        return headers.get(HeaderName.forName(header));
+        checkActive();
+        return headers.get(HeaderName.forUntypedName(header));
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> Optional<T> getHeaderValue(final HeaderName<T> header) {
+        checkActive();
         return Optional.ofNullable((T) headers.get(header));
     }
 
     @Override
     public void setHeaderValue(final String header, final Object value) {
-        headers.put(HeaderName.forName(header), value);
+        checkActive();
+        headers.put(HeaderName.forUntypedName(header), value);
     }
 
     @Override
     public <T> void setHeaderValue(final HeaderName<T> header, final T value) {
+        checkActive();
         headers.put(header, value);
     }
 
+    @Override
+    public void putAllHeaders(final HeaderMap headersToAdd) {
+        checkActive();
+        headers.putAll(headersToAdd);
+    }
+
+    @Override
+    public HeaderMap copyHeaders() {
+        checkActive();
+        return headers.share();
+    }
+
     @Nullable
     @Override
     public ExecutionContext parentContext() {
+        checkActive();
         return parentContext;
     }
 
     @Override
     public void setMessage(final Object message) {
+        checkActive();
         this.message = message;
     }
 
     @Override
     public void setSaga(final Saga saga) {
+        checkActive();
         this.saga = saga;
     }
 
     @Override
     public void setParentContext(@Nullable final ExecutionContext parentContext) {
+        checkActive();
         this.parentContext = parentContext;
     }
 
     @Override
     public Optional<Exception> error() {
+        checkActive();
         return Optional.ofNullable(error);
     }
 
     @Override
     public void setError(@Nullable final Exception error) {
+        checkActive();
         this.error = error;
     }
 
+    @Override
+    public PhaseTimings phaseTimings() {
+        checkActive();
+        return phaseTimings;
+    }
+
+    @Override
+    public void setPhaseTimings(final PhaseTimings timings) {
+        checkActive();
+        this.phaseTimings = timings;
+    }
+
+    @Override
+    public boolean sagasFound() {
+        checkActive();
+        return sagasFound;
+    }
+
+    @Override
+    public void setSagasFound(final boolean found) {
+        checkActive();
+        this.sagasFound = found;
+    }
+
+    @Override
+    public long startNanos() {
+        checkActive();
+        return startNanos;
+    }
+
+    @Override
+    public void setStartNanos(final long startNanos) {
+        checkActive();
+        this.startNanos = startNanos;
+    }
+
     @Override
     public void recordSagaStateStored(final String sagaId) {
+        checkActive();
         // always store in parent context if available.
         if (parentContext instanceof CurrentExecutionContext) {
             ((CurrentExecutionContext) parentContext).recordSagaStateStored(sagaId);
@@ -149,6 +217,7 @@ public class SagaExecutionContext implements CurrentExecutionContext {
 
     @Override
     public boolean hasBeenStored(final String sagaId) {
+        checkActive();
         boolean hasBeenStored;
 
         if (parentContext instanceof CurrentExecutionContext) {
@@ -159,4 +228,31 @@ public class SagaExecutionContext implements CurrentExecutionContext {
 
         return hasBeenStored;
     }
-}
\ No newline at end of file
+
+    @Override
+    public void recycle() {
+        dispatchingStopped = false;
+        sagasFound = false;
+        startNanos = -1;
+        message = null;
+        saga = null;
+        headers.clear();
+        storedSagas.clear();
+        parentContext = null;
+        error = null;
+        phaseTimings = PhaseTimings.disabled();
+        released = true;
+    }
+
+    @Override
+    public void reuse() {
+        released = false;
+    }
+
+    private void checkActive() {
+        if (released) {
+            throw new IllegalStateException("The execution context has already been released. "
+                    + "Contexts must not be used after the handling of their message has finished.");
+        }
+    }
+}
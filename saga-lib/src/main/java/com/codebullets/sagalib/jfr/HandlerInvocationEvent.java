@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Covers the invocation of a single saga handler method.
+ */
+@Name("com.codebullets.sagalib.HandlerInvocation")
+@Label("Handler Invocation")
+@Description("Invocation of a saga message handler")
+final class HandlerInvocationEvent extends SagaLibEvent {
+    @Label("Saga Type")
+    private Class<?> sagaType;
+
+    @Label("Message Class")
+    private Class<?> messageClass;
+
+    @Label("Saga Id")
+    private String sagaId;
+
+    void setSagaType(final Class<?> sagaType) {
+        this.sagaType = sagaType;
+    }
+
+    void setMessageClass(final Class<?> messageClass) {
+        this.messageClass = messageClass;
+    }
+
+    void setSagaId(final String sagaId) {
+        this.sagaId = sagaId;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import jdk.jfr.EventType;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reports all events to the Java Flight Recorder. This class must only be
+ * loaded if the runtime provides the {@code jdk.jfr} API.
+ */
+final class JfrEventSink implements SagaEventSink {
+    // the enabled state is checked on the event types, so no event object is created while disabled
+    private static final EventType DISPATCH_EVENT = EventType.getEventType(MessageDispatchEvent.class);
+    private static final EventType RESOLUTION_EVENT = EventType.getEventType(SagaResolutionEvent.class);
+    private static final EventType HANDLER_EVENT = EventType.getEventType(HandlerInvocationEvent.class);
+    private static final EventType STORAGE_EVENT = EventType.getEventType(StateStorageEvent.class);
+    private static final EventType TIMEOUT_EVENT = EventType.getEventType(TimeoutEvent.class);
+
+    @Nullable
+    @Override
+    public Object dispatchStarted(final Object message) {
+        Object started = null;
+
+        if (DISPATCH_EVENT.isEnabled()) {
+            MessageDispatchEvent event = new MessageDispatchEvent();
+            event.setMessageClass(message.getClass());
+            event.begin();
+            started = event;
+        }
+
+        return started;
+    }
+
+    @Override
+    public void dispatchFinished(@Nullable final Object event, final boolean handled) {
+        if (event != null) {
+            MessageDispatchEvent dispatchEvent = (MessageDispatchEvent) event;
+            dispatchEvent.setHandled(handled);
+            dispatchEvent.commit();
+        }
+    }
+
+    @Nullable
+    @Override
+    public Object resolutionStarted(final Object message) {
+        Object started = null;
+
+        if (RESOLUTION_EVENT.isEnabled()) {
+            SagaResolutionEvent event = new SagaResolutionEvent();
+            event.setMessageClass(message.getClass());
+            event.begin();
+            started = event;
+        }
+
+        return started;
+    }
+
+    @Override
+    public void resolutionFinished(@Nullable final Object event, final int sagaCount) {
+        if (event != null) {
+            SagaResolutionEvent resolutionEvent = (SagaResolutionEvent) event;
+            resolutionEvent.setSagaCount(sagaCount);
+            resolutionEvent.commit();
+        }
+    }
+
+    @Nullable
+    @Override
+    public Object handlerStarted(final Class<?> sagaType, final Object message, @Nullable final String sagaId) {
+        Object started = null;
+
+        if (HANDLER_EVENT.isEnabled()) {
+            HandlerInvocationEvent event = new HandlerInvocationEvent();
+            event.setSagaType(sagaType);
+            event.setMessageClass(message.getClass());
+            event.setSagaId(sagaId);
+            event.begin();
+            started = event;
+        }
+
+        return started;
+    }
+
+    @Override
+    public void handlerFinished(@Nullable final Object event) {
+        if (event != null) {
+            ((HandlerInvocationEvent) event).commit();
+        }
+    }
+
+    @Nullable
+    @Override
+    public Object storageStarted(final StorageOperation operation, @Nullable final String sagaType, @Nullable final String sagaId) {
+        Object started = null;
+
+        if (STORAGE_EVENT.isEnabled()) {
+            StateStorageEvent event = new StateStorageEvent();
+            event.setOperation(operation.name());
+            event.setSagaType(sagaType);
+            event.setSagaId(sagaId);
+            event.begin();
+            started = event;
+        }
+
+        return started;
+    }
+
+    @Override
+    public void storageFinished(@Nullable final Object event, final int stateCount) {
+        if (event != null) {
+            StateStorageEvent storageEvent = (StateStorageEvent) event;
+            storageEvent.setStateCount(stateCount);
+            storageEvent.commit();
+        }
+    }
+
+    @Override
+    public void timeoutRequested(final String sagaId, @Nullable final String name, final long delayMillis) {
+        if (TIMEOUT_EVENT.isEnabled()) {
+            TimeoutEvent event = new TimeoutEvent();
+            event.setAction(TimeoutEvent.REQUESTED);
+            event.setSagaId(sagaId);
+            event.setName(name);
+            event.setDelay(delayMillis);
+            event.setCount(1);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void timeoutsCanceled(@Nullable final String sagaId, final int count) {
+        if (TIMEOUT_EVENT.isEnabled()) {
+            TimeoutEvent event = new TimeoutEvent();
+            event.setAction(TimeoutEvent.CANCELED);
+            event.setSagaId(sagaId);
+            event.setCount(count);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void timeoutExpired(final String sagaId, @Nullable final String name) {
+        if (TIMEOUT_EVENT.isEnabled()) {
+            TimeoutEvent event = new TimeoutEvent();
+            event.setAction(TimeoutEvent.EXPIRED);
+            event.setSagaId(sagaId);
+            event.setName(name);
+            event.setCount(1);
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Covers the dispatching of a single message to all its saga handlers.
+ */
+@Name("com.codebullets.sagalib.MessageDispatch")
+@Label("Message Dispatch")
+@Description("Dispatching of a message to all its saga handlers")
+final class MessageDispatchEvent extends SagaLibEvent {
+    @Label("Message Class")
+    private Class<?> messageClass;
+
+    @Label("Handled")
+    @Description("Whether any saga handled the message")
+    private boolean handled;
+
+    void setMessageClass(final Class<?> messageClass) {
+        this.messageClass = messageClass;
+    }
+
+    void setHandled(final boolean handled) {
+        this.handled = handled;
+    }
+}
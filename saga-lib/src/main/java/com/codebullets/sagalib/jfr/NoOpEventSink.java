@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import javax.annotation.Nullable;
+
+/**
+ * Sink ignoring all events. Used if the JVM does not support the flight recorder.
+ */
+final class NoOpEventSink implements SagaEventSink {
+    @Nullable
+    @Override
+    public Object dispatchStarted(final Object message) {
+        return null;
+    }
+
+    @Override
+    public void dispatchFinished(@Nullable final Object event, final boolean handled) {
+    }
+
+    @Nullable
+    @Override
+    public Object resolutionStarted(final Object message) {
+        return null;
+    }
+
+    @Override
+    public void resolutionFinished(@Nullable final Object event, final int sagaCount) {
+    }
+
+    @Nullable
+    @Override
+    public Object handlerStarted(final Class<?> sagaType, final Object message, @Nullable final String sagaId) {
+        return null;
+    }
+
+    @Override
+    public void handlerFinished(@Nullable final Object event) {
+    }
+
+    @Nullable
+    @Override
+    public Object storageStarted(final StorageOperation operation, @Nullable final String sagaType, @Nullable final String sagaId) {
+        return null;
+    }
+
+    @Override
+    public void storageFinished(@Nullable final Object event, final int stateCount) {
+    }
+
+    @Override
+    public void timeoutRequested(final String sagaId, @Nullable final String name, final long delayMillis) {
+    }
+
+    @Override
+    public void timeoutsCanceled(@Nullable final String sagaId, final int count) {
+    }
+
+    @Override
+    public void timeoutExpired(final String sagaId, @Nullable final String name) {
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import javax.annotation.Nullable;
+
+/**
+ * Receives the diagnostic events emitted while handling messages.
+ *
+ * <p>Events covering a duration are split into a start and a finish call. The
+ * start call returns an opaque event object, which has to be passed to the
+ * matching finish call. If the event is not recorded {@code null} is returned
+ * and the finish call does nothing.</p>
+ */
+public interface SagaEventSink {
+    /**
+     * Called before a message is dispatched to its handlers.
+     */
+    @Nullable
+    Object dispatchStarted(Object message);
+
+    /**
+     * Called after dispatching of a message has finished.
+     */
+    void dispatchFinished(@Nullable Object event, boolean handled);
+
+    /**
+     * Called before the sagas handling a message are resolved.
+     */
+    @Nullable
+    Object resolutionStarted(Object message);
+
+    /**
+     * Called after the sagas handling a message have been resolved.
+     */
+    void resolutionFinished(@Nullable Object event, int sagaCount);
+
+    /**
+     * Called before a saga handler is invoked.
+     */
+    @Nullable
+    Object handlerStarted(Class<?> sagaType, Object message, @Nullable String sagaId);
+
+    /**
+     * Called after a saga handler has been invoked.
+     */
+    void handlerFinished(@Nullable Object event);
+
+    /**
+     * Called before a state storage operation.
+     */
+    @Nullable
+    Object storageStarted(StorageOperation operation, @Nullable String sagaType, @Nullable String sagaId);
+
+    /**
+     * Called after a state storage operation has finished.
+     */
+    void storageFinished(@Nullable Object event, int stateCount);
+
+    /**
+     * Called after a timeout has been requested.
+     */
+    void timeoutRequested(String sagaId, @Nullable String name, long delayMillis);
+
+    /**
+     * Called after one or all timeouts of a saga have been canceled.
+     */
+    void timeoutsCanceled(@Nullable String sagaId, int count);
+
+    /**
+     * Called when a timeout has expired.
+     */
+    void timeoutExpired(String sagaId, @Nullable String name);
+}
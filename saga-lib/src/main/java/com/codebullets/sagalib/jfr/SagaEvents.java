@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gives access to the sink receiving the diagnostic events of the saga lib.
+ *
+ * <p>If the JVM supports the Java Flight Recorder the events are reported as
+ * JFR events in the {@code Saga Lib} category. All events are disabled by default
+ * and have to be enabled in the recording settings, e.g. using
+ * {@code recording.enable("com.codebullets.sagalib.MessageDispatch")}. As long
+ * as an event is disabled no event object is created and the cost is limited to
+ * checking the enabled flag of the event type. On JVMs without flight recorder support all events
+ * are ignored.</p>
+ */
+public final class SagaEvents {
+    private static final Logger LOG = LoggerFactory.getLogger(SagaEvents.class);
+    private static final String JFR_EVENT_CLASS = "jdk.jfr.Event";
+    private static final String JFR_SINK_CLASS = "com.codebullets.sagalib.jfr.JfrEventSink";
+
+    private static final SagaEventSink SINK = createSink();
+
+    private SagaEvents() {
+    }
+
+    /**
+     * Gets the sink receiving all events.
+     */
+    public static SagaEventSink sink() {
+        return SINK;
+    }
+
+    /**
+     * Gets whether events are reported to the Java Flight Recorder.
+     */
+    public static boolean isFlightRecorderSupported() {
+        return !(SINK instanceof NoOpEventSink);
+    }
+
+    /**
+     * The JFR sink is only loaded via reflection, as it references classes
+     * not available on all Java 8 runtimes.
+     */
+    private static SagaEventSink createSink() {
+        SagaEventSink sink;
+
+        try {
+            Class.forName(JFR_EVENT_CLASS);
+            sink = (SagaEventSink) Class.forName(JFR_SINK_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            LOG.debug("Java Flight Recorder not available, saga lib events are disabled.", ex);
+            sink = new NoOpEventSink();
+        }
+
+        return sink;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Covers the lookup of the saga instances handling a message.
+ */
+@Name("com.codebullets.sagalib.SagaResolution")
+@Label("Saga Resolution")
+@Description("Lookup and creation of the saga instances handling a message")
+final class SagaResolutionEvent extends SagaLibEvent {
+    @Label("Message Class")
+    private Class<?> messageClass;
+
+    @Label("Saga Count")
+    private int sagaCount;
+
+    void setMessageClass(final Class<?> messageClass) {
+        this.messageClass = messageClass;
+    }
+
+    void setSagaCount(final int sagaCount) {
+        this.sagaCount = sagaCount;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Covers a load, save or delete operation of the state storage.
+ */
+@Name("com.codebullets.sagalib.StateStorage")
+@Label("State Storage")
+@Description("Load, save or delete operation of the saga state storage")
+final class StateStorageEvent extends SagaLibEvent {
+    @Label("Operation")
+    private String operation;
+
+    @Label("Saga Type")
+    private String sagaType;
+
+    @Label("Saga Id")
+    private String sagaId;
+
+    @Label("State Count")
+    private int stateCount;
+
+    void setOperation(final String operation) {
+        this.operation = operation;
+    }
+
+    void setSagaType(final String sagaType) {
+        this.sagaType = sagaType;
+    }
+
+    void setSagaId(final String sagaId) {
+        this.sagaId = sagaId;
+    }
+
+    void setStateCount(final int stateCount) {
+        this.stateCount = stateCount;
+    }
+}
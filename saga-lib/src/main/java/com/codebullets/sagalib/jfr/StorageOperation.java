@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+/**
+ * The state storage operations reported as events.
+ */
+public enum StorageOperation {
+    /**
+     * Loading one or more saga states.
+     */
+    LOAD,
+
+    /**
+     * Saving a saga state.
+     */
+    SAVE,
+
+    /**
+     * Deleting the state of a finished saga.
+     */
+    DELETE
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Reports a timeout being requested, canceled or expired.
+ */
+@Name("com.codebullets.sagalib.Timeout")
+@Label("Saga Timeout")
+@Description("A saga timeout has been requested, canceled or has expired")
+final class TimeoutEvent extends SagaLibEvent {
+    static final String REQUESTED = "requested";
+    static final String CANCELED = "canceled";
+    static final String EXPIRED = "expired";
+
+    @Label("Action")
+    private String action;
+
+    @Label("Saga Id")
+    private String sagaId;
+
+    @Label("Timeout Name")
+    private String name;
+
+    @Label("Delay")
+    @Timespan(Timespan.MILLISECONDS)
+    private long delay;
+
+    @Label("Count")
+    @Description("Number of timeouts affected")
+    private int count;
+
+    void setAction(final String action) {
+        this.action = action;
+    }
+
+    void setSagaId(final String sagaId) {
+        this.sagaId = sagaId;
+    }
+
+    void setName(final String name) {
+        this.name = name;
+    }
+
+    void setDelay(final long delay) {
+        this.delay = delay;
+    }
+
+    void setCount(final int count) {
+        this.count = count;
+    }
+}
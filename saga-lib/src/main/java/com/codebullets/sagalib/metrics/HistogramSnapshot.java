@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+/**
+ * Immutable copy of the values recorded by a {@link LatencyHistogram}.
+ */
+public final class HistogramSnapshot {
+    private static final double MAX_PERCENTILE = 100.0;
+
+    private final long[] counts;
+    private final long count;
+    private final long total;
+    private final long max;
+
+    HistogramSnapshot(final long[] counts, final long count, final long total, final long max) {
+        this.counts = counts;
+        this.count = count;
+        this.total = total;
+        this.max = max;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Gets the highest value recorded.
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Gets the average of all recorded values, or zero if none have been recorded.
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Gets the value at or below which the provided percentage of all recorded
+     * values fall, e.g. {@code 99.0} for the 99th percentile. The result is precise
+     * within the resolution of the histogram buckets.
+     */
+    public long valueAtPercentile(final double percentile) {
+        long value = 0;
+
+        if (count > 0) {
+            double boundedPercentile = Math.min(Math.max(percentile, 0), MAX_PERCENTILE);
+            long countAtPercentile = Math.max(1, (long) Math.ceil(boundedPercentile / MAX_PERCENTILE * count));
+
+            long seen = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+                if (seen >= countAtPercentile) {
+                    value = Math.min(LatencyHistogram.highestValueOfBucket(i), max);
+                    break;
+                }
+            }
+        }
+
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{count=" + count + ", mean=" + mean() + ", max=" + max + '}';
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Exposes a {@link SagaMetrics} registry as MXBean.
+ *
+ * <p><strong>Example:</strong></p>
+ * <pre>
+ * ObjectName name = JmxSagaMetrics.register(metrics, "orders");
+ * ...
+ * JmxSagaMetrics.unregister(name);
+ * </pre>
+ */
+public final class JmxSagaMetrics implements SagaMetricsMXBean {
+    private static final String DOMAIN = "com.codebullets.sagalib";
+    private static final double P50 = 50.0;
+    private static final double P99 = 99.0;
+    private static final double P999 = 99.9;
+
+    private final SagaMetrics metrics;
+
+    /**
+     * Creates a new JMX view of the provided metrics.
+     */
+    public JmxSagaMetrics(final SagaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Registers the metrics at the platform MBean server using the provided name
+     * to distinguish multiple message streams.
+     * @return Returns the name the MXBean has been registered with.
+     * @throws JMException Thrown if the MXBean could not be registered.
+     */
+    public static ObjectName register(final SagaMetrics metrics, final String name) throws JMException {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=SagaMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new JmxSagaMetrics(metrics), objectName);
+
+        return objectName;
+    }
+
+    /**
+     * Removes a previously registered MXBean from the platform MBean server.
+     * @throws JMException Thrown if the MXBean could not be unregistered.
+     */
+    public static void unregister(final ObjectName objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    @Override
+    public long getMessagesHandled() {
+        return metrics.messagesHandled();
+    }
+
+    @Override
+    public long getDeadMessages() {
+        return metrics.deadMessages();
+    }
+
+    @Override
+    public long getSagasStarted() {
+        return metrics.sagasStarted();
+    }
+
+    @Override
+    public long getSagasFinished() {
+        return metrics.sagasFinished();
+    }
+
+    @Override
+    public long getHandlersInvoked() {
+        return metrics.handlersInvoked();
+    }
+
+    @Override
+    public long getErrors() {
+        return metrics.errors();
+    }
+
+    @Override
+    public double getMessageLatencyMean() {
+        return metrics.messageLatency().mean();
+    }
+
+    @Override
+    public long getMessageLatencyP50() {
+        return metrics.messageLatency().valueAtPercentile(P50);
+    }
+
+    @Override
+    public long getMessageLatencyP99() {
+        return metrics.messageLatency().valueAtPercentile(P99);
+    }
+
+    @Override
+    public long getMessageLatencyP999() {
+        return metrics.messageLatency().valueAtPercentile(P999);
+    }
+
+    @Override
+    public long getMessageLatencyMax() {
+        return metrics.messageLatency().max();
+    }
+
+    @Override
+    public String[] getSagaTypes() {
+        return metrics.sagaTypes().stream().map(Class::getName).sorted().toArray(String[]::new);
+    }
+
+    @Override
+    public long sagaTypeLatency(final String sagaType, final double percentile) {
+        return metrics.sagaTypes().stream()
+                .filter(type -> type.getName().equals(sagaType))
+                .findFirst()
+                .flatMap(metrics::sagaTypeLatency)
+                .map(snapshot -> snapshot.valueAtPercentile(percentile))
+                .orElse(0L);
+    }
+}
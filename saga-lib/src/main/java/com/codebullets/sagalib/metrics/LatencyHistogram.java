@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram using log linear buckets, similar to the ones used
+ * by HdrHistogram. Every power of two range is split into 32 linear sub buckets,
+ * resulting in a value precision of about 3%. Values up to about 70 minutes in
+ * nanoseconds are tracked, larger values are recorded in the highest bucket.
+ *
+ * <p>Recording a value is a single atomic increment of the bucket plus updates of
+ * the count, sum and max. No locks or allocations are involved.</p>
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 41;
+    private static final long MAX_TRACKABLE_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT * (MAX_EXPONENT - SUB_BUCKET_BITS + 2);
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records a single value. Negative values are recorded as zero.
+     */
+    public void record(final long value) {
+        long recordedValue = Math.min(Math.max(value, 0), MAX_TRACKABLE_VALUE);
+
+        buckets.incrementAndGet(bucketIndex(recordedValue));
+        totalCount.increment();
+        totalValue.add(recordedValue);
+        updateMax(recordedValue);
+    }
+
+    /**
+     * Gets the number of recorded values.
+     */
+    public long count() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Creates a copy of the current histogram state. Values recorded concurrently
+     * may or may not be part of the snapshot.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+
+        return new HistogramSnapshot(counts, count, totalValue.sum(), maxValue.get());
+    }
+
+    private void updateMax(final long value) {
+        long currentMax = maxValue.get();
+        while (value > currentMax && !maxValue.compareAndSet(currentMax, value)) {
+            currentMax = maxValue.get();
+        }
+    }
+
+    /**
+     * Gets the bucket the value is counted in.
+     */
+    static int bucketIndex(final long value) {
+        int index;
+
+        if (value < SUB_BUCKET_COUNT) {
+            index = (int) value;
+        } else {
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BUCKET_BITS;
+            int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+            index = SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+        }
+
+        return index;
+    }
+
+    /**
+     * Gets the highest value counted in the bucket with the provided index.
+     */
+    static long highestValueOfBucket(final int index) {
+        long value;
+
+        if (index < SUB_BUCKET_COUNT) {
+            value = index;
+        } else {
+            int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+            int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+            long lowestValue = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+            value = lowestValue + (1L << shift) - 1;
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.SagaLifetimeInterceptor;
+
+import javax.inject.Inject;
+
+/**
+ * Records handler latencies per saga type and message type as well as the number
+ * of started and finished sagas into a {@link SagaMetrics} registry. Should be used
+ * together with a {@link MetricsModule} sharing the same registry.
+ */
+public class MetricsInterceptor implements SagaLifetimeInterceptor {
+    private final SagaMetrics metrics;
+
+    /**
+     * Creates a new interceptor recording into the provided registry.
+     */
+    @Inject
+    public MetricsInterceptor(final SagaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onStarting(final Saga<?> saga, final ExecutionContext context, final Object message) {
+        metrics.sagaStarted();
+    }
+
+    @Override
+    public void onHandlerExecuting(final Saga<?> saga, final ExecutionContext context, final Object message) {
+        metrics.handlerStarted(context);
+    }
+
+    @Override
+    public void onHandlerExecuted(final Saga<?> saga, final ExecutionContext context, final Object message) {
+        metrics.handlerFinished(context, saga.getClass(), message.getClass());
+    }
+
+    @Override
+    public void onFinished(final Saga<?> saga, final ExecutionContext context) {
+        metrics.sagaFinished();
+    }
+}
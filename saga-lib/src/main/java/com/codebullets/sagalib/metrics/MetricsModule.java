@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+import com.codebullets.sagalib.DeadMessage;
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.SagaModule;
+
+import javax.inject.Inject;
+
+/**
+ * Records the end to end latency of every message as well as the number of
+ * handled messages, dead messages and errors into a {@link SagaMetrics} registry.
+ * A message is counted as dead message if no saga has been found for it, independent
+ * of any saga handling the resulting {@link DeadMessage}. Latencies are measured from
+ * {@link ExecutionContext#startNanos()}, contexts not providing a start time are not
+ * recorded.
+ * Add the {@link MetricsInterceptor} using the same registry to record saga and
+ * handler metrics.
+ */
+public class MetricsModule implements SagaModule {
+    private final SagaMetrics metrics;
+
+    /**
+     * Creates a new module recording into the provided registry.
+     */
+    @Inject
+    public MetricsModule(final SagaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onStart(final ExecutionContext context) {
+        // start time is taken from the context, the message may finish on a different thread
+    }
+
+    @Override
+    public void onError(final ExecutionContext context, final Object message, final Throwable error) {
+        metrics.errorOccurred();
+    }
+
+    @Override
+    public void onFinished(final ExecutionContext context) {
+        metrics.messageFinished(context.message() instanceof DeadMessage, context.sagasFound(), context.startNanos());
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the metrics recorded by {@link MetricsModule} and {@link MetricsInterceptor}.
+ * Both need to be added to the message stream and share the same registry instance.
+ * All values are pulled on demand. Use {@link JmxSagaMetrics} to expose them as MBean.
+ *
+ * <p>The following metrics are recorded:</p>
+ * <ul>
+ *     <li>End to end latency of every message, including modules and all sagas.</li>
+ *     <li>Latency of the handlers per saga type and per saga type and message type.</li>
+ *     <li>Counters of handled messages, dead messages, started and finished sagas,
+ *     handler invocations and errors.</li>
+ * </ul>
+ *
+ * <p>All latencies are recorded in nanoseconds.</p>
+ */
+@Singleton
+public class SagaMetrics {
+    private final LongAdder messagesHandled = new LongAdder();
+    private final LongAdder deadMessages = new LongAdder();
+    private final LongAdder sagasStarted = new LongAdder();
+    private final LongAdder sagasFinished = new LongAdder();
+    private final LongAdder handlersInvoked = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private final LatencyHistogram messageLatency = new LatencyHistogram();
+    private final ConcurrentMap<Class<?>, LatencyHistogram> sagaTypeLatencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, LatencyHistogram>> handlerLatencies = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<ThreadTimings> timings = ThreadLocal.withInitial(ThreadTimings::new);
+
+    /**
+     * Gets the number of messages handled, not counting dead messages.
+     */
+    public long messagesHandled() {
+        return messagesHandled.sum();
+    }
+
+    /**
+     * Gets the number of messages no saga has been found for.
+     */
+    public long deadMessages() {
+        return deadMessages.sum();
+    }
+
+    /**
+     * Gets the number of sagas started.
+     */
+    public long sagasStarted() {
+        return sagasStarted.sum();
+    }
+
+    /**
+     * Gets the number of sagas finished.
+     */
+    public long sagasFinished() {
+        return sagasFinished.sum();
+    }
+
+    /**
+     * Gets the number of saga handlers invoked successfully.
+     */
+    public long handlersInvoked() {
+        return handlersInvoked.sum();
+    }
+
+    /**
+     * Gets the number of messages that failed with an error.
+     */
+    public long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * Gets the end to end latency of handled messages.
+     */
+    public HistogramSnapshot messageLatency() {
+        return messageLatency.snapshot();
+    }
+
+    /**
+     * Gets the handler latency of all handlers of the provided saga type.
+     */
+    public Optional<HistogramSnapshot> sagaTypeLatency(final Class<?> sagaType) {
+        return Optional.ofNullable(sagaTypeLatencies.get(sagaType)).map(LatencyHistogram::snapshot);
+    }
+
+    /**
+     * Gets the handler latencies of all saga types that have been executed so far.
+     */
+    public Map<Class<?>, HistogramSnapshot> sagaTypeLatencies() {
+        Map<Class<?>, HistogramSnapshot> snapshots = new HashMap<>();
+        sagaTypeLatencies.forEach((type, histogram) -> snapshots.put(type, histogram.snapshot()));
+
+        return snapshots;
+    }
+
+    /**
+     * Gets the handler latencies of the provided saga type, keyed by the type of message handled.
+     */
+    public Map<Class<?>, HistogramSnapshot> handlerLatencies(final Class<?> sagaType) {
+        Map<Class<?>, HistogramSnapshot> snapshots = new HashMap<>();
+
+        Map<Class<?>, LatencyHistogram> histograms = handlerLatencies.get(sagaType);
+        if (histograms != null) {
+            histograms.forEach((messageType, histogram) -> snapshots.put(messageType, histogram.snapshot()));
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * Gets all saga types executed so far.
+     */
+    Set<Class<?>> sagaTypes() {
+        return sagaTypeLatencies.keySet();
+    }
+
+    /**
+     * Records the end of a message. Messages no saga has been found for are counted as dead
+     * messages. The execution of the {@link com.codebullets.sagalib.DeadMessage} created for
+     * them is not counted again.
+     */
+    void messageFinished(final boolean isDeadMessage, final boolean sagasFound, final long startTime) {
+        if (!isDeadMessage) {
+            if (sagasFound) {
+                messagesHandled.increment();
+                if (startTime >= 0) {
+                    messageLatency.record(System.nanoTime() - startTime);
+                }
+            } else {
+                deadMessages.increment();
+            }
+        }
+    }
+
+    void errorOccurred() {
+        errors.increment();
+    }
+
+    void sagaStarted() {
+        sagasStarted.increment();
+    }
+
+    void sagaFinished() {
+        sagasFinished.increment();
+    }
+
+    void handlerStarted(final Object context) {
+        timings.get().handlerStarted(context, System.nanoTime());
+    }
+
+    void handlerFinished(final Object context, final Class<?> sagaType, final Class<?> messageType) {
+        long startTime = timings.get().handlerFinished(context);
+        handlersInvoked.increment();
+
+        if (startTime >= 0) {
+            long latency = System.nanoTime() - startTime;
+            histogramOf(sagaTypeLatencies, sagaType).record(latency);
+            histogramOf(handlerHistograms(sagaType), messageType).record(latency);
+        }
+    }
+
+    private ConcurrentMap<Class<?>, LatencyHistogram> handlerHistograms(final Class<?> sagaType) {
+        ConcurrentMap<Class<?>, LatencyHistogram> histograms = handlerLatencies.get(sagaType);
+        if (histograms == null) {
+            histograms = handlerLatencies.computeIfAbsent(sagaType, k -> new ConcurrentHashMap<>());
+        }
+
+        return histograms;
+    }
+
+    private static LatencyHistogram histogramOf(final ConcurrentMap<Class<?>, LatencyHistogram> histograms, final Class<?> type) {
+        LatencyHistogram histogram = histograms.get(type);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(type, k -> new LatencyHistogram());
+        }
+
+        return histogram;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+/**
+ * JMX view of the {@link SagaMetrics} registry. All latencies are in nanoseconds.
+ */
+public interface SagaMetricsMXBean {
+    /**
+     * Gets the number of messages handled, not counting dead messages.
+     */
+    long getMessagesHandled();
+
+    /**
+     * Gets the number of messages no saga has been found for.
+     */
+    long getDeadMessages();
+
+    /**
+     * Gets the number of sagas started.
+     */
+    long getSagasStarted();
+
+    /**
+     * Gets the number of sagas finished.
+     */
+    long getSagasFinished();
+
+    /**
+     * Gets the number of saga handlers invoked.
+     */
+    long getHandlersInvoked();
+
+    /**
+     * Gets the number of messages that failed with an error.
+     */
+    long getErrors();
+
+    /**
+     * Gets the average end to end message latency.
+     */
+    double getMessageLatencyMean();
+
+    /**
+     * Gets the median end to end message latency.
+     */
+    long getMessageLatencyP50();
+
+    /**
+     * Gets the 99th percentile of the end to end message latency.
+     */
+    long getMessageLatencyP99();
+
+    /**
+     * Gets the 99.9th percentile of the end to end message latency.
+     */
+    long getMessageLatencyP999();
+
+    /**
+     * Gets the highest end to end message latency.
+     */
+    long getMessageLatencyMax();
+
+    /**
+     * Gets the names of all saga types executed so far.
+     */
+    String[] getSagaTypes();
+
+    /**
+     * Gets the handler latency at the provided percentile for the saga type with
+     * the provided class name. Returns zero for unknown saga types.
+     */
+    long sagaTypeLatency(String sagaType, double percentile);
+}
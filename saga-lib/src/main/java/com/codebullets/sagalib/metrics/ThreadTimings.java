@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Start times of the handlers currently executed on a single thread. Handlers of messages
+ * handled as part of other messages, like child messages, are nested. Every start is
+ * recorded together with the execution context of its message. Handler start times not matched
+ * by a finish, because the handler threw an exception, are discarded once a handler of a
+ * surrounding message has finished.
+ */
+final class ThreadTimings {
+    private static final int INITIAL_DEPTH = 4;
+    private static final int MAX_HANDLER_DEPTH = 1024;
+
+    private long[] handlerStarts = new long[INITIAL_DEPTH];
+    private Object[] handlerContexts = new Object[INITIAL_DEPTH];
+    private int handlerDepth;
+
+    void handlerStarted(final Object context, final long startTime) {
+        if (handlerDepth >= MAX_HANDLER_DEPTH) {
+            // only possible if handlers keep on failing on a thread never finishing
+            // a surrounding handler, forget about all pending handlers.
+            truncate(0);
+        } else if (handlerDepth == handlerStarts.length) {
+            handlerStarts = Arrays.copyOf(handlerStarts, handlerDepth * 2);
+            handlerContexts = Arrays.copyOf(handlerContexts, handlerDepth * 2);
+        }
+
+        handlerStarts[handlerDepth] = startTime;
+        handlerContexts[handlerDepth] = context;
+        handlerDepth++;
+    }
+
+    /**
+     * Gets the start time of the handler finished, or -1 if there is no matching start.
+     * Starts of nested handlers never finished are discarded.
+     */
+    long handlerFinished(final Object context) {
+        long startTime = -1;
+
+        for (int i = handlerDepth - 1; i >= 0; --i) {
+            if (handlerContexts[i] == context) {
+                startTime = handlerStarts[i];
+                truncate(i);
+                break;
+            }
+        }
+
+        return startTime;
+    }
+
+    private void truncate(final int depth) {
+        Arrays.fill(handlerContexts, depth, handlerDepth, null);
+        handlerDepth = depth;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.startup.MessageHandler;
+import com.codebullets.sagalib.startup.SagaAnalyzer;
+import com.codebullets.sagalib.startup.SagaHandlersMap;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Knows which saga types continue a message type using a handler marked as
+ * {@link com.codebullets.sagalib.EventHandler#batch()}. The handler is searched the same
+ * way the {@link com.codebullets.sagalib.processing.invocation.ReflectionInvoker} does.
+ */
+public final class BatchHandlers {
+    private static final BatchHandlers NONE = new BatchHandlers(Collections.emptyMap());
+
+    private final Map<Class<? extends Saga>, SagaHandlersMap> handlers;
+    private final Map<Class<?>, Map<Class<?>, Boolean>> batchedTypes = new ConcurrentHashMap<>();
+
+    private BatchHandlers(final Map<Class<? extends Saga>, SagaHandlersMap> handlers) {
+        this.handlers = handlers;
+    }
+
+    /**
+     * Creates a new instance reading the handlers found by the analyzer.
+     */
+    public static BatchHandlers of(final SagaAnalyzer analyzer) {
+        return new BatchHandlers(analyzer.scanHandledMessageTypes());
+    }
+
+    /**
+     * Gets an instance treating all messages as single messages.
+     */
+    public static BatchHandlers none() {
+        return NONE;
+    }
+
+    /**
+     * Gets a value indicating whether the saga continues messages of the provided type
+     * using a batch handler.
+     */
+    boolean isBatched(final Class<? extends Saga> sagaType, final Class<?> messageType) {
+        return batchedTypes.computeIfAbsent(sagaType, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(messageType, t -> findBatchHandler(sagaType, messageType));
+    }
+
+    private boolean findBatchHandler(final Class<? extends Saga> sagaType, final Class<?> messageType) {
+        boolean batched = false;
+
+        SagaHandlersMap sagaHandlers = handlers.get(sagaType);
+        if (sagaHandlers != null) {
+            for (MessageHandler handler : sagaHandlers.messageHandlers()) {
+                if (!handler.getStartsSaga() && handler.getMessageType().isAssignableFrom(messageType)) {
+                    batched = handler.isBatch();
+                    break;
+                }
+            }
+        }
+
+        return batched;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.ExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Work list of the child messages sent while handling a single top level message. Children
+ * are handled one after the other once the handler sending them has returned, instead of
+ * running nested on the stack of that handler. Messages sent by children are added to the
+ * same list, so deep cascades do not grow the stack.
+ *
+ * <p>The execution context of a handled child stays active as long as messages sent by it
+ * are still waiting, they reference it as their parent. Afterwards its frame is returned to
+ * the pool.</p>
+ */
+final class ChildMessageQueue {
+    private static final Logger LOG = LoggerFactory.getLogger(ChildMessageQueue.class);
+    private static final ThreadLocal<ChildMessageQueue> CURRENT = new ThreadLocal<>();
+
+    private final ExecutionFramePool framePool;
+    private final Deque<SagaExecutionTask> pending = new ArrayDeque<>();
+    private final Map<ExecutionContext, Integer> pendingChildren = new IdentityHashMap<>();
+    private final Map<ExecutionContext, ExecutionFrame> heldFrames = new IdentityHashMap<>();
+
+    private ChildMessageQueue(final ExecutionFramePool framePool) {
+        this.framePool = framePool;
+    }
+
+    /**
+     * Gets the queue of the top level message handled by the current thread, or {@code null}
+     * if child messages are handled right away.
+     */
+    @Nullable
+    static ChildMessageQueue current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Activates a new queue for the current thread.
+     */
+    static ChildMessageQueue open(final ExecutionFramePool framePool) {
+        ChildMessageQueue queue = new ChildMessageQueue(framePool);
+        CURRENT.set(queue);
+        return queue;
+    }
+
+    /**
+     * Queues a child message to be handled once the current handler has returned.
+     */
+    void add(final SagaExecutionTask child, final ExecutionContext parentContext) {
+        pending.addLast(child);
+        pendingChildren.merge(parentContext, 1, Integer::sum);
+    }
+
+    /**
+     * Handles all queued messages, including the ones added while draining.
+     *
+     * @throws Exception Thrown by the first failing child, remaining children are dropped.
+     */
+    void drain() throws Exception {
+        try {
+            for (SagaExecutionTask child = pending.pollFirst(); child != null; child = pending.pollFirst()) {
+                child.handleQueued(this);
+            }
+        } finally {
+            if (!pending.isEmpty()) {
+                LOG.warn("Dropping {} child messages after handling a child message failed.", pending.size());
+                pending.clear();
+            }
+
+            heldFrames.values().forEach(framePool::release);
+            heldFrames.clear();
+            pendingChildren.clear();
+        }
+    }
+
+    /**
+     * Returns the frame of a handled child to the pool once no message sent by it is waiting.
+     */
+    void release(final ExecutionFrame frame) {
+        ExecutionContext context = frame.executionContext();
+        ExecutionContext parentContext = context.parentContext();
+
+        if (pendingChildren.containsKey(context)) {
+            heldFrames.put(context, frame);
+        } else {
+            framePool.release(frame);
+            childFinished(parentContext);
+        }
+    }
+
+    private void childFinished(@Nullable final ExecutionContext parentContext) {
+        ExecutionContext parent = parentContext;
+
+        while (parent != null) {
+            Integer remaining = pendingChildren.computeIfPresent(parent, (context, count) -> count > 1 ? count - 1 : null);
+            ExecutionFrame parentFrame = remaining == null ? heldFrames.remove(parent) : null;
+
+            if (parentFrame == null) {
+                parent = null;
+            } else {
+                parent = parentFrame.executionContext().parentContext();
+                framePool.release(parentFrame);
+            }
+        }
+    }
+
+    /**
+     * Closes the queue of the current thread.
+     */
+    void close() {
+        CURRENT.remove();
+    }
+}
@@ -15,15 +15,21 @@
  */
 package com.codebullets.sagalib.processing;
 
+import com.codebullets.sagalib.DispatchPhase;
+import com.codebullets.sagalib.LongKeyReader;
+import com.codebullets.sagalib.PhaseTimings;
 import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.SagaState;
 import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.jfr.SagaEvents;
+import com.codebullets.sagalib.jfr.StorageOperation;
 import com.codebullets.sagalib.storage.InstanceKeySearchParam;
 import com.codebullets.sagalib.storage.StateStorage;
 import com.google.common.base.Throwables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.ExecutionException;
@@ -57,22 +63,35 @@ public class ContinueAllStrategy implements ResolveStrategy {
 
     @Override
     public Collection<SagaInstanceInfo> resolve(final LookupContext context) {
+        PhaseTimings timings = context.phaseTimings();
+
         // for continuation, the instance keys are important.
+        long start = timings.start();
         Collection<InstanceKeySearchParam> instanceKeys = extractInstanceKeys(context);
+        timings.stop(DispatchPhase.KEY_EXTRACTION, start);
 
         // load all saga states with a single state storage operation
+        start = timings.start();
+        long instantiationBefore = timings.nanos(DispatchPhase.SAGA_INSTANTIATION);
+        Object storageEvent = SagaEvents.sink().storageStarted(StorageOperation.LOAD, null, null);
         Stream<? extends SagaState> sagaStates = stateStorage.loadAll(instanceKeys);
+        Collection<SagaInstanceInfo> instances = sagaStates.map(state -> continueExistingSaga(state, timings)).collect(Collectors.toList());
+        SagaEvents.sink().storageFinished(storageEvent, instances.size());
+
+        // the stream might be lazy, the time spent creating sagas while consuming it is not part of loading
+        long instantiationNanos = timings.nanos(DispatchPhase.SAGA_INSTANTIATION) - instantiationBefore;
+        timings.stop(DispatchPhase.STATE_LOAD, start + instantiationNanos);
 
-        return sagaStates.map(this::continueExistingSaga).collect(Collectors.toList());
+        return instances;
     }
 
     private Collection<InstanceKeySearchParam> extractInstanceKeys(final LookupContext context) {
         Collection<InstanceKeySearchParam> instanceKeys = new ArrayList<>(continueSagaTypes.size());
 
         continueSagaTypes.forEach(sagaType -> {
-            Object key = readInstanceKey(sagaType, context);
-            if (key != null) {
-                instanceKeys.add(new InstanceKeySearchParam(sagaType.getSagaClass().getName(), key));
+            InstanceKeySearchParam searchParam = readSearchParam(sagaType, context);
+            if (searchParam != null) {
+                instanceKeys.add(searchParam);
             } else {
                 LOG.debug("Can not determine saga instance key from message {}", context.message().getClass());
             }
@@ -84,21 +103,41 @@ public class ContinueAllStrategy implements ResolveStrategy {
     /**
      * Create a new saga instance with already existing saga state.
      */
-    private SagaInstanceInfo continueExistingSaga(final SagaState sagaState) {
+    private SagaInstanceInfo continueExistingSaga(final SagaState sagaState, final PhaseTimings timings) {
         SagaInstanceInfo instanceInfo;
 
+        long start = timings.start();
         try {
             Saga saga = instanceFactory.continueExisting(sagaState.getType(), sagaState);
             instanceInfo = SagaInstanceInfo.define(saga, false);
         } catch (ExecutionException e) {
             Throwables.propagate(e);
             instanceInfo = null;
+        } finally {
+            timings.stop(DispatchPhase.SAGA_INSTANTIATION, start);
         }
 
         return instanceInfo;
     }
 
-    private Object readInstanceKey(final SagaType sagaType, final LookupContext context) {
-        return keyExtractor.findSagaInstanceKey(sagaType.getSagaClass(), context);
+    @Nullable
+    private InstanceKeySearchParam readSearchParam(final SagaType sagaType, final LookupContext context) {
+        InstanceKeySearchParam searchParam = null;
+        Class<? extends Saga> sagaClass = sagaType.getSagaClass();
+
+        // primitive keys are passed on to the storage without boxing
+        if (keyExtractor.readsLongKey(sagaClass, context.message())) {
+            long key = keyExtractor.findSagaInstanceLongKey(sagaClass, context);
+            if (key != LongKeyReader.NO_KEY) {
+                searchParam = InstanceKeySearchParam.forLongKey(sagaClass.getName(), key);
+            }
+        } else {
+            Object key = keyExtractor.findSagaInstanceKey(sagaClass, context);
+            if (key != null) {
+                searchParam = new InstanceKeySearchParam(sagaClass.getName(), key);
+            }
+        }
+
+        return searchParam;
     }
 }
\ No newline at end of file
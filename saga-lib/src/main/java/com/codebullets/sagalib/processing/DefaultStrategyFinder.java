@@ -16,12 +16,14 @@
 package com.codebullets.sagalib.processing;
 
 import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.storage.InstanceKeySearchParam;
 import com.codebullets.sagalib.storage.StateStorage;
 import com.codebullets.sagalib.timeout.Timeout;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 
 /**
  * Default implementation to map a specific message to saga instances.
@@ -64,6 +66,24 @@ public class DefaultStrategyFinder implements StrategyFinder {
         return strategies;
     }
 
+    @Override
+    public boolean isUnhandledType(final Class<?> messageClass) {
+        return !Timeout.class.isAssignableFrom(messageClass) && typesForMessageMapper.getSagasForMessageType(messageClass).isEmpty();
+    }
+
+    @Override
+    public Collection<InstanceKeySearchParam> continuedKeys(final LookupContext context) {
+        Collection<InstanceKeySearchParam> keys = Collections.emptyList();
+
+        // timeouts and messages starting sagas are resolved using other strategies
+        Object message = context.message();
+        if (!(message instanceof Timeout) && !MessageKeys.startsSagas(typesForMessageMapper, message)) {
+            keys = MessageKeys.searchParams(typesForMessageMapper, keyExtractor, context);
+        }
+
+        return keys;
+    }
+
     private Collection<ResolveStrategy> checkAnnotatedMethodTypes(final LookupContext context) {
         Collection<ResolveStrategy> strategies = new ArrayList<>();
         Collection<SagaType> sagasToExecute = typesForMessageMapper.getSagasForMessageType(context.message().getClass());
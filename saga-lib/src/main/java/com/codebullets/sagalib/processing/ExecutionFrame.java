@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.PhaseTimings;
+import com.codebullets.sagalib.Recyclable;
+import com.codebullets.sagalib.context.CurrentExecutionContext;
+import com.codebullets.sagalib.context.HeaderMap;
+import com.codebullets.sagalib.processing.invocation.ModuleCoordinator;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Groups the per message objects needed to execute a single message
+ * execution chain. Frames are either created for every chain or reused
+ * from an {@link ExecutionFramePool}.
+ */
+final class ExecutionFrame {
+    private final SagaLookupContext lookupContext;
+    private final CurrentExecutionContext executionContext;
+    private final ModuleCoordinator moduleCoordinator;
+    private HandlerInvocationContext invocationContext;
+    private Collection<SagaInstanceInfo> pooledSagas = Collections.emptyList();
+
+    ExecutionFrame(final CurrentExecutionContext executionContext, final ModuleCoordinator moduleCoordinator) {
+        this.lookupContext = new SagaLookupContext(null, null);
+        this.executionContext = executionContext;
+        this.moduleCoordinator = moduleCoordinator;
+    }
+
+    /**
+     * Prepares the frame for the execution of the provided message.
+     */
+    void activate(final Object message, final HeaderMap headers, @Nullable final ExecutionContext parentContext, final PhaseTimings timings) {
+        if (executionContext instanceof Recyclable) {
+            ((Recyclable) executionContext).reuse();
+        }
+
+        lookupContext.reset(message, headers, parentContext);
+        executionContext.setMessage(message);
+        executionContext.setParentContext(parentContext);
+        executionContext.putAllHeaders(headers);
+        executionContext.setStartNanos(System.nanoTime());
+
+        if (timings.isEnabled()) {
+            lookupContext.setPhaseTimings(timings);
+            executionContext.setPhaseTimings(timings);
+        }
+    }
+
+    /**
+     * Clears all message specific state, releasing the contexts.
+     */
+    void recycle() {
+        pooledSagas = Collections.emptyList();
+        lookupContext.clear();
+        ((Recyclable) executionContext).recycle();
+        ((Recyclable) moduleCoordinator).recycle();
+    }
+
+    /**
+     * Gets whether all parts of this frame can be reused.
+     */
+    boolean isRecyclable() {
+        return executionContext instanceof Recyclable && moduleCoordinator instanceof Recyclable;
+    }
+
+    SagaLookupContext lookupContext() {
+        return lookupContext;
+    }
+
+    CurrentExecutionContext executionContext() {
+        return executionContext;
+    }
+
+    ModuleCoordinator moduleCoordinator() {
+        return moduleCoordinator;
+    }
+
+    /**
+     * Gets the sagas to return to the {@link SagaInstancePool} once the message has been handled.
+     */
+    Collection<SagaInstanceInfo> pooledSagas() {
+        return pooledSagas;
+    }
+
+    void setPooledSagas(final Collection<SagaInstanceInfo> sagas) {
+        this.pooledSagas = sagas;
+    }
+
+    /**
+     * Gets the context used to invoke the saga handlers. The instance is
+     * only created once sagas are actually invoked.
+     */
+    HandlerInvocationContext invocationContext() {
+        if (invocationContext == null) {
+            invocationContext = new HandlerInvocationContext(executionContext);
+        }
+
+        return invocationContext;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.context.HeaderMap;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+
+/**
+ * Hands out execution frames. If context recycling is enabled frames are kept
+ * per thread and reused once the previous message has been handled. Nested
+ * executions on the same thread, like child messages or dead messages, always
+ * get a separate frame.
+ */
+final class ExecutionFramePool {
+    private static final int MAX_FRAMES_PER_THREAD = 8;
+
+    private final SagaEnvironment environment;
+    private final PhaseTimingSampler timingSampler;
+
+    @Nullable
+    private final SagaLockManager sagaLocks;
+
+    @Nullable
+    private final ParallelSagaInvoker parallelInvoker;
+
+    @Nullable
+    private final ThreadLocal<Deque<ExecutionFrame>> freeFrames;
+    private final boolean deferChildMessages;
+    private final UnhandledMessages unhandledMessages;
+
+    @Nullable
+    private final SagaInstancePool sagaPool;
+
+    ExecutionFramePool(final SagaEnvironment environment, final ExecutionOptions options) {
+        this.environment = environment;
+        this.timingSampler = options.phaseTimings();
+        this.sagaLocks = options.sagaLocks();
+        this.parallelInvoker = options.parallelInvocation() == null
+                ? null
+                : new ParallelSagaInvoker(options.parallelInvocation(), options.orderedSagaTypes());
+        this.freeFrames = options.recycleContexts() ? ThreadLocal.withInitial(ArrayDeque::new) : null;
+        this.deferChildMessages = options.deferChildMessages();
+        this.unhandledMessages = options.unhandledMessages();
+        this.sagaPool = options.sagaPool();
+    }
+
+    /**
+     * Gets a frame prepared to handle the provided message.
+     */
+    ExecutionFrame acquire(final Object message, final HeaderMap headers, @Nullable final ExecutionContext parentContext) {
+        ExecutionFrame frame = null;
+        if (freeFrames != null) {
+            frame = freeFrames.get().pollFirst();
+        }
+
+        if (frame == null) {
+            frame = new ExecutionFrame(
+                    environment.contextProvider().get(),
+                    environment.coordinatorFactory().create(environment.modules()));
+        }
+
+        frame.activate(message, headers, parentContext, timingSampler.sample());
+        return frame;
+    }
+
+    /**
+     * Returns the frame after message handling has finished. The saga instances resolved
+     * for the frame are returned to the saga pool as well. Frames are released only after
+     * the last stage and child message referencing their context, so pooled sagas are never
+     * recycled while still in use.
+     */
+    void release(final ExecutionFrame frame) {
+        releaseSagas(frame);
+
+        if (freeFrames != null && frame.isRecyclable()) {
+            frame.recycle();
+
+            Deque<ExecutionFrame> frames = freeFrames.get();
+            if (frames.size() < MAX_FRAMES_PER_THREAD) {
+                frames.addFirst(frame);
+            }
+        }
+    }
+
+    private void releaseSagas(final ExecutionFrame frame) {
+        if (sagaPool != null && !frame.pooledSagas().isEmpty()) {
+            for (SagaInstanceInfo description : frame.pooledSagas()) {
+                sagaPool.release(description.getSaga());
+            }
+
+            frame.setPooledSagas(Collections.emptyList());
+        }
+    }
+
+    /**
+     * Gets the lock manager to use for sagas handled by frames of this pool.
+     */
+    @Nullable
+    SagaLockManager sagaLocks() {
+        return sagaLocks;
+    }
+
+    /**
+     * Gets the invoker used to call unordered sagas in parallel, or {@code null} if
+     * parallel invocation is disabled.
+     */
+    @Nullable
+    ParallelSagaInvoker parallelInvoker() {
+        return parallelInvoker;
+    }
+
+    /**
+     * Gets whether child messages are queued until the handler sending them has returned.
+     */
+    boolean deferChildMessages() {
+        return deferChildMessages;
+    }
+
+    /**
+     * Gets the counters of messages not handled by any saga.
+     */
+    UnhandledMessages unhandledMessages() {
+        return unhandledMessages;
+    }
+
+    /**
+     * Gets the pool receiving saga instances after their message has been handled, or
+     * {@code null} if saga instances are not pooled.
+     */
+    @Nullable
+    SagaInstancePool sagaPool() {
+        return sagaPool;
+    }
+}
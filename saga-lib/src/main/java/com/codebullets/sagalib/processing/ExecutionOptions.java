@@ -0,0 +1,282 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.Saga;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Options controlling how messages are executed by the {@link SagaMessageStream}.
+ * All options are disabled by default.
+ */
+public class ExecutionOptions {
+    /**
+     * Maximum number of messages delivered to a batch handler at once by default.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    private boolean recycleContexts;
+    private PhaseTimingSampler phaseTimings = new PhaseTimingSampler();
+
+    @Nullable
+    private SagaLockManager sagaLocks;
+
+    @Nullable
+    private ForkJoinPool parallelInvocation;
+    private Collection<Class<? extends Saga>> orderedSagaTypes = new ArrayList<>(0);
+
+    @Nullable
+    private StatePrefetcher statePrefetch;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private boolean deferChildMessages;
+    private UnhandledMessages unhandledMessages = new UnhandledMessages();
+
+    @Nullable
+    private SagaInstancePool sagaPool;
+    private SagaIdGenerator idGenerator = SagaIdGenerators.secureRandom();
+
+    /**
+     * Creates a new instance using the default options.
+     */
+    public static ExecutionOptions defaults() {
+        return new ExecutionOptions();
+    }
+
+    /**
+     * Gets whether execution and lookup contexts are reused for multiple messages.
+     */
+    public boolean recycleContexts() {
+        return recycleContexts;
+    }
+
+    /**
+     * <p>Enables the reuse of execution contexts, lookup contexts and module coordinators
+     * between messages. Instances are kept per thread and reset after a message has been
+     * handled, avoiding most of the allocations done for every message.</p>
+     *
+     * <p>Only contexts and coordinators implementing {@link com.codebullets.sagalib.Recyclable} are
+     * reused. An execution context must not be referenced after the handling of its message has
+     * finished. This includes passing the context as parent to a later {@code handle} call or keeping
+     * it in a custom {@link com.codebullets.sagalib.timeout.TimeoutManager} implementation. Accessing
+     * a released context throws an {@link IllegalStateException} as long as it has not been handed
+     * out for another message.</p>
+     */
+    public ExecutionOptions setRecycleContexts(final boolean recycle) {
+        this.recycleContexts = recycle;
+        return this;
+    }
+
+    /**
+     * Gets the sampler deciding which messages have their {@link com.codebullets.sagalib.PhaseTimings}
+     * recorded. The returned instance can be used to change the sample rate at runtime.
+     */
+    public PhaseTimingSampler phaseTimings() {
+        return phaseTimings;
+    }
+
+    /**
+     * Sets the sampler deciding which messages have their dispatch phase timings recorded.
+     */
+    public ExecutionOptions setPhaseTimings(final PhaseTimingSampler sampler) {
+        this.phaseTimings = sampler;
+        return this;
+    }
+
+    /**
+     * Gets the lock manager used to serialize the handling of a single saga instance,
+     * or {@code null} if sagas are not locked.
+     */
+    @Nullable
+    public SagaLockManager sagaLocks() {
+        return sagaLocks;
+    }
+
+    /**
+     * Enables locking of saga instances. Required if messages are handled by multiple
+     * threads, e.g. by using a thread pool executor, to prevent two threads from handling
+     * messages of the same saga at the same time. The locks of all continued sagas are
+     * held from the first handler invocation until the states have been updated.
+     */
+    public ExecutionOptions setSagaLocks(@Nullable final SagaLockManager lockManager) {
+        this.sagaLocks = lockManager;
+        return this;
+    }
+
+    /**
+     * Gets the pool used to invoke unordered sagas in parallel, or {@code null}
+     * if all sagas are invoked sequentially.
+     */
+    @Nullable
+    public ForkJoinPool parallelInvocation() {
+        return parallelInvocation;
+    }
+
+    /**
+     * <p>Enables the parallel invocation of sagas handling the same message. Sagas whose types
+     * have not been listed using {@code defineHandlerExecutionOrder()} are called on the provided
+     * pool once all ordered sagas have been invoked. The message handling waits until all of them
+     * have finished before the modules are notified.</p>
+     *
+     * <p>Every saga invoked in parallel gets its own execution context. Header changes made on this
+     * context are not visible to other sagas and stopping the dispatching has no effect on sagas
+     * already running in parallel. Interceptors need to be thread safe. Only top level messages are
+     * handled in parallel, child messages are always handled sequentially on the calling thread.</p>
+     *
+     * <p>If {@link #setSagaLocks(SagaLockManager) saga locks} are enabled, a message continuing any
+     * saga is invoked sequentially. Its locks are held by the calling thread, a child message sent from
+     * a pool thread continuing one of the locked sagas would wait for the calling thread forever.
+     * Messages only starting sagas hold no locks and are still invoked in parallel.</p>
+     */
+    public ExecutionOptions setParallelInvocation(@Nullable final ForkJoinPool pool) {
+        this.parallelInvocation = pool;
+        return this;
+    }
+
+    /**
+     * Gets the saga types to always invoke sequentially in the defined order.
+     */
+    public Collection<Class<? extends Saga>> orderedSagaTypes() {
+        return orderedSagaTypes;
+    }
+
+    /**
+     * Sets the saga types to always invoke sequentially. Called by the stream builders
+     * with the types listed using {@code defineHandlerExecutionOrder()}.
+     */
+    public ExecutionOptions setOrderedSagaTypes(final Collection<Class<? extends Saga>> sagaTypes) {
+        this.orderedSagaTypes = sagaTypes;
+        return this;
+    }
+
+    /**
+     * Gets the prefetcher loading the states of queued messages, or {@code null}
+     * if states are only loaded once a message is handled.
+     */
+    @Nullable
+    public StatePrefetcher statePrefetch() {
+        return statePrefetch;
+    }
+
+    /**
+     * Enables loading the saga states of messages added to the stream while they are waiting
+     * to be executed. The provided instance offers the hit and miss counts of the staged states.
+     */
+    public ExecutionOptions setStatePrefetch(@Nullable final StatePrefetcher prefetcher) {
+        this.statePrefetch = prefetcher;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of queued messages delivered to a batch handler at once.
+     */
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of queued messages delivered to a handler marked as
+     * {@link com.codebullets.sagalib.EventHandler#batch()} at once. Batches are only
+     * collected by the {@link MailboxMessageStream}, other streams deliver single messages.
+     */
+    public ExecutionOptions setMaxBatchSize(final int size) {
+        checkArgument(size > 0, "Batch size must be positive.");
+
+        this.maxBatchSize = size;
+        return this;
+    }
+
+    /**
+     * Gets whether child messages are handled after the handler sending them has returned.
+     */
+    public boolean deferChildMessages() {
+        return deferChildMessages;
+    }
+
+    /**
+     * <p>Queues child messages, sent using {@code handle(message, parentContext)} from within a handler,
+     * instead of handling them right away on the stack of the sending handler. The queued messages of a
+     * top level message are handled one after the other once the saga handlers of that message have been
+     * invoked and their states updated, before the modules are notified about the end of the top level message.
+     * Deep cascades of child messages no longer grow the stack.</p>
+     *
+     * <p>The {@code handle} call returns before the child has been handled, errors of a child are reported
+     * as error of the top level message and remaining queued children are dropped. Only used by the
+     * {@link SagaMessageStream}.</p>
+     */
+    public ExecutionOptions setDeferChildMessages(final boolean defer) {
+        this.deferChildMessages = defer;
+        return this;
+    }
+
+    /**
+     * Gets the counters of messages not handled by any saga.
+     */
+    public UnhandledMessages unhandledMessages() {
+        return unhandledMessages;
+    }
+
+    /**
+     * Sets the instance counting and logging messages not handled by any saga, e.g. to
+     * change the interval of the rate limited warning.
+     */
+    public ExecutionOptions setUnhandledMessages(final UnhandledMessages unhandled) {
+        this.unhandledMessages = unhandled;
+        return this;
+    }
+
+    /**
+     * Gets the pool of reused saga instances, or {@code null} if saga instances are not pooled.
+     */
+    @Nullable
+    public SagaInstancePool sagaPool() {
+        return sagaPool;
+    }
+
+    /**
+     * <p>Enables the reuse of saga instances of the types configured in the pool. Instead
+     * of creating a new instance for every message, instances are recycled once their
+     * message has been handled.</p>
+     *
+     * <p>The pool has to be set before the {@link SagaInstanceCreator} is created.</p>
+     */
+    public ExecutionOptions setSagaPool(@Nullable final SagaInstancePool pool) {
+        this.sagaPool = pool;
+        return this;
+    }
+
+    /**
+     * Gets the generator of saga and timeout ids.
+     */
+    public SagaIdGenerator idGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Sets the generator of the ids assigned to new sagas and timeouts. Defaults to
+     * {@link SagaIdGenerators#secureRandom()}.
+     */
+    public ExecutionOptions setIdGenerator(final SagaIdGenerator generator) {
+        this.idGenerator = generator;
+        return this;
+    }
+}
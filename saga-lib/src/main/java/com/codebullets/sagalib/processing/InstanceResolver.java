@@ -16,8 +16,10 @@
 package com.codebullets.sagalib.processing;
 
 import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.storage.InstanceKeySearchParam;
 
 import java.util.Collection;
+import java.util.Collections;
 
 /**
  * Responsible for taking the incoming message and resolving it to either
@@ -28,4 +30,22 @@ public interface InstanceResolver {
      * Resolves a specific message one or more actual saga instances.
      */
     Collection<SagaInstanceInfo> resolve(LookupContext context);
+
+    /**
+     * Gets whether no saga handles messages of the provided type at all. If true is
+     * returned resolving such a message is skipped. The default always returns false.
+     */
+    default boolean isUnhandledType(final Class<?> messageClass) {
+        return false;
+    }
+
+    /**
+     * Gets the instance keys used to search the sagas continued by the message, if the message
+     * only continues sagas found by these keys. Callers may route such a message to sagas known
+     * to use the keys without resolving it. Returns an empty collection if the message is resolved
+     * in any other way. The default always returns an empty collection.
+     */
+    default Collection<InstanceKeySearchParam> continuedKeys(final LookupContext context) {
+        return Collections.emptyList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AbstractLifetimeInterceptor;
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.InterceptorHook;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.SagaLifetimeInterceptor;
+import com.codebullets.sagalib.SelectiveLifetimeInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Determines which interceptors have to be called for which hook. The hooks of
+ * every interceptor are evaluated once, either as declared by a {@link SelectiveLifetimeInterceptor}
+ * or by checking which methods of {@link AbstractLifetimeInterceptor} have been overwritten.
+ * The resulting interceptor arrays are cached per saga type.
+ */
+final class InterceptorHooks {
+    private static final SagaLifetimeInterceptor[] NO_INTERCEPTORS = new SagaLifetimeInterceptor[0];
+    private static final SagaTypeInterceptors NOT_INTERCEPTED =
+            new SagaTypeInterceptors(NO_INTERCEPTORS, NO_INTERCEPTORS, NO_INTERCEPTORS, NO_INTERCEPTORS);
+
+    private final List<RegisteredInterceptor> registered = new ArrayList<>();
+    private final ConcurrentMap<Class<?>, SagaTypeInterceptors> interceptorsBySagaType = new ConcurrentHashMap<>();
+
+    InterceptorHooks(final Iterable<SagaLifetimeInterceptor> interceptors) {
+        for (SagaLifetimeInterceptor interceptor : interceptors) {
+            Set<InterceptorHook> hooks = hooksOf(interceptor);
+            if (!hooks.isEmpty()) {
+                registered.add(new RegisteredInterceptor(interceptor, hooks));
+            }
+        }
+    }
+
+    /**
+     * Gets the interceptors to call for sagas of the provided type.
+     */
+    SagaTypeInterceptors forSagaType(final Class<?> sagaType) {
+        SagaTypeInterceptors interceptors;
+
+        if (registered.isEmpty()) {
+            interceptors = NOT_INTERCEPTED;
+        } else {
+            interceptors = interceptorsBySagaType.get(sagaType);
+            if (interceptors == null) {
+                interceptors = interceptorsBySagaType.computeIfAbsent(sagaType, this::compile);
+            }
+        }
+
+        return interceptors;
+    }
+
+    @SuppressWarnings("unchecked")
+    private SagaTypeInterceptors compile(final Class<?> sagaType) {
+        List<RegisteredInterceptor> targeting = new ArrayList<>(registered.size());
+        for (RegisteredInterceptor candidate : registered) {
+            if (candidate.intercepts((Class<? extends Saga>) sagaType)) {
+                targeting.add(candidate);
+            }
+        }
+
+        return new SagaTypeInterceptors(
+                select(targeting, InterceptorHook.STARTING),
+                select(targeting, InterceptorHook.HANDLER_EXECUTING),
+                select(targeting, InterceptorHook.HANDLER_EXECUTED),
+                select(targeting, InterceptorHook.FINISHED));
+    }
+
+    private static SagaLifetimeInterceptor[] select(final Collection<RegisteredInterceptor> targeting, final InterceptorHook hook) {
+        List<SagaLifetimeInterceptor> selected = new ArrayList<>(targeting.size());
+        for (RegisteredInterceptor candidate : targeting) {
+            if (candidate.hooks.contains(hook)) {
+                selected.add(candidate.interceptor);
+            }
+        }
+
+        return selected.isEmpty() ? NO_INTERCEPTORS : selected.toArray(NO_INTERCEPTORS);
+    }
+
+    private static Set<InterceptorHook> hooksOf(final SagaLifetimeInterceptor interceptor) {
+        Set<InterceptorHook> hooks = EnumSet.noneOf(InterceptorHook.class);
+
+        if (interceptor instanceof SelectiveLifetimeInterceptor) {
+            hooks.addAll(((SelectiveLifetimeInterceptor) interceptor).hooks());
+        } else {
+            for (InterceptorHook hook : InterceptorHook.values()) {
+                if (isImplemented(interceptor.getClass(), hook)) {
+                    hooks.add(hook);
+                }
+            }
+        }
+
+        return hooks;
+    }
+
+    /**
+     * Checks whether the hook method is implemented by the interceptor type or
+     * whether it is the empty implementation of {@link AbstractLifetimeInterceptor}.
+     */
+    private static boolean isImplemented(final Class<?> interceptorType, final InterceptorHook hook) {
+        boolean implemented;
+
+        try {
+            Method method = interceptorType.getMethod(hookMethodName(hook), hookParameterTypes(hook));
+            implemented = !method.getDeclaringClass().equals(AbstractLifetimeInterceptor.class);
+        } catch (NoSuchMethodException ex) {
+            implemented = true;
+        }
+
+        return implemented;
+    }
+
+    private static String hookMethodName(final InterceptorHook hook) {
+        String name;
+
+        switch (hook) {
+            case STARTING:
+                name = "onStarting";
+                break;
+            case HANDLER_EXECUTING:
+                name = "onHandlerExecuting";
+                break;
+            case HANDLER_EXECUTED:
+                name = "onHandlerExecuted";
+                break;
+            default:
+                name = "onFinished";
+                break;
+        }
+
+        return name;
+    }
+
+    private static Class<?>[] hookParameterTypes(final InterceptorHook hook) {
+        return hook == InterceptorHook.FINISHED
+                ? new Class<?>[] {Saga.class, ExecutionContext.class }
+                : new Class<?>[] {Saga.class, ExecutionContext.class, Object.class };
+    }
+
+    /**
+     * Interceptor instance together with the hooks it is to be called for.
+     */
+    private static final class RegisteredInterceptor {
+        private final SagaLifetimeInterceptor interceptor;
+        private final Set<InterceptorHook> hooks;
+
+        private RegisteredInterceptor(final SagaLifetimeInterceptor interceptor, final Set<InterceptorHook> hooks) {
+            this.interceptor = interceptor;
+            this.hooks = hooks;
+        }
+
+        private boolean intercepts(final Class<? extends Saga> sagaType) {
+            return !(interceptor instanceof SelectiveLifetimeInterceptor)
+                    || ((SelectiveLifetimeInterceptor) interceptor).interceptsSagaType(sagaType);
+        }
+    }
+
+    /**
+     * The interceptors to call for every hook of a single saga type.
+     */
+    static final class SagaTypeInterceptors {
+        private final SagaLifetimeInterceptor[] starting;
+        private final SagaLifetimeInterceptor[] handlerExecuting;
+        private final SagaLifetimeInterceptor[] handlerExecuted;
+        private final SagaLifetimeInterceptor[] finished;
+
+        private SagaTypeInterceptors(
+                final SagaLifetimeInterceptor[] starting,
+                final SagaLifetimeInterceptor[] handlerExecuting,
+                final SagaLifetimeInterceptor[] handlerExecuted,
+                final SagaLifetimeInterceptor[] finished) {
+            this.starting = starting;
+            this.handlerExecuting = handlerExecuting;
+            this.handlerExecuted = handlerExecuted;
+            this.finished = finished;
+        }
+
+        SagaLifetimeInterceptor[] starting() {
+            return starting;
+        }
+
+        SagaLifetimeInterceptor[] handlerExecuting() {
+            return handlerExecuting;
+        }
+
+        SagaLifetimeInterceptor[] handlerExecuted() {
+            return handlerExecuted;
+        }
+
+        SagaLifetimeInterceptor[] finished() {
+            return finished;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.Saga;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps track of the sagas whose handlers are invoked on the current thread. Child messages
+ * dispatched synchronously are handled while the handler sending them is still running, so
+ * a saga instance reused across messages must not be handed out again while invoked.
+ */
+final class InvokedSagas {
+    private static final ThreadLocal<Deque<Saga>> INVOKED = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private InvokedSagas() {
+    }
+
+    /**
+     * Marks the saga as invoked on the current thread, until {@link #finished(Saga)} is called.
+     */
+    static void started(final Saga saga) {
+        INVOKED.get().addFirst(saga);
+    }
+
+    /**
+     * Removes the mark added by {@link #started(Saga)}.
+     */
+    static void finished(final Saga saga) {
+        Deque<Saga> invoked = INVOKED.get();
+        if (invoked.peekFirst() == saga) {
+            invoked.removeFirst();
+        } else {
+            invoked.removeIf(entry -> entry == saga);
+        }
+    }
+
+    /**
+     * Gets whether a handler of the saga instance is currently invoked on this thread.
+     */
+    static boolean isInvoked(final Saga saga) {
+        boolean found = false;
+        for (Saga invoked : INVOKED.get()) {
+            if (invoked == saga) {
+                found = true;
+                break;
+            }
+        }
+
+        return found;
+    }
+}
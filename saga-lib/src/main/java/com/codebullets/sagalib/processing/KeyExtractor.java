@@ -1,5 +1,6 @@
 package com.codebullets.sagalib.processing;
 
+import com.codebullets.sagalib.LongKeyReader;
 import com.codebullets.sagalib.context.LookupContext;
 import com.codebullets.sagalib.Saga;
 
@@ -13,4 +14,22 @@ public interface KeyExtractor {
      * Extract the instance key from the message to find the matching saga instance.
      */
     Object findSagaInstanceKey(Class<? extends Saga> sagaClazz, LookupContext context);
+
+    /**
+     * Gets whether the key of the message is read by a {@link LongKeyReader}, in which case
+     * {@link #findSagaInstanceLongKey(Class, LookupContext)} returns the key without boxing.
+     */
+    default boolean readsLongKey(final Class<? extends Saga> sagaClazz, final Object message) {
+        return false;
+    }
+
+    /**
+     * Extract the primitive instance key from the message.
+     *
+     * @return Returns the key or {@link LongKeyReader#NO_KEY} if not available.
+     */
+    default long findSagaInstanceLongKey(final Class<? extends Saga> sagaClazz, final LookupContext context) {
+        Object key = findSagaInstanceKey(sagaClazz, context);
+        return key instanceof Long ? (Long) key : LongKeyReader.NO_KEY;
+    }
 }
\ No newline at end of file
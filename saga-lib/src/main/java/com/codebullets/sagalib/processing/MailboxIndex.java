@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.SagaState;
+import com.codebullets.sagalib.storage.InstanceKeySearchParam;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the instance keys of cached sagas to their mailboxes. A key is only part of the
+ * index while all sagas using it are known to be cached, which is the case once the state
+ * storage has been searched for the key. Sagas taking on an indexed key afterwards are added
+ * to it, a saga removed from the cache while still alive drops all of its keys from the index.
+ *
+ * <p>Not thread safe, only used while holding the routing lock of the {@link MailboxMessageStream}.</p>
+ */
+final class MailboxIndex {
+    private final Map<InstanceKeySearchParam, Set<SagaMailbox>> mailboxesByKey = new HashMap<>();
+    private final Map<SagaMailbox, Set<InstanceKeySearchParam>> keysByMailbox = new HashMap<>();
+
+    /**
+     * Gets the mailboxes of all sagas using any of the keys, or {@code null} if
+     * any key is not indexed and the state storage needs to be searched.
+     */
+    @Nullable
+    Collection<SagaMailbox> find(final Collection<InstanceKeySearchParam> keys) {
+        Collection<SagaMailbox> found = new LinkedHashSet<>();
+
+        for (InstanceKeySearchParam key : keys) {
+            Set<SagaMailbox> mailboxes = mailboxesByKey.get(key);
+            if (mailboxes == null) {
+                found = null;
+                break;
+            }
+
+            found.addAll(mailboxes);
+        }
+
+        return found;
+    }
+
+    /**
+     * Adds the keys of a message resolved using the state storage, together with
+     * the mailboxes of all sagas found using them.
+     */
+    void addSearched(final Collection<InstanceKeySearchParam> keys, final Collection<SagaMailbox> mailboxes) {
+        for (InstanceKeySearchParam key : keys) {
+            Set<SagaMailbox> keyMailboxes = new HashSet<>();
+            for (SagaMailbox mailbox : mailboxes) {
+                if (keysOf(mailbox).contains(key)) {
+                    keyMailboxes.add(mailbox);
+                    keysByMailbox.computeIfAbsent(mailbox, m -> new HashSet<>()).add(key);
+                }
+            }
+
+            if (!keyMailboxes.isEmpty()) {
+                mailboxesByKey.put(key, keyMailboxes);
+            }
+        }
+    }
+
+    /**
+     * Updates the index after the saga of the mailbox has handled a message,
+     * which might have added or removed instance keys.
+     */
+    void update(final SagaMailbox mailbox) {
+        Set<InstanceKeySearchParam> currentKeys = keysOf(mailbox);
+        Set<InstanceKeySearchParam> indexedKeys = keysByMailbox.computeIfAbsent(mailbox, m -> new HashSet<>());
+
+        indexedKeys.removeIf(key -> {
+            boolean removed = !currentKeys.contains(key);
+            if (removed) {
+                removeFromKey(key, mailbox);
+            }
+
+            return removed;
+        });
+
+        for (InstanceKeySearchParam key : currentKeys) {
+            Set<SagaMailbox> keyMailboxes = mailboxesByKey.get(key);
+            if (keyMailboxes != null && keyMailboxes.add(mailbox)) {
+                indexedKeys.add(key);
+            }
+        }
+
+        if (indexedKeys.isEmpty()) {
+            keysByMailbox.remove(mailbox);
+        }
+    }
+
+    /**
+     * Removes the mailbox of a finished saga.
+     */
+    void removeFinished(final SagaMailbox mailbox) {
+        Set<InstanceKeySearchParam> indexedKeys = keysByMailbox.remove(mailbox);
+        if (indexedKeys != null) {
+            indexedKeys.forEach(key -> removeFromKey(key, mailbox));
+        }
+    }
+
+    /**
+     * Removes a saga still alive from the cache. Its keys are no longer complete
+     * and are searched in the state storage again.
+     */
+    void evict(final SagaMailbox mailbox) {
+        Set<InstanceKeySearchParam> indexedKeys = keysByMailbox.remove(mailbox);
+        if (indexedKeys != null) {
+            for (InstanceKeySearchParam key : indexedKeys) {
+                Set<SagaMailbox> keyMailboxes = mailboxesByKey.remove(key);
+                if (keyMailboxes != null) {
+                    keyMailboxes.forEach(other -> forgetKey(other, key));
+                }
+            }
+        }
+    }
+
+    private void removeFromKey(final InstanceKeySearchParam key, final SagaMailbox mailbox) {
+        Set<SagaMailbox> keyMailboxes = mailboxesByKey.get(key);
+        if (keyMailboxes != null) {
+            keyMailboxes.remove(mailbox);
+            if (keyMailboxes.isEmpty()) {
+                mailboxesByKey.remove(key);
+            }
+        }
+    }
+
+    private void forgetKey(final SagaMailbox mailbox, final InstanceKeySearchParam key) {
+        Set<InstanceKeySearchParam> indexedKeys = keysByMailbox.get(mailbox);
+        if (indexedKeys != null && indexedKeys.remove(key) && indexedKeys.isEmpty()) {
+            keysByMailbox.remove(mailbox);
+        }
+    }
+
+    private static Set<InstanceKeySearchParam> keysOf(final SagaMailbox mailbox) {
+        SagaState<?> state = mailbox.saga().state();
+        Set<InstanceKeySearchParam> keys = new HashSet<>();
+        for (Object key : state.instanceKeys()) {
+            keys.add(new InstanceKeySearchParam(state.getType(), key));
+        }
+
+        return keys;
+    }
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AutoCloseables;
+import com.codebullets.sagalib.DeadMessage;
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.HeaderName;
+import com.codebullets.sagalib.MessageBatch;
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.context.HeaderMap;
+import com.codebullets.sagalib.processing.invocation.HandlerInvoker;
+import com.codebullets.sagalib.storage.InstanceKeySearchParam;
+import com.codebullets.sagalib.timeout.Timeout;
+import com.codebullets.sagalib.timeout.TimeoutExpirationCallback;
+import com.codebullets.sagalib.timeout.TimeoutExpirationContext;
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Actor style message stream, where every live saga instance has its own mailbox.
+ *
+ * <p>Messages are routed to their saga instances by a single router thread, in the
+ * order they have been added. Every resolved saga gets the message queued into its
+ * mailbox. Mailboxes are drained by the worker executor, so at most one message is
+ * handled per saga at a time while different sagas are handled in parallel. The
+ * hydrated saga instance stays cached in its mailbox, continuing messages do not
+ * create a new instance. Continuing messages are routed using an in memory index of the
+ * instance keys of the cached sagas. Only if a key is not part of the index, e.g. because
+ * a saga using it has been removed from the cache, the resolve strategies search the
+ * {@link com.codebullets.sagalib.storage.StateStorage} and the index is completed using
+ * the sagas found.</p>
+ *
+ * <p>Compared to the {@link SagaMessageStream} the following differences apply:</p>
+ * <ul>
+ *     <li>Modules and interceptors are called once per saga instance and message, each
+ *     saga is handled in its own execution context. Stopping the dispatching only affects
+ *     the current saga. Messages no saga has been found for are not reported to modules.</li>
+ *     <li>A message starting a new saga blocks routing until it has been handled, so the
+ *     instance keys of the new saga are known to later messages. Keys added while continuing
+ *     a saga are only visible to messages routed after the handler has finished.</li>
+ *     <li>Messages of the same type queued for a saga continuing them using a handler marked as
+ *     {@link com.codebullets.sagalib.EventHandler#batch()} are handed over together as
+ *     {@link MessageBatch}, up to {@link ExecutionOptions#maxBatchSize()} at once. The headers
+ *     of the first message are used for the whole batch.</li>
+ *     <li>{@code handle} blocks until all sagas have handled the message. If called from within
+ *     a saga handler, the message is handled right away by the current saga and queued for all
+ *     others without waiting.</li>
+ * </ul>
+ */
+public class MailboxMessageStream implements MessageStream {
+    /**
+     * Number of idle saga instances kept in memory by default.
+     */
+    public static final int DEFAULT_MAX_CACHED_SAGAS = 10_000;
+
+    private static final Logger LOG = LoggerFactory.getLogger(MailboxMessageStream.class);
+
+    private final SagaEnvironment environment;
+    private final HandlerInvoker invoker;
+    private final ExecutionFramePool framePool;
+    private final Executor workers;
+    private final ExecutorService router;
+    private final int maxCachedSagas;
+    private final BatchHandlers batchHandlers;
+    private final int maxBatchSize;
+
+    private final Object routingLock = new Object();
+    private final Map<String, SagaMailbox> mailboxes = new HashMap<>();
+    private final MailboxIndex index = new MailboxIndex();
+    private final Queue<SagaMailbox> releasedMailboxes = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<SagaMailbox> drainingMailbox = new ThreadLocal<>();
+    private volatile int mailboxCount;
+
+    /**
+     * Creates a new MailboxMessageStream instance.
+     *
+     * @param instanceFactory The factory used by the resolve strategies. Continued sagas
+     *                        are taken from the mailboxes instead of creating new instances.
+     * @param workers The executor draining the saga mailboxes.
+     * @param maxCachedSagas Number of sagas kept in memory while not handling any message.
+     */
+    public MailboxMessageStream(
+            final HandlerInvoker invoker,
+            final SagaEnvironment environment,
+            final SagaInstanceFactory instanceFactory,
+            final Executor workers,
+            final ExecutionOptions options,
+            final int maxCachedSagas) {
+        this(invoker, environment, instanceFactory, workers, options, maxCachedSagas, BatchHandlers.none());
+    }
+
+    /**
+     * Creates a new MailboxMessageStream instance delivering queued messages of the same type
+     * to batch handlers in one go.
+     *
+     * @param instanceFactory The factory used by the resolve strategies. Continued sagas
+     *                        are taken from the mailboxes instead of creating new instances.
+     * @param workers The executor draining the saga mailboxes.
+     * @param maxCachedSagas Number of sagas kept in memory while not handling any message.
+     * @param batchHandlers The saga types handling messages in batches.
+     */
+    public MailboxMessageStream(
+            final HandlerInvoker invoker,
+            final SagaEnvironment environment,
+            final SagaInstanceFactory instanceFactory,
+            final Executor workers,
+            final ExecutionOptions options,
+            final int maxCachedSagas,
+            final BatchHandlers batchHandlers) {
+        this.invoker = invoker;
+        this.environment = environment;
+        this.workers = workers;
+        this.maxCachedSagas = maxCachedSagas;
+        this.batchHandlers = batchHandlers;
+        this.maxBatchSize = options.maxBatchSize();
+        this.framePool = new ExecutionFramePool(environment, options);
+        this.router = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "saga-lib-router");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        instanceFactory.setInstanceCache(this::cachedInstance);
+
+        environment.timeoutManager().addExpiredCallback(new TimeoutExpirationCallback() {
+            @Override
+            public void expired(final Timeout timeout) {
+                // only the expiration with context is used
+            }
+
+            @Override
+            public void expired(final Timeout timeout, final TimeoutExpirationContext context) {
+                routeAsync(timeout, HeaderMap.copyOf(context.getOriginalHeaders()));
+            }
+        });
+    }
+
+    @Override
+    public void add(@Nonnull final Object message) {
+        checkNotNull(message, "Message to handle must not be null.");
+        routeAsync(message, new HeaderMap());
+    }
+
+    @Override
+    public void add(@Nonnull final Object message, @Nullable final Map<String, Object> headers) {
+        checkNotNull(message, "Message to handle must not be null.");
+        routeAsync(message, HeaderMap.copyOfUntyped(headers));
+    }
+
+    @Override
+    public void addMessage(@Nonnull final Object message, @Nullable final Map<HeaderName<?>, Object> headers) {
+        checkNotNull(message, "Message to handle must not be null.");
+        routeAsync(message, HeaderMap.copyOf(headers));
+    }
+
+    @Override
+    public void handle(@Nonnull final Object message) throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, new HeaderMap(), null);
+    }
+
+    @Override
+    public void handle(@Nonnull final Object message, @Nullable final ExecutionContext parentContext) throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, SagaMessageStream.mergeHeaders(new HeaderMap(), parentContext), parentContext);
+    }
+
+    @Override
+    public void handle(@Nonnull final Object message, @Nullable final Map<String, Object> headers) throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, HeaderMap.copyOfUntyped(headers), null);
+    }
+
+    @Override
+    public void handleMessage(@Nonnull final Object message, @Nullable final Map<HeaderName<?>, Object> headers)
+            throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, HeaderMap.copyOf(headers), null);
+    }
+
+    @Override
+    public void handle(@Nonnull final Object message, @Nullable final Map<String, Object> headers, @Nullable final ExecutionContext parentContext)
+            throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, SagaMessageStream.mergeHeaders(HeaderMap.copyOfUntyped(headers), parentContext), parentContext);
+    }
+
+    @Override
+    public void handleMessage(
+            @Nonnull final Object message,
+            @Nullable final Map<HeaderName<?>, Object> headers,
+            @Nullable final ExecutionContext parentContext) throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, SagaMessageStream.mergeHeaders(HeaderMap.copyOf(headers), parentContext), parentContext);
+    }
+
+    /**
+     * Gets the number of saga instances currently held in memory.
+     */
+    public int cachedSagaCount() {
+        return mailboxCount;
+    }
+
+    private void routeAsync(final Object message, final HeaderMap headers) {
+        router.execute(() -> {
+            try {
+                Routing routing;
+                synchronized (routingLock) {
+                    routing = route(message, headers, null, false);
+                }
+
+                // wait for new sagas to be handled, making their keys known before routing the next message
+                for (CompletableFuture<Void> startingSaga : routing.pending) {
+                    awaitQuietly(startingSaga);
+                }
+            } catch (RuntimeException ex) {
+                LOG.error("Error routing message {}.", message, ex);
+            }
+        });
+    }
+
+    private void handleSync(final Object message, final HeaderMap headers, @Nullable final ExecutionContext parentContext)
+            throws InvocationTargetException, IllegalAccessException {
+        Routing routing;
+        synchronized (routingLock) {
+            routing = route(message, headers, parentContext, true);
+        }
+
+        Throwable error = null;
+        for (Dispatch inline : routing.inline) {
+            Throwable inlineError = execute(inline.mailbox, inline.delivery);
+            error = error == null ? inlineError : error;
+        }
+
+        if (drainingMailbox.get() == null) {
+            for (CompletableFuture<Void> pending : routing.pending) {
+                Throwable pendingError = await(pending);
+                error = error == null ? pendingError : error;
+            }
+        } else {
+            // waiting from within a mailbox might dead lock with another mailbox doing the same
+            routing.pending.forEach(this::awaitQuietlyAsync);
+        }
+
+        rethrow(error);
+    }
+
+    /**
+     * Resolves the sagas of the message and queues the message into their mailboxes.
+     * Must be called while holding the routing lock.
+     */
+    private Routing route(final Object message, final HeaderMap headers, @Nullable final ExecutionContext parentContext, final boolean trackAll) {
+        releaseMailboxes();
+
+        Object routedMessage = message;
+        Collection<InstanceKeySearchParam> searchedKeys = Collections.emptyList();
+        Collection<InstanceKeySearchParam> keys = environment.instanceResolver().continuedKeys(new SagaLookupContext(message, headers, parentContext));
+        Collection<SagaInstanceInfo> instances = cachedInstances(keys);
+        if (instances == null) {
+            instances = resolve(message, headers, parentContext);
+            searchedKeys = keys;
+        }
+
+        if (instances.isEmpty() && !(message instanceof DeadMessage)) {
+            searchedKeys = Collections.emptyList();
+            routedMessage = new DeadMessage(message);
+            instances = resolve(routedMessage, headers, parentContext);
+        }
+
+        if (instances.isEmpty()) {
+            framePool.unhandledMessages().report(message);
+        }
+
+        Routing routing = new Routing();
+        SagaMailbox currentMailbox = drainingMailbox.get();
+        Collection<SagaMailbox> routedMailboxes = new ArrayList<>(instances.size());
+
+        for (SagaInstanceInfo instance : instances) {
+            SagaMailbox mailbox = mailboxFor(instance);
+            if (mailbox != null) {
+                routedMailboxes.add(mailbox);
+                boolean tracked = trackAll || instance.isStarting();
+                SagaMailbox.Delivery delivery = new SagaMailbox.Delivery(routedMessage, headers.share(), instance.isStarting(), parentContext, tracked);
+
+                if (mailbox == currentMailbox) {
+                    routing.inline.add(new Dispatch(mailbox, delivery));
+                } else {
+                    schedule(mailbox, delivery);
+                    if (tracked) {
+                        routing.pending.add(delivery.completion());
+                    }
+                }
+            }
+        }
+
+        // all sagas using the searched keys have been loaded, later messages are routed from memory
+        index.addSearched(searchedKeys, routedMailboxes);
+
+        return routing;
+    }
+
+    /**
+     * Gets the cached sagas using the keys, or {@code null} if the state storage needs to be searched.
+     */
+    @Nullable
+    private Collection<SagaInstanceInfo> cachedInstances(final Collection<InstanceKeySearchParam> keys) {
+        Collection<SagaInstanceInfo> instances = null;
+
+        Collection<SagaMailbox> found = keys.isEmpty() ? null : index.find(keys);
+        if (found != null) {
+            instances = new ArrayList<>(found.size());
+            for (SagaMailbox mailbox : found) {
+                instances.add(SagaInstanceInfo.define(mailbox.saga(), false));
+            }
+        }
+
+        return instances;
+    }
+
+    private Collection<SagaInstanceInfo> resolve(final Object message, final HeaderMap headers, @Nullable final ExecutionContext parentContext) {
+        Collection<SagaInstanceInfo> instances;
+
+        InstanceResolver resolver = environment.instanceResolver();
+        if (!resolver.isUnhandledType(message.getClass())) {
+            instances = resolver.resolve(new SagaLookupContext(message, headers, parentContext));
+        } else {
+            framePool.unhandledMessages().resolutionSkipped();
+            instances = Collections.emptyList();
+        }
+
+        return instances;
+    }
+
+    /**
+     * Gets the mailbox of the saga or creates a new one. Returns {@code null} if the saga
+     * has finished while the message has been routed.
+     *
+     * <p>Starting sagas already finished before handling any message, like handlers without
+     * state, get a mailbox of their own which is never registered. All of them share the
+     * same saga id and would otherwise end up in the finished mailbox of the first one.</p>
+     */
+    @Nullable
+    private SagaMailbox mailboxFor(final SagaInstanceInfo instance) {
+        Saga saga = instance.getSaga();
+        String sagaId = saga.state().getSagaId();
+
+        SagaMailbox mailbox = mailboxes.get(sagaId);
+        if (instance.isStarting() && saga.isFinished()) {
+            mailbox = new SagaMailbox(sagaId, saga);
+        } else if (mailbox == null) {
+            mailbox = new SagaMailbox(sagaId, saga);
+            mailboxes.put(sagaId, mailbox);
+            mailboxCount = mailboxes.size();
+        } else if (mailbox.isFinished()) {
+            LOG.debug("Saga {} has finished, message is not routed to it.", sagaId);
+            mailbox = null;
+        }
+
+        return mailbox;
+    }
+
+    /**
+     * Removes mailboxes of finished sagas and idle mailboxes exceeding the cache size.
+     * Must be called while holding the routing lock.
+     */
+    private void releaseMailboxes() {
+        SagaMailbox mailbox = releasedMailboxes.poll();
+        while (mailbox != null) {
+            boolean remove = mailbox.isFinished() || (mailboxes.size() > maxCachedSagas && mailbox.closeIfIdle());
+            if (remove && mailboxes.remove(mailbox.sagaId(), mailbox)) {
+                if (mailbox.isFinished()) {
+                    index.removeFinished(mailbox);
+                } else {
+                    index.evict(mailbox);
+                }
+            }
+
+            mailbox = releasedMailboxes.poll();
+        }
+
+        mailboxCount = mailboxes.size();
+    }
+
+    @Nullable
+    private Saga cachedInstance(final String sagaId) {
+        // only called by the resolve strategies while routing
+        SagaMailbox mailbox = mailboxes.get(sagaId);
+        return mailbox != null && !mailbox.isFinished() ? mailbox.saga() : null;
+    }
+
+    private void schedule(final SagaMailbox mailbox, final SagaMailbox.Delivery delivery) {
+        if (mailbox.enqueue(delivery)) {
+            workers.execute(() -> drain(mailbox));
+        }
+    }
+
+    private void drain(final SagaMailbox mailbox) {
+        drainingMailbox.set(mailbox);
+        try {
+            for (SagaMailbox.Delivery delivery = mailbox.next(); delivery != null; delivery = mailbox.next()) {
+                if (isBatched(mailbox, delivery)) {
+                    execute(mailbox, mailbox.takeBatch(delivery, maxBatchSize));
+                } else {
+                    execute(mailbox, delivery);
+                }
+            }
+        } finally {
+            drainingMailbox.remove();
+        }
+
+        if (mailboxCount > maxCachedSagas) {
+            releasedMailboxes.add(mailbox);
+        }
+    }
+
+    private boolean isBatched(final SagaMailbox mailbox, final SagaMailbox.Delivery delivery) {
+        return maxBatchSize > 1
+                && !delivery.isStarting()
+                && delivery.parentContext() == null
+                && batchHandlers.isBatched(mailbox.saga().getClass(), delivery.message().getClass());
+    }
+
+    /**
+     * Handles a single message by the saga of the mailbox.
+     *
+     * @return Returns the error thrown during handling or {@code null} on success.
+     */
+    @Nullable
+    private Throwable execute(final SagaMailbox mailbox, final SagaMailbox.Delivery delivery) {
+        return execute(mailbox, Collections.singletonList(delivery));
+    }
+
+    /**
+     * Handles the messages of the deliveries by the saga of the mailbox. Multiple deliveries
+     * are handed to the saga as a single {@link MessageBatch} using the headers of the first one.
+     *
+     * @return Returns the error thrown during handling or {@code null} on success.
+     */
+    @Nullable
+    private Throwable execute(final SagaMailbox mailbox, final List<SagaMailbox.Delivery> deliveries) {
+        Exception error = null;
+        SagaMailbox.Delivery first = deliveries.get(0);
+        Object message = deliveries.size() == 1 ? first.message() : toBatch(deliveries);
+
+        if (mailbox.isFinished()) {
+            LOG.debug("Saga {} already finished, skipping message {}.", mailbox.sagaId(), message);
+        } else {
+            Collection<SagaInstanceInfo> instance = Collections.singletonList(SagaInstanceInfo.define(mailbox.saga(), first.isStarting()));
+            SagaExecutionTask task = new SagaExecutionTask(
+                    environment, invoker, framePool, message, first.headers(), first.parentContext(), context -> instance);
+
+            try {
+                task.handle();
+            } catch (Exception ex) {
+                error = ex;
+                if (deliveries.stream().anyMatch(delivery -> delivery.completion() == null)) {
+                    LOG.error("Error handling message {} by saga {}.", message, mailbox.sagaId(), ex);
+                }
+            }
+
+            if (mailbox.saga().isFinished()) {
+                mailbox.markFinished();
+                releasedMailboxes.add(mailbox);
+            }
+
+            updateIndex(mailbox);
+        }
+
+        for (SagaMailbox.Delivery delivery : deliveries) {
+            delivery.completed(error);
+        }
+
+        return error;
+    }
+
+    /**
+     * Updates the instance keys of a registered mailbox after its saga has handled a message.
+     */
+    private void updateIndex(final SagaMailbox mailbox) {
+        synchronized (routingLock) {
+            if (mailboxes.get(mailbox.sagaId()) == mailbox) {
+                if (mailbox.isFinished()) {
+                    index.removeFinished(mailbox);
+                } else {
+                    index.update(mailbox);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MessageBatch<Object> toBatch(final List<SagaMailbox.Delivery> deliveries) {
+        List<Object> messages = new ArrayList<>(deliveries.size());
+        for (SagaMailbox.Delivery delivery : deliveries) {
+            messages.add(delivery.message());
+        }
+
+        return new MessageBatch<>((Class<Object>) messages.get(0).getClass(), messages);
+    }
+
+    @Nullable
+    private static Throwable await(final CompletableFuture<Void> completion) {
+        Throwable error = null;
+
+        try {
+            completion.join();
+        } catch (CompletionException ex) {
+            error = ex.getCause();
+        }
+
+        return error;
+    }
+
+    private static void awaitQuietly(final CompletableFuture<Void> completion) {
+        Throwable error = await(completion);
+        if (error != null) {
+            LOG.error("Error handling message starting a new saga.", error);
+        }
+    }
+
+    private void awaitQuietlyAsync(final CompletableFuture<Void> completion) {
+        completion.whenComplete((result, error) -> {
+            if (error != null) {
+                LOG.error("Error handling message queued from within saga handler.", error);
+            }
+        });
+    }
+
+    private static void rethrow(@Nullable final Throwable error) throws InvocationTargetException, IllegalAccessException {
+        if (error instanceof InvocationTargetException) {
+            throw (InvocationTargetException) error;
+        } else if (error instanceof IllegalAccessException) {
+            throw (IllegalAccessException) error;
+        } else if (error != null) {
+            Throwables.throwIfUnchecked(error);
+            throw new RuntimeException(error);
+        }
+    }
+
+    @Override
+    public void close() {
+        SagaMessageStream.shutDownExecutor(router);
+        if (workers instanceof ExecutorService) {
+            SagaMessageStream.shutDownExecutor((ExecutorService) workers);
+        }
+
+        AutoCloseables.closeQuietly(environment);
+        AutoCloseables.closeQuietly(invoker);
+    }
+
+    /**
+     * Result of routing a single message.
+     */
+    private static final class Routing {
+        private final List<Dispatch> inline = new ArrayList<>(1);
+        private final List<CompletableFuture<Void>> pending = new ArrayList<>(1);
+    }
+
+    /**
+     * A delivery to be handled by the current thread.
+     */
+    private static final class Dispatch {
+        private final SagaMailbox mailbox;
+        private final SagaMailbox.Delivery delivery;
+
+        private Dispatch(final SagaMailbox mailbox, final SagaMailbox.Delivery delivery) {
+            this.mailbox = mailbox;
+            this.delivery = delivery;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.context.HeaderMap;
+import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.storage.InstanceKeySearchParam;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads the instance keys of a message before it is handled, used to decide
+ * upfront which saga states a message is going to access.
+ */
+final class MessageKeys {
+    private MessageKeys() {
+    }
+
+    /**
+     * Gets the search params of all continued saga types handling the message.
+     */
+    static Set<InstanceKeySearchParam> searchParams(
+            final TypesForMessageMapper mapper,
+            final KeyExtractor extractor,
+            final Object message,
+            final HeaderMap headers) {
+        return searchParams(mapper, extractor, new SagaLookupContext(message, headers, null));
+    }
+
+    /**
+     * Gets the search params of all continued saga types handling the message of the context.
+     */
+    static Set<InstanceKeySearchParam> searchParams(
+            final TypesForMessageMapper mapper,
+            final KeyExtractor extractor,
+            final LookupContext lookupContext) {
+        Set<InstanceKeySearchParam> searchParams = new HashSet<>();
+
+        for (SagaType sagaType : mapper.getSagasForMessageType(lookupContext.message().getClass())) {
+            if (!sagaType.isStartingNewSaga()) {
+                Object key = extractor.findSagaInstanceKey(sagaType.getSagaClass(), lookupContext);
+                if (key != null) {
+                    searchParams.add(new InstanceKeySearchParam(sagaType.getSagaClass().getName(), key));
+                }
+            }
+        }
+
+        return searchParams;
+    }
+
+    /**
+     * Gets whether the message is handled by any saga type starting a new saga.
+     */
+    static boolean startsSagas(final TypesForMessageMapper mapper, final Object message) {
+        boolean startsSagas = false;
+        for (SagaType sagaType : mapper.getSagasForMessageType(message.getClass())) {
+            if (sagaType.isStartingNewSaga()) {
+                startsSagas = true;
+                break;
+            }
+        }
+
+        return startsSagas;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.Saga;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Invokes the sagas handling a single message in parallel on a fork join pool.
+ * Only sagas whose type is not part of the configured handler execution order
+ * are invoked this way, ordered sagas are always called one after another.
+ */
+final class ParallelSagaInvoker {
+    /**
+     * Minimum number of unordered sagas worth to be invoked in parallel.
+     */
+    static final int MIN_PARALLEL_SAGAS = 2;
+
+    private static final int SAGAS_PER_TASK = 8;
+
+    private final ForkJoinPool pool;
+    private final Set<Class<?>> orderedTypes;
+
+    ParallelSagaInvoker(final ForkJoinPool pool, final Collection<Class<? extends Saga>> orderedTypes) {
+        this.pool = pool;
+        this.orderedTypes = new HashSet<>(orderedTypes);
+    }
+
+    /**
+     * Gets whether the saga type is part of the handler execution order and
+     * has to be invoked sequentially.
+     */
+    boolean isOrdered(final Saga saga) {
+        return orderedTypes.contains(saga.getClass());
+    }
+
+    /**
+     * Invokes all sagas in parallel and waits until all of them have finished. Once a saga
+     * invocation has failed sagas not yet started are skipped and the first error is thrown.
+     *
+     * @return Returns the invocation results in the order of the provided sagas.
+     * @throws InvocationTargetException Thrown when invocation of a handler method fails.
+     * @throws IllegalAccessException Thrown when access to a handler method fails.
+     */
+    <T> List<T> invokeAll(final List<SagaInstanceInfo> sagas, final SagaInvocation<T> invocation)
+            throws InvocationTargetException, IllegalAccessException {
+        Object[] results = new Object[sagas.size()];
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        InvokeRange<T> task = new InvokeRange<>(sagas, 0, sagas.size(), invocation, results, failure);
+
+        if (ForkJoinTask.getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+
+        rethrow(failure.get());
+
+        @SuppressWarnings("unchecked")
+        List<T> resultList = (List<T>) Arrays.asList(results);
+        return resultList;
+    }
+
+    private static void rethrow(final Exception failure) throws InvocationTargetException, IllegalAccessException {
+        if (failure instanceof InvocationTargetException) {
+            throw (InvocationTargetException) failure;
+        } else if (failure instanceof IllegalAccessException) {
+            throw (IllegalAccessException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    /**
+     * Handles a single saga as part of a parallel invocation.
+     *
+     * @param <T> The type of the invocation result.
+     */
+    @FunctionalInterface
+    interface SagaInvocation<T> {
+        /**
+         * Invokes the saga, returning the result to hand back to the calling thread.
+         *
+         * @throws InvocationTargetException Thrown when invocation of the handler method fails.
+         * @throws IllegalAccessException Thrown when access to the handler method fails.
+         */
+        T invoke(SagaInstanceInfo saga) throws InvocationTargetException, IllegalAccessException;
+    }
+
+    /**
+     * Splits the list of sagas until small enough to be handled by a single task.
+     *
+     * @param <T> The type of the invocation result.
+     */
+    private static final class InvokeRange<T> extends RecursiveAction {
+        private final List<SagaInstanceInfo> sagas;
+        private final int from;
+        private final int to;
+        private final SagaInvocation<T> invocation;
+        private final Object[] results;
+        private final AtomicReference<Exception> failure;
+
+        InvokeRange(
+                final List<SagaInstanceInfo> sagas,
+                final int from,
+                final int to,
+                final SagaInvocation<T> invocation,
+                final Object[] results,
+                final AtomicReference<Exception> failure) {
+            this.sagas = sagas;
+            this.from = from;
+            this.to = to;
+            this.invocation = invocation;
+            this.results = results;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SAGAS_PER_TASK) {
+                invokeRange();
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new InvokeRange<>(sagas, from, middle, invocation, results, failure),
+                        new InvokeRange<>(sagas, middle, to, invocation, results, failure));
+            }
+        }
+
+        private void invokeRange() {
+            for (int i = from; i < to && failure.get() == null; ++i) {
+                try {
+                    results[i] = invocation.invoke(sagas.get(i));
+                } catch (InvocationTargetException | IllegalAccessException | RuntimeException ex) {
+                    if (!failure.compareAndSet(null, ex)) {
+                        failure.get().addSuppressed(ex);
+                    }
+                }
+            }
+        }
+    }
+}
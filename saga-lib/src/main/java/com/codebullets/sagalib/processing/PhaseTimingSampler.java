@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.PhaseTimings;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which messages get their {@link PhaseTimings} recorded. Sampling
+ * is disabled by default and can be changed at any time while messages are
+ * being handled.
+ */
+public class PhaseTimingSampler {
+    private volatile double sampleRate;
+
+    /**
+     * Gets the fraction of messages having their timings recorded.
+     */
+    public double sampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Sets the fraction of messages having their timings recorded. A rate of
+     * {@code 0} disables recording, {@code 1} records every message.
+     *
+     * @throws IllegalArgumentException Thrown if the rate is outside of [0, 1].
+     */
+    public PhaseTimingSampler setSampleRate(final double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1, but was " + rate);
+        }
+
+        this.sampleRate = rate;
+        return this;
+    }
+
+    /**
+     * Stops recording of timings.
+     */
+    public void disable() {
+        sampleRate = 0;
+    }
+
+    /**
+     * Gets whether any messages are sampled.
+     */
+    public boolean isEnabled() {
+        return sampleRate > 0;
+    }
+
+    /**
+     * Returns the timings to use for the next message. If the message
+     * has not been selected the shared {@link PhaseTimings#disabled()} instance
+     * is returned.
+     */
+    public PhaseTimings sample() {
+        double rate = sampleRate;
+
+        boolean sampled = rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+        return sampled ? PhaseTimings.create() : PhaseTimings.disabled();
+    }
+}
@@ -38,6 +38,7 @@ public final class SagaEnvironment implements AutoCloseable {
     private final Iterable<SagaLifetimeInterceptor> interceptors;
     private final InstanceResolver instanceResolver;
     private final ModuleCoordinatorFactory coordinatorFactory;
+    private final InterceptorHooks interceptorHooks;
 
     /**
      * Generates a new instance of SagaEnvironment.
@@ -58,6 +59,7 @@ public final class SagaEnvironment implements AutoCloseable {
         this.modules = modules;
         this.interceptors = interceptors;
         this.coordinatorFactory = coordinatorFactory;
+        this.interceptorHooks = new InterceptorHooks(interceptors);
     }
 
     /**
@@ -88,6 +90,13 @@ public final class SagaEnvironment implements AutoCloseable {
         return interceptors;
     }
 
+    /**
+     * Gets the interceptors to call for the individual hooks, depending on the saga type.
+     */
+    InterceptorHooks interceptorHooks() {
+        return interceptorHooks;
+    }
+
     /**
      * Gets the execution context provider.
      */
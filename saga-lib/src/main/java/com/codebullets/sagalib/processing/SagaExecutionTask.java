@@ -16,14 +16,19 @@
 package com.codebullets.sagalib.processing;
 
 import com.codebullets.sagalib.DeadMessage;
+import com.codebullets.sagalib.DispatchPhase;
 import com.codebullets.sagalib.ExecutedRunnable;
 import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.PhaseTimings;
 import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.SagaLifetimeInterceptor;
+import com.codebullets.sagalib.SagaState;
 import com.codebullets.sagalib.context.CurrentExecutionContext;
 import com.codebullets.sagalib.HeaderName;
-import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.context.HeaderMap;
 import com.codebullets.sagalib.context.NeedContext;
+import com.codebullets.sagalib.jfr.SagaEvents;
+import com.codebullets.sagalib.jfr.StorageOperation;
 import com.codebullets.sagalib.processing.invocation.HandlerInvoker;
 import com.codebullets.sagalib.processing.invocation.InvocationHandlerType;
 import com.codebullets.sagalib.processing.invocation.ModuleCoordinator;
@@ -34,7 +39,11 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -49,7 +58,11 @@ class SagaExecutionTask implements ExecutedRunnable {
 
     private final HandlerInvoker invoker;
     private final SagaEnvironment env;
-    private final LookupContext taskLookupContext;
+    private final ExecutionFramePool framePool;
+    @Nullable
+    private final InstanceResolver instanceResolver;
+    private final Object message;
+    private final HeaderMap headers;
 
     @Nullable
     private final ExecutionContext parentContext;
@@ -64,10 +77,55 @@ class SagaExecutionTask implements ExecutedRunnable {
             final Object message,
             final Map<HeaderName<?>, Object> headers,
             @Nullable final ExecutionContext parentContext) {
+        this(environment, invoker, message, HeaderMap.copyOf(headers), parentContext);
+    }
+
+    /**
+     * Generates a new instance of SagaExecutionTask. The provided headers
+     * are shared with the task and not copied.
+     */
+    SagaExecutionTask(
+            final SagaEnvironment environment,
+            final HandlerInvoker invoker,
+            final Object message,
+            final HeaderMap headers,
+            @Nullable final ExecutionContext parentContext) {
+        this(environment, invoker, new ExecutionFramePool(environment, ExecutionOptions.defaults()), message, headers, parentContext);
+    }
+
+    /**
+     * Generates a new instance of SagaExecutionTask taking the contexts
+     * used during execution from the provided pool.
+     */
+    SagaExecutionTask(
+            final SagaEnvironment environment,
+            final HandlerInvoker invoker,
+            final ExecutionFramePool framePool,
+            final Object message,
+            final HeaderMap headers,
+            @Nullable final ExecutionContext parentContext) {
+        this(environment, invoker, framePool, message, headers, parentContext, null);
+    }
+
+    /**
+     * Generates a new instance of SagaExecutionTask using the provided resolver to find
+     * the sagas to execute. If no resolver is provided the one of the environment is used.
+     */
+    SagaExecutionTask(
+            final SagaEnvironment environment,
+            final HandlerInvoker invoker,
+            final ExecutionFramePool framePool,
+            final Object message,
+            final HeaderMap headers,
+            @Nullable final ExecutionContext parentContext,
+            @Nullable final InstanceResolver instanceResolver) {
         this.parentContext = parentContext;
-        this.taskLookupContext = new SagaLookupContext(message, headers, parentContext);
+        this.message = message;
+        this.headers = headers;
+        this.framePool = framePool;
         this.env = environment;
         this.invoker = invoker;
+        this.instanceResolver = instanceResolver;
     }
 
     /**
@@ -77,124 +135,436 @@ class SagaExecutionTask implements ExecutedRunnable {
      * @throws IllegalAccessException Thrown when access to the handler method fails.
      */
     public void handle() throws Exception {
-        checkNotNull(taskLookupContext.message(), "Message to handle must not be null.");
-        startExecutionChain(taskLookupContext);
+        checkNotNull(message, "Message to handle must not be null.");
+
+        if (parentContext == null && framePool.deferChildMessages() && ChildMessageQueue.current() == null) {
+            ChildMessageQueue childMessages = ChildMessageQueue.open(framePool);
+            try {
+                startExecutionChain(message, childMessages);
+            } finally {
+                childMessages.close();
+            }
+        } else {
+            startExecutionChain(message, null);
+        }
+    }
+
+    /**
+     * Handles the child message after it has been taken from the queue of its top level message.
+     * The frame is handed back to the queue, which releases it once the children of this message
+     * have been handled as well.
+     *
+     * @throws Exception Thrown if the execution chain fails.
+     */
+    void handleQueued(final ChildMessageQueue childMessages) throws Exception {
+        ExecutionFrame frame = framePool.acquire(message, headers, parentContext);
+        try {
+            executeChain(frame, null);
+        } finally {
+            childMessages.release(frame);
+        }
     }
 
-    private boolean startExecutionChain(final LookupContext messageLookupContext) throws Exception {
+    private boolean startExecutionChain(final Object chainMessage, @Nullable final ChildMessageQueue childMessages) throws Exception {
+        boolean sagasExecuted;
+
+        ExecutionFrame frame = framePool.acquire(chainMessage, headers, parentContext);
+        try {
+            sagasExecuted = executeChain(frame, childMessages);
+        } finally {
+            framePool.release(frame);
+        }
+
+        return sagasExecuted;
+    }
+
+    private boolean executeChain(final ExecutionFrame frame, @Nullable final ChildMessageQueue childMessages) throws Exception {
         boolean sagasExecuted = false;
 
-        CurrentExecutionContext executionContext = env.contextProvider().get();
-        executionContext.setMessage(messageLookupContext.message());
-        executionContext.setParentContext(parentContext);
-        setHeaders(executionContext);
+        CurrentExecutionContext executionContext = frame.executionContext();
+        ModuleCoordinator moduleCoordinator = frame.moduleCoordinator();
 
-        ModuleCoordinator moduleCoordinator = env.coordinatorFactory().create(env.modules());
+        PhaseTimings timings = executionContext.phaseTimings();
+
+        Object dispatchEvent = SagaEvents.sink().dispatchStarted(executionContext.message());
 
         try {
             moduleCoordinator.start(executionContext);
-            sagasExecuted = executeHandlersForMessage(messageLookupContext, executionContext);
-            if (!sagasExecuted) {
-                LOG.warn("No saga or saga state found to handle message. (message = {})", taskLookupContext.message());
+            long dispatchStart = timings.start();
+            sagasExecuted = executeHandlersForMessage(frame);
+            timings.setDispatchNanos(timings.start() - dispatchStart);
+            if (!sagasExecuted && !(executionContext.message() instanceof DeadMessage)) {
+                framePool.unhandledMessages().report(message);
+            }
+
+            // queued child messages are handled while the context of the top level message is still active
+            if (childMessages != null) {
+                childMessages.drain();
             }
         } catch (Exception ex) {
             executionContext.setError(ex);
             moduleCoordinator.onError(executionContext, executionContext.message(), ex);
         } finally {
             moduleCoordinator.finish(executionContext);
+            SagaEvents.sink().dispatchFinished(dispatchEvent, sagasExecuted);
         }
 
         return sagasExecuted;
     }
 
-    private boolean executeHandlersForMessage(final LookupContext messageLookupContext, final CurrentExecutionContext executionContext)
-            throws Exception {
+    private boolean executeHandlersForMessage(final ExecutionFrame frame) throws Exception {
         boolean sagasExecuted = false;
-        Object message = executionContext.message();
+        CurrentExecutionContext executionContext = frame.executionContext();
+        Object chainMessage = executionContext.message();
+
+        Collection<SagaInstanceInfo> sagaDescriptions = resolveSagas(frame);
 
-        Collection<SagaInstanceInfo> sagaDescriptions = env.instanceResolver().resolve(messageLookupContext);
         if (!sagaDescriptions.isEmpty()) {
-            invokeSagas(executionContext, sagaDescriptions, message);
+            SagaLockManager.Lease locks = lockSagas(sagaDescriptions);
+            try {
+                Collection<SagaInstanceInfo> lockedSagas = framePool.sagaLocks() == null ? sagaDescriptions : refreshStates(sagaDescriptions);
+                invokeSagas(executionContext, frame.invocationContext(), lockedSagas, chainMessage);
+            } finally {
+                locks.release();
+            }
+
             sagasExecuted = true;
-        } else if (!(message instanceof DeadMessage)) {
-            DeadMessage deadMessage = new DeadMessage(taskLookupContext.message());
-            LookupContext deadMessageContext = new SagaLookupContext(deadMessage, taskLookupContext, parentContext);
-            sagasExecuted = startExecutionChain(deadMessageContext);
+        } else if (!(chainMessage instanceof DeadMessage)) {
+            sagasExecuted = handleAsDeadMessage();
         }
 
         return sagasExecuted;
     }
 
-    private void invokeSagas(final CurrentExecutionContext context, final Iterable<SagaInstanceInfo> sagaDescriptions, final Object invokeParam)
+    /**
+     * Resolves the sagas handling the message of the frame.
+     */
+    Collection<SagaInstanceInfo> resolveSagas(final ExecutionFrame frame) {
+        Collection<SagaInstanceInfo> sagaDescriptions;
+        Object chainMessage = frame.executionContext().message();
+        InstanceResolver resolver = resolver();
+
+        if (!resolver.isUnhandledType(chainMessage.getClass())) {
+            Object resolutionEvent = SagaEvents.sink().resolutionStarted(chainMessage);
+            sagaDescriptions = resolver.resolve(frame.lookupContext());
+            SagaEvents.sink().resolutionFinished(resolutionEvent, sagaDescriptions.size());
+
+            // instances of a custom resolver might be kept by the caller, only pool instances created per message
+            if (instanceResolver == null && framePool.sagaPool() != null) {
+                frame.setPooledSagas(sagaDescriptions);
+            }
+        } else {
+            framePool.unhandledMessages().resolutionSkipped();
+            sagaDescriptions = Collections.emptyList();
+        }
+
+        frame.executionContext().setSagasFound(!sagaDescriptions.isEmpty());
+        return sagaDescriptions;
+    }
+
+    private InstanceResolver resolver() {
+        return instanceResolver != null ? instanceResolver : env.instanceResolver();
+    }
+
+    /**
+     * Handles the message as {@link DeadMessage} in a separate execution chain.
+     *
+     * @return Returns true if any saga has handled the dead message.
+     * @throws Exception Thrown if the execution chain fails.
+     */
+    boolean handleAsDeadMessage() throws Exception {
+        boolean handled = false;
+
+        // skip the whole execution chain if there is no dead message handler at all, modules
+        // learn about the dead message from the context of the original message
+        if (!resolver().isUnhandledType(DeadMessage.class)) {
+            handled = startExecutionChain(new DeadMessage(message), null);
+        } else {
+            framePool.unhandledMessages().resolutionSkipped();
+        }
+
+        return handled;
+    }
+
+    /**
+     * Gets a frame to execute the message of this task. Used if the execution is
+     * split into separate steps by the caller.
+     */
+    ExecutionFrame acquireFrame() {
+        return framePool.acquire(message, headers, parentContext);
+    }
+
+    /**
+     * Returns the frame acquired by {@link #acquireFrame()}.
+     */
+    void releaseFrame(final ExecutionFrame frame) {
+        framePool.release(frame);
+    }
+
+    /**
+     * Invokes the sagas one after another without updating the state storage.
+     *
+     * @return Returns the invoked sagas, whose states still need to be updated.
+     * @throws InvocationTargetException Thrown when invocation of the handler method fails.
+     * @throws IllegalAccessException Thrown when access to the handler method fails.
+     */
+    List<SagaInstanceInfo> invokeWithoutStorageUpdate(final ExecutionFrame frame, final Collection<SagaInstanceInfo> sagaDescriptions)
             throws InvocationTargetException, IllegalAccessException {
+        CurrentExecutionContext context = frame.executionContext();
+        List<SagaInstanceInfo> invoked = new ArrayList<>(sagaDescriptions.size());
+
+        for (SagaInstanceInfo sagaDescription : sagaDescriptions) {
+            if (context.dispatchingStopped()) {
+                break;
+            }
+
+            invokeSaga(context, frame.invocationContext(), sagaDescription, context.message(), false);
+            invoked.add(sagaDescription);
+        }
+
+        return invoked;
+    }
+
+    /**
+     * Updates the state storage of sagas invoked by {@link #invokeWithoutStorageUpdate(ExecutionFrame, Collection)}.
+     */
+    void updateStateStorage(final ExecutionFrame frame, final Collection<SagaInstanceInfo> invokedSagas) {
+        CurrentExecutionContext context = frame.executionContext();
+        PhaseTimings timings = context.phaseTimings();
+
+        for (SagaInstanceInfo sagaDescription : invokedSagas) {
+            long start = timings.start();
+            updateStateStorage(sagaDescription, context);
+            timings.stop(DispatchPhase.STATE_UPDATE, start);
+        }
+    }
+
+    /**
+     * Locks all continued sagas. Started sagas are not known to any other
+     * thread and need no locking.
+     */
+    private SagaLockManager.Lease lockSagas(final Collection<SagaInstanceInfo> sagaDescriptions) {
+        SagaLockManager lockManager = framePool.sagaLocks();
+        SagaLockManager.Lease lease;
+
+        if (lockManager == null) {
+            lease = SagaLockManager.noLocks();
+        } else {
+            String[] sagaIds = new String[sagaDescriptions.size()];
+            int count = 0;
+            for (SagaInstanceInfo description : sagaDescriptions) {
+                if (!description.isStarting()) {
+                    sagaIds[count++] = description.getSaga().state().getSagaId();
+                }
+            }
+
+            lease = lockManager.acquire(count == sagaIds.length ? sagaIds : Arrays.copyOf(sagaIds, count));
+        }
+
+        return lease;
+    }
+
+    /**
+     * Loads the states of the continued sagas again after they have been locked. Another
+     * thread may have updated or finished the saga between resolving and locking it.
+     */
+    Collection<SagaInstanceInfo> refreshStates(final Collection<SagaInstanceInfo> sagaDescriptions) {
+        Collection<SagaInstanceInfo> refreshed = new ArrayList<>(sagaDescriptions.size());
+
+        for (SagaInstanceInfo description : sagaDescriptions) {
+            Saga saga = description.getSaga();
+            if (description.isStarting()) {
+                refreshed.add(description);
+            } else {
+                SagaState currentState = env.storage().load(saga.state().getSagaId());
+                if (currentState == null) {
+                    LOG.debug("Saga {} has been finished by another message, skipping it.", saga.state().getSagaId());
+                } else {
+                    if (currentState != saga.state()) {
+                        saga.setState(currentState);
+                    }
+
+                    refreshed.add(description);
+                }
+            }
+        }
+
+        return refreshed;
+    }
+
+    private void invokeSagas(
+            final CurrentExecutionContext context,
+            final HandlerInvocationContext invocationContext,
+            final Collection<SagaInstanceInfo> sagaDescriptions,
+            final Object invokeParam) throws InvocationTargetException, IllegalAccessException {
         if (context.dispatchingStopped()) {
             LOG.debug("Handler dispatching stopped before invoking any saga.");
         } else {
-            // we are use to be executed on a the same thread -> re-use instance to
-            // reduce some of the GC pressure
-            HandlerInvocationContext invocationContext = new HandlerInvocationContext(context);
+            // child messages are handled on the calling thread, only top level messages go parallel
+            ParallelSagaInvoker parallelInvoker = context.parentContext() == null && !holdsSagaLocks() ? framePool.parallelInvoker() : null;
+            int index = 0;
 
             for (SagaInstanceInfo sagaDescription : sagaDescriptions) {
-                Saga saga = sagaDescription.getSaga();
-                context.setSaga(saga);
-                setSagaExecutionContext(saga, context);
-                invocationContext.setHandlerType(sagaDescription.isStarting() ? InvocationHandlerType.START : InvocationHandlerType.CONTINUE);
-
-                // call interceptor pre handling hooks
-                interceptorStart(sagaDescription, context, invokeParam);
-                interceptorHandling(saga, context, invokeParam);
-
-                // perform actual saga invoke
-                invoker.invoke(invocationContext);
+                if (parallelInvoker != null
+                        && !parallelInvoker.isOrdered(sagaDescription.getSaga())
+                        && sagaDescriptions.size() - index >= ParallelSagaInvoker.MIN_PARALLEL_SAGAS) {
+                    List<SagaInstanceInfo> remaining = new ArrayList<>(sagaDescriptions).subList(index, sagaDescriptions.size());
+                    invokeInParallel(parallelInvoker, context, remaining, invokeParam);
+                    break;
+                }
 
-                // call interceptor handler finished hooks
-                interceptorHandlingExecuted(saga, context, invokeParam);
-                interceptorFinished(saga, context);
-                updateStateStorage(sagaDescription, context);
+                invokeSaga(context, invocationContext, sagaDescription, invokeParam, true);
 
                 if (context.dispatchingStopped()) {
                     LOG.debug("Handler dispatching stopped after invoking saga {}.", sagaDescription.getSaga().getClass().getSimpleName());
                     break;
                 }
+
+                index++;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the current thread holds saga locks. Child messages sent by sagas invoked on
+     * another thread would wait for these locks forever, while this thread waits for the sagas.
+     */
+    private boolean holdsSagaLocks() {
+        SagaLockManager lockManager = framePool.sagaLocks();
+        return lockManager != null && lockManager.holdsLocks();
+    }
+
+    /**
+     * Invokes the unordered sagas on the fork join pool, each one using its own execution context.
+     * Returns once all of them have been invoked and their states have been updated.
+     */
+    private void invokeInParallel(
+            final ParallelSagaInvoker parallelInvoker,
+            final CurrentExecutionContext context,
+            final List<SagaInstanceInfo> sagaDescriptions,
+            final Object invokeParam) throws InvocationTargetException, IllegalAccessException {
+        Object chainMessage = context.message();
+        HeaderMap sharedHeaders = context.copyHeaders();
+        boolean recordTimings = context.phaseTimings().isEnabled();
+
+        List<CurrentExecutionContext> sagaContexts = parallelInvoker.invokeAll(sagaDescriptions, description -> {
+            CurrentExecutionContext sagaContext = env.contextProvider().get();
+            sagaContext.setMessage(chainMessage);
+            sagaContext.putAllHeaders(HeaderMap.copyOf(sharedHeaders.stream()));
+            sagaContext.setPhaseTimings(recordTimings ? PhaseTimings.create() : PhaseTimings.disabled());
+
+            invokeSaga(sagaContext, new HandlerInvocationContext(sagaContext), description, invokeParam, true);
+            return sagaContext;
+        });
+
+        PhaseTimings timings = context.phaseTimings();
+        for (int i = 0; i < sagaContexts.size(); ++i) {
+            Saga saga = sagaDescriptions.get(i).getSaga();
+            if (!saga.isFinished()) {
+                context.recordSagaStateStored(saga.state().getSagaId());
+            }
+
+            PhaseTimings sagaTimings = sagaContexts.get(i).phaseTimings();
+            for (DispatchPhase phase : DispatchPhase.values()) {
+                timings.add(phase, sagaTimings.nanos(phase));
             }
         }
     }
 
-    private void interceptorHandling(final Saga saga, final ExecutionContext context, final Object invokeParam) {
-        for (SagaLifetimeInterceptor interceptor : env.interceptors()) {
+    private void invokeSaga(
+            final CurrentExecutionContext context,
+            final HandlerInvocationContext invocationContext,
+            final SagaInstanceInfo sagaDescription,
+            final Object invokeParam,
+            final boolean updateStorage) throws InvocationTargetException, IllegalAccessException {
+        Saga saga = sagaDescription.getSaga();
+        InvokedSagas.started(saga);
+        try {
+            invokeHandler(context, invocationContext, sagaDescription, saga, invokeParam);
+        } finally {
+            InvokedSagas.finished(saga);
+        }
+
+        if (updateStorage) {
+            PhaseTimings timings = context.phaseTimings();
+            long start = timings.start();
+            updateStateStorage(sagaDescription, context);
+            timings.stop(DispatchPhase.STATE_UPDATE, start);
+        }
+    }
+
+    private void invokeHandler(
+            final CurrentExecutionContext context,
+            final HandlerInvocationContext invocationContext,
+            final SagaInstanceInfo sagaDescription,
+            final Saga saga,
+            final Object invokeParam) throws InvocationTargetException, IllegalAccessException {
+        PhaseTimings timings = context.phaseTimings();
+        context.setSaga(saga);
+        setSagaExecutionContext(saga, context);
+        invocationContext.setHandlerType(sagaDescription.isStarting() ? InvocationHandlerType.START : InvocationHandlerType.CONTINUE);
+
+        // call interceptor pre handling hooks
+        long start = timings.start();
+        InterceptorHooks.SagaTypeInterceptors interceptors = env.interceptorHooks().forSagaType(saga.getClass());
+        interceptorStart(interceptors, sagaDescription, context, invokeParam);
+        interceptorHandling(interceptors, saga, context, invokeParam);
+        timings.stop(DispatchPhase.INTERCEPTORS, start);
+
+        // perform actual saga invoke
+        start = timings.start();
+        Object handlerEvent = SagaEvents.sink().handlerStarted(saga.getClass(), invokeParam, sagaId(saga));
+        invoker.invoke(invocationContext);
+        SagaEvents.sink().handlerFinished(handlerEvent);
+        timings.stop(DispatchPhase.HANDLER_INVOCATION, start);
+
+        // call interceptor handler finished hooks
+        start = timings.start();
+        interceptorHandlingExecuted(interceptors, saga, context, invokeParam);
+        interceptorFinished(interceptors, saga, context);
+        timings.stop(DispatchPhase.INTERCEPTORS, start);
+    }
+
+    private void interceptorHandling(
+            final InterceptorHooks.SagaTypeInterceptors interceptors,
+            final Saga saga,
+            final ExecutionContext context,
+            final Object invokeParam) {
+        for (SagaLifetimeInterceptor interceptor : interceptors.handlerExecuting()) {
             interceptor.onHandlerExecuting(saga, context, invokeParam);
         }
     }
 
-    private void interceptorHandlingExecuted(final Saga saga, final ExecutionContext context, final Object invokeParam) {
-        for (SagaLifetimeInterceptor interceptor : env.interceptors()) {
+    private void interceptorHandlingExecuted(
+            final InterceptorHooks.SagaTypeInterceptors interceptors,
+            final Saga saga,
+            final ExecutionContext context,
+            final Object invokeParam) {
+        for (SagaLifetimeInterceptor interceptor : interceptors.handlerExecuted()) {
             interceptor.onHandlerExecuted(saga, context, invokeParam);
         }
     }
 
-    private void interceptorFinished(final Saga saga, final ExecutionContext context) {
+    private void interceptorFinished(final InterceptorHooks.SagaTypeInterceptors interceptors, final Saga saga, final ExecutionContext context) {
         if (saga.isFinished()) {
-            for (SagaLifetimeInterceptor interceptor : env.interceptors()) {
+            for (SagaLifetimeInterceptor interceptor : interceptors.finished()) {
                 interceptor.onFinished(saga, context);
             }
         }
     }
 
-    private void interceptorStart(final SagaInstanceInfo sagaDescription, final ExecutionContext context, final Object invokeParam) {
+    private void interceptorStart(
+            final InterceptorHooks.SagaTypeInterceptors interceptors,
+            final SagaInstanceInfo sagaDescription,
+            final ExecutionContext context,
+            final Object invokeParam) {
         if (sagaDescription.isStarting()) {
-            for (SagaLifetimeInterceptor interceptor : env.interceptors()) {
+            for (SagaLifetimeInterceptor interceptor : interceptors.starting()) {
                 interceptor.onStarting(sagaDescription.getSaga(), context, invokeParam);
             }
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void setHeaders(final CurrentExecutionContext context) {
-        taskLookupContext.getAllHeaders().forEach(
-                e -> context.setHeaderValue((HeaderName<Object>) e.getKey(), e.getValue())
-        );
-    }
-
     private void setSagaExecutionContext(final Saga saga, final ExecutionContext context) {
         if (saga instanceof NeedContext) {
             ((NeedContext) saga).setExecutionContext(context);
@@ -223,15 +593,27 @@ class SagaExecutionTask implements ExecutedRunnable {
 
         if (!saga.isFinished()) {
             context.recordSagaStateStored(sagaId);
+
+            Object storageEvent = SagaEvents.sink().storageStarted(StorageOperation.SAVE, saga.state().getType(), sagaId);
             env.storage().save(saga.state());
+            SagaEvents.sink().storageFinished(storageEvent, 1);
         }
     }
 
     private void cleanupSagaSate(final String sagaId) {
+        Object storageEvent = SagaEvents.sink().storageStarted(StorageOperation.DELETE, null, sagaId);
         env.storage().delete(sagaId);
+        SagaEvents.sink().storageFinished(storageEvent, 1);
+
         env.timeoutManager().cancelTimeouts(sagaId);
     }
 
+    @Nullable
+    private static String sagaId(final Saga saga) {
+        SagaState state = saga.state();
+        return state != null ? state.getSagaId() : null;
+    }
+
     /**
      * Similar to {@link #handle()} but intended for execution on any thread.<p/>
      * May throw a runtime exception in case something went wrong invoking the target saga message handler.
@@ -248,11 +630,12 @@ class SagaExecutionTask implements ExecutedRunnable {
 
     @Override
     public Object message() {
-        return taskLookupContext.message();
+        return message;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> Optional<T> getHeaderValue(final HeaderName<T> header) {
-        return taskLookupContext.getHeaderValue(header);
+        return Optional.ofNullable((T) headers.get(header));
     }
 }
\ No newline at end of file
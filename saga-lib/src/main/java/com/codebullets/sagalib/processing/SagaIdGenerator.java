@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import java.util.UUID;
+
+/**
+ * Generates the ids of new sagas and timeouts. See {@link SagaIdGenerators} for the
+ * built-in implementations. Implementations need to be thread safe.
+ */
+public interface SagaIdGenerator {
+    /**
+     * Generates a new unique 128 bit id.
+     */
+    UUID nextId();
+
+    /**
+     * Generates the id assigned to the state of a new saga. By default this is the
+     * string representation of {@link #nextId()}.
+     */
+    default String nextSagaId() {
+        return nextId().toString();
+    }
+}
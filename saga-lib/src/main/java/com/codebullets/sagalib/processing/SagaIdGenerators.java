@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Built-in implementations of {@link SagaIdGenerator}.
+ */
+public final class SagaIdGenerators {
+    private static final SagaIdGenerator SECURE_RANDOM = UUID::randomUUID;
+    private static final SagaIdGenerator FAST_RANDOM = new FastRandomIdGenerator();
+    private static final long VARIANT_CLEAR_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT_IETF = 0x8000000000000000L;
+
+    private SagaIdGenerators() {
+    }
+
+    /**
+     * Generates random version 4 UUIDs using {@link UUID#randomUUID()}. All threads share the
+     * underlying {@link java.security.SecureRandom} instance. This is the default generator.
+     */
+    public static SagaIdGenerator secureRandom() {
+        return SECURE_RANDOM;
+    }
+
+    /**
+     * Generates random version 4 UUIDs using the random generator of the current thread. The ids
+     * have the same format as the ones of {@link #secureRandom()}, but are not suitable to be
+     * used as secret tokens, as they can be predicted.
+     */
+    public static SagaIdGenerator fastRandom() {
+        return FAST_RANDOM;
+    }
+
+    /**
+     * Generates ids starting with the current time in milliseconds, followed by a counter and random
+     * bits, similar to UUID version 7 and ULID. Ids created by one generator are strictly increasing, which
+     * keeps inserts into ordered storage indexes local.
+     *
+     * <p>Saga ids are encoded as 26 character ULID strings (Crockford's base32) sorting in the order
+     * of creation. Timeout ids keep the UUID representation.</p>
+     */
+    public static SagaIdGenerator timeOrdered() {
+        return new TimeOrderedIdGenerator();
+    }
+
+    /**
+     * Random ids without the synchronization of the shared secure random instance.
+     */
+    private static final class FastRandomIdGenerator implements SagaIdGenerator {
+        private static final long VERSION_CLEAR_MASK = 0xFFFFFFFFFFFF0FFFL;
+        private static final long VERSION_4 = 0x0000000000004000L;
+
+        @Override
+        public UUID nextId() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long msb = (random.nextLong() & VERSION_CLEAR_MASK) | VERSION_4;
+            return new UUID(msb, withVariant(random.nextLong()));
+        }
+    }
+
+    /**
+     * Time ordered ids, 48 bits of milliseconds followed by version, a 12 bit counter and 62 random bits.
+     */
+    private static final class TimeOrderedIdGenerator implements SagaIdGenerator {
+        private static final int COUNTER_BITS = 12;
+        private static final int VERSION_BITS = 4;
+        private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+        private static final long VERSION_7 = 0x0000000000007000L;
+
+        private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+        private static final int ULID_LENGTH = 26;
+        private static final int BASE32_BITS = 5;
+        private static final int BASE32_MASK = 0x1F;
+        private static final int LONG_BITS = 64;
+
+        // timestamp and counter of the last id, counter overflows move into the timestamp
+        private final AtomicLong lastTick = new AtomicLong();
+
+        @Override
+        public UUID nextId() {
+            long now = System.currentTimeMillis() << COUNTER_BITS;
+            long tick = lastTick.updateAndGet(last -> Math.max(now, last + 1));
+
+            long msb = ((tick >>> COUNTER_BITS) << (COUNTER_BITS + VERSION_BITS)) | VERSION_7 | (tick & COUNTER_MASK);
+            return new UUID(msb, withVariant(ThreadLocalRandom.current().nextLong()));
+        }
+
+        @Override
+        public String nextSagaId() {
+            UUID id = nextId();
+            long msb = id.getMostSignificantBits();
+            long lsb = id.getLeastSignificantBits();
+
+            // 26 characters of 5 bits each, the first character takes the top 3 bits only
+            char[] chars = new char[ULID_LENGTH];
+            for (int i = ULID_LENGTH - 1, shift = 0; i >= 0; --i, shift += BASE32_BITS) {
+                chars[i] = CROCKFORD[(int) bitsAt(msb, lsb, shift) & BASE32_MASK];
+            }
+
+            return new String(chars);
+        }
+
+        private static long bitsAt(final long msb, final long lsb, final int shift) {
+            long bits;
+            if (shift >= LONG_BITS) {
+                bits = msb >>> (shift - LONG_BITS);
+            } else if (shift > LONG_BITS - BASE32_BITS) {
+                bits = (lsb >>> shift) | (msb << (LONG_BITS - shift));
+            } else {
+                bits = lsb >>> shift;
+            }
+
+            return bits;
+        }
+    }
+
+    private static long withVariant(final long leastSignificantBits) {
+        return (leastSignificantBits & VARIANT_CLEAR_MASK) | VARIANT_IETF;
+    }
+}
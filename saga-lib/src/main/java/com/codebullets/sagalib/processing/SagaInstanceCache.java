@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.Saga;
+
+import javax.annotation.Nullable;
+
+/**
+ * Provides already hydrated saga instances, avoiding the creation of a new
+ * instance whenever an existing saga is continued.
+ */
+public interface SagaInstanceCache {
+    /**
+     * Gets the cached instance of the saga with the provided id.
+     *
+     * @return Returns the cached saga or {@code null} if no instance is available.
+     */
+    @Nullable
+    Saga cachedInstance(String sagaId);
+}
@@ -16,14 +16,21 @@
 package com.codebullets.sagalib.processing;
 
 import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.StatelessHandler;
 import com.codebullets.sagalib.timeout.NeedTimeouts;
 import com.codebullets.sagalib.timeout.TimeoutManager;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Provider;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -31,26 +38,91 @@ import java.util.concurrent.ExecutionException;
  * a new saga instance based on provider instance of the type.
  */
 public class SagaInstanceCreator {
+    private static final Logger LOG = LoggerFactory.getLogger(SagaInstanceCreator.class);
     private final LoadingCache<Class<? extends Saga>, Provider<? extends Saga>> providers;
+    private final Map<Class<? extends Saga>, ThreadLocal<Saga>> statelessInstances = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Saga>, Boolean> statelessTypes = new ConcurrentHashMap<>();
     private final TimeoutManager timeoutManager;
 
+    @Nullable
+    private final SagaInstancePool sagaPool;
+
     /**
      * Generates a new instance of ProviderCache.
      */
-    @Inject
     public SagaInstanceCreator(final SagaProviderFactory providerFactory, final TimeoutManager timeoutManager) {
+        this(providerFactory, timeoutManager, ExecutionOptions.defaults());
+    }
+
+    /**
+     * Generates a new instance of ProviderCache, taking instances from the
+     * {@link ExecutionOptions#sagaPool() saga pool} if configured.
+     */
+    @Inject
+    public SagaInstanceCreator(final SagaProviderFactory providerFactory, final TimeoutManager timeoutManager, final ExecutionOptions options) {
         this.timeoutManager = timeoutManager;
+        this.sagaPool = options.sagaPool();
         // Create providers when needed. Cache providers for later use.
         providers = CacheBuilder.newBuilder().build(new ProviderLoader(providerFactory));
     }
 
     /**
-     * Creates a new saga instances with the requested type.
+     * Creates a new saga instances with the requested type. For types marked as
+     * {@link StatelessHandler} the instance of the current thread is returned, pooled
+     * types are taken from the {@link SagaInstancePool} if available. If the instance of the
+     * current thread is still handling the message which dispatched this one, a separate
+     * instance is created so the context of the running handler is not replaced.
      * @throws ExecutionException Is thrown in case no provider can be found to create an instance.
      *                            The actual cause can be inspected by {@link ExecutionException#getCause()}.
      */
     public Saga createNew(final Class<? extends Saga> sagaType) throws ExecutionException {
-        Saga newInstance = createNewInstance(sagaType);
+        Saga instance;
+
+        if (isStateless(sagaType)) {
+            ThreadLocal<Saga> threadInstance = statelessInstances.computeIfAbsent(sagaType, type -> new ThreadLocal<>());
+            instance = threadInstance.get();
+            if (instance == null) {
+                instance = createWiredInstance(sagaType);
+                threadInstance.set(instance);
+            } else if (InvokedSagas.isInvoked(instance)) {
+                instance = createWiredInstance(sagaType);
+            }
+        } else {
+            instance = createWiredInstance(sagaType);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Creates the providers of the given saga types ahead of the first message
+     * being handled.
+     */
+    public void warmUp(final Collection<Class<? extends Saga>> sagaTypes) {
+        sagaTypes.forEach(sagaType -> {
+            isStateless(sagaType);
+            try {
+                providers.get(sagaType);
+            } catch (ExecutionException | RuntimeException ex) {
+                LOG.warn("Error creating provider of saga type {} during warm up.", sagaType, ex);
+            }
+        });
+    }
+
+    /**
+     * Gets whether the saga type is marked as {@link StatelessHandler}, reusing its instances.
+     */
+    public boolean isStateless(final Class<? extends Saga> sagaType) {
+        return statelessTypes.computeIfAbsent(sagaType, type -> type.isAnnotationPresent(StatelessHandler.class));
+    }
+
+    private Saga createWiredInstance(final Class<? extends Saga> sagaType) throws ExecutionException {
+        Saga newInstance = sagaPool != null ? sagaPool.acquire(sagaType) : null;
+        if (newInstance == null) {
+            newInstance = createNewInstance(sagaType);
+        }
+
+        // pooled instances have been recycled and need to be wired again
         if (newInstance instanceof NeedTimeouts) {
             ((NeedTimeouts) newInstance).setTimeoutManager(timeoutManager);
         }
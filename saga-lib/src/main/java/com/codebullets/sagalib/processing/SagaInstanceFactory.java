@@ -20,8 +20,8 @@ import com.codebullets.sagalib.SagaState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -31,14 +31,42 @@ import java.util.concurrent.ExecutionException;
 public class SagaInstanceFactory {
     private static final Logger LOG = LoggerFactory.getLogger(SagaInstanceFactory.class);
 
+    private static final SagaInstanceCache NO_CACHE = sagaId -> null;
+
     private final SagaInstanceCreator creator;
+    private final SagaIdGenerator idGenerator;
+    private SagaInstanceCache instanceCache = NO_CACHE;
+    private SagaTypeRegistry typeRegistry = new SagaTypeRegistry();
 
     /**
      * Generates a new instance of SagaInstanceFactory.
      */
-    @Inject
     public SagaInstanceFactory(final SagaInstanceCreator creator) {
+        this(creator, ExecutionOptions.defaults());
+    }
+
+    /**
+     * Generates a new instance of SagaInstanceFactory, assigning ids of new sagas using
+     * the {@link ExecutionOptions#idGenerator() configured generator}.
+     */
+    @Inject
+    public SagaInstanceFactory(final SagaInstanceCreator creator, final ExecutionOptions options) {
         this.creator = creator;
+        this.idGenerator = options.idGenerator();
+    }
+
+    /**
+     * Sets the cache consulted before a new instance is created to continue an existing saga.
+     */
+    public void setInstanceCache(@Nullable final SagaInstanceCache cache) {
+        instanceCache = cache != null ? cache : NO_CACHE;
+    }
+
+    /**
+     * Sets the registry used to resolve saga types by the name stored in their state.
+     */
+    public void setTypeRegistry(final SagaTypeRegistry registry) {
+        typeRegistry = registry;
     }
 
     /**
@@ -57,11 +85,15 @@ public class SagaInstanceFactory {
 
         try {
             createdSaga = createNewSagaInstance(sagaToStart);
-            createdSaga.createNewState();
 
-            SagaState newState = createdSaga.state();
-            newState.setSagaId(UUID.randomUUID().toString());
-            newState.setType(sagaToStart.getName());
+            // stateless handlers are reused and provide their own fixed state
+            if (!creator.isStateless(sagaToStart)) {
+                createdSaga.createNewState();
+
+                SagaState newState = createdSaga.state();
+                newState.setSagaId(idGenerator.nextSagaId());
+                newState.setType(sagaToStart.getName());
+            }
         } catch (Exception ex) {
             LOG.error("Unable to create new instance of saga type {}.", sagaToStart, ex);
         }
@@ -78,8 +110,12 @@ public class SagaInstanceFactory {
         // do not catch exception as in create new
         // if there is an exception during creation, although we want to continue
         // something is terribly wrong -> it has worked at least once before.
-        Saga saga = createNewSagaInstance(sagaType);
-        saga.setState(state);
+        Saga saga = instanceCache.cachedInstance(state.getSagaId());
+        if (saga == null) {
+            saga = createNewSagaInstance(sagaType);
+            saga.setState(state);
+        }
+
         return saga;
     }
 
@@ -96,8 +132,8 @@ public class SagaInstanceFactory {
         Saga saga = null;
 
         try {
-            Class clazz = Class.forName(sagaToContinue);
-            saga = continueExisting(clazz, existingState);
+            Class<? extends Saga> sagaType = typeRegistry.resolve(sagaToContinue);
+            saga = continueExisting(sagaType, existingState);
         } catch (ClassNotFoundException | ExecutionException e) {
             throw new RuntimeException(e);
         }
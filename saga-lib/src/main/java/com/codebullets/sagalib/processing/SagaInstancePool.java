@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.Recyclable;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.StatelessHandler;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps saga instances of selected types after a message has been handled, reusing them
+ * for later messages instead of creating new instances using the saga provider. Pooled types
+ * need to implement {@link Recyclable}, {@link Recyclable#recycle()} is called before an
+ * instance is put back into the pool. {@link com.codebullets.sagalib.AbstractSaga} clears
+ * its state, the timeout manager, the context and the finished flag.
+ *
+ * <p>Instances are returned to the pool once their message has been handled completely, including
+ * all stages of the {@link StagedMessageStream} and queued child messages still referencing the
+ * execution context of the message.</p>
+ *
+ * <p>Instances are pooled per thread, up to the configured number per type. Instances
+ * released on another thread than the one they have been created on end up in the pool
+ * of the releasing thread. Sagas kept in memory by the mailbox stream are never pooled.</p>
+ */
+public final class SagaInstancePool {
+    private final int maxPerType;
+    private final Set<Class<? extends Saga>> pooledTypes;
+    private final ThreadLocal<Map<Class<?>, Deque<Saga>>> pools = ThreadLocal.withInitial(HashMap::new);
+    private final LongAdder reused = new LongAdder();
+
+    /**
+     * Creates a new pool for the provided saga types.
+     *
+     * @param maxPerType The maximum number of instances kept per type and thread.
+     * @param sagaTypes The saga types to pool, all implementing {@link Recyclable}.
+     * @throws IllegalArgumentException Thrown if a type is not recyclable or marked as {@link StatelessHandler}.
+     */
+    public SagaInstancePool(final int maxPerType, final Collection<Class<? extends Saga>> sagaTypes) {
+        checkArgument(maxPerType > 0, "Number of pooled instances must be positive.");
+        for (Class<? extends Saga> sagaType : sagaTypes) {
+            checkArgument(Recyclable.class.isAssignableFrom(sagaType), "Pooled saga type %s must implement Recyclable.", sagaType.getName());
+            checkArgument(!sagaType.isAnnotationPresent(StatelessHandler.class), "Stateless handler %s must not be pooled.", sagaType.getName());
+        }
+
+        this.maxPerType = maxPerType;
+        this.pooledTypes = new HashSet<>(sagaTypes);
+    }
+
+    /**
+     * Gets the number of instances taken from the pool instead of creating a new one.
+     */
+    public long reusedCount() {
+        return reused.sum();
+    }
+
+    /**
+     * Gets whether instances of the saga type are pooled.
+     */
+    public boolean isPooled(final Class<?> sagaType) {
+        return pooledTypes.contains(sagaType);
+    }
+
+    /**
+     * Takes an instance of the provided type from the pool of the current thread.
+     *
+     * @return Returns the pooled instance or {@code null} if none is available.
+     */
+    @Nullable
+    Saga acquire(final Class<? extends Saga> sagaType) {
+        Saga saga = null;
+
+        if (isPooled(sagaType)) {
+            Deque<Saga> pool = pools.get().get(sagaType);
+            saga = pool != null ? pool.pollFirst() : null;
+            if (saga != null) {
+                ((Recyclable) saga).reuse();
+                reused.increment();
+            }
+        }
+
+        return saga;
+    }
+
+    /**
+     * Returns an instance to the pool of the current thread once its message has been handled.
+     */
+    void release(final Saga saga) {
+        if (isPooled(saga.getClass())) {
+            Deque<Saga> pool = pools.get().computeIfAbsent(saga.getClass(), type -> new ArrayDeque<>(maxPerType));
+            if (pool.size() < maxPerType) {
+                ((Recyclable) saga).recycle();
+                pool.addFirst(saga);
+            }
+        }
+    }
+}
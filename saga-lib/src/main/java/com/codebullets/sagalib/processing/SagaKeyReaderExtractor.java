@@ -16,8 +16,11 @@
 package com.codebullets.sagalib.processing;
 
 import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.LongKeyReader;
 import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.startup.MessageHandler;
+import com.codebullets.sagalib.startup.SagaHandlersMap;
 import com.google.common.base.Optional;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -27,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -66,33 +70,77 @@ public class SagaKeyReaderExtractor implements KeyExtractor {
     }
 
     /**
-     * Does not throw an exception when accessing the loading cache for key readers.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean readsLongKey(final Class<? extends Saga> sagaClazz, final Object message) {
+        return tryGetKeyReader(sagaClazz, message) instanceof LongKeyReader;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long findSagaInstanceLongKey(final Class<? extends Saga> sagaClazz, final LookupContext context) {
+        long keyValue = LongKeyReader.NO_KEY;
+
+        KeyReader reader = tryGetKeyReader(sagaClazz, context.message());
+        if (reader instanceof LongKeyReader) {
+            keyValue = ((LongKeyReader) reader).readLongKey(context.message(), context);
+        } else if (reader != null) {
+            Object key = reader.readKey(context.message(), context);
+            keyValue = key instanceof Long ? (Long) key : LongKeyReader.NO_KEY;
+        }
+
+        return keyValue;
+    }
+
+    /**
+     * Searches the key readers of all continued sagas, so the first message handled by
+     * a saga does not need to create a saga instance to get its readers.
      */
+    public void warmUp(final Map<Class<? extends Saga>, SagaHandlersMap> handlersMap) {
+        handlersMap.values().forEach(handlers -> {
+            for (MessageHandler handler : handlers.messageHandlers()) {
+                if (!handler.getStartsSaga()) {
+                    tryGetKeyReader(handlers.getSagaType(), handler.getMessageType());
+                }
+            }
+        });
+    }
+
     private KeyReader tryGetKeyReader(final Class<? extends Saga> sagaClazz, final Object message) {
+        return tryGetKeyReader(sagaClazz, message.getClass());
+    }
+
+    /**
+     * Does not throw an exception when accessing the loading cache for key readers.
+     */
+    private KeyReader tryGetKeyReader(final Class<? extends Saga> sagaClazz, final Class<?> messageClazz) {
         KeyReader reader;
 
         try {
             Optional<KeyReader> cachedReader = knownReaders.get(
-                    SagaMessageKey.forMessage(sagaClazz, message),
+                    SagaMessageKey.forType(sagaClazz, messageClazz),
                     () -> {
-                        KeyReader foundReader = findReader(sagaClazz, message);
+                        KeyReader foundReader = findReader(sagaClazz, messageClazz);
                         return Optional.fromNullable(foundReader);
                     });
             reader = cachedReader.orNull();
         } catch (Exception ex) {
-            LOG.error("Error searching for reader to extract saga key. sagatype = {}, message = {}", sagaClazz, message, ex);
+            LOG.error("Error searching for reader to extract saga key. sagatype = {}, message type = {}", sagaClazz, messageClazz, ex);
             reader = null;
         }
 
         return reader;
     }
 
-    private KeyReader findReader(final Class<? extends Saga> sagaClazz, final Object message) {
+    private KeyReader findReader(final Class<? extends Saga> sagaClazz, final Class<?> messageClazz) {
         KeyReader reader = null;
 
-        Collection<KeyReader> readersOfSaga = findReader(sagaClazz, message.getClass());
+        Collection<KeyReader> readersOfSaga = findReaders(sagaClazz);
 
-        ClassTypeExtractor extractor = new ClassTypeExtractor(message.getClass());
+        ClassTypeExtractor extractor = new ClassTypeExtractor(messageClazz);
         Iterable<Class<?>> messageTypesToConsider = extractor.allClassesAndInterfaces();
 
         for (Class<?> messageType : messageTypesToConsider) {
@@ -124,7 +172,7 @@ public class SagaKeyReaderExtractor implements KeyExtractor {
     /**
      * Search for a reader based on saga type.
      */
-    private Collection<KeyReader> findReader(final Class<? extends Saga> sagaClazz, final Class<?> messageClazz) {
+    private Collection<KeyReader> findReaders(final Class<? extends Saga> sagaClazz) {
         Saga saga = sagaProviderFactory.createProvider(sagaClazz).get();
         Collection<KeyReader> readers = saga.keyReaders();
         if (readers == null) {
@@ -165,10 +213,10 @@ public class SagaKeyReaderExtractor implements KeyExtractor {
             return equals;
         }
 
-        public static SagaMessageKey forMessage(final Class<?> saga, final Object message) {
+        public static SagaMessageKey forType(final Class<?> saga, final Class<?> messageType) {
             checkNotNull(saga, "saga type must not be null.");
 
-            return new SagaMessageKey(saga, message.getClass());
+            return new SagaMessageKey(saga, messageType);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Serializes the handling of messages targeting the same saga instance when messages
+ * are executed by multiple threads.
+ *
+ * <p>Saga ids are mapped onto a fixed number of striped locks, so memory stays bounded
+ * independent of the number of sagas. All stripes needed by a message are acquired in
+ * ascending order, which prevents dead locks between messages targeting multiple sagas.
+ * Locks are reentrant. Child messages handled while the parent still holds its locks
+ * can not keep that order, they try to get missing stripes within a timeout and fail with
+ * an {@link IllegalStateException} otherwise. As locks are owned by a thread, messages holding
+ * locks are never invoked in parallel on other threads.</p>
+ *
+ * <p>Locks are taken after the sagas have been resolved. Once locked, the states of continued
+ * sagas are loaded again, so handlers see the changes of a message handled by another thread in
+ * the meantime. Sagas finished in the meantime are skipped.</p>
+ */
+public final class SagaLockManager {
+    /**
+     * Number of stripes used by default.
+     */
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private static final long DEFAULT_NESTED_TIMEOUT_MILLIS = 10_000;
+    private static final int HASH_SPREAD_SHIFT = 16;
+    private static final Lease NO_LOCKS = new Lease(null, new int[0]);
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final long nestedTimeoutNanos;
+    private final ThreadLocal<int[]> heldLeases = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * Creates a new lock manager using the default number of stripes.
+     */
+    public SagaLockManager() {
+        this(DEFAULT_STRIPES, DEFAULT_NESTED_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new lock manager.
+     *
+     * @param stripes The number of locks, rounded up to the next power of two.
+     * @param nestedTimeout Maximum time to wait for a lock while other locks are already held.
+     * @param unit The unit of the timeout.
+     */
+    public SagaLockManager(final int stripes, final long nestedTimeout, final TimeUnit unit) {
+        checkArgument(stripes > 0, "Number of stripes must be positive.");
+
+        int stripeCount = Integer.highestOneBit(stripes) == stripes ? stripes : Integer.highestOneBit(stripes) << 1;
+        this.locks = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; ++i) {
+            locks[i] = new ReentrantLock();
+        }
+
+        this.mask = stripeCount - 1;
+        this.nestedTimeoutNanos = unit.toNanos(nestedTimeout);
+    }
+
+    /**
+     * Locks all provided sagas, waiting until no other thread holds any of the locks.
+     *
+     * @return Returns the lease to release once handling has finished.
+     * @throws IllegalStateException Thrown if locks are already held by the current thread and
+     *                               a missing lock could not be acquired within the timeout.
+     */
+    public Lease acquire(final String... sagaIds) {
+        Lease lease = NO_LOCKS;
+
+        if (sagaIds.length > 0) {
+            int[] stripes = stripesOf(sagaIds);
+            int[] held = heldLeases.get();
+
+            if (held[0] == 0) {
+                lockInOrder(stripes);
+            } else {
+                lockNested(stripes);
+            }
+
+            held[0]++;
+            lease = new Lease(this, stripes);
+        }
+
+        return lease;
+    }
+
+    /**
+     * Gets whether the current thread holds any saga locks.
+     */
+    boolean holdsLocks() {
+        return heldLeases.get()[0] > 0;
+    }
+
+    /**
+     * Gets an empty lease holding no locks.
+     */
+    static Lease noLocks() {
+        return NO_LOCKS;
+    }
+
+    /**
+     * Gets the number of saga lock acquisitions.
+     */
+    public long acquisitions() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * Gets the number of acquisitions that had to wait for another thread.
+     */
+    public long contendedAcquisitions() {
+        return contendedAcquisitions.sum();
+    }
+
+    /**
+     * Gets the total time spent waiting for locks held by other threads, in nanoseconds.
+     */
+    public long totalWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    /**
+     * Gets the number of stripes in use.
+     */
+    public int stripes() {
+        return locks.length;
+    }
+
+    private int[] stripesOf(final String[] sagaIds) {
+        int[] stripes = new int[sagaIds.length];
+        for (int i = 0; i < sagaIds.length; ++i) {
+            int hash = sagaIds[i].hashCode();
+            stripes[i] = (hash ^ (hash >>> HASH_SPREAD_SHIFT)) & mask;
+        }
+
+        Arrays.sort(stripes);
+        return distinct(stripes);
+    }
+
+    private static int[] distinct(final int[] sorted) {
+        int count = sorted.length == 0 ? 0 : 1;
+        for (int i = 1; i < sorted.length; ++i) {
+            if (sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+    private void lockInOrder(final int[] stripes) {
+        for (int stripe : stripes) {
+            ReentrantLock lock = locks[stripe];
+            acquisitions.increment();
+
+            if (!lock.tryLock()) {
+                contendedAcquisitions.increment();
+                long start = System.nanoTime();
+                lock.lock();
+                waitNanos.add(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void lockNested(final int[] stripes) {
+        for (int i = 0; i < stripes.length; ++i) {
+            ReentrantLock lock = locks[stripes[i]];
+            acquisitions.increment();
+
+            if (!lock.tryLock()) {
+                contendedAcquisitions.increment();
+                if (!tryLockInterruptibly(lock)) {
+                    unlock(stripes, i);
+                    throw new IllegalStateException("Unable to lock saga while handling a child message, "
+                            + "the saga is locked by another thread. Potential dead lock avoided.");
+                }
+            }
+        }
+    }
+
+    private boolean tryLockInterruptibly(final ReentrantLock lock) {
+        boolean locked;
+        long start = System.nanoTime();
+
+        try {
+            locked = lock.tryLock(nestedTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+
+        waitNanos.add(System.nanoTime() - start);
+        return locked;
+    }
+
+    private void unlock(final int[] stripes, final int count) {
+        for (int i = count - 1; i >= 0; --i) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    private void release(final int[] stripes) {
+        unlock(stripes, stripes.length);
+        heldLeases.get()[0]--;
+    }
+
+    /**
+     * The locks held for a single message.
+     */
+    public static final class Lease {
+        @Nullable
+        private final SagaLockManager manager;
+        private final int[] stripes;
+        private boolean released;
+
+        private Lease(@Nullable final SagaLockManager manager, final int[] stripes) {
+            this.manager = manager;
+            this.stripes = stripes;
+        }
+
+        /**
+         * Releases all locks of this lease. Must be called by the thread
+         * having acquired the lease.
+         */
+        public void release() {
+            if (manager != null && !released) {
+                released = true;
+                manager.release(stripes);
+            }
+        }
+    }
+}
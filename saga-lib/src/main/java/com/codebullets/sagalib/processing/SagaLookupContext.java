@@ -17,31 +17,30 @@ package com.codebullets.sagalib.processing;
 
 import com.codebullets.sagalib.ExecutionContext;
 import com.codebullets.sagalib.HeaderName;
-import com.codebullets.sagalib.Headers;
+import com.codebullets.sagalib.PhaseTimings;
+import com.codebullets.sagalib.context.HeaderMap;
 import com.codebullets.sagalib.context.LookupContext;
 
 import javax.annotation.Nullable;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Holds the context information provided during saga lookup.
  */
 class SagaLookupContext implements LookupContext {
-    private final ExecutionContext parentContext;
-
+    private ExecutionContext parentContext;
     private Object message;
-    private Map<HeaderName<?>, Object> headers;
+    private HeaderMap headers;
+    private PhaseTimings phaseTimings = PhaseTimings.disabled();
 
     /**
      * Generates a new instance of SagaLookupContext.
      */
     SagaLookupContext(final Object message, @Nullable final ExecutionContext parentContext) {
         this.message = message;
-        this.headers = new HashMap<>();
+        this.headers = new HeaderMap();
         this.parentContext = parentContext;
     }
 
@@ -51,7 +50,17 @@ class SagaLookupContext implements LookupContext {
     SagaLookupContext(final Object message, final Map<HeaderName<?>, Object> headers, @Nullable final ExecutionContext parentContext) {
         this.message = message;
         this.parentContext = parentContext;
-        this.headers = new HashMap<>(headers);
+        this.headers = HeaderMap.copyOf(headers);
+    }
+
+    /**
+     * Generates a new instance of SagaLookupContext. The provided headers are
+     * shared and only copied if either side changes them.
+     */
+    SagaLookupContext(final Object message, final HeaderMap headers, @Nullable final ExecutionContext parentContext) {
+        this.message = message;
+        this.parentContext = parentContext;
+        this.headers = headers.share();
     }
 
     /**
@@ -59,7 +68,11 @@ class SagaLookupContext implements LookupContext {
      */
     SagaLookupContext(final Object message, final LookupContext baseContext, @Nullable final ExecutionContext parentContext) {
         this (message, parentContext);
-        headers = Headers.copyFromStream(baseContext.getAllHeaders());
+        if (baseContext instanceof SagaLookupContext) {
+            headers = ((SagaLookupContext) baseContext).headers().share();
+        } else {
+            headers = HeaderMap.copyOf(baseContext.getAllHeaders());
+        }
     }
 
     @Override
@@ -72,19 +85,17 @@ class SagaLookupContext implements LookupContext {
         // Iterable contract requires the ability to
         // scan over the items multiple times, which is something
         // Stream does not support
-        return headers.keySet().stream()
-                .map(HeaderName::toString)
-                .collect(Collectors.toList());
+        return headers.names();
     }
 
     @Override
     public Stream<Map.Entry<HeaderName<?>, Object>> getAllHeaders() {
-        return headers.entrySet().stream();
+        return headers.stream();
     }
 
     @Override
     public Object getHeaderValue(final String header) {
-        return headers.get(HeaderName.forName(header));
+        return headers.get(HeaderName.forUntypedName(header));
     }
 
     @Override
@@ -95,7 +106,7 @@ class SagaLookupContext implements LookupContext {
 
     @Override
     public void setHeaderValue(final String header, final Object value) {
-        headers.put(HeaderName.forName(header), value);
+        headers.put(HeaderName.forUntypedName(header), value);
     }
 
     @Override
@@ -109,6 +120,45 @@ class SagaLookupContext implements LookupContext {
         return parentContext;
     }
 
+    @Override
+    public PhaseTimings phaseTimings() {
+        return phaseTimings;
+    }
+
+    /**
+     * Sets the timings to record the lookup phases into.
+     */
+    void setPhaseTimings(final PhaseTimings timings) {
+        this.phaseTimings = timings;
+    }
+
+    /**
+     * Prepares a reused lookup context for the handling of another message.
+     */
+    void reset(final Object nextMessage, final HeaderMap nextHeaders, @Nullable final ExecutionContext nextParentContext) {
+        message = nextMessage;
+        parentContext = nextParentContext;
+        headers.clear();
+        headers.putAll(nextHeaders);
+    }
+
+    /**
+     * Removes all references to the previously handled message.
+     */
+    void clear() {
+        message = null;
+        parentContext = null;
+        phaseTimings = PhaseTimings.disabled();
+        headers.clear();
+    }
+
+    /**
+     * Gets the header storage of this context.
+     */
+    HeaderMap headers() {
+        return headers;
+    }
+
     /**
      * Creates a new saga lookup context for a message.
      * @return Returns a new lookup context instance.
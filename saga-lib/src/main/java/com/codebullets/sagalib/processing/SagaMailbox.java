@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.context.HeaderMap;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Queue of the messages waiting to be handled by a single saga instance. The
+ * mailbox keeps the hydrated saga instance between messages. Messages are
+ * handled one after the other, a mailbox is never drained by two threads at
+ * the same time.
+ */
+final class SagaMailbox {
+    private final String sagaId;
+    private final Saga saga;
+    private final Queue<Delivery> deliveries = new ArrayDeque<>();
+
+    private boolean scheduled;
+    private boolean closed;
+    private volatile boolean finished;
+
+    SagaMailbox(final String sagaId, final Saga saga) {
+        this.sagaId = sagaId;
+        this.saga = saga;
+    }
+
+    String sagaId() {
+        return sagaId;
+    }
+
+    Saga saga() {
+        return saga;
+    }
+
+    /**
+     * Adds a message to the mailbox.
+     *
+     * @return Returns true if the mailbox has not been scheduled for draining before and
+     *         the caller is responsible to do so. Returns false if the delivery has been
+     *         queued to a mailbox already scheduled.
+     * @throws IllegalStateException Thrown if the mailbox has already been closed.
+     */
+    synchronized boolean enqueue(final Delivery delivery) {
+        if (closed) {
+            throw new IllegalStateException("Mailbox of saga " + sagaId + " has already been closed.");
+        }
+
+        deliveries.add(delivery);
+
+        boolean needsScheduling = !scheduled;
+        scheduled = true;
+        return needsScheduling;
+    }
+
+    /**
+     * Gets the next delivery to handle. If the mailbox is empty {@code null}
+     * is returned and the mailbox is no longer scheduled.
+     */
+    @Nullable
+    synchronized Delivery next() {
+        Delivery next = deliveries.poll();
+        if (next == null) {
+            scheduled = false;
+        }
+
+        return next;
+    }
+
+    /**
+     * Takes the deliveries directly following the provided one carrying messages of the
+     * same type, as long as they do not start the saga and have not been sent from within
+     * another handler.
+     *
+     * @return Returns the provided delivery followed by the ones taken from the mailbox.
+     */
+    synchronized List<Delivery> takeBatch(final Delivery first, final int maxSize) {
+        List<Delivery> batch = new ArrayList<>();
+        batch.add(first);
+
+        Delivery next = deliveries.peek();
+        while (next != null && batch.size() < maxSize && next.isBatchableWith(first)) {
+            batch.add(deliveries.poll());
+            next = deliveries.peek();
+        }
+
+        return batch;
+    }
+
+    /**
+     * Closes the mailbox if it is neither scheduled nor holds any messages.
+     *
+     * @return Returns true if the mailbox has been closed.
+     */
+    synchronized boolean closeIfIdle() {
+        if (!scheduled && deliveries.isEmpty()) {
+            closed = true;
+        }
+
+        return closed;
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+
+    void markFinished() {
+        finished = true;
+    }
+
+    /**
+     * A single message to be handled by the saga of the mailbox.
+     */
+    static final class Delivery {
+        private final Object message;
+        private final HeaderMap headers;
+        private final boolean starting;
+
+        @Nullable
+        private final ExecutionContext parentContext;
+
+        @Nullable
+        private final CompletableFuture<Void> completion;
+
+        Delivery(
+                final Object message,
+                final HeaderMap headers,
+                final boolean starting,
+                @Nullable final ExecutionContext parentContext,
+                final boolean tracked) {
+            this.message = message;
+            this.headers = headers;
+            this.starting = starting;
+            this.parentContext = parentContext;
+            this.completion = tracked ? new CompletableFuture<>() : null;
+        }
+
+        Object message() {
+            return message;
+        }
+
+        HeaderMap headers() {
+            return headers;
+        }
+
+        boolean isStarting() {
+            return starting;
+        }
+
+        @Nullable
+        ExecutionContext parentContext() {
+            return parentContext;
+        }
+
+        /**
+         * Checks whether this delivery can be handled in one batch with the provided one.
+         */
+        boolean isBatchableWith(final Delivery other) {
+            return !starting && parentContext == null && message.getClass() == other.message.getClass();
+        }
+
+        /**
+         * Gets the future completed once the message has been handled. Only
+         * available for tracked deliveries.
+         */
+        @Nullable
+        CompletableFuture<Void> completion() {
+            return completion;
+        }
+
+        void completed(@Nullable final Throwable error) {
+            if (completion != null) {
+                if (error == null) {
+                    completion.complete(null);
+                } else {
+                    completion.completeExceptionally(error);
+                }
+            }
+        }
+    }
+}
@@ -17,9 +17,10 @@ package com.codebullets.sagalib.processing;
 
 import com.codebullets.sagalib.AutoCloseables;
 import com.codebullets.sagalib.ExecutionContext;
-import com.codebullets.sagalib.Headers;
 import com.codebullets.sagalib.MessageStream;
 import com.codebullets.sagalib.HeaderName;
+import com.codebullets.sagalib.context.CurrentExecutionContext;
+import com.codebullets.sagalib.context.HeaderMap;
 import com.codebullets.sagalib.processing.invocation.HandlerInvoker;
 import com.codebullets.sagalib.timeout.Timeout;
 import com.codebullets.sagalib.timeout.TimeoutExpirationCallback;
@@ -32,13 +33,10 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -47,11 +45,24 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class SagaMessageStream implements MessageStream {
     private static final Logger LOG = LoggerFactory.getLogger(SagaMessageStream.class);
-    private static final Map<HeaderName<?>, Object> EMPTY_HEADERS = Collections.emptyMap();
 
     private final SagaEnvironment environment;
     private final HandlerInvoker invoker;
     private final Executor executor;
+    private final ExecutionFramePool framePool;
+
+    @Nullable
+    private final StatePrefetcher statePrefetcher;
+
+    /**
+     * Creates a new SagaMessageStream instance using the default execution options.
+     */
+    public SagaMessageStream(
+            final HandlerInvoker invoker,
+            final SagaEnvironment environment,
+            final Executor executor) {
+        this(invoker, environment, executor, ExecutionOptions.defaults());
+    }
 
     /**
      * Creates a new SagaMessageStream instance.
@@ -60,10 +71,13 @@ public class SagaMessageStream implements MessageStream {
     public SagaMessageStream(
             final HandlerInvoker invoker,
             final SagaEnvironment environment,
-            final Executor executor) {
+            final Executor executor,
+            final ExecutionOptions options) {
         this.executor = executor;
         this.environment = environment;
         this.invoker = invoker;
+        this.framePool = new ExecutionFramePool(environment, options);
+        this.statePrefetcher = options.statePrefetch();
 
         TimeoutExpirationCallback callback = new TimeoutExpirationCallback() {
             @Override
@@ -87,7 +101,7 @@ public class SagaMessageStream implements MessageStream {
     @Override
     public void add(@Nonnull final Object message) {
         checkNotNull(message, "Message to handle must not be null.");
-        addMessage(message, EMPTY_HEADERS);
+        executeAsync(message, new HeaderMap());
     }
 
     /**
@@ -96,12 +110,19 @@ public class SagaMessageStream implements MessageStream {
     @Override
     public void add(@Nonnull final Object message, @Nullable final Map<String, Object> headers) {
         checkNotNull(message, "Message to handle must not be null.");
-        addMessage(message, toTypedHeaders(headers));
+        executeAsync(message, HeaderMap.copyOfUntyped(headers));
     }
 
     @Override
     public void addMessage(@Nonnull final Object message, @Nullable final Map<HeaderName<?>, Object> headers) {
         checkNotNull(message, "Message to handle must not be null.");
+        executeAsync(message, HeaderMap.copyOf(headers));
+    }
+
+    private void executeAsync(final Object message, final HeaderMap headers) {
+        if (statePrefetcher != null) {
+            statePrefetcher.prefetch(message, headers);
+        }
 
         SagaExecutionTask task = createTaskToExecute(message, headers, null);
         executor.execute(task);
@@ -142,7 +163,7 @@ public class SagaMessageStream implements MessageStream {
     public void handle(@Nonnull final Object message, @Nullable final Map<String, Object> headers, @Nullable final ExecutionContext parentContext)
             throws InvocationTargetException, IllegalAccessException {
         checkNotNull(message, "Message to handle must not be null.");
-        handleMessage(message, toTypedHeaders(headers), parentContext);
+        executeSync(message, mergeHeaders(HeaderMap.copyOfUntyped(headers), parentContext), parentContext);
     }
 
     @Override
@@ -151,11 +172,20 @@ public class SagaMessageStream implements MessageStream {
             @Nullable final Map<HeaderName<?>, Object> headers,
             @Nullable final ExecutionContext parentContext) throws InvocationTargetException, IllegalAccessException {
         checkNotNull(message, "Message to handle must not be null.");
+        executeSync(message, mergeHeaders(HeaderMap.copyOf(headers), parentContext), parentContext);
+    }
+
+    private void executeSync(final Object message, final HeaderMap headers, @Nullable final ExecutionContext parentContext)
+            throws InvocationTargetException, IllegalAccessException {
+        SagaExecutionTask executionTask = createTaskToExecute(message, headers, parentContext);
+        ChildMessageQueue childMessages = parentContext != null ? ChildMessageQueue.current() : null;
 
-        Map<HeaderName<?>, Object> executionHeaders = mergeHeaders(headers, parentContext);
-        SagaExecutionTask executionTask = createTaskToExecute(message, executionHeaders, parentContext);
         try {
-            executionTask.handle();
+            if (childMessages != null) {
+                childMessages.add(executionTask, parentContext);
+            } else {
+                executionTask.handle();
+            }
         } catch (InvocationTargetException | IllegalAccessException e) {
             throw e;
         } catch (Exception e) {
@@ -168,7 +198,7 @@ public class SagaMessageStream implements MessageStream {
      */
     private void timeoutHasExpired(final Timeout timeout, final TimeoutExpirationContext context) {
         try {
-            addMessage(timeout, context.getOriginalHeaders());
+            executeAsync(timeout, HeaderMap.copyOf(context.getOriginalHeaders()));
         } catch (Exception ex) {
             LOG.error("Error handling timeout {}", timeout, ex);
         }
@@ -176,45 +206,35 @@ public class SagaMessageStream implements MessageStream {
 
     private SagaExecutionTask createTaskToExecute(
             final Object message,
-            @Nullable final Map<HeaderName<?>, Object> headers,
+            final HeaderMap headers,
             @Nullable final ExecutionContext parentContext) {
-
-        Map<HeaderName<?>, Object> testedHeaders = headers != null ? headers : EMPTY_HEADERS;
-        return new SagaExecutionTask(environment, invoker, message, testedHeaders, parentContext);
+        return new SagaExecutionTask(environment, invoker, framePool, message, headers, parentContext);
     }
 
-    private Map<HeaderName<?>, Object> mergeHeaders(
-            final @Nullable Map<HeaderName<?>, Object> headers,
-            final @Nullable ExecutionContext parentContext) {
+    /**
+     * Combines the headers of the parent context with the provided headers. Provided
+     * header values take precedence over the ones of the parent context.
+     */
+    static HeaderMap mergeHeaders(final HeaderMap headers, @Nullable final ExecutionContext parentContext) {
+        HeaderMap mergedHeaders;
 
-        Map<HeaderName<?>, Object> mergedHeaders;
-        if (headers == null && parentContext == null) {
-            mergedHeaders = EMPTY_HEADERS;
-        } else if (headers == null) {
-            mergedHeaders = Headers.copyFromStream(parentContext.getAllHeaders());
-        } else if (parentContext == null) {
+        if (parentContext == null) {
             mergedHeaders = headers;
         } else {
-            mergedHeaders = Headers.copyFromStream(
-                    Stream.concat(
-                            headers.entrySet().stream(),
-                            parentContext.getAllHeaders()));
+            mergedHeaders = copyHeaders(parentContext);
+            mergedHeaders.putAll(headers);
         }
 
         return mergedHeaders;
     }
 
-    private Map<HeaderName<?>, Object> toTypedHeaders(@Nullable final Map<String, Object> untypedHeaders) {
-        Map<HeaderName<?>, Object> headers;
+    private static HeaderMap copyHeaders(final ExecutionContext context) {
+        HeaderMap headers;
 
-        if (untypedHeaders == null) {
-            headers = EMPTY_HEADERS;
+        if (context instanceof CurrentExecutionContext) {
+            headers = ((CurrentExecutionContext) context).copyHeaders();
         } else {
-            headers = untypedHeaders.entrySet()
-                    .stream()
-                    .collect(Collectors.toMap(
-                            e -> HeaderName.forName(e.getKey()),
-                            Map.Entry::getValue));
+            headers = HeaderMap.copyOf(context.getAllHeaders());
         }
 
         return headers;
@@ -230,7 +250,10 @@ public class SagaMessageStream implements MessageStream {
         AutoCloseables.closeQuietly(invoker);
     }
 
-    private void shutDownExecutor(final ExecutorService executorService) {
+    /**
+     * Stops the executor, waiting a short time for running tasks to finish.
+     */
+    static void shutDownExecutor(final ExecutorService executorService) {
         executorService.shutdown();
         try {
             executorService.awaitTermination(2, TimeUnit.SECONDS);
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.Saga;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches saga classes by the type name stored in their {@link com.codebullets.sagalib.SagaState},
+ * resolving continued sagas without calling {@link Class#forName(String)} for every message.
+ *
+ * <p>The registry is created at startup using all known saga types. Types not known at startup
+ * are added once they are resolved the first time.</p>
+ */
+public final class SagaTypeRegistry {
+    private final Map<String, Class<? extends Saga>> typesByName = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new empty registry.
+     */
+    public SagaTypeRegistry() {
+    }
+
+    /**
+     * Creates a registry containing the provided saga types.
+     */
+    public static SagaTypeRegistry of(final Collection<Class<? extends Saga>> sagaTypes) {
+        SagaTypeRegistry registry = new SagaTypeRegistry();
+        sagaTypes.forEach(registry::register);
+        return registry;
+    }
+
+    /**
+     * Adds the saga type to the registry if not already present.
+     */
+    public void register(final Class<? extends Saga> sagaType) {
+        typesByName.putIfAbsent(sagaType.getName(), sagaType);
+    }
+
+    /**
+     * Gets the registered saga type with the provided class name, or {@code null} if not registered.
+     */
+    @Nullable
+    public Class<? extends Saga> typeOf(final String typeName) {
+        return typesByName.get(typeName);
+    }
+
+    /**
+     * Gets the saga type with the provided class name, loading and registering the class
+     * if not yet part of the registry.
+     *
+     * @throws ClassNotFoundException Thrown if there is no class with the provided name.
+     * @throws IllegalArgumentException Thrown if the class is not a saga.
+     */
+    public Class<? extends Saga> resolve(final String typeName) throws ClassNotFoundException {
+        Class<? extends Saga> sagaType = typesByName.get(typeName);
+
+        if (sagaType == null) {
+            Class<?> loadedClass = Class.forName(typeName);
+            if (!Saga.class.isAssignableFrom(loadedClass)) {
+                throw new IllegalArgumentException("Type " + typeName + " is not a saga.");
+            }
+
+            sagaType = loadedClass.asSubclass(Saga.class);
+            register(sagaType);
+        }
+
+        return sagaType;
+    }
+
+    /**
+     * Gets the number of registered saga types.
+     */
+    public int size() {
+        return typesByName.size();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Sizes of the stages used by the {@link StagedMessageStream}.
+ */
+public class StagedExecutionOptions {
+    private static final int DEFAULT_LOAD_THREADS = 4;
+    private static final int DEFAULT_PERSIST_THREADS = 4;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private int loadThreads = DEFAULT_LOAD_THREADS;
+    private int invokeThreads = Runtime.getRuntime().availableProcessors();
+    private int persistThreads = DEFAULT_PERSIST_THREADS;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+    /**
+     * Creates a new instance using the default sizes.
+     */
+    public static StagedExecutionOptions defaults() {
+        return new StagedExecutionOptions();
+    }
+
+    /**
+     * Gets the number of threads resolving the sagas and loading their states.
+     */
+    public int loadThreads() {
+        return loadThreads;
+    }
+
+    /**
+     * Sets the number of threads resolving the sagas and loading their states.
+     */
+    public StagedExecutionOptions setLoadThreads(final int threads) {
+        checkArgument(threads > 0, "Number of load threads must be positive.");
+        this.loadThreads = threads;
+        return this;
+    }
+
+    /**
+     * Gets the number of threads invoking the saga handlers.
+     */
+    public int invokeThreads() {
+        return invokeThreads;
+    }
+
+    /**
+     * Sets the number of threads invoking the saga handlers.
+     */
+    public StagedExecutionOptions setInvokeThreads(final int threads) {
+        checkArgument(threads > 0, "Number of invoke threads must be positive.");
+        this.invokeThreads = threads;
+        return this;
+    }
+
+    /**
+     * Gets the number of threads saving and deleting saga states.
+     */
+    public int persistThreads() {
+        return persistThreads;
+    }
+
+    /**
+     * Sets the number of threads saving and deleting saga states.
+     */
+    public StagedExecutionOptions setPersistThreads(final int threads) {
+        checkArgument(threads > 0, "Number of persist threads must be positive.");
+        this.persistThreads = threads;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of messages added but not yet handled.
+     */
+    public int maxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Sets the maximum number of messages added but not yet handled. Adding
+     * further messages blocks until a message has been handled.
+     */
+    public StagedExecutionOptions setMaxInFlight(final int messages) {
+        checkArgument(messages > 0, "Maximum number of messages in flight must be positive.");
+        this.maxInFlight = messages;
+        return this;
+    }
+}
@@ -0,0 +1,598 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AutoCloseables;
+import com.codebullets.sagalib.DeadMessage;
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.HeaderName;
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.PhaseTimings;
+import com.codebullets.sagalib.context.CurrentExecutionContext;
+import com.codebullets.sagalib.context.HeaderMap;
+import com.codebullets.sagalib.jfr.SagaEvents;
+import com.codebullets.sagalib.processing.invocation.HandlerInvoker;
+import com.codebullets.sagalib.timeout.Timeout;
+import com.codebullets.sagalib.timeout.TimeoutExpirationCallback;
+import com.codebullets.sagalib.timeout.TimeoutExpirationContext;
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Message stream splitting the handling of a message into stages, each one running on its
+ * own thread pool: resolving the sagas and loading their states, invoking the handlers and
+ * updating the state storage. Slow storage access does not block handler threads and vice versa.
+ * The queue depth of every stage shows where messages are waiting.
+ *
+ * <p>Before a message enters the first stage the instance keys of its continued sagas are read.
+ * A message is only admitted to the stages once no earlier message using any of the same keys is
+ * still being handled, so the sagas of a single instance key see their messages one after another
+ * and always the state written by the previous one. Messages starting new sagas, timeouts and messages
+ * without any key act as barrier: they wait for all earlier messages and all later messages wait for
+ * them.</p>
+ *
+ * <p>Messages reaching the same saga using different instance keys are only known to conflict once
+ * their sagas have been loaded. Every message claims the ids of its continued sagas before being
+ * invoked. A message finding one of its sagas claimed waits until the claim has been released and
+ * loads the states of its sagas again before being invoked, no saga is ever invoked by two messages
+ * at the same time.</p>
+ *
+ * <p>{@code handle} waits until the message has passed all stages. Called from within a saga handler
+ * the message is handled right away on the calling thread. Parallel invocation and saga locks
+ * configured on the {@link ExecutionOptions} are not used by this stream, the claims replace
+ * the locks within a single stream.</p>
+ */
+public class StagedMessageStream implements MessageStream {
+    /**
+     * The stages a message passes.
+     */
+    public enum Stage {
+        /**
+         * Resolves the sagas of the message, loading existing states.
+         */
+        LOAD,
+
+        /**
+         * Invokes the saga handlers.
+         */
+        INVOKE,
+
+        /**
+         * Saves or deletes the states of the invoked sagas.
+         */
+        PERSIST
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(StagedMessageStream.class);
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private final SagaEnvironment environment;
+    private final HandlerInvoker invoker;
+    private final ExecutionFramePool framePool;
+    private final TypesForMessageMapper typesMapper;
+    private final KeyExtractor keyExtractor;
+    private final int maxInFlight;
+    private final Map<Stage, ThreadPoolExecutor> stages;
+
+    private final Object admissionLock = new Object();
+    private final List<StagedMessage> inFlight = new LinkedList<>();
+    private final Set<String> claimedSagas = new HashSet<>();
+    private long releasedClaims;
+
+    /**
+     * Creates a new StagedMessageStream instance.
+     *
+     * @param typesMapper Finds the saga types of a message, used to read its instance keys.
+     * @param keyExtractor Reads the instance keys of a message.
+     */
+    public StagedMessageStream(
+            final HandlerInvoker invoker,
+            final SagaEnvironment environment,
+            final TypesForMessageMapper typesMapper,
+            final KeyExtractor keyExtractor,
+            final ExecutionOptions options,
+            final StagedExecutionOptions stageOptions) {
+        this.invoker = invoker;
+        this.environment = environment;
+        this.typesMapper = typesMapper;
+        this.keyExtractor = keyExtractor;
+        this.maxInFlight = stageOptions.maxInFlight();
+        this.framePool = new ExecutionFramePool(environment, options);
+
+        Map<Stage, ThreadPoolExecutor> stagePools = new EnumMap<>(Stage.class);
+        stagePools.put(Stage.LOAD, createStage("saga-lib-load", stageOptions.loadThreads()));
+        stagePools.put(Stage.INVOKE, createStage("saga-lib-invoke", stageOptions.invokeThreads()));
+        stagePools.put(Stage.PERSIST, createStage("saga-lib-persist", stageOptions.persistThreads()));
+        this.stages = Collections.unmodifiableMap(stagePools);
+
+        environment.timeoutManager().addExpiredCallback(new TimeoutExpirationCallback() {
+            @Override
+            public void expired(final Timeout timeout) {
+                // only the expiration with context is used
+            }
+
+            @Override
+            public void expired(final Timeout timeout, final TimeoutExpirationContext context) {
+                try {
+                    enqueue(timeout, HeaderMap.copyOf(context.getOriginalHeaders()), false);
+                } catch (RuntimeException ex) {
+                    LOG.error("Error handling timeout {}", timeout, ex);
+                }
+            }
+        });
+    }
+
+    private ThreadPoolExecutor createStage(final String name, final int threads) {
+        // every admitted message is queued in at most one stage, the queue never overflows
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                IDLE_THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxInFlight),
+                r -> {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    @Override
+    public void add(@Nonnull final Object message) {
+        checkNotNull(message, "Message to handle must not be null.");
+        enqueue(message, new HeaderMap(), false);
+    }
+
+    @Override
+    public void add(@Nonnull final Object message, @Nullable final Map<String, Object> headers) {
+        checkNotNull(message, "Message to handle must not be null.");
+        enqueue(message, HeaderMap.copyOfUntyped(headers), false);
+    }
+
+    @Override
+    public void addMessage(@Nonnull final Object message, @Nullable final Map<HeaderName<?>, Object> headers) {
+        checkNotNull(message, "Message to handle must not be null.");
+        enqueue(message, HeaderMap.copyOf(headers), false);
+    }
+
+    @Override
+    public void handle(@Nonnull final Object message) throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, new HeaderMap(), null);
+    }
+
+    @Override
+    public void handle(@Nonnull final Object message, @Nullable final ExecutionContext parentContext) throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, SagaMessageStream.mergeHeaders(new HeaderMap(), parentContext), parentContext);
+    }
+
+    @Override
+    public void handle(@Nonnull final Object message, @Nullable final Map<String, Object> headers) throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, HeaderMap.copyOfUntyped(headers), null);
+    }
+
+    @Override
+    public void handleMessage(@Nonnull final Object message, @Nullable final Map<HeaderName<?>, Object> headers)
+            throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, HeaderMap.copyOf(headers), null);
+    }
+
+    @Override
+    public void handle(@Nonnull final Object message, @Nullable final Map<String, Object> headers, @Nullable final ExecutionContext parentContext)
+            throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, SagaMessageStream.mergeHeaders(HeaderMap.copyOfUntyped(headers), parentContext), parentContext);
+    }
+
+    @Override
+    public void handleMessage(
+            @Nonnull final Object message,
+            @Nullable final Map<HeaderName<?>, Object> headers,
+            @Nullable final ExecutionContext parentContext) throws InvocationTargetException, IllegalAccessException {
+        checkNotNull(message, "Message to handle must not be null.");
+        handleSync(message, SagaMessageStream.mergeHeaders(HeaderMap.copyOf(headers), parentContext), parentContext);
+    }
+
+    /**
+     * Gets the number of messages queued for the provided stage.
+     */
+    public int queueDepth(final Stage stage) {
+        return stages.get(stage).getQueue().size();
+    }
+
+    /**
+     * Gets the number of messages waiting for an earlier message using the same instance keys
+     * or the same sagas.
+     */
+    public int waitingCount() {
+        int waiting = 0;
+        synchronized (admissionLock) {
+            for (StagedMessage message : inFlight) {
+                if (!message.admitted || message.parked) {
+                    waiting++;
+                }
+            }
+        }
+
+        return waiting;
+    }
+
+    /**
+     * Gets the number of messages added but not yet handled.
+     */
+    public int inFlightCount() {
+        synchronized (admissionLock) {
+            return inFlight.size();
+        }
+    }
+
+    private void handleSync(final Object message, final HeaderMap headers, @Nullable final ExecutionContext parentContext)
+            throws InvocationTargetException, IllegalAccessException {
+        Throwable error = null;
+
+        if (parentContext == null) {
+            CompletableFuture<Void> completion = enqueue(message, headers, true);
+            try {
+                completion.join();
+            } catch (CompletionException ex) {
+                error = ex.getCause();
+            }
+        } else {
+            // child messages are handled right away, the parent already passed admission
+            try {
+                new SagaExecutionTask(environment, invoker, framePool, message, headers, parentContext).handle();
+            } catch (Exception ex) {
+                error = ex;
+            }
+        }
+
+        rethrow(error);
+    }
+
+    /**
+     * Reads the keys of the message and queues it until admitted to the stages.
+     *
+     * @return Returns the completion of the message, completed once it has passed all stages.
+     */
+    private CompletableFuture<Void> enqueue(final Object message, final HeaderMap headers, final boolean tracked) {
+        StagedMessage stagedMessage = new StagedMessage(new SagaExecutionTask(environment, invoker, framePool, message, headers, null), tracked);
+        readKeys(stagedMessage, message, headers);
+
+        synchronized (admissionLock) {
+            while (inFlight.size() >= maxInFlight) {
+                try {
+                    admissionLock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting to add message " + message, ex);
+                }
+            }
+
+            inFlight.add(stagedMessage);
+            admitWaitingMessages();
+        }
+
+        return stagedMessage.completion;
+    }
+
+    private void readKeys(final StagedMessage stagedMessage, final Object message, final HeaderMap headers) {
+        if (!(message instanceof Timeout) && !(message instanceof DeadMessage) && !MessageKeys.startsSagas(typesMapper, message)) {
+            stagedMessage.keys.addAll(MessageKeys.searchParams(typesMapper, keyExtractor, message, headers));
+        }
+
+        stagedMessage.barrier = stagedMessage.keys.isEmpty();
+    }
+
+    /**
+     * Starts all messages not conflicting with an earlier message still in flight.
+     * Must be called while holding the admission lock.
+     */
+    private void admitWaitingMessages() {
+        Set<Object> usedKeys = new HashSet<>();
+        boolean earlierMessages = false;
+
+        for (StagedMessage message : inFlight) {
+            if (!message.admitted && isAdmissible(message, usedKeys, earlierMessages)) {
+                message.admitted = true;
+                stages.get(Stage.LOAD).execute(() -> load(message));
+            }
+
+            if (message.barrier) {
+                break;
+            }
+
+            usedKeys.addAll(message.keys);
+            earlierMessages = true;
+        }
+    }
+
+    private static boolean isAdmissible(final StagedMessage message, final Set<Object> usedKeys, final boolean earlierMessages) {
+        boolean admissible;
+
+        if (message.barrier) {
+            admissible = !earlierMessages;
+        } else {
+            admissible = true;
+            for (Object key : message.keys) {
+                if (usedKeys.contains(key)) {
+                    admissible = false;
+                    break;
+                }
+            }
+        }
+
+        return admissible;
+    }
+
+    private void load(final StagedMessage message) {
+        Collection<SagaInstanceInfo> sagas = Collections.emptyList();
+
+        try {
+            message.start();
+            synchronized (admissionLock) {
+                message.loadedAfterReleases = releasedClaims;
+            }
+
+            sagas = message.task.resolveSagas(message.frame);
+            message.sagasExecuted = !sagas.isEmpty()
+                    || (!(message.task.message() instanceof DeadMessage) && message.task.handleAsDeadMessage());
+            if (!message.sagasExecuted) {
+                framePool.unhandledMessages().report(message.task.message());
+            }
+        } catch (Exception ex) {
+            message.error = ex;
+        }
+
+        if (message.error == null && !sagas.isEmpty()) {
+            message.sagas = sagas;
+            if (claimSagas(message)) {
+                refreshAndInvoke(message);
+            }
+        } else {
+            finish(message);
+        }
+    }
+
+    /**
+     * Claims the continued sagas of the message. If any of them is already claimed
+     * the message is parked until the claim has been released.
+     *
+     * @return Returns true if all sagas have been claimed.
+     */
+    private boolean claimSagas(final StagedMessage message) {
+        for (SagaInstanceInfo saga : message.sagas) {
+            if (!saga.isStarting()) {
+                message.sagaIds.add(saga.getSaga().state().getSagaId());
+            }
+        }
+
+        boolean claimed;
+        synchronized (admissionLock) {
+            claimed = Collections.disjoint(claimedSagas, message.sagaIds);
+            if (claimed) {
+                claimedSagas.addAll(message.sagaIds);
+                // a saga might have been updated between loading and claiming it
+                message.refreshStates = releasedClaims != message.loadedAfterReleases;
+            } else {
+                message.parked = true;
+            }
+        }
+
+        return claimed;
+    }
+
+    /**
+     * Continues parked messages whose sagas are no longer claimed, in the order they have been added.
+     * Must be called while holding the admission lock.
+     */
+    private void resumeParkedMessages() {
+        for (StagedMessage message : inFlight) {
+            if (message.parked && Collections.disjoint(claimedSagas, message.sagaIds)) {
+                claimedSagas.addAll(message.sagaIds);
+                message.parked = false;
+                message.refreshStates = true;
+                stages.get(Stage.LOAD).execute(() -> refreshAndInvoke(message));
+            }
+        }
+    }
+
+    private void refreshAndInvoke(final StagedMessage message) {
+        if (message.refreshStates) {
+            try {
+                message.sagas = message.task.refreshStates(message.sagas);
+            } catch (RuntimeException ex) {
+                message.error = ex;
+            }
+        }
+
+        if (message.error == null && !message.sagas.isEmpty()) {
+            stages.get(Stage.INVOKE).execute(() -> invoke(message));
+        } else {
+            finish(message);
+        }
+    }
+
+    private void invoke(final StagedMessage message) {
+        try {
+            message.sagas = message.task.invokeWithoutStorageUpdate(message.frame, message.sagas);
+        } catch (Exception ex) {
+            message.error = ex;
+        }
+
+        if (message.error == null) {
+            stages.get(Stage.PERSIST).execute(() -> persist(message));
+        } else {
+            finish(message);
+        }
+    }
+
+    private void persist(final StagedMessage message) {
+        try {
+            message.task.updateStateStorage(message.frame, message.sagas);
+        } catch (RuntimeException ex) {
+            message.error = ex;
+        }
+
+        finish(message);
+    }
+
+    private void finish(final StagedMessage message) {
+        Exception error = message.finish();
+
+        synchronized (admissionLock) {
+            inFlight.remove(message);
+            if (!message.sagaIds.isEmpty()) {
+                claimedSagas.removeAll(message.sagaIds);
+                releasedClaims++;
+                resumeParkedMessages();
+            }
+
+            admitWaitingMessages();
+            admissionLock.notifyAll();
+        }
+
+        if (error == null) {
+            message.completion.complete(null);
+        } else {
+            if (!message.tracked) {
+                LOG.error("Error handling message {}.", message.task.message(), error);
+            }
+
+            message.completion.completeExceptionally(error);
+        }
+    }
+
+    private static void rethrow(@Nullable final Throwable error) throws InvocationTargetException, IllegalAccessException {
+        if (error instanceof InvocationTargetException) {
+            throw (InvocationTargetException) error;
+        } else if (error instanceof IllegalAccessException) {
+            throw (IllegalAccessException) error;
+        } else if (error != null) {
+            Throwables.throwIfUnchecked(error);
+            throw new RuntimeException(error);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ThreadPoolExecutor stage : stages.values()) {
+            SagaMessageStream.shutDownExecutor(stage);
+        }
+
+        AutoCloseables.closeQuietly(environment);
+        AutoCloseables.closeQuietly(invoker);
+    }
+
+    /**
+     * A message passing the stages, holding the state between them.
+     */
+    private static final class StagedMessage {
+        private final SagaExecutionTask task;
+        private final boolean tracked;
+        private final Set<Object> keys = new HashSet<>();
+        // ids of the continued sagas, claimed unless parked
+        private final Set<String> sagaIds = new HashSet<>();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        // admission state, guarded by the admission lock
+        private boolean barrier;
+        private boolean admitted;
+        private boolean parked;
+        private long loadedAfterReleases;
+
+        // execution state, handed from stage to stage by the stage executors
+        private ExecutionFrame frame;
+        private Object dispatchEvent;
+        private long dispatchStart;
+        private Collection<SagaInstanceInfo> sagas;
+        private boolean sagasExecuted;
+        private boolean refreshStates;
+        private Exception error;
+
+        private StagedMessage(final SagaExecutionTask task, final boolean tracked) {
+            this.task = task;
+            this.tracked = tracked;
+        }
+
+        private void start() throws Exception {
+            frame = task.acquireFrame();
+            CurrentExecutionContext context = frame.executionContext();
+            dispatchEvent = SagaEvents.sink().dispatchStarted(context.message());
+            dispatchStart = context.phaseTimings().start();
+            frame.moduleCoordinator().start(context);
+        }
+
+        /**
+         * Notifies the modules and releases the frame.
+         *
+         * @return Returns the error to report to the caller.
+         */
+        @Nullable
+        private Exception finish() {
+            Exception finishError = error;
+
+            if (frame != null) {
+                CurrentExecutionContext context = frame.executionContext();
+                PhaseTimings timings = context.phaseTimings();
+                timings.setDispatchNanos(timings.start() - dispatchStart);
+
+                try {
+                    if (error != null) {
+                        context.setError(error);
+                        frame.moduleCoordinator().onError(context, context.message(), error);
+                    }
+
+                    frame.moduleCoordinator().finish(context);
+                    finishError = null;
+                } catch (Exception ex) {
+                    finishError = ex;
+                } finally {
+                    SagaEvents.sink().dispatchFinished(dispatchEvent, sagasExecuted);
+                    task.releaseFrame(frame);
+                }
+            }
+
+            return finishError;
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.codebullets.sagalib.processing;
 
+import com.codebullets.sagalib.DispatchPhase;
+import com.codebullets.sagalib.PhaseTimings;
 import com.codebullets.sagalib.context.LookupContext;
 
 import java.util.ArrayList;
@@ -38,7 +40,11 @@ public class StartNewSagaStrategy implements ResolveStrategy {
     @Override
     public Collection<SagaInstanceInfo> resolve(final LookupContext context) {
         Collection<SagaInstanceInfo> instances = new ArrayList<>(1);
+        PhaseTimings timings = context.phaseTimings();
+
+        long start = timings.start();
         SagaInstanceInfo instance = instanceFactory.createNew(typeToCreate);
+        timings.stop(DispatchPhase.SAGA_INSTANTIATION, start);
         if (instance != null) {
             instances.add(instance);
         }
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.SagaState;
+import com.codebullets.sagalib.context.HeaderMap;
+import com.codebullets.sagalib.storage.InstanceKeySearchParam;
+import com.codebullets.sagalib.storage.StateStorage;
+import com.codebullets.sagalib.timeout.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Starts loading the saga states of messages added to the stream while they are still
+ * waiting in the executor queue.
+ *
+ * <p>On {@code add} the instance keys of all continued saga types are read from the message
+ * and the matching states are loaded on the prefetch executor into a staging area. Once the
+ * message is handled, the state lookup is served from the staging area instead of querying the
+ * storage again. Staged states are discarded if a state matching the same instance keys has been
+ * saved, or a loaded state has been saved or deleted in the meantime, as well as after a short
+ * time. This way handlers always see the same states as without prefetching.</p>
+ *
+ * <p>Prefetching is configured using {@link ExecutionOptions#setStatePrefetch(StatePrefetcher)}
+ * and supported by the {@link com.codebullets.sagalib.startup.EventStreamBuilder}.</p>
+ */
+public final class StatePrefetcher {
+    /**
+     * Maximum number of messages with staged states by default.
+     */
+    public static final int DEFAULT_MAX_STAGED = 1024;
+
+    private static final Logger LOG = LoggerFactory.getLogger(StatePrefetcher.class);
+    private static final long DEFAULT_TIME_TO_LIVE_MILLIS = 5_000;
+
+    private final Executor executor;
+    private final long timeToLiveNanos;
+    private final int maxStaged;
+    private final Map<Set<InstanceKeySearchParam>, StagedStates> staged = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder wasted = new LongAdder();
+
+    @Nullable
+    private volatile TypesForMessageMapper typesMapper;
+    @Nullable
+    private volatile KeyExtractor keyExtractor;
+    @Nullable
+    private volatile StateStorage storage;
+
+    /**
+     * Creates a new prefetcher loading states using the provided executor.
+     */
+    public StatePrefetcher(final Executor executor) {
+        this(executor, DEFAULT_TIME_TO_LIVE_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_MAX_STAGED);
+    }
+
+    /**
+     * Creates a new prefetcher.
+     *
+     * @param executor The executor used to load the states.
+     * @param timeToLive Time after which staged states not used so far are discarded.
+     * @param unit The unit of the time to live.
+     * @param maxStaged Maximum number of messages with staged states, no prefetch is started once reached.
+     */
+    public StatePrefetcher(final Executor executor, final long timeToLive, final TimeUnit unit, final int maxStaged) {
+        checkArgument(maxStaged > 0, "Maximum number of staged messages must be positive.");
+
+        this.executor = checkNotNull(executor, "Prefetch executor must not be null.");
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.maxStaged = maxStaged;
+    }
+
+    /**
+     * Connects the prefetcher with the stream components. Called by the stream builder.
+     *
+     * @return Returns the storage to use for the message stream, serving loads from the staged states.
+     */
+    public StateStorage attach(final TypesForMessageMapper mapper, final KeyExtractor extractor, final StateStorage stateStorage) {
+        this.typesMapper = mapper;
+        this.keyExtractor = extractor;
+        this.storage = stateStorage;
+
+        return new StagingStorage(stateStorage);
+    }
+
+    /**
+     * Gets the number of state lookups served from staged states.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of state lookups without staged states.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of prefetches discarded without being used, because they
+     * were out of date, failed or expired.
+     */
+    public long wastedPrefetches() {
+        return wasted.sum();
+    }
+
+    /**
+     * Gets the number of messages with staged states.
+     */
+    public int stagedCount() {
+        return staged.size();
+    }
+
+    /**
+     * Starts loading the states of the continued sagas handling the message.
+     */
+    void prefetch(final Object message, final HeaderMap headers) {
+        TypesForMessageMapper mapper = typesMapper;
+        KeyExtractor extractor = keyExtractor;
+        StateStorage stateStorage = storage;
+
+        if (mapper != null && extractor != null && stateStorage != null && !(message instanceof Timeout)) {
+            Set<InstanceKeySearchParam> searchParams = MessageKeys.searchParams(mapper, extractor, message, headers);
+            if (!searchParams.isEmpty() && !staged.containsKey(searchParams) && hasCapacity()) {
+                StagedStates states = new StagedStates(searchParams, System.nanoTime());
+
+                // stage before loading, writes from now on are checked against the loaded states
+                if (staged.putIfAbsent(searchParams, states) == null) {
+                    CompletableFuture
+                            .supplyAsync(() -> stateStorage.loadAll(searchParams).collect(Collectors.<SagaState>toList()), executor)
+                            .whenComplete(states::loaded);
+                }
+            }
+        }
+    }
+
+    private boolean hasCapacity() {
+        if (staged.size() >= maxStaged) {
+            long now = System.nanoTime();
+            Iterator<StagedStates> iterator = staged.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired(now, timeToLiveNanos)) {
+                    iterator.remove();
+                    wasted.increment();
+                }
+            }
+        }
+
+        return staged.size() < maxStaged;
+    }
+
+    /**
+     * Gets the staged states for the search params, null if there are none or they are not usable.
+     */
+    @Nullable
+    private List<SagaState> takeStaged(final Iterable<InstanceKeySearchParam> searchParams) {
+        List<SagaState> states = null;
+        Set<InstanceKeySearchParam> key = toSet(searchParams);
+        StagedStates stagedStates = key.isEmpty() ? null : staged.remove(key);
+
+        if (stagedStates == null) {
+            if (!key.isEmpty()) {
+                misses.increment();
+            }
+        } else {
+            states = stagedStates.await();
+            if (states == null || stagedStates.isExpired(System.nanoTime(), timeToLiveNanos)) {
+                states = null;
+                wasted.increment();
+            } else {
+                hits.increment();
+            }
+        }
+
+        return states;
+    }
+
+    private void stateWritten(@Nullable final SagaState state, final String sagaId) {
+        for (StagedStates stagedStates : staged.values()) {
+            stagedStates.written(state, sagaId);
+        }
+    }
+
+    private static Set<InstanceKeySearchParam> toSet(final Iterable<InstanceKeySearchParam> searchParams) {
+        Set<InstanceKeySearchParam> set = new HashSet<>();
+        searchParams.forEach(set::add);
+        return set;
+    }
+
+    /**
+     * States loaded for a single message.
+     */
+    private static final class StagedStates {
+        private final Set<InstanceKeySearchParam> searchParams;
+        private final long createdNanos;
+        private final CompletableFuture<List<SagaState>> states = new CompletableFuture<>();
+        private final Set<String> writtenSagaIds = ConcurrentHashMap.newKeySet();
+        private volatile boolean outdated;
+
+        private StagedStates(final Set<InstanceKeySearchParam> searchParams, final long createdNanos) {
+            this.searchParams = searchParams;
+            this.createdNanos = createdNanos;
+        }
+
+        private void loaded(@Nullable final List<SagaState> loadedStates, @Nullable final Throwable error) {
+            if (error != null) {
+                LOG.debug("Error prefetching saga states for {}.", searchParams, error);
+                states.complete(null);
+            } else {
+                states.complete(loadedStates);
+            }
+        }
+
+        /**
+         * Records a state written after the load has been started. A new or changed state matching
+         * the search params makes the result outdated, changes to other sagas are checked once loaded.
+         */
+        private void written(@Nullable final SagaState state, final String sagaId) {
+            if (state != null && matches(state)) {
+                outdated = true;
+            } else {
+                writtenSagaIds.add(sagaId);
+            }
+        }
+
+        private boolean matches(final SagaState state) {
+            boolean matches = false;
+            for (InstanceKeySearchParam param : searchParams) {
+                if (param.getSagaTypeName().equals(state.getType()) && state.instanceKeys().contains(param.getInstanceKey())) {
+                    matches = true;
+                    break;
+                }
+            }
+
+            return matches;
+        }
+
+        private boolean isExpired(final long now, final long timeToLiveNanos) {
+            return now - createdNanos > timeToLiveNanos;
+        }
+
+        /**
+         * Waits for the load to finish, returns null if the result can not be used.
+         */
+        @Nullable
+        private List<SagaState> await() {
+            List<SagaState> loadedStates = states.join();
+            if (loadedStates != null && (outdated || containsWrittenSaga(loadedStates))) {
+                loadedStates = null;
+            }
+
+            return loadedStates;
+        }
+
+        private boolean containsWrittenSaga(final Collection<SagaState> loadedStates) {
+            boolean contains = false;
+            if (!writtenSagaIds.isEmpty()) {
+                for (SagaState state : loadedStates) {
+                    if (writtenSagaIds.contains(state.getSagaId())) {
+                        contains = true;
+                        break;
+                    }
+                }
+            }
+
+            return contains;
+        }
+    }
+
+    /**
+     * Storage used by the stream, serving loads of continued sagas from the staged states.
+     */
+    private final class StagingStorage implements StateStorage, AutoCloseable {
+        private final StateStorage delegate;
+
+        private StagingStorage(final StateStorage delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void save(final SagaState state) {
+            delegate.save(state);
+            stateWritten(state, state.getSagaId());
+        }
+
+        @Override
+        public SagaState load(final String sagaId) {
+            return delegate.load(sagaId);
+        }
+
+        @Override
+        public void delete(final String sagaId) {
+            delegate.delete(sagaId);
+            stateWritten(null, sagaId);
+        }
+
+        @Override
+        public Collection<? extends SagaState> load(final String type, final Object instanceKey) {
+            return delegate.load(type, instanceKey);
+        }
+
+        @Override
+        public Collection<? extends SagaState> loadByLongKey(final String type, final long instanceKey) {
+            return delegate.loadByLongKey(type, instanceKey);
+        }
+
+        @Override
+        public Stream<? extends SagaState> loadAll(final Iterable<InstanceKeySearchParam> searchParams) {
+            List<SagaState> states = takeStaged(searchParams);
+            return states != null ? new ArrayList<>(states).stream() : delegate.loadAll(searchParams);
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (delegate instanceof AutoCloseable) {
+                ((AutoCloseable) delegate).close();
+            }
+        }
+    }
+}
@@ -16,8 +16,10 @@
 package com.codebullets.sagalib.processing;
 
 import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.storage.InstanceKeySearchParam;
 
 import java.util.Collection;
+import java.util.Collections;
 
 /**
  * Takes a specific message instance and context and finds
@@ -28,4 +30,21 @@ public interface StrategyFinder {
      * Finds one or more strategies for a particular message.
      */
     Collection<ResolveStrategy> find(final LookupContext context);
-}
\ No newline at end of file
+
+    /**
+     * Gets whether no strategy will ever be found for messages of the provided type.
+     * The default always returns false.
+     */
+    default boolean isUnhandledType(final Class<?> messageClass) {
+        return false;
+    }
+
+    /**
+     * Gets the instance keys used to search the sagas continued by the message, if all strategies found
+     * for the message search continued sagas by these keys. Returns an empty collection if any
+     * other strategy is found. The default always returns an empty collection.
+     */
+    default Collection<InstanceKeySearchParam> continuedKeys(final LookupContext context) {
+        return Collections.emptyList();
+    }
+}
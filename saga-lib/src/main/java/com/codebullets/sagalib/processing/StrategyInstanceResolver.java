@@ -15,7 +15,10 @@
  */
 package com.codebullets.sagalib.processing;
 
+import com.codebullets.sagalib.DispatchPhase;
+import com.codebullets.sagalib.PhaseTimings;
 import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.storage.InstanceKeySearchParam;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
@@ -38,7 +41,11 @@ public class StrategyInstanceResolver implements InstanceResolver {
     @Override
     public Collection<SagaInstanceInfo> resolve(final LookupContext context) {
         Collection<SagaInstanceInfo> allInstances = new ArrayList<>();
+        PhaseTimings timings = context.phaseTimings();
+
+        long start = timings.start();
         Collection<ResolveStrategy> resolveStrategies = strategyFinder.find(context);
+        timings.stop(DispatchPhase.ROUTING, start);
 
         for (ResolveStrategy strategy : resolveStrategies) {
             Collection<SagaInstanceInfo> resolvedInstances = strategy.resolve(context);
@@ -47,4 +54,14 @@ public class StrategyInstanceResolver implements InstanceResolver {
 
         return allInstances;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isUnhandledType(final Class<?> messageClass) {
+        return strategyFinder.isUnhandledType(messageClass);
+    }
+
+    @Override
+    public Collection<InstanceKeySearchParam> continuedKeys(final LookupContext context) {
+        return strategyFinder.continuedKeys(context);
+    }
+}
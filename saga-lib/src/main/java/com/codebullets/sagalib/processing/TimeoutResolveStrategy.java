@@ -18,6 +18,8 @@ package com.codebullets.sagalib.processing;
 import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.SagaState;
 import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.jfr.SagaEvents;
+import com.codebullets.sagalib.jfr.StorageOperation;
 import com.codebullets.sagalib.storage.StateStorage;
 import com.codebullets.sagalib.timeout.Timeout;
 import com.google.common.base.Throwables;
@@ -73,7 +75,10 @@ public class TimeoutResolveStrategy implements ResolveStrategy {
         SagaInstanceInfo instance = null;
 
         try {
+            Object storageEvent = SagaEvents.sink().storageStarted(StorageOperation.LOAD, null, timeout.getSagaId());
             SagaState sagaState = storage.load(timeout.getSagaId());
+            SagaEvents.sink().storageFinished(storageEvent, sagaState != null ? 1 : 0);
+
             if (sagaState != null) {
                 Saga saga = sagaFactory.continueExisting(sagaState.getType(), sagaState);
                 instance = SagaInstanceInfo.define(saga, false);
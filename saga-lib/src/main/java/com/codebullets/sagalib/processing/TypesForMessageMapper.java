@@ -25,6 +25,7 @@ import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 
@@ -42,6 +43,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class TypesForMessageMapper {
     private final SagaTypeCacheLoader cacheLoader;
     private final LoadingCache<Class, Collection<SagaType>> sagasForMessageType;
+    private final Collection<Class> handledMessageTypes;
 
     /**
      * Generates a new instance of TypesForMessageMapper.
@@ -50,7 +52,9 @@ public class TypesForMessageMapper {
     public TypesForMessageMapper(final SagaAnalyzer analyzer) {
         // scan for sagas and their messages being handled
         Map<Class<? extends Saga>, SagaHandlersMap> handlersMap = analyzer.scanHandledMessageTypes();
-        cacheLoader = new SagaTypeCacheLoader(initializeMessageMappings(handlersMap));
+        Multimap<Class, SagaType> messageMappings = initializeMessageMappings(handlersMap);
+        handledMessageTypes = new ArrayList<>(messageMappings.keySet());
+        cacheLoader = new SagaTypeCacheLoader(messageMappings);
         sagasForMessageType = CacheBuilder.newBuilder().build(cacheLoader);
     }
 
@@ -71,6 +75,15 @@ public class TypesForMessageMapper {
         return sagasForMessageType.getUnchecked(messageClass);
     }
 
+    /**
+     * Resolves the saga types of all message types with a declared handler, so messages of these
+     * types do not need to be resolved when handled the first time. Needs to be called again
+     * after changing the preferred order.
+     */
+    public void warmUp() {
+        handledMessageTypes.forEach(sagasForMessageType::getUnchecked);
+    }
+
     /**
      * Populate internal map to translate between incoming message event type and saga type.
      */
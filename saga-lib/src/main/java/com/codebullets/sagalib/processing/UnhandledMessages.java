@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts messages not handled by any saga and reports them using a rate limited warning.
+ * A noisy source of messages nobody is interested in logs at most one warning per interval,
+ * stating how many further messages have been dropped silently in between.
+ */
+public final class UnhandledMessages {
+    /**
+     * Minimum time between two warnings by default, in seconds.
+     */
+    public static final long DEFAULT_LOG_INTERVAL_SECONDS = 10;
+
+    private static final Logger LOG = LoggerFactory.getLogger(UnhandledMessages.class);
+
+    private final long logIntervalNanos;
+    private final AtomicLong nextLogNanos;
+    private final LongAdder unhandled = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder skippedResolutions = new LongAdder();
+
+    /**
+     * Creates a new instance logging at most one warning every {@link #DEFAULT_LOG_INTERVAL_SECONDS}.
+     */
+    public UnhandledMessages() {
+        this(DEFAULT_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a new instance logging at most one warning per provided interval.
+     */
+    public UnhandledMessages(final long logInterval, final TimeUnit unit) {
+        this.logIntervalNanos = unit.toNanos(logInterval);
+        this.nextLogNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Gets the number of messages no saga has been found for.
+     */
+    public long unhandledCount() {
+        return unhandled.sum();
+    }
+
+    /**
+     * Gets the number of saga or {@link com.codebullets.sagalib.DeadMessage} resolutions skipped,
+     * because no saga type handles the message type at all.
+     */
+    public long skippedResolutionCount() {
+        return skippedResolutions.sum();
+    }
+
+    /**
+     * Records a resolution skipped because no saga type handles the message.
+     */
+    void resolutionSkipped() {
+        skippedResolutions.increment();
+    }
+
+    /**
+     * Records a message no saga has been found for.
+     */
+    void report(final Object message) {
+        unhandled.increment();
+
+        long now = System.nanoTime();
+        long next = nextLogNanos.get();
+        if (now - next >= 0 && nextLogNanos.compareAndSet(next, now + logIntervalNanos)) {
+            LOG.warn("No saga or saga state found to handle message. (message = {}, further unhandled messages since last warning = {})",
+                    message,
+                    suppressed.sumThenReset());
+        } else {
+            suppressed.increment();
+            LOG.debug("No saga or saga state found to handle message. (message = {})", message);
+        }
+    }
+}
@@ -17,20 +17,20 @@
 package com.codebullets.sagalib.processing.invocation;
 
 import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.Recyclable;
 import com.codebullets.sagalib.SagaModule;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Optional;
 
 /**
  * This is the default implementation to trigger module callbacks.
  * It stores the number of started modules and makes sure to call
  * the error and finish handlers in reverse order they have been started.
  */
-public class DefaultModuleCoordinator implements ModuleCoordinator {
-    private final Iterable<SagaModule> sagaModules;
-    private ModulesInvoker modulesInvoker;
+public class DefaultModuleCoordinator implements ModuleCoordinator, Recyclable {
+    private final ModulesInvoker modulesInvoker;
+    private boolean started;
 
     /**
      * Do not auto instantiate the list. It is only needed on exceptional cases.
@@ -42,16 +42,25 @@ public class DefaultModuleCoordinator implements ModuleCoordinator {
      * Create a new instance of a module coordinator.
      */
     public DefaultModuleCoordinator(final Iterable<SagaModule> sagaModules) {
-        this.sagaModules = sagaModules;
+        this(ModulesInvoker.toArray(sagaModules));
+    }
+
+    /**
+     * Create a new instance of a module coordinator using an already
+     * compiled array of modules. The array is not copied.
+     */
+    DefaultModuleCoordinator(final SagaModule[] sagaModules) {
+        this.modulesInvoker = new ModulesInvoker(sagaModules);
     }
 
     @Override
     public void start(final ExecutionContext context) throws Exception {
-        ModulesInvoker.StartResult start = ModulesInvoker.start(context, sagaModules);
-        modulesInvoker = start.getInvoker();
-        Optional<Exception> error = start.error();
-        if (error.isPresent()) {
-            throw error.get();
+        if (!modulesInvoker.isEmpty()) {
+            started = true;
+            Exception startError = modulesInvoker.startModules(context);
+            if (startError != null) {
+                throw startError;
+            }
         }
     }
 
@@ -59,7 +68,7 @@ public class DefaultModuleCoordinator implements ModuleCoordinator {
     public void onError(final ExecutionContext context, final Object message, final Exception error) {
         addException(error);
 
-        if (modulesInvoker != null) {
+        if (started) {
             Collection<Exception> moduleErrors = modulesInvoker.error(message, error);
             addExceptions(moduleErrors);
         }
@@ -67,14 +76,19 @@ public class DefaultModuleCoordinator implements ModuleCoordinator {
 
     @Override
     public void finish(final ExecutionContext context) throws Exception {
-        if (modulesInvoker != null) {
+        if (started) {
             Collection<Exception> finishErrors = modulesInvoker.finish();
-            if (!finishErrors.isEmpty()) {
-                encounteredExceptions().addAll(finishErrors);
-            }
-
-            throwInCaseOfErrors(context);
+            addExceptions(finishErrors);
         }
+
+        throwInCaseOfErrors(context);
+    }
+
+    @Override
+    public void recycle() {
+        modulesInvoker.reset();
+        started = false;
+        encounteredExceptions = null;
     }
 
     private void throwInCaseOfErrors(final ExecutionContext context) throws Exception {
@@ -90,7 +104,9 @@ public class DefaultModuleCoordinator implements ModuleCoordinator {
     }
 
     private void addExceptions(final Collection<Exception> exceptions) {
-        encounteredExceptions().addAll(exceptions);
+        if (!exceptions.isEmpty()) {
+            encounteredExceptions().addAll(exceptions);
+        }
     }
 
     private Collection<Exception> encounteredExceptions() {
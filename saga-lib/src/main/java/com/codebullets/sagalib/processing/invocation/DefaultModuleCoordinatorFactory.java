@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing.invocation;
+
+import com.codebullets.sagalib.SagaModule;
+
+/**
+ * Creates {@link DefaultModuleCoordinator} instances. The list of modules is
+ * converted into an array once and shared by all coordinators created, as long
+ * as the same modules instance is provided.
+ */
+public class DefaultModuleCoordinatorFactory implements ModuleCoordinatorFactory {
+    private volatile CompiledModules compiledModules;
+
+    @Override
+    public ModuleCoordinator create(final Iterable<SagaModule> modules) {
+        CompiledModules compiled = compiledModules;
+        if (compiled == null || compiled.source != modules) {
+            compiled = new CompiledModules(modules);
+            compiledModules = compiled;
+        }
+
+        return new DefaultModuleCoordinator(compiled.modules);
+    }
+
+    /**
+     * Holds the module array together with the source it has been created from.
+     */
+    private static final class CompiledModules {
+        private final Iterable<SagaModule> source;
+        private final SagaModule[] modules;
+
+        private CompiledModules(final Iterable<SagaModule> source) {
+            this.source = source;
+            this.modules = ModulesInvoker.toArray(source);
+        }
+    }
+}
@@ -27,9 +27,11 @@ import java.util.Optional;
 public final class InvocationMethod {
     @Nullable
     private Method method;
+    private final boolean batch;
 
-    private InvocationMethod(@Nullable final Method method) {
+    private InvocationMethod(@Nullable final Method method, final boolean batch) {
         this.method = method;
+        this.batch = batch;
     }
 
     /**
@@ -40,17 +42,31 @@ public final class InvocationMethod {
         return Optional.ofNullable(method);
     }
 
+    /**
+     * Gets a value indicating whether the method takes a list of messages.
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
     /**
      * Create a new instance indicating the saga has it's own handling description.
      */
     public static InvocationMethod selfDescribed() {
-        return new InvocationMethod(null);
+        return new InvocationMethod(null, false);
     }
 
     /**
      * Creates a new instances defining the method to be called via reflection.
      */
     public static InvocationMethod reflectionInvoked(final Method method) {
-        return new InvocationMethod(method);
+        return new InvocationMethod(method, false);
+    }
+
+    /**
+     * Creates a new instances defining the method taking a list of messages to be called via reflection.
+     */
+    public static InvocationMethod reflectionInvokedBatch(final Method method) {
+        return new InvocationMethod(method, true);
     }
 }
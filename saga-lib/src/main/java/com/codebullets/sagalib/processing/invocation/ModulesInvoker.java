@@ -17,21 +17,13 @@ package com.codebullets.sagalib.processing.invocation;
 
 import com.codebullets.sagalib.ExecutionContext;
 import com.codebullets.sagalib.SagaModule;
-import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.Immutable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
-import java.util.function.BiFunction;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Executes the methods on the list of available modules. This has the following rules:
@@ -41,111 +33,131 @@ import java.util.stream.Stream;
  *         started modules as well a the module raising the error.</li>
  *     <li>{@code onFinished} will be called for all started and partially started modules.</li>
  * </ul>
+ *
+ * <p>The modules are kept in a fixed array. Instead of recording callbacks per module
+ * only the number of started modules is tracked, finish and error handlers are called
+ * iterating backwards from there. An instance holds the state of a single execution
+ * and can be reused once it has been {@link #reset()}.</p>
  */
-@Immutable
 final class ModulesInvoker {
     private static final Logger LOG = LoggerFactory.getLogger(ModulesInvoker.class);
+    private static final SagaModule[] NO_MODULES = new SagaModule[0];
 
-    private final List<Supplier<Optional<Exception>>> finishers;
-    private final List<BiFunction<Object, Throwable, Optional<Exception>>> errorHandlers;
+    private final SagaModule[] modules;
+    private ExecutionContext context;
+    private int startedModules;
 
-    private ModulesInvoker(
-            final List<Supplier<Optional<Exception>>> finishers,
-            final List<BiFunction<Object, Throwable, Optional<Exception>>> errorHandlers) {
-        this.finishers = Collections.unmodifiableList(finishers);
-        this.errorHandlers = Collections.unmodifiableList(errorHandlers);
+    /**
+     * Creates a new invoker for the provided modules. The array is not copied
+     * and must not be changed afterwards.
+     */
+    ModulesInvoker(final SagaModule[] modules) {
+        this.modules = modules;
     }
 
     /**
-     * Executes start on a list of modules.
-     * <p>In case of an error during start, calls error and finished on already started/starting modules.</p>
-     * @return Invoker in case all modules started without error
+     * Copies the provided modules into an array suitable to create new invokers.
      */
-    static StartResult start(final ExecutionContext context, final Iterable<SagaModule> modules) {
-        Exception possibleStartException = null;
-        List<Supplier<Optional<Exception>>> finishers = new ArrayList<>();
-        List<BiFunction<Object, Throwable, Optional<Exception>>> errorHandlers = new ArrayList<>();
+    static SagaModule[] toArray(final Iterable<SagaModule> modules) {
+        SagaModule[] moduleArray;
+
+        if (modules instanceof Collection) {
+            moduleArray = ((Collection<SagaModule>) modules).toArray(NO_MODULES);
+        } else {
+            Collection<SagaModule> moduleList = new ArrayList<>();
+            modules.forEach(moduleList::add);
+            moduleArray = moduleList.toArray(NO_MODULES);
+        }
+
+        return moduleArray;
+    }
 
-        try {
-            for (final SagaModule module : modules) {
-                finishers.add(createFinisher(module, context));
-                errorHandlers.add(createErrorHandler(module, context));
+    /**
+     * Gets whether there are no modules to call.
+     */
+    boolean isEmpty() {
+        return modules.length == 0;
+    }
 
-                module.onStart(context);
+    /**
+     * Calls start on all modules in order. Stops at the first module throwing an exception.
+     * @return Returns the exception thrown by the module or null if all modules have been started.
+     */
+    @Nullable
+    Exception startModules(final ExecutionContext executionContext) {
+        Exception startError = null;
+        context = executionContext;
+        startedModules = 0;
+
+        for (int i = 0; i < modules.length && startError == null; ++i) {
+            // a partly started module is finished as well
+            startedModules++;
+
+            try {
+                modules[i].onStart(executionContext);
+            } catch (Exception ex) {
+                startError = ex;
             }
-        } catch (Exception ex) {
-            possibleStartException = ex;
         }
 
-        return new StartResult(possibleStartException, new ModulesInvoker(finishers, errorHandlers));
+        return startError;
     }
 
     /**
      * Call finishers on all started modules.
      */
     Collection<Exception> finish() {
-        return Lists.reverse(finishers).stream()
-                .flatMap(f -> f.get().map(Stream::of).orElse(Stream.empty()))
-                .collect(Collectors.toList());
+        Collection<Exception> errors = Collections.emptyList();
+
+        for (int i = startedModules - 1; i >= 0; --i) {
+            SagaModule module = modules[i];
+            try {
+                module.onFinished(context);
+            } catch (Exception ex) {
+                errors = addError(errors, ex, module);
+            }
+        }
+
+        return errors;
     }
 
     /**
      * Execute error method on started modules.
      * @return Returns possible errors triggered during error handing itself
      */
-    public Collection<Exception> error(final Object message, final Throwable error) {
-        return Lists.reverse(errorHandlers).stream()
-                .flatMap(f -> f.apply(message, error).map(Stream::of).orElse(Stream.empty()))
-                .collect(Collectors.toList());
-    }
-
-    private static Supplier<Optional<Exception>> createFinisher(final SagaModule module, final ExecutionContext context) {
-        return () -> tryExecute(() -> module.onFinished(context), module);
-    }
+    Collection<Exception> error(final Object message, final Throwable error) {
+        Collection<Exception> errors = Collections.emptyList();
+
+        for (int i = startedModules - 1; i >= 0; --i) {
+            SagaModule module = modules[i];
+            try {
+                module.onError(context, message, error);
+            } catch (Exception ex) {
+                errors = addError(errors, ex, module);
+            }
+        }
 
-    private static BiFunction<Object, Throwable, Optional<Exception>> createErrorHandler(final SagaModule module, final ExecutionContext context) {
-        return (message, throwable) -> tryExecute(() -> module.onError(context, message, throwable), module);
+        return errors;
     }
 
     /**
-     * Executes the provided runnable without throwing possible exceptions.
-     * @return Returns the exception encountered during execution.
+     * Forgets about the previous execution.
      */
-    private static Optional<Exception> tryExecute(final Runnable runnable, final SagaModule module) {
-        Exception executionException;
-
-        try {
-            runnable.run();
-            executionException = null;
-        } catch (Exception ex) {
-            executionException = ex;
-            LOG.error("Error executing function on module {}", module, ex);
-        }
-
-        return Optional.ofNullable(executionException);
+    void reset() {
+        context = null;
+        startedModules = 0;
     }
 
     /**
-     * Holds the modules invoker as well as the possible exception
-     * starting other modules.
+     * Logs the error and adds it to the list of encountered errors. The list
+     * is only allocated once the first error occurs.
      */
-    static class StartResult {
-        @Nullable
-        private final Exception startError;
-        private final ModulesInvoker invoker;
-
-        StartResult(@Nullable final Exception startError, final ModulesInvoker modulesInvoker) {
-            this.startError = startError;
-            this.invoker = modulesInvoker;
-        }
+    private static Collection<Exception> addError(final Collection<Exception> errors, final Exception error, final SagaModule module) {
+        LOG.error("Error executing function on module {}", module, error);
 
-        @Nullable
-        Optional<Exception> error() {
-            return Optional.ofNullable(startError);
-        }
+        Collection<Exception> allErrors = errors.isEmpty() ? new ArrayList<>() : errors;
+        allErrors.add(error);
 
-        ModulesInvoker getInvoker() {
-            return invoker;
-        }
+        return allErrors;
     }
 }
@@ -15,6 +15,7 @@
  */
 package com.codebullets.sagalib.processing.invocation;
 
+import com.codebullets.sagalib.MessageBatch;
 import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.describe.DescribesHandlers;
 import com.codebullets.sagalib.startup.MessageHandler;
@@ -30,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -40,13 +42,35 @@ import java.util.Optional;
 public class ReflectionInvoker implements HandlerInvoker {
     private static final Logger LOG = LoggerFactory.getLogger(ReflectionInvoker.class);
     private final LoadingCache<InvokerKey, InvocationMethod> invocationMethods;
+    private final Map<Class<? extends Saga>, SagaHandlersMap> handlersMap;
 
     /**
      * Generates a new instance of ReflectionInvoker.
      */
     @Inject
     public ReflectionInvoker(final SagaAnalyzer analyzer) {
-        invocationMethods = CacheBuilder.newBuilder().build(new MethodSearcher(analyzer.scanHandledMessageTypes()));
+        handlersMap = analyzer.scanHandledMessageTypes();
+        invocationMethods = CacheBuilder.newBuilder().build(new MethodSearcher(handlersMap));
+    }
+
+    /**
+     * Looks up the methods of all reflection invoked handlers, so the first message
+     * handled by a saga does not need to search for the method to invoke.
+     */
+    public void warmUp() {
+        handlersMap.forEach((sagaType, handlers) -> {
+            for (MessageHandler handler : handlers.messageHandlers()) {
+                if (handler.getMethodToInvoke().isPresent()) {
+                    InvocationHandlerType handlerType = handler.getStartsSaga() ? InvocationHandlerType.START : InvocationHandlerType.CONTINUE;
+                    tryGetMethod(new InvokerKey(sagaType, handler.getMessageType(), handlerType, false));
+
+                    // batch handlers are called with batches as well as single messages
+                    if (handler.isBatch()) {
+                        tryGetMethod(new InvokerKey(sagaType, handler.getMessageType(), handlerType, true));
+                    }
+                }
+            }
+        });
     }
 
     /**
@@ -73,7 +97,7 @@ public class ReflectionInvoker implements HandlerInvoker {
         if (method != null) {
             Optional<Method> reflectionMethod = method.invocationMethod();
             if (reflectionMethod.isPresent()) {
-                reflectionMethod.get().invoke(invocationContext.saga(), invocationContext.message());
+                reflectionMethod.get().invoke(invocationContext.saga(), handlerArgument(method, invocationContext.message()));
             } else {
                 LOG.warn("No annotated handler method found and saga is not self describing. key = {}", key);
             }
@@ -82,6 +106,21 @@ public class ReflectionInvoker implements HandlerInvoker {
         }
     }
 
+    /**
+     * Batch handlers get a list of messages, single messages are wrapped into a list.
+     */
+    private static Object handlerArgument(final InvocationMethod method, final Object message) {
+        Object argument = message;
+
+        if (message instanceof MessageBatch) {
+            argument = ((MessageBatch<?>) message).messages();
+        } else if (method.isBatch()) {
+            argument = Collections.singletonList(message);
+        }
+
+        return argument;
+    }
+
     /**
      * Finds the method to invoke without causing an exception.
      */
@@ -114,7 +153,7 @@ public class ReflectionInvoker implements HandlerInvoker {
                 for (MessageHandler handler : handlers.messageHandlers()) {
                     if (matchesCallingContext(key, handler) && handler.getMessageType().isAssignableFrom(key.getMsgClass())) {
                         final Optional<Method> method = handler.getMethodToInvoke();
-                        invocationMethod = method.map(InvocationMethod::reflectionInvoked)
+                        invocationMethod = method.map(handler.isBatch() ? InvocationMethod::reflectionInvokedBatch : InvocationMethod::reflectionInvoked)
                                 .orElse(InvocationMethod.selfDescribed());
                         break;
                     }
@@ -129,6 +168,8 @@ public class ReflectionInvoker implements HandlerInvoker {
 
             if (invokerKey.handlerType == InvocationHandlerType.START) {
                 isMatch = handler.getStartsSaga();
+            } else if (invokerKey.batch) {
+                isMatch = handler.isBatch();
             } else {
                 isMatch = !handler.getStartsSaga();
             }
@@ -144,11 +185,13 @@ public class ReflectionInvoker implements HandlerInvoker {
         private final Class sagaClazz;
         private final Class msgClazz;
         private final InvocationHandlerType handlerType;
+        private final boolean batch;
 
-        InvokerKey(final Class sagaClazz, final Class msgClazz, final InvocationHandlerType handlerType) {
+        InvokerKey(final Class sagaClazz, final Class msgClazz, final InvocationHandlerType handlerType, final boolean batch) {
             this.sagaClazz = sagaClazz;
             this.msgClazz = msgClazz;
             this.handlerType = handlerType;
+            this.batch = batch;
         }
 
         private Class getSagaClass() {
@@ -172,14 +215,19 @@ public class ReflectionInvoker implements HandlerInvoker {
                 InvokerKey other = (InvokerKey) obj;
                 isEqual = Objects.equals(msgClazz, other.msgClazz)
                        && Objects.equals(sagaClazz, other.sagaClazz)
-                       && Objects.equals(this.handlerType, other.handlerType);
+                       && Objects.equals(this.handlerType, other.handlerType)
+                       && batch == other.batch;
             }
 
             return isEqual;
         }
 
         public static InvokerKey create(final InvocationContext invocationContext) {
-            return new InvokerKey(invocationContext.saga().getClass(), invocationContext.message().getClass(), invocationContext.handlerType());
+            Object message = invocationContext.message();
+            boolean batch = message instanceof MessageBatch;
+            Class msgClazz = batch ? ((MessageBatch<?>) message).messageType() : message.getClass();
+
+            return new InvokerKey(invocationContext.saga().getClass(), msgClazz, invocationContext.handlerType(), batch);
         }
 
         @Override
@@ -187,6 +235,7 @@ public class ReflectionInvoker implements HandlerInvoker {
             return MoreObjects.toStringHelper(this)
                     .add("saga", sagaClazz)
                     .add("msg", msgClazz)
+                    .add("batch", batch)
                     .toString();
         }
     }
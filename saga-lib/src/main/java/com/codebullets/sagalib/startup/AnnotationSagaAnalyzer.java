@@ -21,14 +21,19 @@ import com.codebullets.sagalib.StartsSaga;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Scans the provided saga types for {@link com.codebullets.sagalib.StartsSaga} and
@@ -42,6 +47,9 @@ public class AnnotationSagaAnalyzer implements SagaAnalyzer {
     private final Collection<Class<? extends Annotation>> startSagaAnnotations = new ArrayList<>();
     private final Collection<Class<? extends Annotation>> handlerAnnotations = new ArrayList<>();
 
+    @Nullable
+    private ExecutorService analysisExecutor;
+
     /**
      * Constructs a new AnnotationSagaAnalyzer instance.
      */
@@ -86,6 +94,14 @@ public class AnnotationSagaAnalyzer implements SagaAnalyzer {
         handlerAnnotations.add(annotationClass);
     }
 
+    /**
+     * Optional: Analyzes the saga types in parallel using the provided executor. By default all
+     * types are analyzed sequentially on the thread scanning for handlers.
+     */
+    public void setAnalysisExecutor(@Nullable final ExecutorService executor) {
+        analysisExecutor = executor;
+    }
+
     /**
      * Creates entries in the scan result map containing the messages handlers
      * of the sagas provided by the injected scanner.
@@ -93,13 +109,12 @@ public class AnnotationSagaAnalyzer implements SagaAnalyzer {
     private void populateSagaHandlers() {
         synchronized (sync) {
             if (scanResult == null) {
-                scanResult = new HashMap<>();
                 Collection<Class<? extends Saga>> sagaTypes = scanner.scanForSagas();
+                List<SagaHandlersMap> handlers = SagaTypeTasks.run(sagaTypes, this::determineMessageHandlers, analysisExecutor);
 
-                for (Class<? extends Saga> sagaType : sagaTypes) {
-                    SagaHandlersMap messageHandlers = determineMessageHandlers(sagaType);
-                    scanResult.put(sagaType, messageHandlers);
-                }
+                Map<Class<? extends Saga>, SagaHandlersMap> result = new HashMap<>();
+                handlers.forEach(messageHandlers -> result.put(messageHandlers.getSagaType(), messageHandlers));
+                scanResult = result;
             }
         }
     }
@@ -113,11 +128,18 @@ public class AnnotationSagaAnalyzer implements SagaAnalyzer {
         Method[] methods = sagaType.getMethods();
         for (Method method : methods) {
             if (isHandlerMethod(method)) {
-
-                // method matches expected handler signature -> add to handler map
-                Class<?> handlerType = method.getParameterTypes()[0];
                 boolean isSagaStart = hasStartSagaAnnotation(method);
-                handlerMap.add(MessageHandler.reflectionInvokedHandler(handlerType, method, isSagaStart));
+
+                if (!isSagaStart && isBatchHandler(method)) {
+                    Class<?> batchType = batchMessageType(method);
+                    if (batchType != null) {
+                        handlerMap.add(MessageHandler.batchHandler(batchType, method));
+                    }
+                } else {
+                    // method matches expected handler signature -> add to handler map
+                    Class<?> handlerType = method.getParameterTypes()[0];
+                    handlerMap.add(MessageHandler.reflectionInvokedHandler(handlerType, method, isSagaStart));
+                }
             }
         }
 
@@ -146,6 +168,33 @@ public class AnnotationSagaAnalyzer implements SagaAnalyzer {
         return isHandler;
     }
 
+    private static boolean isBatchHandler(final Method method) {
+        EventHandler annotation = method.getAnnotation(EventHandler.class);
+        return annotation != null && annotation.batch();
+    }
+
+    /**
+     * Reads the message type {@code T} of a batch handler taking a {@code List<T>}.
+     */
+    @Nullable
+    private static Class<?> batchMessageType(final Method method) {
+        Class<?> messageType = null;
+
+        Type parameterType = method.getGenericParameterTypes()[0];
+        if (method.getParameterTypes()[0].equals(List.class) && parameterType instanceof ParameterizedType) {
+            Type elementType = ((ParameterizedType) parameterType).getActualTypeArguments()[0];
+            if (elementType instanceof Class) {
+                messageType = (Class<?>) elementType;
+            }
+        }
+
+        if (messageType == null) {
+            LOG.warn("Batch handler {}.{} does not take a list of a concrete message type.", method.getDeclaringClass(), method.getName());
+        }
+
+        return messageType;
+    }
+
     private boolean hasHandlerAnnotation(final Method method) {
         return hasAnnotation(handlerAnnotations, method);
     }
@@ -20,38 +20,56 @@ import com.codebullets.sagalib.MessageStream;
 import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.SagaLifetimeInterceptor;
 import com.codebullets.sagalib.SagaModule;
+import com.codebullets.sagalib.SagaState;
 import com.codebullets.sagalib.context.CurrentExecutionContext;
 import com.codebullets.sagalib.context.SagaExecutionContext;
+import com.codebullets.sagalib.metrics.MetricsInterceptor;
+import com.codebullets.sagalib.metrics.MetricsModule;
+import com.codebullets.sagalib.metrics.SagaMetrics;
+import com.codebullets.sagalib.processing.BatchHandlers;
 import com.codebullets.sagalib.processing.DefaultStrategyFinder;
-import com.codebullets.sagalib.processing.invocation.DefaultModuleCoordinator;
+import com.codebullets.sagalib.processing.ExecutionOptions;
+import com.codebullets.sagalib.processing.invocation.DefaultModuleCoordinatorFactory;
 import com.codebullets.sagalib.processing.invocation.HandlerInvoker;
-import com.codebullets.sagalib.processing.KeyExtractor;
+import com.codebullets.sagalib.processing.MailboxMessageStream;
 import com.codebullets.sagalib.processing.invocation.ModuleCoordinatorFactory;
 import com.codebullets.sagalib.processing.invocation.ReflectionInvoker;
 import com.codebullets.sagalib.processing.SagaEnvironment;
+import com.codebullets.sagalib.processing.SagaIdGenerator;
 import com.codebullets.sagalib.processing.SagaInstanceCreator;
+import com.codebullets.sagalib.processing.SagaInstancePool;
 import com.codebullets.sagalib.processing.SagaInstanceFactory;
+import com.codebullets.sagalib.processing.SagaTypeRegistry;
 import com.codebullets.sagalib.processing.SagaKeyReaderExtractor;
 import com.codebullets.sagalib.processing.SagaMessageStream;
+import com.codebullets.sagalib.processing.StagedExecutionOptions;
+import com.codebullets.sagalib.processing.StagedMessageStream;
 import com.codebullets.sagalib.processing.SagaProviderFactory;
 import com.codebullets.sagalib.processing.StrategyInstanceResolver;
 import com.codebullets.sagalib.processing.TypesForMessageMapper;
+import com.codebullets.sagalib.storage.AsyncStateStorage;
 import com.codebullets.sagalib.storage.MemoryStorage;
+import com.codebullets.sagalib.storage.PipelinedStateStorage;
 import com.codebullets.sagalib.storage.StateStorage;
 import com.codebullets.sagalib.timeout.InMemoryTimeoutManager;
 import com.codebullets.sagalib.timeout.TimeoutManager;
 
+import javax.annotation.Nullable;
 import javax.inject.Provider;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -69,10 +87,19 @@ public final class EventStreamBuilder implements StreamBuilder {
     private TimeoutManager timeoutManager;
     private Provider<CurrentExecutionContext> contextProvider;
     private Executor executor;
-    private SagaMessageStream messageStream;
+    private MessageStream messageStream;
     private final Collection<Class<? extends Annotation>> startSagaAnnotations = new ArrayList<>();
     private final Collection<Class<? extends Annotation>> handlerAnnotations = new ArrayList<>();
     private ModuleCoordinatorFactory moduleCoordinatorFactory;
+    private ExecutionOptions executionOptions = ExecutionOptions.defaults();
+    private boolean mailboxExecution;
+    private int maxCachedSagas;
+    private StagedExecutionOptions stagedExecutionOptions;
+    private SagaInstancePool sagaPool;
+    private SagaIdGenerator idGenerator;
+    private String analysisSnapshot;
+    private boolean warmUpOnBuild;
+    private int analysisThreads;
 
     /**
      * Prevent instantiation from outside. Use {@link #configure()} instead.
@@ -93,22 +120,40 @@ public final class EventStreamBuilder implements StreamBuilder {
             throw new UnsupportedOperationException("The saga provider factory has to be set to build the event stream.");
         }
 
-        buildTypeScanner();
+        if (sagaPool != null) {
+            executionOptions.setSagaPool(sagaPool);
+        }
+
+        if (idGenerator != null) {
+            executionOptions.setIdGenerator(idGenerator);
+        }
+
         buildTimeoutManager();
-        SagaInstanceCreator instanceCreator = new SagaInstanceCreator(providerFactory, timeoutManager);
 
-        buildSagaAnalyzer(instanceCreator);
+        SagaInstanceCreator instanceCreator = new SagaInstanceCreator(providerFactory, timeoutManager, executionOptions);
+
+        analyzeSagas(instanceCreator);
         buildInvoker();
         buildContextProvider();
         buildExecutor();
         buildStorage();
         buildModuleCoordinatorFactory();
 
-        SagaInstanceFactory instanceFactory = new SagaInstanceFactory(instanceCreator);
+        SagaInstanceFactory instanceFactory = new SagaInstanceFactory(instanceCreator, executionOptions);
+        instanceFactory.setTypeRegistry(SagaTypeRegistry.of(sagaAnalyzer.scanHandledMessageTypes().keySet()));
         TypesForMessageMapper messageMapper = new TypesForMessageMapper(sagaAnalyzer);
         messageMapper.setPreferredOrder(preferredOrder);
+        executionOptions.setOrderedSagaTypes(preferredOrder);
+
+        SagaKeyReaderExtractor extractor = new SagaKeyReaderExtractor(providerFactory);
+        if (warmUpOnBuild) {
+            warmUpCaches(instanceCreator, messageMapper, extractor);
+        }
+
+        if (executionOptions.statePrefetch() != null) {
+            storage = executionOptions.statePrefetch().attach(messageMapper, extractor, storage);
+        }
 
-        KeyExtractor extractor = new SagaKeyReaderExtractor(providerFactory);
         DefaultStrategyFinder strategyFinder = new DefaultStrategyFinder(messageMapper, instanceFactory, extractor, storage);
         StrategyInstanceResolver instanceResolver = new StrategyInstanceResolver(strategyFinder);
 
@@ -121,7 +166,15 @@ public final class EventStreamBuilder implements StreamBuilder {
                 instanceResolver,
                 moduleCoordinatorFactory);
 
-        messageStream = new SagaMessageStream(invoker, environment, executor);
+        if (stagedExecutionOptions != null) {
+            messageStream = new StagedMessageStream(invoker, environment, messageMapper, extractor, executionOptions, stagedExecutionOptions);
+        } else if (mailboxExecution) {
+            messageStream = new MailboxMessageStream(
+                    invoker, environment, instanceFactory, executor, executionOptions, maxCachedSagas, BatchHandlers.of(sagaAnalyzer));
+        } else {
+            messageStream = new SagaMessageStream(invoker, environment, executor, executionOptions);
+        }
+
         return messageStream;
     }
 
@@ -147,6 +200,29 @@ public final class EventStreamBuilder implements StreamBuilder {
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamBuilder usingAsyncStorage(final AsyncStateStorage stateStorage) {
+        checkNotNull(stateStorage, "Storage to use must not be null.");
+
+        this.storage = new PipelinedStateStorage(stateStorage);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamBuilder usingAsyncStorage(final AsyncStateStorage stateStorage, final UnaryOperator<SagaState> copier) {
+        checkNotNull(stateStorage, "Storage to use must not be null.");
+        checkNotNull(copier, "State copier must not be null.");
+
+        this.storage = new PipelinedStateStorage(stateStorage, copier);
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -235,6 +311,83 @@ public final class EventStreamBuilder implements StreamBuilder {
         return this;
     }
 
+    @Override
+    public StreamBuilder usingExecutionOptions(final ExecutionOptions options) {
+        checkNotNull(options, "Execution options must not be null.");
+
+        executionOptions = options;
+        return this;
+    }
+
+    @Override
+    public StreamBuilder usingMailboxExecution(final int maxIdleSagas) {
+        checkArgument(maxIdleSagas >= 0, "Number of cached sagas must not be negative.");
+
+        mailboxExecution = true;
+        maxCachedSagas = maxIdleSagas;
+        return this;
+    }
+
+    @Override
+    public StreamBuilder usingStagedExecution(final StagedExecutionOptions options) {
+        checkNotNull(options, "Staged execution options must not be null.");
+
+        stagedExecutionOptions = options;
+        return this;
+    }
+
+    @Override
+    public StreamBuilder usingSagaPooling(final int maxPerType, final Collection<Class<? extends Saga>> sagaTypes) {
+        checkNotNull(sagaTypes, "Pooled saga types must not be null.");
+
+        sagaPool = new SagaInstancePool(maxPerType, sagaTypes);
+        return this;
+    }
+
+    @Override
+    public StreamBuilder usingIdGenerator(final SagaIdGenerator generator) {
+        checkNotNull(generator, "Id generator must not be null.");
+
+        idGenerator = generator;
+        return this;
+    }
+
+    @Override
+    public StreamBuilder usingAnalysisSnapshot() {
+        return usingAnalysisSnapshot(SagaAnalysisSnapshot.DEFAULT_RESOURCE);
+    }
+
+    @Override
+    public StreamBuilder usingAnalysisSnapshot(final String resourceName) {
+        checkNotNull(resourceName, "Snapshot resource name must not be null.");
+
+        analysisSnapshot = resourceName;
+        return this;
+    }
+
+    @Override
+    public StreamBuilder warmUp() {
+        warmUpOnBuild = true;
+        return this;
+    }
+
+    @Override
+    public StreamBuilder usingParallelAnalysis(final int threads) {
+        checkArgument(threads > 0, "Number of analysis threads must be positive.");
+
+        analysisThreads = threads;
+        return this;
+    }
+
+    @Override
+    public StreamBuilder collectingMetrics(final SagaMetrics metrics) {
+        checkNotNull(metrics, "Metrics registry must not be null.");
+
+        modules.add(new MetricsModule(metrics));
+        interceptors.add(new MetricsInterceptor(metrics));
+        return this;
+    }
+
     private void buildTypeScanner() {
         if (scanner == null) {
             scanner = new ReflectionsTypeScanner();
@@ -249,18 +402,85 @@ public final class EventStreamBuilder implements StreamBuilder {
 
     private void buildModuleCoordinatorFactory() {
         if (moduleCoordinatorFactory == null) {
-            moduleCoordinatorFactory = DefaultModuleCoordinator::new;
+            moduleCoordinatorFactory = new DefaultModuleCoordinatorFactory();
+        }
+    }
+
+    /**
+     * Creates the saga analyzer and runs the analysis, using the parallel analysis pool if configured.
+     * The results are cached by the analyzer, the pool is no longer needed afterwards.
+     */
+    private void analyzeSagas(final SagaInstanceCreator instanceCreator) {
+        ExecutorService analysisExecutor = createAnalysisExecutor();
+
+        try {
+            buildSagaAnalyzer(instanceCreator, analysisExecutor);
+            sagaAnalyzer.scanHandledMessageTypes();
+        } finally {
+            if (analysisExecutor != null) {
+                analysisExecutor.shutdown();
+            }
         }
     }
 
-    private void buildSagaAnalyzer(final SagaInstanceCreator instanceCreator) {
+    private void buildSagaAnalyzer(final SagaInstanceCreator instanceCreator, @Nullable final ExecutorService analysisExecutor) {
         if (sagaAnalyzer == null) {
-            AnnotationSagaAnalyzer annotationSagaAnalyzer = new AnnotationSagaAnalyzer(scanner);
-            startSagaAnnotations.forEach(annotationSagaAnalyzer::addStartSagaAnnotation);
-            handlerAnnotations.forEach(annotationSagaAnalyzer::addHandlerAnnotation);
+            if (analysisSnapshot != null) {
+                // the live analyzer including the class path scan is only created if the snapshot can not be used,
+                // an explicitly configured scanner is used to detect saga types missing in the snapshot
+                sagaAnalyzer = new SnapshotSagaAnalyzer(
+                        analysisSnapshot, getClass().getClassLoader(), () -> createLiveAnalyzer(instanceCreator, analysisExecutor), scanner);
+            } else {
+                sagaAnalyzer = createLiveAnalyzer(instanceCreator, analysisExecutor);
+            }
+        }
+    }
+
+    private SagaAnalyzer createLiveAnalyzer(final SagaInstanceCreator instanceCreator, @Nullable final ExecutorService analysisExecutor) {
+        buildTypeScanner();
+
+        AnnotationSagaAnalyzer annotationSagaAnalyzer = new AnnotationSagaAnalyzer(scanner);
+        startSagaAnnotations.forEach(annotationSagaAnalyzer::addStartSagaAnnotation);
+        handlerAnnotations.forEach(annotationSagaAnalyzer::addHandlerAnnotation);
+        annotationSagaAnalyzer.setAnalysisExecutor(analysisExecutor);
+
+        HandlerDescriptionAnalyzer handlerDescriptionAnalyzer = new HandlerDescriptionAnalyzer(scanner, instanceCreator);
+        handlerDescriptionAnalyzer.setAnalysisExecutor(analysisExecutor);
+        return new CombinedSagaAnalyzer(annotationSagaAnalyzer, handlerDescriptionAnalyzer);
+    }
+
+    @Nullable
+    private ExecutorService createAnalysisExecutor() {
+        ExecutorService analysisExecutor = null;
+
+        if (analysisThreads > 0) {
+            // saga types and resources are resolved using the class loader of the caller, not the one of the pool threads
+            ClassLoader callerClassLoader = Thread.currentThread().getContextClassLoader();
+            analysisExecutor = Executors.newFixedThreadPool(
+                    analysisThreads,
+                    r -> {
+                        Thread thread = new Thread(r, "saga-lib-analysis");
+                        thread.setDaemon(true);
+                        thread.setContextClassLoader(callerClassLoader);
+                        return thread;
+                    }
+            );
+        }
 
-            HandlerDescriptionAnalyzer handlerDescriptionAnalyzer = new HandlerDescriptionAnalyzer(scanner, instanceCreator);
-            sagaAnalyzer = new CombinedSagaAnalyzer(annotationSagaAnalyzer, handlerDescriptionAnalyzer);
+        return analysisExecutor;
+    }
+
+    private void warmUpCaches(
+            final SagaInstanceCreator instanceCreator,
+            final TypesForMessageMapper messageMapper,
+            final SagaKeyReaderExtractor extractor) {
+        Map<Class<? extends Saga>, SagaHandlersMap> handlersMap = sagaAnalyzer.scanHandledMessageTypes();
+
+        instanceCreator.warmUp(handlersMap.keySet());
+        messageMapper.warmUp();
+        extractor.warmUp(handlersMap);
+        if (invoker instanceof ReflectionInvoker) {
+            ((ReflectionInvoker) invoker).warmUp();
         }
     }
 
@@ -272,7 +492,9 @@ public final class EventStreamBuilder implements StreamBuilder {
 
     private void buildTimeoutManager() {
         if (timeoutManager == null) {
-            timeoutManager = new InMemoryTimeoutManager();
+            InMemoryTimeoutManager defaultManager = new InMemoryTimeoutManager();
+            defaultManager.setIdGenerator(executionOptions.idGenerator());
+            timeoutManager = defaultManager;
         }
     }
 
@@ -283,7 +505,16 @@ public final class EventStreamBuilder implements StreamBuilder {
     }
 
     private void buildExecutor() {
-        if (executor == null) {
+        if (executor == null && mailboxExecution) {
+            executor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(),
+                    r -> {
+                        Thread thread = new Thread(r, "saga-lib-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+            );
+        } else if (executor == null) {
             executor = Executors.newSingleThreadExecutor(
                     r -> {
                         Thread thread = new Thread(r, "saga-lib");
@@ -22,13 +22,15 @@ import com.codebullets.sagalib.processing.SagaInstanceCreator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.lang.reflect.Modifier;
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
 
 /**
  * Analyzes saga types based on the fact whether they implement the
@@ -40,6 +42,9 @@ public class HandlerDescriptionAnalyzer implements SagaAnalyzer {
     private final TypeScanner typeScanner;
     private final SagaInstanceCreator instanceCreator;
 
+    @Nullable
+    private ExecutorService analysisExecutor;
+
     /**
      * Creates a new HandlerDescriptionAnalyzer instance.
      */
@@ -49,38 +54,53 @@ public class HandlerDescriptionAnalyzer implements SagaAnalyzer {
         this.instanceCreator = instanceCreator;
     }
 
+    /**
+     * Optional: Creates the sagas and reads their descriptions in parallel using the provided executor.
+     * The saga providers need to be thread safe in this case. By default all types are analyzed
+     * sequentially on the thread scanning for handlers.
+     */
+    public void setAnalysisExecutor(@Nullable final ExecutorService executor) {
+        analysisExecutor = executor;
+    }
+
     @Override
     public Map<Class<? extends Saga>, SagaHandlersMap> scanHandledMessageTypes() {
-
-        Collection<Class<? extends Saga>> sagaClasses = typeScanner.scanForSagas();
-        Stream<DescribesHandlers> directDescriptionSagas = sagaClasses.stream()
+        List<Class<? extends Saga>> directDescriptionTypes = typeScanner.scanForSagas().stream()
                 .filter(DescribesHandlers.class::isAssignableFrom)
                 .filter(c -> !Modifier.isAbstract(c.getModifiers()))
-                .flatMap(this::createDirectDescriptionInstance);
-
-        return createHandlersMap(directDescriptionSagas);
-    }
+                .collect(Collectors.toList());
 
-    private Map<Class<? extends Saga>, SagaHandlersMap> createHandlersMap(final Stream<DescribesHandlers> directDescriptionSagas) {
         Map<Class<? extends Saga>, SagaHandlersMap> handlersMap = new HashMap<>();
+        for (SagaHandlersMap handlers : SagaTypeTasks.run(directDescriptionTypes, this::describeHandlers, analysisExecutor)) {
+            if (handlers != null) {
+                handlersMap.put(handlers.getSagaType(), handlers);
+            }
+        }
 
-        directDescriptionSagas.forEach(saga -> {
-            Class<? extends Saga> sagaType = (Class<? extends Saga>) saga.getClass();
-            HandlerDescription handlerDescription = saga.describeHandlers();
-            SagaHandlersMap handlers = new SagaHandlersMap(sagaType);
-            final Class<?> startedBy = handlerDescription.startedBy();
+        return handlersMap;
+    }
 
-            handlerDescription.handlerTypes().forEach(handlerType -> {
-                handlers.add(MessageHandler.selfDescribedHandler(handlerType, handlerType.equals(startedBy)));
-            });
+    @Nullable
+    private SagaHandlersMap describeHandlers(final Class<? extends Saga> sagaType) {
+        DescribesHandlers saga = createDirectDescriptionInstance(sagaType);
+        return saga != null ? describeHandlers(saga) : null;
+    }
+
+    private SagaHandlersMap describeHandlers(final DescribesHandlers saga) {
+        Class<? extends Saga> sagaType = (Class<? extends Saga>) saga.getClass();
+        HandlerDescription handlerDescription = saga.describeHandlers();
+        SagaHandlersMap handlers = new SagaHandlersMap(sagaType);
+        final Class<?> startedBy = handlerDescription.startedBy();
 
-            handlersMap.put(sagaType, handlers);
+        handlerDescription.handlerTypes().forEach(handlerType -> {
+            handlers.add(MessageHandler.selfDescribedHandler(handlerType, handlerType.equals(startedBy)));
         });
 
-        return handlersMap;
+        return handlers;
     }
 
-    private Stream<DescribesHandlers> createDirectDescriptionInstance(final Class<? extends Saga> clazz) {
+    @Nullable
+    private DescribesHandlers createDirectDescriptionInstance(final Class<? extends Saga> clazz) {
         DescribesHandlers newInstance = null;
         try {
             newInstance = (DescribesHandlers) instanceCreator.createNew(clazz);
@@ -90,6 +110,6 @@ public class HandlerDescriptionAnalyzer implements SagaAnalyzer {
             LOG.error("Error creating saga instance of type {} to read description.", clazz, e);
         }
 
-        return newInstance != null ? Stream.of(newInstance) : Stream.empty();
+        return newInstance;
     }
 }
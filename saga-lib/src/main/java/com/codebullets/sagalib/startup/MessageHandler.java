@@ -26,6 +26,7 @@ import java.util.Optional;
  */
 public class MessageHandler {
     private final boolean startsSaga;
+    private final boolean batch;
     private final Class<?> messageType;
 
     @Nullable
@@ -35,7 +36,12 @@ public class MessageHandler {
      * Generates a new instance of MessageHandler.
      */
     MessageHandler(final Class<?> messageType, @Nullable final Method methodToInvoke, final boolean startsSaga) {
+        this(messageType, methodToInvoke, startsSaga, false);
+    }
+
+    private MessageHandler(final Class<?> messageType, @Nullable final Method methodToInvoke, final boolean startsSaga, final boolean batch) {
         this.startsSaga = startsSaga;
+        this.batch = batch;
         this.methodToInvoke = methodToInvoke;
         this.messageType = messageType;
     }
@@ -48,6 +54,14 @@ public class MessageHandler {
         return startsSaga;
     }
 
+    /**
+     * Gets a value indicating whether the handler method takes a list of messages
+     * of the handled type instead of a single message.
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
     /**
      * Gets the type of message that is handled.
      */
@@ -71,6 +85,13 @@ public class MessageHandler {
         return new MessageHandler(messageType, methodToInvoke, startsSaga);
     }
 
+    /**
+     * Creates a new handler continuing a saga, whose method takes a list of messages.
+     */
+    public static MessageHandler batchHandler(final Class<?> messageType, final Method methodToInvoke) {
+        return new MessageHandler(messageType, methodToInvoke, false, true);
+    }
+
     /**
      * Creates a new handler definition of the message, indicating that the parent saga
      * provides its own handler through via a direct description.
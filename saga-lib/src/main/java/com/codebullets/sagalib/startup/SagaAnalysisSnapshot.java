@@ -0,0 +1,336 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.startup;
+
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.describe.DescribesHandlers;
+import com.codebullets.sagalib.processing.SagaInstanceCreator;
+import com.codebullets.sagalib.processing.SagaProviderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.inject.Provider;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the result of the saga analysis as a versioned, line based text file.
+ *
+ * <p>Loading the snapshot only needs to look up the listed classes and handler methods,
+ * no classpath scan, annotation lookup or creation of {@link com.codebullets.sagalib.describe.DescribesHandlers}
+ * sagas is performed. The file is created at build time using {@link #main(String[])}, e.g. by the exec
+ * maven plugin, and put on the classpath at {@link #DEFAULT_RESOURCE}.</p>
+ *
+ * <p>Every saga is written together with a fingerprint of the signatures of its annotated public
+ * methods. If the fingerprint of any saga no longer matches its class, e.g. because a handler has
+ * been added, the snapshot is outdated and ignored. Saga types added since the snapshot has been
+ * written are only detected if the expected saga types are provided while reading.</p>
+ *
+ * <p>Format:</p>
+ * <pre>
+ * version 2
+ * saga com.example.OrderSaga 8f3a09c2
+ * start com.example.OrderPlaced orderPlaced com.example.OrderPlaced
+ * handle com.example.OrderShipped orderShipped com.example.OrderShipped
+ * batch com.example.OrderPaid ordersPaid java.util.List
+ * described com.example.OrderCancelled
+ * described-start com.example.OrderCreated
+ * </pre>
+ */
+public final class SagaAnalysisSnapshot {
+    /**
+     * Version of the file format written by this class. Snapshots with a different version are ignored.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Default classpath location of the snapshot file.
+     */
+    public static final String DEFAULT_RESOURCE = "META-INF/saga-lib/saga-analysis.snapshot";
+
+    private static final Logger LOG = LoggerFactory.getLogger(SagaAnalysisSnapshot.class);
+
+    private static final String VERSION_ENTRY = "version";
+    private static final String SAGA_ENTRY = "saga";
+    private static final String START_ENTRY = "start";
+    private static final String HANDLE_ENTRY = "handle";
+    private static final String BATCH_ENTRY = "batch";
+    private static final String DESCRIBED_ENTRY = "described";
+    private static final String DESCRIBED_START_ENTRY = "described-start";
+
+    private static final int METHOD_ENTRY_LENGTH = 4;
+    private static final int SAGA_ENTRY_LENGTH = 3;
+    private static final int DESCRIBED_ENTRY_LENGTH = 2;
+    private static final int PARAMETER_INDEX = 3;
+
+    private SagaAnalysisSnapshot() {
+    }
+
+    /**
+     * Writes the analysis result into the provided writer. Sagas and handlers are written sorted
+     * by name to create identical files for identical results.
+     *
+     * @throws IOException Thrown if the snapshot could not be written.
+     */
+    public static void write(final Map<Class<? extends Saga>, SagaHandlersMap> analysis, final Writer writer) throws IOException {
+        writer.write(VERSION_ENTRY + " " + VERSION + "\n");
+
+        List<Class<? extends Saga>> sagaTypes = new ArrayList<>(analysis.keySet());
+        sagaTypes.sort(Comparator.comparing(Class::getName));
+
+        for (Class<? extends Saga> sagaType : sagaTypes) {
+            writer.write(SAGA_ENTRY + " " + sagaType.getName() + " " + fingerprint(sagaType) + "\n");
+
+            List<String> handlerEntries = new ArrayList<>();
+            analysis.get(sagaType).messageHandlers().forEach(handler -> handlerEntries.add(handlerEntry(handler)));
+            handlerEntries.sort(Comparator.naturalOrder());
+
+            for (String entry : handlerEntries) {
+                writer.write(entry + "\n");
+            }
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Reads a previously written analysis result. Returns empty if the snapshot has been written using a
+     * different format version, or if it does not match the classes found using the provided class loader.
+     *
+     * @throws IOException Thrown if the snapshot could not be read or is malformed.
+     */
+    public static Optional<Map<Class<? extends Saga>, SagaHandlersMap>> read(final Reader reader, final ClassLoader classLoader) throws IOException {
+        return read(reader, classLoader, null);
+    }
+
+    /**
+     * Reads a previously written analysis result. Returns empty if the snapshot has been written using a
+     * different format version, if it does not match the classes found using the provided class loader or
+     * if it does not contain all expected saga types.
+     *
+     * @param expectedSagaTypes The saga types to be part of the snapshot, {@code null} if not known.
+     * @throws IOException Thrown if the snapshot could not be read or is malformed.
+     */
+    public static Optional<Map<Class<? extends Saga>, SagaHandlersMap>> read(
+            final Reader reader,
+            final ClassLoader classLoader,
+            @Nullable final Collection<Class<? extends Saga>> expectedSagaTypes) throws IOException {
+        Map<Class<? extends Saga>, SagaHandlersMap> analysis = null;
+
+        BufferedReader lineReader = new BufferedReader(reader);
+        String versionLine = lineReader.readLine();
+        String expectedVersionLine = VERSION_ENTRY + " " + VERSION;
+
+        if (expectedVersionLine.equals(versionLine)) {
+            try {
+                analysis = readEntries(lineReader, classLoader);
+                if (analysis != null && expectedSagaTypes != null && !analysis.keySet().containsAll(expectedSagaTypes)) {
+                    LOG.info("Saga analysis snapshot is outdated, not all saga types are part of it.");
+                    analysis = null;
+                }
+            } catch (ClassNotFoundException | NoSuchMethodException | ClassCastException ex) {
+                LOG.info("Saga analysis snapshot does not match the available classes: {}", ex.toString());
+            }
+        } else {
+            LOG.info("Saga analysis snapshot has been written with unsupported version. [found = '{}', expected = '{}']",
+                    versionLine, expectedVersionLine);
+        }
+
+        return Optional.ofNullable(analysis);
+    }
+
+    /**
+     * Analyzes the sagas and writes the snapshot to a file. The first argument is the path of the output file.
+     * The remaining arguments are the class names of the sagas to analyze. If no saga is listed the whole
+     * class path is scanned. Sagas implementing {@link com.codebullets.sagalib.describe.DescribesHandlers} are
+     * created using their public no argument constructor. Only the default handler annotations are considered,
+     * use {@link #write(Map, Writer)} with a configured analyzer if custom annotations are in use.
+     *
+     * @throws IOException Thrown if the snapshot file could not be written.
+     * @throws ClassNotFoundException Thrown if one of the listed saga classes does not exist.
+     */
+    public static void main(final String[] args) throws IOException, ClassNotFoundException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Expected path of the snapshot file as first argument.");
+        }
+
+        TypeScanner scanner;
+        if (args.length > 1) {
+            Collection<Class<? extends Saga>> sagaTypes = new ArrayList<>();
+            for (int i = 1; i < args.length; ++i) {
+                sagaTypes.add(Class.forName(args[i]).asSubclass(Saga.class));
+            }
+
+            scanner = () -> sagaTypes;
+        } else {
+            scanner = new ReflectionsTypeScanner();
+        }
+
+        // sagas are only created to read their handler description, no timeouts are requested
+        SagaInstanceCreator instanceCreator = new SagaInstanceCreator(noArgConstructorProviders(), null);
+        SagaAnalyzer analyzer = new CombinedSagaAnalyzer(new AnnotationSagaAnalyzer(scanner), new HandlerDescriptionAnalyzer(scanner, instanceCreator));
+
+        Path output = Paths.get(args[0]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            write(analyzer.scanHandledMessageTypes(), writer);
+        }
+    }
+
+    /**
+     * Creates a hash of the annotated public methods of the saga taking a single parameter,
+     * which covers all handler methods independent of the annotations in use.
+     */
+    static String fingerprint(final Class<? extends Saga> sagaType) {
+        List<String> signatures = new ArrayList<>();
+        if (DescribesHandlers.class.isAssignableFrom(sagaType)) {
+            signatures.add(DescribesHandlers.class.getName());
+        }
+
+        for (Method method : sagaType.getMethods()) {
+            Annotation[] annotations = method.getAnnotations();
+            if (method.getParameterCount() == 1 && annotations.length > 0) {
+                StringBuilder signature = new StringBuilder();
+                Arrays.stream(annotations).map(a -> a.annotationType().getName()).sorted().forEach(name -> signature.append('@').append(name).append(' '));
+                signature.append(method.getName()).append('(').append(method.getParameterTypes()[0].getName()).append(')');
+                signatures.add(signature.toString());
+            }
+        }
+
+        signatures.sort(Comparator.naturalOrder());
+
+        CRC32 checksum = new CRC32();
+        checksum.update(String.join("\n", signatures).getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(checksum.getValue());
+    }
+
+    private static String handlerEntry(final MessageHandler handler) {
+        String messageType = handler.getMessageType().getName();
+        String entry;
+
+        Optional<Method> method = handler.getMethodToInvoke();
+        if (method.isPresent()) {
+            String kind = handler.getStartsSaga() ? START_ENTRY : HANDLE_ENTRY;
+            if (handler.isBatch()) {
+                kind = BATCH_ENTRY;
+            }
+
+            entry = kind + " " + messageType + " " + method.get().getName() + " " + method.get().getParameterTypes()[0].getName();
+        } else {
+            String kind = handler.getStartsSaga() ? DESCRIBED_START_ENTRY : DESCRIBED_ENTRY;
+            entry = kind + " " + messageType;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Reads the sagas and their handlers. Returns {@code null} if the fingerprint of a saga does not match.
+     */
+    @Nullable
+    private static Map<Class<? extends Saga>, SagaHandlersMap> readEntries(final BufferedReader lineReader, final ClassLoader classLoader)
+            throws IOException, ClassNotFoundException, NoSuchMethodException {
+        Map<Class<? extends Saga>, SagaHandlersMap> analysis = new HashMap<>();
+        SagaHandlersMap currentSaga = null;
+
+        String line = lineReader.readLine();
+        while (line != null && analysis != null) {
+            String[] entry = line.split(" ");
+
+            if (SAGA_ENTRY.equals(entry[0]) && entry.length == SAGA_ENTRY_LENGTH) {
+                Class<? extends Saga> sagaType = Class.forName(entry[1], false, classLoader).asSubclass(Saga.class);
+                if (fingerprint(sagaType).equals(entry[2])) {
+                    currentSaga = new SagaHandlersMap(sagaType);
+                    analysis.put(sagaType, currentSaga);
+                } else {
+                    LOG.info("Saga analysis snapshot is outdated, handlers of {} have changed.", sagaType.getName());
+                    analysis = null;
+                }
+            } else if (currentSaga != null) {
+                currentSaga.add(readHandler(entry, currentSaga.getSagaType(), classLoader));
+            } else if (!line.isEmpty()) {
+                throw new IOException("Malformed saga analysis snapshot entry: " + line);
+            }
+
+            line = lineReader.readLine();
+        }
+
+        return analysis;
+    }
+
+    private static MessageHandler readHandler(final String[] entry, final Class<? extends Saga> sagaType, final ClassLoader classLoader)
+            throws IOException, ClassNotFoundException, NoSuchMethodException {
+        MessageHandler handler;
+        String kind = entry[0];
+
+        if (entry.length == METHOD_ENTRY_LENGTH && (START_ENTRY.equals(kind) || HANDLE_ENTRY.equals(kind) || BATCH_ENTRY.equals(kind))) {
+            Class<?> messageType = Class.forName(entry[1], false, classLoader);
+            Method method = sagaType.getMethod(entry[2], Class.forName(entry[PARAMETER_INDEX], false, classLoader));
+
+            if (BATCH_ENTRY.equals(kind)) {
+                handler = MessageHandler.batchHandler(messageType, method);
+            } else {
+                handler = MessageHandler.reflectionInvokedHandler(messageType, method, START_ENTRY.equals(kind));
+            }
+        } else if (entry.length == DESCRIBED_ENTRY_LENGTH && (DESCRIBED_ENTRY.equals(kind) || DESCRIBED_START_ENTRY.equals(kind))) {
+            Class<?> messageType = Class.forName(entry[1], false, classLoader);
+            handler = MessageHandler.selfDescribedHandler(messageType, DESCRIBED_START_ENTRY.equals(kind));
+        } else {
+            throw new IOException("Malformed saga analysis snapshot entry: " + String.join(" ", entry));
+        }
+
+        return handler;
+    }
+
+    private static SagaProviderFactory noArgConstructorProviders() {
+        return new SagaProviderFactory() {
+            @Override
+            public <T extends Saga> Provider<T> createProvider(final Class<T> sagaClass) {
+                return () -> newInstance(sagaClass);
+            }
+        };
+    }
+
+    private static <T extends Saga> T newInstance(final Class<T> sagaClass) {
+        try {
+            return sagaClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Saga " + sagaClass.getName() + " can not be created using its no argument constructor.", ex);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.startup;
+
+import com.codebullets.sagalib.Saga;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs an analysis task for every saga type. Without executor the types are
+ * analyzed sequentially on the calling thread.
+ */
+final class SagaTypeTasks {
+    private SagaTypeTasks() {
+    }
+
+    /**
+     * Executes the task for all types and returns the results in the order of the types.
+     */
+    static <T> List<T> run(
+            final Collection<Class<? extends Saga>> sagaTypes,
+            final Function<Class<? extends Saga>, T> task,
+            @Nullable final ExecutorService executor) {
+        List<T> results = new ArrayList<>(sagaTypes.size());
+
+        if (executor == null) {
+            sagaTypes.forEach(sagaType -> results.add(task.apply(sagaType)));
+        } else {
+            List<Callable<T>> calls = new ArrayList<>(sagaTypes.size());
+            sagaTypes.forEach(sagaType -> calls.add(() -> task.apply(sagaType)));
+
+            for (Future<T> result : invokeAll(executor, calls)) {
+                results.add(getResult(result));
+            }
+        }
+
+        return results;
+    }
+
+    private static <T> List<Future<T>> invokeAll(final ExecutorService executor, final List<Callable<T>> calls) {
+        try {
+            return executor.invokeAll(calls);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while analyzing saga types.", ex);
+        }
+    }
+
+    private static <T> T getResult(final Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while analyzing saga types.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IllegalStateException("Error analyzing saga type.", ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.startup;
+
+import com.codebullets.sagalib.Saga;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Loads the saga analysis from a snapshot on the classpath written by {@link SagaAnalysisSnapshot}.
+ * If the snapshot is missing or does not match the available classes the live analyzer is
+ * created and used instead.
+ *
+ * <p>Saga types added after the snapshot has been written are only detected if a scanner listing
+ * the expected saga types is provided. Without it the snapshot needs to be written as part of every build.</p>
+ */
+public class SnapshotSagaAnalyzer implements SagaAnalyzer {
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotSagaAnalyzer.class);
+
+    private final String resourceName;
+    private final ClassLoader classLoader;
+    private final Supplier<SagaAnalyzer> fallback;
+    private final TypeScanner expectedSagas;
+
+    private Map<Class<? extends Saga>, SagaHandlersMap> scanResult;
+
+    /**
+     * Creates a new instance of SnapshotSagaAnalyzer.
+     *
+     * @param resourceName The classpath location of the snapshot.
+     * @param classLoader The class loader used to find the snapshot as well as the listed classes.
+     * @param fallback Creates the analyzer used if the snapshot can not be used. Only called if needed.
+     */
+    public SnapshotSagaAnalyzer(final String resourceName, final ClassLoader classLoader, final Supplier<SagaAnalyzer> fallback) {
+        this(resourceName, classLoader, fallback, null);
+    }
+
+    /**
+     * Creates a new instance of SnapshotSagaAnalyzer.
+     *
+     * @param resourceName The classpath location of the snapshot.
+     * @param classLoader The class loader used to find the snapshot as well as the listed classes.
+     * @param fallback Creates the analyzer used if the snapshot can not be used. Only called if needed.
+     * @param expectedSagas Lists the saga types the snapshot has to contain, {@code null} if not known.
+     */
+    public SnapshotSagaAnalyzer(
+            final String resourceName,
+            final ClassLoader classLoader,
+            final Supplier<SagaAnalyzer> fallback,
+            @Nullable final TypeScanner expectedSagas) {
+        this.resourceName = resourceName;
+        this.classLoader = classLoader;
+        this.fallback = fallback;
+        this.expectedSagas = expectedSagas;
+    }
+
+    @Override
+    public Map<Class<? extends Saga>, SagaHandlersMap> scanHandledMessageTypes() {
+        if (scanResult == null) {
+            scanResult = loadSnapshot().orElseGet(() -> fallback.get().scanHandledMessageTypes());
+        }
+
+        return scanResult;
+    }
+
+    private Optional<Map<Class<? extends Saga>, SagaHandlersMap>> loadSnapshot() {
+        Optional<Map<Class<? extends Saga>, SagaHandlersMap>> snapshot = Optional.empty();
+
+        InputStream resource = classLoader.getResourceAsStream(resourceName);
+        if (resource != null) {
+            try (Reader reader = new InputStreamReader(resource, StandardCharsets.UTF_8)) {
+                Collection<Class<? extends Saga>> expectedTypes = expectedSagas != null ? expectedSagas.scanForSagas() : null;
+                snapshot = SagaAnalysisSnapshot.read(reader, classLoader, expectedTypes);
+            } catch (IOException ex) {
+                LOG.warn("Error reading saga analysis snapshot {}.", resourceName, ex);
+            }
+        } else {
+            LOG.info("No saga analysis snapshot found at {}, analyzing saga types.", resourceName);
+        }
+
+        return snapshot;
+    }
+}
@@ -16,17 +16,26 @@
 package com.codebullets.sagalib.startup;
 
 import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.SagaLifetimeInterceptor;
 import com.codebullets.sagalib.SagaModule;
+import com.codebullets.sagalib.SagaState;
 import com.codebullets.sagalib.context.CurrentExecutionContext;
+import com.codebullets.sagalib.metrics.SagaMetrics;
+import com.codebullets.sagalib.processing.ExecutionOptions;
+import com.codebullets.sagalib.processing.SagaIdGenerator;
 import com.codebullets.sagalib.processing.SagaProviderFactory;
+import com.codebullets.sagalib.processing.StagedExecutionOptions;
 import com.codebullets.sagalib.processing.invocation.ModuleCoordinatorFactory;
+import com.codebullets.sagalib.storage.AsyncStateStorage;
 import com.codebullets.sagalib.storage.StateStorage;
 import com.codebullets.sagalib.timeout.TimeoutManager;
 
 import javax.inject.Provider;
 import java.lang.annotation.Annotation;
+import java.util.Collection;
 import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
 
 /**
  * Configures and builds a new saga event stream.
@@ -51,6 +60,25 @@ public interface StreamBuilder extends AutoCloseable {
      */
     StreamBuilder usingStorage(StateStorage storage);
 
+    /**
+     * Optional: Sets a non blocking storage used to save and retrieve the saga state instances.
+     * Writes are not waited for, so sagas of the next message are resolved while the states
+     * of the previous one are still being written. Replaces a storage set by {@link #usingStorage(StateStorage)}.
+     * @param storage The storage engine to use.
+     * @see com.codebullets.sagalib.storage.PipelinedStateStorage
+     */
+    StreamBuilder usingAsyncStorage(AsyncStateStorage storage);
+
+    /**
+     * Optional: Sets a non blocking storage used to save and retrieve the saga state instances,
+     * writing copies of the saved states. The next message can change the state while its copy
+     * is still being written. Replaces a storage set by {@link #usingStorage(StateStorage)}.
+     * @param storage The storage engine to use.
+     * @param copier Creates a deep copy of a saved state.
+     * @see com.codebullets.sagalib.storage.PipelinedStateStorage
+     */
+    StreamBuilder usingAsyncStorage(AsyncStateStorage storage, UnaryOperator<SagaState> copier);
+
     /**
      * Optional: Sets the manager responsible to collect and trigger timeouts. If
      * not set timeouts will be persisted in memory and triggered by JVM timers.
@@ -110,7 +138,10 @@ public interface StreamBuilder extends AutoCloseable {
     /**
      * Adds a lifetime interceptor that will be called every time an individual saga is started and finished.
      *
-     * <p>It is possible to add multiple interceptors.</p>
+     * <p>It is possible to add multiple interceptors. Interceptors inheriting from
+     * {@link com.codebullets.sagalib.AbstractLifetimeInterceptor} or implementing
+     * {@link com.codebullets.sagalib.SelectiveLifetimeInterceptor} are only called for the
+     * hooks and saga types they are interested in.</p>
      */
     StreamBuilder callingInterceptor(SagaLifetimeInterceptor interceptor);
 
@@ -136,4 +167,97 @@ public interface StreamBuilder extends AutoCloseable {
      * saga modules. Be very cautious when overwriting the default behavior with this.</p>
      */
     StreamBuilder usingModuleCoordinator(final ModuleCoordinatorFactory coordinatorFactory);
+
+    /**
+     * Optional: Sets the options controlling message execution, like the reuse of
+     * execution contexts. If not set all options are disabled.
+     */
+    StreamBuilder usingExecutionOptions(ExecutionOptions options);
+
+    /**
+     * <p>Optional: Handles messages using a mailbox per saga instance instead of executing
+     * every message as a whole. Sagas are handled in parallel on the configured executor,
+     * while messages of a single saga are handled one after the other. Hydrated saga
+     * instances are kept in memory between messages.</p>
+     *
+     * <p>If no custom executor is provided a pool with one thread per available processor is
+     * used. See {@link com.codebullets.sagalib.processing.MailboxMessageStream} for the differences
+     * compared to the default message stream.</p>
+     *
+     * @param maxCachedSagas The number of idle saga instances kept in memory.
+     */
+    StreamBuilder usingMailboxExecution(int maxCachedSagas);
+
+    /**
+     * <p>Optional: Handles messages in separate stages for loading saga states, invoking
+     * the handlers and persisting the states, each stage running on its own thread pool.
+     * The executor configured using {@link #usingExecutor(Executor)} is not used.</p>
+     *
+     * <p>See {@link com.codebullets.sagalib.processing.StagedMessageStream} for the ordering
+     * guarantees compared to the default message stream.</p>
+     */
+    StreamBuilder usingStagedExecution(StagedExecutionOptions options);
+
+    /**
+     * <p>Optional: Reuses instances of the provided saga types instead of creating a new
+     * instance for every message. The types need to implement {@link com.codebullets.sagalib.Recyclable},
+     * e.g. by extending {@link com.codebullets.sagalib.AbstractSaga}.</p>
+     *
+     * <p>Instances are not pooled if handled using {@link #usingMailboxExecution(int)}, as the mailbox
+     * keeps saga instances in memory on its own.</p>
+     *
+     * @param maxPerType The maximum number of idle instances kept per type and thread.
+     * @param sagaTypes The saga types to pool.
+     */
+    StreamBuilder usingSagaPooling(int maxPerType, Collection<Class<? extends Saga>> sagaTypes);
+
+    /**
+     * Optional: Sets the generator of the ids of new sagas and timeouts. Timeout ids are only
+     * generated using this instance if the default timeout manager is used.
+     * If not set {@link com.codebullets.sagalib.processing.SagaIdGenerators#secureRandom()} is used.
+     */
+    StreamBuilder usingIdGenerator(SagaIdGenerator generator);
+
+    /**
+     * <p>Optional: Loads the saga handler analysis from the snapshot at
+     * {@link SagaAnalysisSnapshot#DEFAULT_RESOURCE} instead of scanning the saga types on startup.
+     * The snapshot is created at build time using {@link SagaAnalysisSnapshot#main(String[])}.</p>
+     *
+     * <p>If the snapshot is missing or does not match the available classes the sagas are
+     * analyzed as usual. This includes sagas whose handler methods changed after the snapshot
+     * has been written. New saga types are only detected if a scanner has been provided using
+     * {@link #usingScanner(TypeScanner)}, otherwise the snapshot has to be written as part of every build.</p>
+     */
+    StreamBuilder usingAnalysisSnapshot();
+
+    /**
+     * Optional: Loads the saga handler analysis from the snapshot at the provided classpath location.
+     * See {@link #usingAnalysisSnapshot()}.
+     */
+    StreamBuilder usingAnalysisSnapshot(String resourceName);
+
+    /**
+     * Optional: Populates the internal caches of handler methods, saga types per message, key readers
+     * and saga providers for all known sagas and handled message types as part of {@link #build()}.
+     * This moves the cost of the first messages handled by every saga from live traffic to startup.
+     */
+    StreamBuilder warmUp();
+
+    /**
+     * <p>Optional: Analyzes the saga types in parallel during {@link #build()}, using a dedicated pool
+     * with the provided number of threads. The threads use the context class loader of the thread
+     * calling {@code build()} and are stopped once the analysis has finished.</p>
+     *
+     * <p>Sagas implementing {@link com.codebullets.sagalib.describe.DescribesHandlers} are created
+     * concurrently to read their descriptions, the saga provider factory and the saga constructors
+     * need to be thread safe. By default saga types are analyzed sequentially.</p>
+     */
+    StreamBuilder usingParallelAnalysis(int threads);
+
+    /**
+     * Optional: Records message and saga metrics into the provided registry. This adds
+     * a {@link com.codebullets.sagalib.metrics.MetricsModule} and a
+     * {@link com.codebullets.sagalib.metrics.MetricsInterceptor} to the stream.
+     */
+    StreamBuilder collectingMetrics(SagaMetrics metrics);
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.storage;
+
+import com.codebullets.sagalib.SagaState;
+
+import java.util.Collection;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non blocking variant of the {@link StateStorage}. Every operation returns as soon as the
+ * request has been issued, the returned stage completes once the operation has finished.
+ *
+ * <p>Use {@link PipelinedStateStorage} to run sagas on top of an async storage and
+ * {@link BlockingStorageAdapter} to turn an existing {@link StateStorage} into an
+ * async one.</p>
+ */
+public interface AsyncStateStorage {
+    /**
+     * Save the state so that in can be retrieved later on by the {@link #load(String)} method.
+     * The state might be changed by the next message as soon as this method returns. Unless the
+     * {@link PipelinedStateStorage} has been created using a copier, the state needs to be read
+     * before returning.
+     * @param state The saga state to save.
+     */
+    CompletionStage<Void> save(SagaState state);
+
+    /**
+     * Load a single saga state based on unique saga id. The stage completes
+     * with null if nothing has been found.
+     */
+    CompletionStage<SagaState> load(String sagaId);
+
+    /**
+     * Delete the state of a saga. If no entry exists nothing happens.
+     */
+    CompletionStage<Void> delete(String sagaId);
+
+    /**
+     * Load all saga states matching one of the provided saga type and instance key pairs.
+     */
+    CompletionStage<Collection<SagaState>> loadAll(Iterable<InstanceKeySearchParam> searchParams);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.storage;
+
+import com.codebullets.sagalib.AutoCloseables;
+import com.codebullets.sagalib.SagaState;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Offers a blocking {@link StateStorage} as {@link AsyncStateStorage}. The blocking
+ * calls are performed on the provided executor, so existing storage implementations
+ * can be used unchanged. States are read on the executor, use a {@link PipelinedStateStorage}
+ * with a copier unless the executor runs the calls right away.
+ */
+public final class BlockingStorageAdapter implements AsyncStateStorage, AutoCloseable {
+    private final StateStorage storage;
+    private final Executor executor;
+
+    /**
+     * Creates a new adapter calling the storage using the provided executor.
+     */
+    public BlockingStorageAdapter(final StateStorage storage, final Executor executor) {
+        this.storage = checkNotNull(storage, "Storage must not be null.");
+        this.executor = checkNotNull(executor, "Executor must not be null.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Void> save(final SagaState state) {
+        return CompletableFuture.runAsync(() -> storage.save(state), executor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<SagaState> load(final String sagaId) {
+        return CompletableFuture.supplyAsync(() -> storage.load(sagaId), executor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Void> delete(final String sagaId) {
+        return CompletableFuture.runAsync(() -> storage.delete(sagaId), executor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Collection<SagaState>> loadAll(final Iterable<InstanceKeySearchParam> searchParams) {
+        return CompletableFuture.supplyAsync(() -> storage.loadAll(searchParams).collect(Collectors.<SagaState>toList()), executor);
+    }
+
+    /**
+     * Closes the wrapped storage if it is closeable.
+     */
+    @Override
+    public void close() {
+        AutoCloseables.closeQuietly(storage);
+    }
+}
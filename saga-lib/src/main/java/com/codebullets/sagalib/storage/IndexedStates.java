@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.storage;
+
+import com.codebullets.sagalib.SagaState;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Helpers for the values of the instance key indexes. Nearly every key matches a single
+ * saga, which is stored inline. Only keys shared by several sagas store an array of states.
+ * States are compared by identity.
+ */
+final class IndexedStates {
+    private IndexedStates() {
+    }
+
+    /**
+     * Adds the state to the current index value.
+     *
+     * @return Returns the new index value.
+     */
+    static Object add(@Nullable final Object current, final SagaState state) {
+        Object updated;
+
+        if (current == null || current == state) {
+            updated = state;
+        } else if (current instanceof SagaState) {
+            updated = new SagaState[] {(SagaState) current, state };
+        } else {
+            SagaState[] states = (SagaState[]) current;
+            if (indexOf(states, state) < 0) {
+                SagaState[] extended = Arrays.copyOf(states, states.length + 1);
+                extended[states.length] = state;
+                updated = extended;
+            } else {
+                updated = states;
+            }
+        }
+
+        return updated;
+    }
+
+    /**
+     * Removes the state from the current index value.
+     *
+     * @return Returns the new index value or {@code null} if no state is left.
+     */
+    @Nullable
+    static Object remove(@Nullable final Object current, final SagaState state) {
+        Object updated = current;
+
+        if (current == state) {
+            updated = null;
+        } else if (current instanceof SagaState[]) {
+            SagaState[] states = (SagaState[]) current;
+            int index = indexOf(states, state);
+            if (index >= 0) {
+                updated = states.length == 2 ? states[1 - index] : without(states, index);
+            }
+        }
+
+        return updated;
+    }
+
+    /**
+     * Adds all states of the index value to the target collection.
+     */
+    static void collect(@Nullable final Object current, final Collection<SagaState> target) {
+        if (current instanceof SagaState) {
+            target.add((SagaState) current);
+        } else if (current != null) {
+            target.addAll(Arrays.asList((SagaState[]) current));
+        }
+    }
+
+    private static int indexOf(final SagaState[] states, final SagaState state) {
+        int index = -1;
+        for (int i = 0; i < states.length; ++i) {
+            if (states[i] == state) {
+                index = i;
+                break;
+            }
+        }
+
+        return index;
+    }
+
+    private static SagaState[] without(final SagaState[] states, final int index) {
+        SagaState[] reduced = new SagaState[states.length - 1];
+        System.arraycopy(states, 0, reduced, 0, index);
+        System.arraycopy(states, index + 1, reduced, index, reduced.length - index);
+        return reduced;
+    }
+}
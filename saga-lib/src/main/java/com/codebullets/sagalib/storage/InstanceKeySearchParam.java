@@ -23,6 +23,8 @@ import java.util.Objects;
  */
 public final class InstanceKeySearchParam {
     private final Object instanceKey;
+    private final long longInstanceKey;
+    private final boolean isLongKey;
     private final String sagaTypeName;
 
     /**
@@ -30,14 +32,44 @@ public final class InstanceKeySearchParam {
      */
     public InstanceKeySearchParam(final String sagaTypeName, final Object instanceKey) {
         this.instanceKey = instanceKey;
+        this.longInstanceKey = 0;
+        this.isLongKey = false;
         this.sagaTypeName = sagaTypeName;
     }
 
+    private InstanceKeySearchParam(final String sagaTypeName, final long instanceKey) {
+        this.instanceKey = null;
+        this.longInstanceKey = instanceKey;
+        this.isLongKey = true;
+        this.sagaTypeName = sagaTypeName;
+    }
+
+    /**
+     * Creates a search parameter for a primitive key, read by a {@link com.codebullets.sagalib.LongKeyReader}.
+     */
+    public static InstanceKeySearchParam forLongKey(final String sagaTypeName, final long instanceKey) {
+        return new InstanceKeySearchParam(sagaTypeName, instanceKey);
+    }
+
     /**
-     * Gets the instance to search for.
+     * Gets the instance to search for. Primitive keys are returned boxed.
      */
     public Object getInstanceKey() {
-        return instanceKey;
+        return isLongKey ? Long.valueOf(longInstanceKey) : instanceKey;
+    }
+
+    /**
+     * Gets whether the key has been created using {@link #forLongKey(String, long)}.
+     */
+    public boolean isLongKey() {
+        return isLongKey;
+    }
+
+    /**
+     * Gets the primitive key to search for, only valid if {@link #isLongKey()} is true.
+     */
+    public long getLongInstanceKey() {
+        return longInstanceKey;
     }
 
     /**
@@ -49,7 +81,7 @@ public final class InstanceKeySearchParam {
 
     @Override
     public int hashCode() {
-        return Objects.hash(instanceKey, sagaTypeName);
+        return Objects.hash(getInstanceKey(), sagaTypeName);
     }
 
     @Override
@@ -60,7 +92,7 @@ public final class InstanceKeySearchParam {
             isEqual = true;
         } else if (obj instanceof InstanceKeySearchParam) {
             InstanceKeySearchParam other = (InstanceKeySearchParam) obj;
-            isEqual = Objects.equals(this.instanceKey, other.instanceKey)
+            isEqual = Objects.equals(this.getInstanceKey(), other.getInstanceKey())
                    && Objects.equals(this.sagaTypeName, other.sagaTypeName);
         }
 
@@ -69,6 +101,6 @@ public final class InstanceKeySearchParam {
 
     @Override
     public String toString() {
-        return "[" + sagaTypeName + "/" + instanceKey + "]";
+        return "[" + sagaTypeName + "/" + getInstanceKey() + "]";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.storage;
+
+import com.codebullets.sagalib.SagaState;
+
+import java.util.Collection;
+
+/**
+ * Open addressing map of primitive {@code long} instance keys to the states of a single
+ * saga type, see {@link IndexedStates} for the stored values. The class is not thread safe.
+ */
+final class LongKeyIndex {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int INT_BITS = 32;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    // either a single SagaState, an array of states or null for free slots
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds the state to the states matching the key.
+     */
+    void add(final long key, final SagaState state) {
+        int slot = slotOf(key);
+        Object current = values[slot];
+        values[slot] = IndexedStates.add(current, state);
+
+        if (current == null) {
+            keys[slot] = key;
+            ++size;
+            if (size * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+        }
+    }
+
+    /**
+     * Removes the state from the states matching the key.
+     */
+    void remove(final long key, final SagaState state) {
+        int slot = slotOf(key);
+        Object current = values[slot];
+
+        if (current != null) {
+            Object updated = IndexedStates.remove(current, state);
+            if (updated == null) {
+                deleteSlot(slot);
+            } else {
+                values[slot] = updated;
+            }
+        }
+    }
+
+    /**
+     * Adds all states matching the key to the target collection.
+     */
+    void collect(final long key, final Collection<SagaState> target) {
+        IndexedStates.collect(values[slotOf(key)], target);
+    }
+
+    /**
+     * Gets the number of distinct keys stored.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the slot containing the key, or the free slot the key would be stored in.
+     */
+    private int slotOf(final long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Frees the slot, moving following entries of the same probe sequence back.
+     */
+    private void deleteSlot(final int slot) {
+        int mask = keys.length - 1;
+        int free = slot;
+        int next = (slot + 1) & mask;
+
+        while (values[next] != null) {
+            int home = hash(keys[next]) & mask;
+
+            // the entry can move to the free slot if that one is part of its probe sequence
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        values[free] = null;
+        --size;
+    }
+
+    private void resize(final int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(final long key) {
+        long mixed = key * HASH_MULTIPLIER;
+        return (int) (mixed ^ (mixed >>> INT_BITS));
+    }
+}
@@ -15,26 +15,41 @@
  */
 package com.codebullets.sagalib.storage;
 
+import com.codebullets.sagalib.InstanceKeyChanges;
+import com.codebullets.sagalib.LongKeySagaState;
 import com.codebullets.sagalib.SagaState;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Stores saga states in memory.
+ * Stores saga states in memory. Instance keys are indexed per saga type, keys of
+ * {@link LongKeySagaState} instances in a primitive map without boxing the keys.
+ *
+ * <p>Nearly every key matches a single saga, index entries store that state inline
+ * instead of allocating a set per key. Saving a state only updates index entries of
+ * keys added or removed since the last save. For states implementing {@link InstanceKeyChanges}
+ * the recorded changes are applied directly, without comparing all keys of the state.</p>
  */
 public class MemoryStorage implements StateStorage {
+    private static final Object[] NO_KEYS = new Object[0];
+    private static final long[] NO_LONG_KEYS = new long[0];
+    private static final int LINEAR_SEARCH_KEYS = 8;
+
     private final Object sync = new Object();
 
     private final Map<String, StateStorageItem> storedStates = new HashMap<>();
-    private final Multimap<SagaMultiKey, SagaState> instanceKeyMap = HashMultimap.create();
+    private final Map<String, Map<Object, Object>> instanceKeyIndexes = new HashMap<>();
+    private final Map<String, LongKeyIndex> longKeyIndexes = new HashMap<>();
 
     /**
      * {@inheritDoc}
@@ -46,25 +61,26 @@ public class MemoryStorage implements StateStorage {
         checkNotNull(state.getType(), "Saga type must not be null.");
 
         synchronized (sync) {
-            String sagaId = state.getSagaId();
-
-            StateStorageItem stateStorageItem = storedStates.get(sagaId);
-            if (stateStorageItem == null) {
-                stateStorageItem = StateStorageItem.withCurrentInstanceKeys(state);
-                storedStates.put(state.getSagaId(), stateStorageItem);
-            } else {
-                // remove previous stored keys from map
-                // some entries may have been removed from the state during
-                // saga execution
+            StateStorageItem stateStorageItem = storedStates.get(state.getSagaId());
+            if (stateStorageItem != null && stateStorageItem.sagaState() != state) {
+                // a different instance replaces the stored state
                 removeInstancesForItem(stateStorageItem);
+                stateStorageItem = null;
+            }
 
-                // once old values have been removed update item with current
-                // values
-                stateStorageItem.updateInstanceKeys();
+            boolean isNew = stateStorageItem == null;
+            if (isNew) {
+                stateStorageItem = new StateStorageItem(state);
+                storedStates.put(state.getSagaId(), stateStorageItem);
             }
 
-            for (SagaMultiKey key : stateStorageItem.instanceKeys()) {
-                instanceKeyMap.put(key, state);
+            // some keys may have been added or removed during saga execution
+            if (state instanceof LongKeySagaState) {
+                updateLongKeys(stateStorageItem, ((LongKeySagaState) state).longInstanceKeys());
+            } else if (state instanceof InstanceKeyChanges) {
+                applyKeyChanges(state, (InstanceKeyChanges<?>) state, isNew);
+            } else {
+                updateKeys(stateStorageItem, state.instanceKeys());
             }
         }
     }
@@ -107,101 +123,203 @@ public class MemoryStorage implements StateStorage {
      */
     @Override
     public Collection<? extends SagaState> load(final String type, final Object instanceKey) {
-        Collection<? extends SagaState> items;
+        List<SagaState> states = new ArrayList<>(1);
+
+        synchronized (sync) {
+            Map<Object, Object> index = instanceKeyIndexes.get(type);
+            if (index != null) {
+                IndexedStates.collect(index.get(instanceKey), states);
+            }
+
+            LongKeyIndex longIndex = longKeyIndexes.get(type);
+            if (longIndex != null && instanceKey instanceof Long) {
+                longIndex.collect((Long) instanceKey, states);
+            }
+        }
+
+        return states;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<? extends SagaState> loadByLongKey(final String type, final long instanceKey) {
+        List<SagaState> states = new ArrayList<>(1);
 
         synchronized (sync) {
-            items = new ArrayList<>(instanceKeyMap.get(SagaMultiKey.create(type, instanceKey)));
+            LongKeyIndex longIndex = longKeyIndexes.get(type);
+            if (longIndex != null) {
+                longIndex.collect(instanceKey, states);
+            }
+
+            // states not using primitive keys might still have been saved with boxed long keys
+            Map<Object, Object> index = instanceKeyIndexes.get(type);
+            if (index != null) {
+                IndexedStates.collect(index.get(instanceKey), states);
+            }
         }
 
-        return items;
+        return states;
     }
 
-    private void removeInstancesForItem(final StateStorageItem stateStorageItem) {
-        for (SagaMultiKey key : stateStorageItem.instanceKeys()) {
-            instanceKeyMap.removeAll(key);
+    private void updateKeys(final StateStorageItem item, final Set<?> currentKeys) {
+        Object[] previousKeys = item.instanceKeys();
+
+        if (previousKeys.length > 0 || !currentKeys.isEmpty()) {
+            SagaState state = item.sagaState();
+            Map<Object, Object> index = instanceKeyIndexes.computeIfAbsent(state.getType(), type -> new HashMap<>());
+
+            for (Object key : previousKeys) {
+                if (!currentKeys.contains(key)) {
+                    removeFromIndex(index, key, state);
+                }
+            }
+
+            Collection<Object> previous = previousKeys.length > LINEAR_SEARCH_KEYS ? new HashSet<>(Arrays.asList(previousKeys)) : Arrays.asList(previousKeys);
+            for (Object key : currentKeys) {
+                if (!previous.contains(key)) {
+                    index.put(key, IndexedStates.add(index.get(key), state));
+                }
+            }
+
+            item.setInstanceKeys(currentKeys.toArray());
         }
     }
 
-    /**
-     * Combined key of saga type and saga key instance value.
-     */
-    private static final class SagaMultiKey {
-        private final String type;
-        private final Object instanceKey;
+    private void applyKeyChanges(final SagaState state, final InstanceKeyChanges<?> changes, final boolean isNew) {
+        // the journal is relative to the last save, index all keys if saved for the first time
+        Collection<?> addedKeys = isNew ? state.instanceKeys() : changes.addedInstanceKeys();
+        Collection<?> removedKeys = isNew ? Collections.emptySet() : changes.removedInstanceKeys();
 
-        SagaMultiKey(final String type, final Object instanceKey) {
-            checkNotNull(type, "type must not be null");
+        if (!addedKeys.isEmpty() || !removedKeys.isEmpty()) {
+            Map<Object, Object> index = instanceKeyIndexes.computeIfAbsent(state.getType(), type -> new HashMap<>());
 
-            this.type = type;
-            this.instanceKey = instanceKey;
+            for (Object key : removedKeys) {
+                removeFromIndex(index, key, state);
+            }
+
+            for (Object key : addedKeys) {
+                index.put(key, IndexedStates.add(index.get(key), state));
+            }
+        }
+
+        changes.instanceKeysPersisted();
+    }
+
+    private void updateLongKeys(final StateStorageItem item, final long[] currentKeys) {
+        long[] previousKeys = item.longInstanceKeys();
+
+        if (previousKeys.length > 0 || currentKeys.length > 0) {
+            SagaState state = item.sagaState();
+            LongKeyIndex index = longKeyIndexes.computeIfAbsent(state.getType(), type -> new LongKeyIndex());
+
+            for (long key : previousKeys) {
+                if (!contains(currentKeys, key)) {
+                    index.remove(key, state);
+                }
+            }
+
+            for (long key : currentKeys) {
+                if (!contains(previousKeys, key)) {
+                    index.add(key, state);
+                }
+            }
+
+            item.setLongInstanceKeys(currentKeys);
         }
+    }
 
-        @Override
-        public boolean equals(final Object o) {
-            boolean isEqual = false;
+    private void removeInstancesForItem(final StateStorageItem item) {
+        SagaState state = item.sagaState();
+
+        Map<Object, Object> index = instanceKeyIndexes.get(state.getType());
+        if (index != null) {
+            for (Object key : indexedKeys(item)) {
+                removeFromIndex(index, key, state);
+            }
+        }
 
-            if (o instanceof SagaMultiKey) {
-                SagaMultiKey other = (SagaMultiKey) o;
-                isEqual = Objects.equals(type, other.type)
-                       && Objects.equals(instanceKey, other.instanceKey);
+        LongKeyIndex longIndex = longKeyIndexes.get(state.getType());
+        if (longIndex != null) {
+            for (long key : item.longInstanceKeys()) {
+                longIndex.remove(key, state);
             }
+        }
+    }
 
-            return isEqual;
+    /**
+     * Gets the keys of the item as indexed by the last save.
+     */
+    private static Collection<?> indexedKeys(final StateStorageItem item) {
+        Collection<?> keys;
+
+        if (item.sagaState() instanceof InstanceKeyChanges) {
+            // current keys without the ones added since the last save, plus the removed ones
+            InstanceKeyChanges<?> changes = (InstanceKeyChanges<?>) item.sagaState();
+            Set<Object> indexed = new HashSet<>(item.sagaState().instanceKeys());
+            indexed.removeAll(changes.addedInstanceKeys());
+            indexed.addAll(changes.removedInstanceKeys());
+            keys = indexed;
+        } else {
+            keys = Arrays.asList(item.instanceKeys());
         }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(type, instanceKey);
+        return keys;
+    }
+
+    private static void removeFromIndex(final Map<Object, Object> index, final Object key, final SagaState state) {
+        Object updated = IndexedStates.remove(index.get(key), state);
+        if (updated == null) {
+            index.remove(key);
+        } else {
+            index.put(key, updated);
         }
+    }
 
-        public static SagaMultiKey create(final String type, final Object instanceKey) {
-            return new SagaMultiKey(type, instanceKey);
+    private static boolean contains(final long[] keys, final long key) {
+        boolean found = false;
+        for (long candidate : keys) {
+            if (candidate == key) {
+                found = true;
+                break;
+            }
         }
+
+        return found;
     }
 
     /**
      * Encapsulates the saga state as well as a separate copy of instance
-     * keys, originally provided by the saga state.
+     * keys, as they have been indexed the last time the state has been saved.
      */
     private static final class StateStorageItem {
         private final SagaState sagaState;
-        private Collection<SagaMultiKey> instanceKeys;
-
-        /**
-         * Create a new storage item create a separate copy of the list
-         * of associated instance keys.
-         */
-        public static StateStorageItem withCurrentInstanceKeys(final SagaState sagaState) {
-            return new StateStorageItem(sagaState);
-        }
+        private Object[] instanceKeys = NO_KEYS;
+        private long[] longInstanceKeys = NO_LONG_KEYS;
 
         private StateStorageItem(final SagaState sagaState) {
             this.sagaState = sagaState;
-            instanceKeys = createSagaKeys(sagaState);
         }
 
         public SagaState sagaState() {
             return sagaState;
         }
 
-        /**
-         * Instruct storage object to update its own private copy of instance keys.
-         */
-        public void updateInstanceKeys() {
-            instanceKeys = createSagaKeys(sagaState);
+        public Object[] instanceKeys() {
+            return instanceKeys;
         }
 
-        public Iterable<SagaMultiKey> instanceKeys() {
-            return instanceKeys;
+        public void setInstanceKeys(final Object[] keys) {
+            instanceKeys = keys.length == 0 ? NO_KEYS : keys;
         }
 
-        private Collection<SagaMultiKey> createSagaKeys(final SagaState state) {
-            Collection<SagaMultiKey> keys = new ArrayList<>(state.instanceKeys().size());
-            for (Object key : state.instanceKeys()) {
-                keys.add(SagaMultiKey.create(state.getType(), key));
-            }
+        public long[] longInstanceKeys() {
+            return longInstanceKeys;
+        }
 
-            return keys;
+        public void setLongInstanceKeys(final long[] keys) {
+            longInstanceKeys = keys.length == 0 ? NO_LONG_KEYS : keys;
         }
     }
-}
\ No newline at end of file
+}
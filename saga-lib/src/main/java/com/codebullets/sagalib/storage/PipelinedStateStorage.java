@@ -0,0 +1,401 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.storage;
+
+import com.codebullets.sagalib.AutoCloseables;
+import com.codebullets.sagalib.SagaState;
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs sagas on top of an {@link AsyncStateStorage} without waiting for writes to finish.
+ *
+ * <p>Saves and deletes are issued to the async storage and return right away, so the sagas
+ * of the next message can be resolved while the writes of the previous message are still in
+ * flight. Writes of the same saga are issued one after another in the order they have been
+ * requested. Until a write has finished loads return the pending state instead of the stored
+ * one, this way handlers always see the result of previous messages.</p>
+ *
+ * <p>The next handler may change a state while it is still being written. If a copier is provided
+ * the async storage writes a copy of the state taken during {@link #save(SagaState)}. Otherwise
+ * the state is handed over to the async storage, which has to read it before returning from
+ * {@link AsyncStateStorage#save(SagaState)}. Without a copier a save waits for a still pending
+ * write of the same saga, so the async storage is always called from within {@code save}.</p>
+ *
+ * <p>Loads wait for the async storage to complete. Failed writes are logged and counted. The
+ * failure is reported to the caller by the next operation of the same saga, which throws an
+ * {@link IllegalStateException} after a save or delete has been issued. {@link #flush()} waits
+ * until all pending writes have finished and reports all failures not reported so far.</p>
+ */
+public final class PipelinedStateStorage implements StateStorage, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(PipelinedStateStorage.class);
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+    private final AsyncStateStorage storage;
+    @Nullable
+    private final UnaryOperator<SagaState> copier;
+    private final Object sync = new Object();
+    private final Map<String, PendingWrite> pendingWrites = new HashMap<>();
+    private final Map<String, Throwable> unreportedFailures = new HashMap<>();
+    private final LongAdder failedWrites = new LongAdder();
+
+    /**
+     * Creates a new instance forwarding all operations to the async storage. Saved states are
+     * handed over to the async storage, which has to read them before returning from save.
+     */
+    public PipelinedStateStorage(final AsyncStateStorage storage) {
+        this(storage, null);
+    }
+
+    /**
+     * Creates a new instance forwarding all operations to the async storage.
+     *
+     * @param copier Creates a deep copy of a state while it is saved. The copy is written by the
+     *               async storage, while the saga can already handle the next message. If
+     *               {@code null} the states are handed over to the async storage.
+     */
+    public PipelinedStateStorage(final AsyncStateStorage storage, @Nullable final UnaryOperator<SagaState> copier) {
+        this.storage = checkNotNull(storage, "Async storage must not be null.");
+        this.copier = copier;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(final SagaState state) {
+        checkNotNull(state, "State not allowed to be null.");
+        checkNotNull(state.getSagaId(), "State saga id not allowed to be null.");
+
+        String sagaId = state.getSagaId();
+        Throwable earlierFailure;
+        if (copier != null) {
+            SagaState copy = copier.apply(state);
+            earlierFailure = takeFailedWrite(sagaId);
+            enqueue(sagaId, state, () -> storage.save(copy));
+        } else {
+            // the state is read by the async storage while being saved, it must not be written later on
+            awaitPendingWrite(sagaId);
+            earlierFailure = takeFailedWrite(sagaId);
+            enqueue(sagaId, state, () -> storage.save(state));
+        }
+
+        throwFailedWrite(sagaId, earlierFailure);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SagaState load(final String sagaId) {
+        checkNotNull(sagaId, "Saga id key must be set.");
+
+        throwFailedWrite(sagaId, takeFailedWrite(sagaId));
+
+        SagaState state;
+        PendingWrite pending;
+        synchronized (sync) {
+            pending = pendingWrites.get(sagaId);
+        }
+
+        if (pending != null) {
+            state = pending.state;
+        } else {
+            state = join(storage.load(sagaId));
+        }
+
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final String sagaId) {
+        checkNotNull(sagaId, "Saga id key must be set.");
+
+        Throwable earlierFailure = takeFailedWrite(sagaId);
+        enqueue(sagaId, null, () -> storage.delete(sagaId));
+        throwFailedWrite(sagaId, earlierFailure);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<? extends SagaState> load(final String type, final Object instanceKey) {
+        return loadStates(Collections.singletonList(new InstanceKeySearchParam(type, instanceKey)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<? extends SagaState> loadByLongKey(final String type, final long instanceKey) {
+        return loadStates(Collections.singletonList(InstanceKeySearchParam.forLongKey(type, instanceKey)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<? extends SagaState> loadAll(final Iterable<InstanceKeySearchParam> searchParams) {
+        return loadStates(searchParams).stream();
+    }
+
+    /**
+     * Gets the number of writes not yet finished.
+     */
+    public int pendingWrites() {
+        synchronized (sync) {
+            return pendingWrites.size();
+        }
+    }
+
+    /**
+     * Gets the number of writes failed since creation of this instance.
+     */
+    public long failedWrites() {
+        return failedWrites.sum();
+    }
+
+    /**
+     * Waits until all writes issued so far have finished.
+     *
+     * @throws IllegalStateException Thrown if any write has failed, which has not been reported so far.
+     */
+    public void flush() {
+        List<CompletableFuture<Void>> completions = new ArrayList<>();
+        synchronized (sync) {
+            pendingWrites.values().forEach(pending -> completions.add(pending.completion));
+        }
+
+        // failures are collected when the write finished
+        CompletableFuture.allOf(completions.toArray(new CompletableFuture<?>[0])).exceptionally(ex -> null).join();
+
+        List<Throwable> failures;
+        synchronized (sync) {
+            failures = new ArrayList<>(unreportedFailures.values());
+            unreportedFailures.clear();
+        }
+
+        if (!failures.isEmpty()) {
+            IllegalStateException error = new IllegalStateException(failures.size() + " saga state write(s) failed.", failures.get(0));
+            failures.stream().skip(1).forEach(error::addSuppressed);
+            throw error;
+        }
+    }
+
+    /**
+     * Waits for all pending writes and closes the async storage if it is closeable.
+     *
+     * @throws IllegalStateException Thrown if any write has failed, which has not been reported so far.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            AutoCloseables.closeQuietly(storage);
+        }
+    }
+
+    private Collection<SagaState> loadStates(final Iterable<InstanceKeySearchParam> searchParams) {
+        // take the snapshot before loading, writes finished in between are part of the loaded states
+        Map<String, PendingWrite> pending;
+        synchronized (sync) {
+            pending = pendingWrites.isEmpty() ? Collections.emptyMap() : new HashMap<>(pendingWrites);
+        }
+
+        Collection<SagaState> loaded = join(storage.loadAll(searchParams));
+        Collection<SagaState> states = pending.isEmpty() ? loaded : applyPendingWrites(loaded, pending, searchParams);
+
+        boolean anyFailure;
+        synchronized (sync) {
+            anyFailure = !unreportedFailures.isEmpty();
+        }
+
+        if (anyFailure) {
+            states.forEach(state -> throwFailedWrite(state.getSagaId(), takeFailedWrite(state.getSagaId())));
+        }
+
+        return states;
+    }
+
+    /**
+     * Replaces loaded states by pending ones, removes deleted ones and adds the
+     * matching states that have not been stored so far.
+     */
+    private static Collection<SagaState> applyPendingWrites(
+            final Collection<SagaState> loaded,
+            final Map<String, PendingWrite> pending,
+            final Iterable<InstanceKeySearchParam> searchParams) {
+        Collection<SagaState> states = new ArrayList<>(loaded.size());
+        Set<String> sagaIds = new HashSet<>();
+
+        for (SagaState state : loaded) {
+            SagaState current = currentState(state, pending.get(state.getSagaId()), searchParams);
+            if (current != null && sagaIds.add(current.getSagaId())) {
+                states.add(current);
+            }
+        }
+
+        for (PendingWrite write : pending.values()) {
+            if (write.state != null && !sagaIds.contains(write.state.getSagaId()) && matches(write.state, searchParams)) {
+                sagaIds.add(write.state.getSagaId());
+                states.add(write.state);
+            }
+        }
+
+        return states;
+    }
+
+    /**
+     * Gets the state to return instead of the loaded one. Returns {@code null} if the saga
+     * is about to be deleted or its pending state no longer matches any of the search params.
+     */
+    @Nullable
+    private static SagaState currentState(
+            final SagaState loaded,
+            @Nullable final PendingWrite write,
+            final Iterable<InstanceKeySearchParam> searchParams) {
+        SagaState current = loaded;
+        if (write != null) {
+            current = write.state != null && matches(write.state, searchParams) ? write.state : null;
+        }
+
+        return current;
+    }
+
+    private static boolean matches(final SagaState state, final Iterable<InstanceKeySearchParam> searchParams) {
+        boolean matches = false;
+        for (InstanceKeySearchParam param : searchParams) {
+            if (param.getSagaTypeName().equals(state.getType()) && state.instanceKeys().contains(param.getInstanceKey())) {
+                matches = true;
+                break;
+            }
+        }
+
+        return matches;
+    }
+
+    private void awaitPendingWrite(final String sagaId) {
+        PendingWrite pending;
+        synchronized (sync) {
+            pending = pendingWrites.get(sagaId);
+        }
+
+        if (pending != null) {
+            // failures are collected when the write finished
+            pending.completion.exceptionally(ex -> null).join();
+        }
+    }
+
+    /**
+     * Gets the failure of an earlier write of the saga not reported so far, every failure is only taken once.
+     */
+    @Nullable
+    private Throwable takeFailedWrite(final String sagaId) {
+        synchronized (sync) {
+            return unreportedFailures.isEmpty() ? null : unreportedFailures.remove(sagaId);
+        }
+    }
+
+    private static void throwFailedWrite(final String sagaId, @Nullable final Throwable failure) {
+        if (failure != null) {
+            throw new IllegalStateException("Writing the state of saga " + sagaId + " to storage has failed.", failure);
+        }
+    }
+
+    /**
+     * Issues the write after the pending writes of the same saga.
+     *
+     * @return Returns the completion of the write.
+     */
+    private CompletableFuture<Void> enqueue(final String sagaId, @Nullable final SagaState state, final Supplier<CompletionStage<Void>> write) {
+        PendingWrite pending;
+        synchronized (sync) {
+            PendingWrite previous = pendingWrites.get(sagaId);
+
+            // keep the order of writes of the same saga, a failed write does not block later ones
+            CompletableFuture<Void> previousWrite = previous == null ? COMPLETED : previous.completion.exceptionally(ex -> null);
+            pending = new PendingWrite(state, previousWrite.thenCompose(ignored -> write.get()));
+            pendingWrites.put(sagaId, pending);
+        }
+
+        PendingWrite issued = pending;
+        return pending.completion.whenComplete((ignored, ex) -> writeFinished(sagaId, issued, ex));
+    }
+
+    private void writeFinished(final String sagaId, final PendingWrite write, @Nullable final Throwable error) {
+        if (error != null) {
+            failedWrites.increment();
+            LOG.error("Error writing state of saga {} to storage.", sagaId, error);
+        }
+
+        synchronized (sync) {
+            if (error != null) {
+                unreportedFailures.putIfAbsent(sagaId, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+
+            pendingWrites.remove(sagaId, write);
+        }
+    }
+
+    private static <T> T join(final CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException ex) {
+            Throwables.throwIfUnchecked(ex.getCause());
+            throw new IllegalStateException("Error accessing saga state storage.", ex.getCause());
+        }
+    }
+
+    /**
+     * State of a write not yet finished, null in case of a delete.
+     */
+    private static final class PendingWrite {
+        @Nullable
+        private final SagaState state;
+        private final CompletableFuture<Void> completion;
+
+        private PendingWrite(@Nullable final SagaState state, final CompletableFuture<Void> completion) {
+            this.state = state;
+            this.completion = completion;
+        }
+    }
+}
@@ -50,17 +50,31 @@ public interface StateStorage {
      */
     Collection<? extends SagaState> load(String type, Object instanceKey);
 
+    /**
+     * Load a list of saga states based on saga type and a primitive instance key,
+     * read by a {@link com.codebullets.sagalib.LongKeyReader}.
+     *
+     * <p>The default implementation calls {@link #load(String, Object)} with the boxed key.</p>
+     *
+     * @return List of found saga state instances.
+     */
+    default Collection<? extends SagaState> loadByLongKey(final String type, final long instanceKey) {
+        return load(type, Long.valueOf(instanceKey));
+    }
+
     /**
      * Load a list of saga states based on a list of parameters consisting of the
      * saga type and instance key. This method has been introduced to enable the
      * use of only a single operation against an external data store for all states
      * of a message.
      *
-     * <p>The default implementation is calling {@link #load(String, Object)} for each parameter
-     * individually and collects the results into a single stream.</p>
+     * <p>The default implementation is calling {@link #load(String, Object)}, or {@link #loadByLongKey(String, long)}
+     * for primitive keys, for each parameter individually and collects the results into a single stream.</p>
      */
     default Stream<? extends SagaState> loadAll(final Iterable<InstanceKeySearchParam> searchParams) {
         return StreamSupport.stream(searchParams.spliterator(), false)
-                .flatMap(param -> load(param.getSagaTypeName(), param.getInstanceKey()).stream());
+                .flatMap(param -> param.isLongKey()
+                        ? loadByLongKey(param.getSagaTypeName(), param.getLongInstanceKey()).stream()
+                        : load(param.getSagaTypeName(), param.getInstanceKey()).stream());
     }
 }
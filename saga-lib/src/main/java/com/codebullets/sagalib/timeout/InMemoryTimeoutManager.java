@@ -16,6 +16,9 @@
 package com.codebullets.sagalib.timeout;
 
 import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.jfr.SagaEvents;
+import com.codebullets.sagalib.processing.SagaIdGenerator;
+import com.codebullets.sagalib.processing.SagaIdGenerators;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import org.slf4j.Logger;
@@ -46,6 +49,7 @@ public class InMemoryTimeoutManager implements TimeoutManager, AutoCloseable {
 
     private final ScheduledExecutorService scheduledService;
     private final Clock clock;
+    private SagaIdGenerator idGenerator = SagaIdGenerators.secureRandom();
 
     /**
      * Generates a new instance of InMemoryTimeoutManager.
@@ -76,6 +80,15 @@ public class InMemoryTimeoutManager implements TimeoutManager, AutoCloseable {
         this.clock = clock;
     }
 
+    /**
+     * Sets the generator of the ids of new timeouts.
+     */
+    public void setIdGenerator(final SagaIdGenerator generator) {
+        checkNotNull(generator, "Id generator not allowed to be null.");
+
+        this.idGenerator = generator;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -93,7 +106,7 @@ public class InMemoryTimeoutManager implements TimeoutManager, AutoCloseable {
     public TimeoutId requestTimeout(final ExecutionContext context, final String sagaId, final long delay, final TimeUnit timeUnit, @Nullable final String name,
                                @Nullable final Object data) {
         checkNotNull(sagaId, "SagaId not allowed to be null.");
-        UUIDTimeoutId id = UUIDTimeoutId.generateNewId();
+        UUIDTimeoutId id = UUIDTimeoutId.generateNewId(idGenerator);
         TimeoutContext timeoutContext = new TimeoutContext(context.getAllHeaders());
 
         SagaTimeoutTask timeoutTask = new SagaTimeoutTask(id, sagaId, name, timeout -> timeoutExpired(timeout, timeoutContext), clock, data);
@@ -103,6 +116,7 @@ public class InMemoryTimeoutManager implements TimeoutManager, AutoCloseable {
             openTimeouts.put(id, sagaId, future);
         }
 
+        SagaEvents.sink().timeoutRequested(sagaId, name, timeUnit.toMillis(delay));
         return id;
     }
 
@@ -112,6 +126,7 @@ public class InMemoryTimeoutManager implements TimeoutManager, AutoCloseable {
     @Override
     public void cancelTimeouts(final String sagaId) {
         checkNotNull(sagaId, "SagaId parameter must not be null.");
+        int canceledCount;
 
         synchronized (sync) {
             Collection<TimeoutId> timeoutsToRemove = new ArrayList<>();
@@ -125,6 +140,12 @@ public class InMemoryTimeoutManager implements TimeoutManager, AutoCloseable {
             for (TimeoutId idToRemove : timeoutsToRemove) {
                 openTimeouts.remove(idToRemove, sagaId);
             }
+
+            canceledCount = timeoutsToRemove.size();
+        }
+
+        if (canceledCount > 0) {
+            SagaEvents.sink().timeoutsCanceled(sagaId, canceledCount);
         }
     }
 
@@ -144,6 +165,7 @@ public class InMemoryTimeoutManager implements TimeoutManager, AutoCloseable {
             // the whole collection.
             for (String sagaId : sagaIdForRemoval) {
                 openTimeouts.remove(id, sagaId);
+                SagaEvents.sink().timeoutsCanceled(sagaId, 1);
             }
         }
     }
@@ -154,6 +176,7 @@ public class InMemoryTimeoutManager implements TimeoutManager, AutoCloseable {
     private void timeoutExpired(final Timeout timeout, final TimeoutContext context) {
         try {
             removeExpiredTimeout(timeout);
+            SagaEvents.sink().timeoutExpired(timeout.getSagaId(), timeout.getName());
 
             for (TimeoutExpired callback : callbacks) {
                 if (callback instanceof TimeoutExpirationCallback) {
@@ -15,6 +15,9 @@
  */
 package com.codebullets.sagalib.timeout;
 
+import com.codebullets.sagalib.processing.SagaIdGenerator;
+import com.codebullets.sagalib.processing.SagaIdGenerators;
+
 import java.io.Serializable;
 import java.util.UUID;
 
@@ -41,7 +44,14 @@ public final class UUIDTimeoutId implements TimeoutId, Serializable {
      * Generates a new unique TimeoutId instance.
      */
     public static UUIDTimeoutId generateNewId() {
-        return new UUIDTimeoutId(UUID.randomUUID());
+        return generateNewId(SagaIdGenerators.secureRandom());
+    }
+
+    /**
+     * Generates a new unique TimeoutId instance using the provided generator.
+     */
+    public static UUIDTimeoutId generateNewId(final SagaIdGenerator generator) {
+        return new UUIDTimeoutId(generator.nextId());
     }
 
     @Override
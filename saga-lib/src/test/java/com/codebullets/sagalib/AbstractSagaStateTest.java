@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+
+class AbstractSagaStateTest {
+
+    @Test
+    void addInstanceKey_afterPersisted_recordsAddedKey() {
+        // given
+        TestSagaState sut = new TestSagaState();
+        sut.addInstanceKey("a");
+        sut.instanceKeysPersisted();
+
+        // when
+        sut.addInstanceKey("b");
+
+        // then
+        assertThat("Expected only new key as added.", sut.addedInstanceKeys(), contains("b"));
+        assertThat("Expected no removed keys.", sut.removedInstanceKeys(), empty());
+    }
+
+    @Test
+    void removeInstanceKey_addedSincePersisted_removesFromJournal() {
+        // given
+        TestSagaState sut = new TestSagaState();
+        sut.instanceKeysPersisted();
+        sut.addInstanceKey("a");
+
+        // when
+        sut.removeInstanceKey("a");
+
+        // then
+        assertThat("Expected no added keys.", sut.addedInstanceKeys(), empty());
+        assertThat("Expected no removed keys.", sut.removedInstanceKeys(), empty());
+    }
+
+    @Test
+    void clearInstanceKeys_persistedKeys_recordsAllAsRemoved() {
+        // given
+        TestSagaState sut = new TestSagaState();
+        sut.addInstanceKey("a");
+        sut.addInstanceKey("b");
+        sut.instanceKeysPersisted();
+
+        // when
+        sut.clearInstanceKeys();
+
+        // then
+        assertThat("Expected all keys as removed.", sut.removedInstanceKeys(), containsInAnyOrder("a", "b"));
+    }
+
+    @Test
+    void addedInstanceKeys_deserializedState_returnsEmptyJournal() throws Exception {
+        // given
+        TestSagaState state = new TestSagaState();
+        state.addInstanceKey("a");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(state);
+        }
+
+        // when
+        TestSagaState sut;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            sut = (TestSagaState) in.readObject();
+        }
+
+        // then
+        assertThat("Expected no pending changes after deserialization.", sut.addedInstanceKeys(), empty());
+        assertThat("Expected keys to be kept.", sut.instanceKeys(), contains("a"));
+    }
+
+    @Test
+    void removedInstanceKeys_moreChangesThanKeys_returnsAllChanges() {
+        // given
+        TestSagaState sut = new TestSagaState();
+        for (int i = 0; i < 20; ++i) {
+            sut.addInstanceKey("old" + i);
+        }
+        sut.instanceKeysPersisted();
+
+        // when
+        sut.clearInstanceKeys();
+        sut.addInstanceKey("new");
+        sut.addInstanceKey("old0");
+
+        // then
+        assertThat("Expected new key as added.", sut.addedInstanceKeys(), contains("new"));
+        assertThat("Expected all other old keys as removed.", sut.removedInstanceKeys(), hasSize(19));
+        assertThat("Expected re-added key not to be removed.", sut.removedInstanceKeys(), not(hasItem("old0")));
+    }
+}
@@ -20,7 +20,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 class HeaderNameTest {
 
@@ -54,4 +57,56 @@ class HeaderNameTest {
         // then
         assertThat("Expected headers to be considered NOT equal.", isEqual, is(false));
     }
-}
\ No newline at end of file
+
+    @Test
+    void forName_sameNameRequestedTwice_returnsSameInstance() {
+        // given
+        HeaderName<Integer> header1 = HeaderName.forName("internedHeader");
+
+        // when
+        HeaderName<Integer> header2 = HeaderName.forType(Integer.class, "internedHeader");
+
+        // then
+        assertThat("Expected header names to be interned.", header2, sameInstance(header1));
+    }
+
+    @Test
+    void forUntypedName_nameNotInterned_returnsInstanceNotInterned() {
+        // given
+        HeaderName<Object> header1 = HeaderName.forUntypedName("untypedHeader");
+
+        // when
+        HeaderName<Object> header2 = HeaderName.forUntypedName("untypedHeader");
+
+        // then
+        assertThat("Expected header name not to be interned.", header1.isInterned(), is(false));
+        assertThat("Expected header name not to be kept.", header2, not(sameInstance(header1)));
+        assertThat("Expected header names to be equal.", header2, equalTo(header1));
+    }
+
+    @Test
+    void forUntypedName_nameInterned_returnsInternedInstance() {
+        // given
+        HeaderName<Integer> interned = HeaderName.forName("internedUntypedHeader");
+
+        // when
+        HeaderName<Integer> header = HeaderName.forUntypedName("internedUntypedHeader");
+
+        // then
+        assertThat("Expected interned header name.", header, sameInstance(interned));
+    }
+
+    @Test
+    void id_differentNames_haveDifferentIds() {
+        // given
+        HeaderName<Integer> header1 = HeaderName.forName("idHeader1");
+        HeaderName<Integer> header2 = HeaderName.forName("idHeader2");
+
+        // when
+        int id1 = header1.id();
+        int id2 = header2.id();
+
+        // then
+        assertThat("Expected different ids for different names.", id1, is(not(id2)));
+    }
+}
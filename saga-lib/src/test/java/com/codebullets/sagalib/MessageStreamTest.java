@@ -16,6 +16,7 @@
 package com.codebullets.sagalib;
 
 import com.codebullets.sagalib.context.SagaExecutionContext;
+import com.codebullets.sagalib.metrics.SagaMetrics;
 import com.codebullets.sagalib.startup.EventStreamBuilder;
 import com.codebullets.sagalib.startup.TypeScanner;
 import com.codebullets.sagalib.storage.MemoryStorage;
@@ -39,6 +40,7 @@ import org.mockito.ArgumentCaptor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -253,6 +255,64 @@ public class MessageStreamTest {
         assertThat("Expected DeadMessageSaga in list of started sagas.", deadMsgSaga.isPresent(), equalTo(true));
     }
 
+    /**
+     * <pre>
+     * Given => Metrics collected and no saga handling dead messages.
+     * When  => Message without any handler is handled.
+     * Then  => Message is counted as dead message.
+     * </pre>
+     */
+    @Test
+    public void handle_noDeadMessageHandlerWithMetrics_deadMessageCounted() throws InvocationTargetException, IllegalAccessException {
+        // given
+        SagaMetrics metrics = new SagaMetrics();
+        TimeoutManager timeoutManager = new InMemoryTimeoutManager(scheduler, new SystemClock());
+        MessageStream stream = EventStreamBuilder.configure()
+                .usingStorage(storage)
+                .usingScanner(() -> Collections.singletonList(TestSaga.class))
+                .usingSagaProviderFactory(new TestSagaProviderFactory(timeoutManager, numbers, calledSagas))
+                .usingTimeoutManager(timeoutManager)
+                .usingExecutor(MoreExecutors.directExecutor())
+                .collectingMetrics(metrics)
+                .build();
+
+        // when
+        stream.handle(new Object() {});
+
+        // then
+        assertThat("Expected the unhandled message to be counted as dead message.", metrics.deadMessages(), equalTo(1L));
+        assertThat("Expected the unhandled message not to be counted as handled.", metrics.messagesHandled(), equalTo(0L));
+    }
+
+    /**
+     * <pre>
+     * Given => Metrics collected and saga handling dead messages.
+     * When  => Message without any handler is handled.
+     * Then  => Message is counted once as dead message.
+     * </pre>
+     */
+    @Test
+    public void handle_deadMessageHandlerWithMetrics_deadMessageCountedOnce() throws InvocationTargetException, IllegalAccessException {
+        // given
+        SagaMetrics metrics = new SagaMetrics();
+        TimeoutManager timeoutManager = new InMemoryTimeoutManager(scheduler, new SystemClock());
+        MessageStream stream = EventStreamBuilder.configure()
+                .usingStorage(storage)
+                .usingScanner(new LocalScanner())
+                .usingSagaProviderFactory(new TestSagaProviderFactory(timeoutManager, numbers, calledSagas))
+                .usingTimeoutManager(timeoutManager)
+                .usingExecutor(MoreExecutors.directExecutor())
+                .collectingMetrics(metrics)
+                .build();
+
+        // when
+        stream.handle(new Object() {});
+
+        // then
+        assertThat("Expected the unhandled message to be counted once.", metrics.deadMessages(), equalTo(1L));
+        assertThat("Expected the unhandled message not to be counted as handled.", metrics.messagesHandled(), equalTo(0L));
+    }
+
     /**
      * <pre>
      * Given => Timeout message where handler exists but no saga state
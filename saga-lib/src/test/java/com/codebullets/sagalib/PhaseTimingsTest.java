@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+class PhaseTimingsTest {
+    @Test
+    void stop_disabledInstance_nothingRecorded() {
+        // given
+        PhaseTimings sut = PhaseTimings.disabled();
+
+        // when
+        sut.stop(DispatchPhase.HANDLER_INVOCATION, sut.start());
+        sut.add(DispatchPhase.STATE_LOAD, 100);
+
+        // then
+        assertThat("Expected no recorded time.", sut.phaseTotalNanos(), equalTo(0L));
+    }
+
+    @Test
+    void add_multipleCallsForPhase_sumsUpNanos() {
+        // given
+        PhaseTimings sut = PhaseTimings.create();
+
+        // when
+        sut.add(DispatchPhase.STATE_LOAD, 100);
+        sut.add(DispatchPhase.STATE_LOAD, 50);
+        sut.add(DispatchPhase.ROUTING, 10);
+
+        // then
+        assertThat("Expected sum of phase.", sut.nanos(DispatchPhase.STATE_LOAD), equalTo(150L));
+        assertThat("Expected sum of all phases.", sut.phaseTotalNanos(), equalTo(160L));
+    }
+
+    @Test
+    void stop_enabledInstance_recordsElapsedTime() {
+        // given
+        PhaseTimings sut = PhaseTimings.create();
+        long start = sut.start() - 1000;
+
+        // when
+        sut.stop(DispatchPhase.HANDLER_INVOCATION, start);
+
+        // then
+        assertThat("Expected elapsed time to be recorded.", sut.nanos(DispatchPhase.HANDLER_INVOCATION), greaterThan(999L));
+    }
+}
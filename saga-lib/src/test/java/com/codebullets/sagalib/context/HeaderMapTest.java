@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.context;
+
+import com.codebullets.sagalib.HeaderName;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+class HeaderMapTest {
+    private static final HeaderName<String> HEADER_A = HeaderName.forName("headerMapA");
+    private static final HeaderName<String> HEADER_B = HeaderName.forName("headerMapB");
+
+    @Test
+    void get_valueHasBeenPut_returnsValue() {
+        // given
+        HeaderMap sut = new HeaderMap();
+        sut.put(HEADER_A, "a");
+
+        // when
+        Object value = sut.get(HEADER_A);
+
+        // then
+        assertThat("Expected stored value to be returned.", value, equalTo("a"));
+    }
+
+    @Test
+    void get_headerNotSet_returnsNull() {
+        // given
+        HeaderMap sut = HeaderMap.copyOf(ImmutableMap.of(HEADER_A, "a"));
+
+        // when
+        Object value = sut.get(HEADER_B);
+
+        // then
+        assertThat("Expected null for unknown header.", value, is(nullValue()));
+    }
+
+    @Test
+    void put_existingHeader_overwritesValue() {
+        // given
+        HeaderMap sut = new HeaderMap();
+        sut.put(HEADER_A, "a");
+
+        // when
+        sut.put(HEADER_A, "b");
+
+        // then
+        assertThat("Expected value to be replaced.", sut.get(HEADER_A), equalTo("b"));
+        assertThat("Expected a single entry.", sut.size(), equalTo(1));
+    }
+
+    @Test
+    void put_sharedInstanceModified_originalUnchanged() {
+        // given
+        HeaderMap original = HeaderMap.copyOf(ImmutableMap.of(HEADER_A, "a"));
+        HeaderMap shared = original.share();
+
+        // when
+        shared.put(HEADER_A, "changed");
+        shared.put(HEADER_B, "b");
+
+        // then
+        assertThat("Expected original value to be unchanged.", original.get(HEADER_A), equalTo("a"));
+        assertThat("Expected original to not contain new header.", original.get(HEADER_B), is(nullValue()));
+        assertThat("Expected shared instance to contain changed value.", shared.get(HEADER_A), equalTo("changed"));
+    }
+
+    @Test
+    void put_originalModifiedAfterShare_sharedUnchanged() {
+        // given
+        HeaderMap original = HeaderMap.copyOf(ImmutableMap.of(HEADER_A, "a"));
+        HeaderMap shared = original.share();
+
+        // when
+        original.put(HEADER_A, "changed");
+
+        // then
+        assertThat("Expected shared value to be unchanged.", shared.get(HEADER_A), equalTo("a"));
+    }
+
+    @Test
+    void copyOfUntyped_stringKeys_lookupByHeaderName() {
+        // given
+        HeaderMap sut = HeaderMap.copyOfUntyped(ImmutableMap.of("headerMapA", "a"));
+
+        // when
+        Object value = sut.get(HEADER_A);
+
+        // then
+        assertThat("Expected value to be found by typed header name.", value, equalTo("a"));
+    }
+
+    @Test
+    void copyOfUntyped_unknownKey_keyNotInterned() {
+        // given
+        HeaderMap sut = HeaderMap.copyOfUntyped(ImmutableMap.of("headerMapUnknown", "u"));
+
+        // when
+        Object value = sut.get(HeaderName.forUntypedName("headerMapUnknown"));
+
+        // then
+        assertThat("Expected value to be found by untyped name.", value, equalTo("u"));
+        assertThat("Expected name not to be interned.", HeaderName.forUntypedName("headerMapUnknown").isInterned(), is(false));
+    }
+
+    @Test
+    void get_keyInternedAfterPut_returnsValue() {
+        // given
+        HeaderMap sut = HeaderMap.copyOfUntyped(ImmutableMap.of("headerMapLater", "l"));
+        sut.put(HEADER_A, "a");
+
+        // when
+        Object value = sut.get(HeaderName.forName("headerMapLater"));
+
+        // then
+        assertThat("Expected value to be found by interned name.", value, equalTo("l"));
+    }
+}
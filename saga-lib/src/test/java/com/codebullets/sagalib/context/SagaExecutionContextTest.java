@@ -20,7 +20,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class SagaExecutionContextTest {
     private SagaExecutionContext sut;
@@ -85,4 +88,46 @@ class SagaExecutionContextTest {
         // then
         assertThat("Expected stored flag to be set.", hasBeenStored, is(true));
     }
-}
\ No newline at end of file
+
+    @Test
+    void message_contextRecycled_throwsIllegalStateException() {
+        // given
+        sut.setMessage("theMessage");
+
+        // when
+        sut.recycle();
+
+        // then
+        assertThrows(IllegalStateException.class, () -> sut.message());
+    }
+
+    @Test
+    void getHeaderValue_recycledContextReused_previousHeadersCleared() {
+        // given
+        sut.setHeaderValue("header", "value");
+        sut.recycle();
+
+        // when
+        sut.reuse();
+
+        // then
+        assertThat("Expected headers to be cleared.", sut.getHeaderValue("header"), is(nullValue()));
+    }
+
+    @Test
+    void hasBeenStored_recycledContextReused_returnsFalse() {
+        // given
+        String sagaId = "theSagaId";
+        sut.recordSagaStateStored(sagaId);
+        sut.recycle();
+        sut.reuse();
+        sut.setMessage("nextMessage");
+
+        // when
+        boolean hasBeenStored = sut.hasBeenStored(sagaId);
+
+        // then
+        assertThat("Expected stored flag to be cleared.", hasBeenStored, is(false));
+        assertThat("Expected new message to be set.", sut.message(), equalTo("nextMessage"));
+    }
+}
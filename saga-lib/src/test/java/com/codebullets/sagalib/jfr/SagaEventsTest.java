@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SagaEventsTest {
+    private static final String DISPATCH_EVENT = "com.codebullets.sagalib.MessageDispatch";
+
+    @BeforeEach
+    void initSagaEventsTest() {
+        assumeTrue(SagaEvents.isFlightRecorderSupported(), "Flight recorder not supported by JVM.");
+    }
+
+    @Test
+    void dispatchStarted_eventNotEnabled_returnsNull() {
+        // given
+        try (Recording recording = new Recording()) {
+            recording.start();
+
+            // when
+            Object event = SagaEvents.sink().dispatchStarted("message");
+
+            // then
+            assertThat("Expected event to be disabled by default.", event, nullValue());
+        }
+    }
+
+    @Test
+    void dispatchFinished_eventEnabled_eventRecorded() throws Exception {
+        // given
+        Path file = Files.createTempFile("saga-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(DISPATCH_EVENT);
+            recording.start();
+
+            // when
+            Object event = SagaEvents.sink().dispatchStarted("message");
+            SagaEvents.sink().dispatchFinished(event, true);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // then
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals(DISPATCH_EVENT))
+                .collect(Collectors.toList());
+        Files.delete(file);
+
+        assertThat("Expected a single dispatch event.", events, hasSize(1));
+        assertThat("Expected message class on event.", events.get(0).getClass("messageClass").getName(), equalTo(String.class.getName()));
+        assertThat("Expected handled flag on event.", events.get(0).getBoolean("handled"), equalTo(true));
+    }
+}
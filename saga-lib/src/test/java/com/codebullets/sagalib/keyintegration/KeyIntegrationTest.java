@@ -70,6 +70,26 @@ public class KeyIntegrationTest {
         assertThat("Expected response to be handled in original saga.", state.isResponseHandled(), equalTo(true));
     }
 
+    /**
+     * <pre>
+     * Given => Saga having primitive long keys.
+     * When  => saga is triggered by message and response.
+     * Then  => response is handled by finding state using the long key
+     * </pre>
+     */
+    @Test
+    public void handleSaga_longKeyReader_responseIsHandled() throws InvocationTargetException, IllegalAccessException {
+        // given
+        long sagaKey = 42L;
+
+        // when
+        messageStream.handle(sagaKey);
+        messageStream.handle(new LongKeySaga.LongResponse(sagaKey));
+
+        // then
+        assertThat("Expected response to be handled in original saga.", state.isResponseHandled(), equalTo(true));
+    }
+
     @Test
     public void handleSaga_unknownMessage_doNotShowWarning() throws InvocationTargetException, IllegalAccessException {
         // given
@@ -91,6 +111,7 @@ public class KeyIntegrationTest {
             ArrayList<Class<? extends Saga>> sagaTypes = new ArrayList<>();
             sagaTypes.add(StatefulSaga.class);
             sagaTypes.add(DeadMessageSaga.class);
+            sagaTypes.add(LongKeySaga.class);
 
             return sagaTypes;
         }
@@ -113,6 +134,8 @@ public class KeyIntegrationTest {
                         return new StatefulSaga(state);
                     }
                 };
+            } else if (sagaClass.equals(LongKeySaga.class)) {
+                provider = () -> new LongKeySaga(state);
             } else if (sagaClass.equals(DeadMessageSaga.class)) {
                 provider = new Provider<DeadMessageSaga>() {
                     @Override
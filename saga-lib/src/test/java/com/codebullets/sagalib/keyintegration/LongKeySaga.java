@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.keyintegration;
+
+import com.codebullets.sagalib.AbstractSaga;
+import com.codebullets.sagalib.EventHandler;
+import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.KeyReaders;
+import com.codebullets.sagalib.LongKeySagaState;
+import com.codebullets.sagalib.StartsSaga;
+
+import java.util.Collection;
+import java.util.Collections;
+
+public class LongKeySaga extends AbstractSaga<LongKeySaga.State> {
+    private final TestState testState;
+
+    /**
+     * Generates a new instance of LongKeySaga.
+     */
+    public LongKeySaga(final TestState testState) {
+        this.testState = testState;
+    }
+
+    @Override
+    public void createNewState() {
+        setState(new State());
+    }
+
+    @StartsSaga
+    public void startingSaga(final Long startingMessage) {
+        state().addInstanceKey(startingMessage);
+    }
+
+    @EventHandler
+    public void handleResponse(final LongResponse response) {
+        testState.setResponseHandled(true);
+        setFinished();
+    }
+
+    @Override
+    public Collection<KeyReader> keyReaders() {
+        return Collections.singletonList(KeyReaders.forLongKey(LongResponse.class, LongResponse::getResponseId));
+    }
+
+    public static class State extends LongKeySagaState {
+    }
+
+    public static class LongResponse {
+        private final long responseId;
+
+        public LongResponse(final long responseId) {
+            this.responseId = responseId;
+        }
+
+        public long getResponseId() {
+            return responseId;
+        }
+    }
+}
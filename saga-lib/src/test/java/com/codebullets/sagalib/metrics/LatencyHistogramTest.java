@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+class LatencyHistogramTest {
+    @Test
+    void valueAtPercentile_uniformValues_returnsValueWithinPrecision() {
+        // given
+        LatencyHistogram sut = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; ++i) {
+            sut.record(i * 1000);
+        }
+
+        // when
+        long median = sut.snapshot().valueAtPercentile(50.0);
+
+        // then
+        assertThat("Expected median within 3% of expected value.", median, both(greaterThanOrEqualTo(48_500_000L)).and(lessThanOrEqualTo(51_500_000L)));
+    }
+
+    @Test
+    void max_valuesRecorded_returnsHighestValue() {
+        // given
+        LatencyHistogram sut = new LatencyHistogram();
+        sut.record(5);
+        sut.record(12_345_678);
+        sut.record(300);
+
+        // when
+        HistogramSnapshot snapshot = sut.snapshot();
+
+        // then
+        assertThat("Expected highest value.", snapshot.max(), equalTo(12_345_678L));
+        assertThat("Expected all values to be counted.", snapshot.count(), equalTo(3L));
+        assertThat("Expected 100th percentile to be max.", snapshot.valueAtPercentile(100.0), equalTo(12_345_678L));
+    }
+
+    @Test
+    void highestValueOfBucket_anyValue_valueIsPartOfItsBucket() {
+        // given
+        long[] values = {0, 31, 32, 33, 1000, 123_456_789, Long.MAX_VALUE >>> 22 };
+
+        for (long value : values) {
+            // when
+            long highestValue = LatencyHistogram.highestValueOfBucket(LatencyHistogram.bucketIndex(value));
+
+            // then
+            assertThat("Expected bucket to cover value " + value, highestValue, greaterThanOrEqualTo(value));
+            assertThat("Expected value to be in same bucket " + value,
+                    LatencyHistogram.bucketIndex(highestValue), equalTo(LatencyHistogram.bucketIndex(value)));
+        }
+    }
+
+    @Test
+    void valueAtPercentile_noValues_returnsZero() {
+        // given
+        LatencyHistogram sut = new LatencyHistogram();
+
+        // when
+        long value = sut.snapshot().valueAtPercentile(99.0);
+
+        // then
+        assertThat("Expected zero for empty histogram.", value, equalTo(0L));
+    }
+}
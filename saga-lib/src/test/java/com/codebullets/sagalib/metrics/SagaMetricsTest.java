@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.metrics;
+
+import com.codebullets.sagalib.DeadMessage;
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.TestSaga;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SagaMetricsTest {
+    private SagaMetrics sut;
+    private MetricsModule module;
+    private MetricsInterceptor interceptor;
+    private ExecutionContext context;
+
+    @BeforeEach
+    void initSagaMetricsTest() {
+        sut = new SagaMetrics();
+        module = new MetricsModule(sut);
+        interceptor = new MetricsInterceptor(sut);
+        context = mock(ExecutionContext.class);
+        when(context.sagasFound()).thenReturn(true);
+        when(context.startNanos()).thenReturn(System.nanoTime());
+    }
+
+    @Test
+    void messageLatency_messageHandled_latencyRecorded() {
+        // given
+        when(context.message()).thenReturn("message");
+
+        // when
+        module.onStart(context);
+        module.onFinished(context);
+
+        // then
+        assertThat("Expected message to be counted.", sut.messagesHandled(), equalTo(1L));
+        assertThat("Expected latency to be recorded.", sut.messageLatency().count(), equalTo(1L));
+    }
+
+    @Test
+    void messageLatency_finishedOnOtherThread_latencyRecorded() throws Exception {
+        // given
+        when(context.message()).thenReturn("message");
+        module.onStart(context);
+
+        // when
+        Thread finisher = new Thread(() -> module.onFinished(context));
+        finisher.start();
+        finisher.join();
+
+        // then
+        assertThat("Expected latency to be recorded.", sut.messageLatency().count(), equalTo(1L));
+    }
+
+    @Test
+    void messageLatency_contextWithoutStartTime_latencyNotRecorded() {
+        // given
+        when(context.message()).thenReturn("message");
+        when(context.startNanos()).thenReturn(-1L);
+
+        // when
+        module.onStart(context);
+        module.onFinished(context);
+
+        // then
+        assertThat("Expected message to be counted.", sut.messagesHandled(), equalTo(1L));
+        assertThat("Expected no latency to be recorded.", sut.messageLatency().count(), equalTo(0L));
+    }
+
+    @Test
+    void deadMessages_noSagaFound_countedAsDeadMessageOnly() {
+        // given
+        when(context.message()).thenReturn("message");
+        when(context.sagasFound()).thenReturn(false);
+
+        // when
+        module.onStart(context);
+        module.onFinished(context);
+
+        // then
+        assertThat("Expected dead message to be counted.", sut.deadMessages(), equalTo(1L));
+        assertThat("Expected message without saga not to be counted as handled.", sut.messagesHandled(), equalTo(0L));
+        assertThat("Expected no latency to be recorded.", sut.messageLatency().count(), equalTo(0L));
+    }
+
+    @Test
+    void deadMessages_deadMessageHandledBySaga_notCountedAgain() {
+        // given
+        when(context.message()).thenReturn(new DeadMessage("message"));
+
+        // when
+        module.onStart(context);
+        module.onFinished(context);
+
+        // then
+        assertThat("Expected dead message execution not to be counted.", sut.deadMessages(), equalTo(0L));
+        assertThat("Expected no handled message.", sut.messagesHandled(), equalTo(0L));
+    }
+
+    @Test
+    void sagaTypeLatency_handlerExecuted_recordedForSagaAndHandler() {
+        // given
+        Saga saga = new TestSaga();
+        when(context.message()).thenReturn("message");
+
+        // when
+        module.onStart(context);
+        interceptor.onStarting(saga, context, "message");
+        interceptor.onHandlerExecuting(saga, context, "message");
+        interceptor.onHandlerExecuted(saga, context, "message");
+        interceptor.onFinished(saga, context);
+        module.onFinished(context);
+
+        // then
+        Optional<HistogramSnapshot> sagaLatency = sut.sagaTypeLatency(TestSaga.class);
+        assertThat("Expected saga type latency.", sagaLatency.get().count(), equalTo(1L));
+        assertThat("Expected handler latency.", sut.handlerLatencies(TestSaga.class), hasKey(String.class));
+        assertThat("Expected started saga.", sut.sagasStarted(), equalTo(1L));
+        assertThat("Expected finished saga.", sut.sagasFinished(), equalTo(1L));
+    }
+
+    @Test
+    void sagaTypeLatency_handlerThrowsInChildMessage_parentHandlerStillRecorded() {
+        // given
+        Saga saga = new TestSaga();
+        module.onStart(context);
+        interceptor.onHandlerExecuting(saga, context, "parent");
+
+        // child message with failing handler
+        ExecutionContext childContext = mock(ExecutionContext.class);
+        when(childContext.sagasFound()).thenReturn(true);
+        module.onStart(childContext);
+        interceptor.onHandlerExecuting(saga, childContext, 42);
+        module.onError(childContext, 42, new IllegalStateException());
+        module.onFinished(childContext);
+
+        // when
+        interceptor.onHandlerExecuted(saga, context, "parent");
+        module.onFinished(context);
+
+        // then
+        assertThat("Expected parent handler to be recorded.", sut.handlerLatencies(TestSaga.class), hasKey(String.class));
+        assertThat("Expected child handler not to be recorded.", sut.handlerLatencies(TestSaga.class).containsKey(Integer.class), is(false));
+        assertThat("Expected error to be counted.", sut.errors(), equalTo(1L));
+    }
+}
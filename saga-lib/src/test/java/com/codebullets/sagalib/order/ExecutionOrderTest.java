@@ -20,6 +20,7 @@ import com.codebullets.sagalib.ExecutionContext;
 import com.codebullets.sagalib.MessageStream;
 import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.SagaLifetimeInterceptor;
+import com.codebullets.sagalib.processing.ExecutionOptions;
 import com.codebullets.sagalib.startup.EventStreamBuilder;
 import com.codebullets.sagalib.startup.NextSagaToHandle;
 import com.codebullets.sagalib.startup.StreamBuilder;
@@ -34,20 +35,28 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.Mockito.mock;
 
 class ExecutionOrderTest {
+    private static final int PARALLEL_SAGAS = 50;
+
     private MessageStream messageStream;
     private List<Class<?>> calledSagas;
+    private ExecutionOptions options;
+    private Class<?> stopDispatchingAfter;
 
     @BeforeEach
     void initTest() {
-        calledSagas = new ArrayList<>();
+        calledSagas = Collections.synchronizedList(new ArrayList<>());
+        options = ExecutionOptions.defaults();
     }
 
     @Test
@@ -89,6 +98,60 @@ class ExecutionOrderTest {
         assertThat("Expected handler 2 to be executed first.", calledSagas.get(0), equalTo(SagaWithState.class));
     }
 
+    @Test
+    void broadcast_parallelInvocation_allSagasInvokedAfterOrderedSaga() {
+        // given
+        options.setParallelInvocation(new ForkJoinPool(4));
+        MessageStream stream = initWithExecutionOrder(StartingHandler2.class);
+        startSagas(stream, PARALLEL_SAGAS);
+
+        // when
+        stream.add(new OrderedEvent("request1"));
+
+        // then
+        assertThat("Expected ordered saga to be executed first.", calledSagas.get(0), equalTo(StartingHandler2.class));
+        assertThat("Expected all sagas to be executed.", calledSagas, hasSize(PARALLEL_SAGAS + 2));
+    }
+
+    @Test
+    void broadcast_parallelInvocationOrderedSagaStopsDispatching_noOtherSagaInvoked() {
+        // given
+        options.setParallelInvocation(new ForkJoinPool(4));
+        stopDispatchingAfter = StartingHandler2.class;
+        MessageStream stream = initWithExecutionOrder(StartingHandler2.class);
+        startSagas(stream, PARALLEL_SAGAS);
+
+        // when
+        stream.add(new OrderedEvent("request1"));
+
+        // then
+        assertThat("Expected only the ordered saga to be executed.", calledSagas, hasSize(1));
+    }
+
+    @Test
+    void broadcast_parallelInvocation_continuedSagasFinished() {
+        // given
+        options.setParallelInvocation(new ForkJoinPool(4));
+        MessageStream stream = initWithExecutionOrder();
+        startSagas(stream, PARALLEL_SAGAS);
+        stream.add(new OrderedEvent("request1"));
+        calledSagas.clear();
+
+        // when
+        stream.add(new OrderedEvent("request1"));
+
+        // then
+        assertThat("Expected finished sagas not to be continued again.", calledSagas, hasSize(2));
+    }
+
+    private void startSagas(final MessageStream stream, final int count) {
+        for (int i = 0; i < count; ++i) {
+            stream.add(new StartingEvent("request1"));
+        }
+
+        calledSagas.clear();
+    }
+
     @SafeVarargs
     private final MessageStream initWithExecutionOrder(final Class<? extends Saga>... preferredOrder) {
         TimeoutManager timeoutManager = new InMemoryTimeoutManager(mock(ScheduledExecutorService.class), new SystemClock());
@@ -98,7 +161,8 @@ class ExecutionOrderTest {
                 .usingTimeoutManager(timeoutManager)
                 .usingExecutor(MoreExecutors.directExecutor())
                 .usingSagaProviderFactory(new InstanceCreators())
-                .callingInterceptor(new SagaExecutionRecorder(calledSagas));
+                .usingExecutionOptions(options)
+                .callingInterceptor(new SagaExecutionRecorder(calledSagas, stopDispatchingAfter));
 
         if (preferredOrder.length > 0) {
             NextSagaToHandle nextSagaToHandle = streamBuilder.defineHandlerExecutionOrder().firstExecute(preferredOrder[0]);
@@ -124,9 +188,11 @@ class ExecutionOrderTest {
 
     private static class SagaExecutionRecorder implements SagaLifetimeInterceptor {
         private final Collection<Class<?>> calledSagas;
+        private final Class<?> stopDispatchingAfter;
 
-        private SagaExecutionRecorder(final Collection<Class<?>> calledSagas) {
+        private SagaExecutionRecorder(final Collection<Class<?>> calledSagas, final Class<?> stopDispatchingAfter) {
             this.calledSagas = calledSagas;
+            this.stopDispatchingAfter = stopDispatchingAfter;
         }
 
         @Override
@@ -140,6 +206,9 @@ class ExecutionOrderTest {
 
         @Override
         public void onHandlerExecuted(final Saga<?> saga, final ExecutionContext context, final Object message) {
+            if (saga.getClass().equals(stopDispatchingAfter)) {
+                context.stopDispatchingCurrentMessageToHandlers();
+            }
         }
 
         @Override
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AbstractSaga;
+import com.codebullets.sagalib.AbstractSagaState;
+import com.codebullets.sagalib.EventHandler;
+import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.KeyReaders;
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.StartsSaga;
+import com.codebullets.sagalib.startup.AnnotationSagaAnalyzer;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.codebullets.sagalib.startup.MessageHandler;
+import com.codebullets.sagalib.startup.StreamBuilder;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+class BatchHandlerTest {
+    private static final int TIMEOUT_SECONDS = 5;
+
+    private BatchSaga.Recorder recorder;
+    private MessageStream sut;
+
+    @BeforeEach
+    void initBatchHandlerTest() {
+        recorder = new BatchSaga.Recorder();
+    }
+
+    @AfterEach
+    void closeBatchHandlerTest() throws Exception {
+        if (sut != null) {
+            sut.close();
+        }
+    }
+
+    @Test
+    void scanHandledMessageTypes_batchHandler_registersListElementType() {
+        // given
+        AnnotationSagaAnalyzer analyzer = new AnnotationSagaAnalyzer(() -> ImmutableList.of(BatchSaga.class));
+
+        // when
+        Collection<MessageHandler> handlers = analyzer.scanHandledMessageTypes().get(BatchSaga.class).messageHandlers();
+
+        // then
+        MessageHandler tickHandler = handlers.stream().filter(MessageHandler::isBatch).findFirst().get();
+        assertThat("Expected list element as handled type.", tickHandler.getMessageType(), equalTo(Tick.class));
+    }
+
+    @Test
+    void handle_singleMessageToBatchHandler_deliversSingletonList() throws Exception {
+        // given
+        sut = streamBuilder().build();
+        sut.handle(new Start("a", null));
+
+        // when
+        sut.handle(new Tick("a", 1));
+        sut.handle(new Tick("a", 2));
+
+        // then
+        assertThat("Expected every message in its own batch.", recorder.batches(), contains(ImmutableList.of(1), ImmutableList.of(2)));
+    }
+
+    @Test
+    void add_queuedMessagesOfMailbox_deliveredAsSingleBatch() throws Exception {
+        // given
+        sut = streamBuilder()
+                .usingExecutor(Executors.newFixedThreadPool(2))
+                .usingMailboxExecution(MailboxMessageStream.DEFAULT_MAX_CACHED_SAGAS)
+                .build();
+        sut.handle(new Start("a", null));
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch routed = new CountDownLatch(1);
+        sut.add(new Block("a", release));
+
+        // when
+        int tickCount = 10;
+        for (int i = 0; i < tickCount; ++i) {
+            sut.add(new Tick("a", i));
+        }
+
+        // messages are routed in order, once the marker saga starts all ticks are queued
+        sut.add(new Start("marker", routed));
+        routed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        release.countDown();
+
+        // then
+        List<List<Integer>> batches = recorder.awaitValues(tickCount);
+        assertThat("Expected all queued ticks in a single batch.", batches, hasSize(1));
+        assertThat("Expected ticks in order they were added.", batches.get(0), contains(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+    }
+
+    @Test
+    void add_batchLargerThanMaxSize_splitsBatches() throws Exception {
+        // given
+        sut = streamBuilder()
+                .usingExecutor(Executors.newFixedThreadPool(2))
+                .usingMailboxExecution(MailboxMessageStream.DEFAULT_MAX_CACHED_SAGAS)
+                .usingExecutionOptions(ExecutionOptions.defaults().setMaxBatchSize(4))
+                .build();
+        sut.handle(new Start("a", null));
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch routed = new CountDownLatch(1);
+        sut.add(new Block("a", release));
+
+        // when
+        int tickCount = 10;
+        for (int i = 0; i < tickCount; ++i) {
+            sut.add(new Tick("a", i));
+        }
+
+        sut.add(new Start("marker", routed));
+        routed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        release.countDown();
+
+        // then
+        List<List<Integer>> batches = recorder.awaitValues(tickCount);
+        assertThat(
+                "Expected batches limited to max size.",
+                batches,
+                contains(ImmutableList.of(0, 1, 2, 3), ImmutableList.of(4, 5, 6, 7), ImmutableList.of(8, 9)));
+    }
+
+    private StreamBuilder streamBuilder() {
+        return EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(BatchSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new BatchSaga(recorder);
+                    }
+                });
+    }
+
+    /**
+     * Saga recording the batches of ticks it received.
+     */
+    public static class BatchSaga extends AbstractSaga<BatchState> {
+        private final Recorder recorder;
+
+        public BatchSaga(final Recorder recorder) {
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void createNewState() {
+            setState(new BatchState());
+        }
+
+        @StartsSaga
+        public void start(final Start message) {
+            state().addInstanceKey(message.key);
+            if (message.started != null) {
+                message.started.countDown();
+            }
+        }
+
+        @EventHandler
+        public void block(final Block message) throws InterruptedException {
+            message.release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        @EventHandler(batch = true)
+        public void ticks(final List<Tick> ticks) {
+            List<Integer> values = new ArrayList<>(ticks.size());
+            for (Tick tick : ticks) {
+                values.add(tick.value);
+            }
+
+            recorder.record(values);
+        }
+
+        @Override
+        public Collection<KeyReader> keyReaders() {
+            return ImmutableList.of(
+                    KeyReaders.forMessage(Block.class, m -> m.key),
+                    KeyReaders.forMessage(Tick.class, m -> m.key));
+        }
+
+        /**
+         * Collects the batches seen by all saga instances.
+         */
+        static class Recorder {
+            private final List<List<Integer>> batches = new ArrayList<>();
+            private int valueCount;
+
+            synchronized void record(final List<Integer> batch) {
+                batches.add(batch);
+                valueCount += batch.size();
+                notifyAll();
+            }
+
+            synchronized List<List<Integer>> batches() {
+                return new ArrayList<>(batches);
+            }
+
+            synchronized List<List<Integer>> awaitValues(final int count) throws InterruptedException {
+                long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+                while (valueCount < count && System.currentTimeMillis() < deadline) {
+                    wait(TimeUnit.SECONDS.toMillis(1));
+                }
+
+                return batches();
+            }
+        }
+    }
+
+    public static class BatchState extends AbstractSagaState<String> {
+    }
+
+    public static class Start {
+        private final String key;
+
+        @Nullable
+        private final CountDownLatch started;
+
+        Start(final String key, @Nullable final CountDownLatch started) {
+            this.key = key;
+            this.started = started;
+        }
+    }
+
+    public static class Block {
+        private final String key;
+        private final CountDownLatch release;
+
+        Block(final String key, final CountDownLatch release) {
+            this.key = key;
+            this.release = release;
+        }
+    }
+
+    public static class Tick {
+        private final String key;
+        private final int value;
+
+        Tick(final String key, final int value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
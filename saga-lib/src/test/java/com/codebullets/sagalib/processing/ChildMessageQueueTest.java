@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AbstractSaga;
+import com.codebullets.sagalib.AbstractSagaState;
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.StartsSaga;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+class ChildMessageQueueTest {
+    private CascadeSaga.Recorder recorder;
+    private MessageStream sut;
+
+    @BeforeEach
+    void initChildMessageQueueTest() {
+        recorder = new CascadeSaga.Recorder();
+
+        sut = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(CascadeSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new CascadeSaga(recorder);
+                    }
+                })
+                .usingExecutionOptions(ExecutionOptions.defaults().setDeferChildMessages(true).setRecycleContexts(true))
+                .build();
+        recorder.stream = sut;
+    }
+
+    @AfterEach
+    void closeChildMessageQueueTest() throws Exception {
+        sut.close();
+    }
+
+    @Test
+    void handle_childMessagesSent_handledAfterSendingHandlerReturned() throws Exception {
+        // when
+        sut.handle(new Ping(2, 1));
+
+        // then
+        assertThat(
+                "Expected every child handled after its parent.",
+                recorder.events,
+                contains("start 2", "end 2", "start 1", "end 1", "start 0", "end 0"));
+    }
+
+    @Test
+    void handle_multipleChildrenWithGrandChildren_parentContextsStayActive() throws Exception {
+        // when
+        sut.handle(new Ping(3, 2));
+
+        // then
+        assertThat("Expected parent context of every child to be active.", recorder.invalidParents, empty());
+        assertThat("Expected all children handled.", recorder.events.size(), equalTo(2 * (1 + 2 + 4 + 8)));
+    }
+
+    @Test
+    void handle_deepCascade_doesNotGrowStack() throws Exception {
+        // given
+        int depth = 20_000;
+
+        // when
+        sut.handle(new Ping(depth, 1));
+
+        // then
+        assertThat("Expected all children handled.", recorder.events.size(), equalTo(2 * (depth + 1)));
+        assertThat("Expected parent context of every child to be active.", recorder.invalidParents, empty());
+    }
+
+    @Test
+    void handle_pooledSagasWithGrandChildren_parentSagaNotReusedWhileChildrenPending() throws Exception {
+        // given
+        MessageStream stream = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(CascadeSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new CascadeSaga(recorder);
+                    }
+                })
+                .usingExecutionOptions(ExecutionOptions.defaults().setDeferChildMessages(true).setRecycleContexts(true))
+                .usingSagaPooling(4, ImmutableList.of(CascadeSaga.class))
+                .build();
+        recorder.stream = stream;
+
+        // when
+        try {
+            stream.handle(new Ping(2, 2));
+        } finally {
+            stream.close();
+        }
+
+        // then
+        assertThat("Expected parent saga not to handle another message while its children are pending.", recorder.reusedParents, empty());
+    }
+
+    /**
+     * Saga sending child messages until the depth of the cascade reaches zero.
+     */
+    public static class CascadeSaga extends AbstractSaga<CascadeState> {
+        private final Recorder recorder;
+
+        public CascadeSaga(final Recorder recorder) {
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void createNewState() {
+            setState(new CascadeState());
+        }
+
+        @StartsSaga
+        public void ping(final Ping message) throws Exception {
+            recorder.events.add("start " + message.depth);
+            recorder.checkParent(context(), message);
+            recorder.lastHandled.put(this, message);
+
+            if (message.depth > 0) {
+                for (int i = 0; i < message.children; ++i) {
+                    recorder.stream.handle(new Ping(message.depth - 1, message.children), context());
+                }
+            }
+
+            setFinished();
+            recorder.events.add("end " + message.depth);
+        }
+
+        @Override
+        public Collection<KeyReader> keyReaders() {
+            return ImmutableList.of();
+        }
+
+        /**
+         * Collects the handled messages.
+         */
+        static class Recorder {
+            private final List<String> events = new ArrayList<>();
+            private final List<Ping> invalidParents = new ArrayList<>();
+            private final List<Ping> reusedParents = new ArrayList<>();
+            private final Map<Saga, Ping> lastHandled = new IdentityHashMap<>();
+            private MessageStream stream;
+
+            void checkParent(final ExecutionContext context, final Ping message) {
+                ExecutionContext parent = context.parentContext();
+                boolean valid;
+
+                try {
+                    valid = parent == null || ((Ping) parent.message()).depth == message.depth + 1;
+                } catch (IllegalStateException ex) {
+                    valid = false;
+                }
+
+                if (!valid) {
+                    invalidParents.add(message);
+                } else if (parent != null && lastHandled.get(parent.saga()) != parent.message()) {
+                    reusedParents.add(message);
+                }
+            }
+        }
+    }
+
+    public static class CascadeState extends AbstractSagaState<String> {
+    }
+
+    public static class Ping {
+        private final int depth;
+        private final int children;
+
+        Ping(final int depth, final int children) {
+            this.depth = depth;
+            this.children = children;
+        }
+    }
+}
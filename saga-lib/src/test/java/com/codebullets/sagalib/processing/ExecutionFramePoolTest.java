@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.PhaseTimings;
+import com.codebullets.sagalib.context.CurrentExecutionContext;
+import com.codebullets.sagalib.context.HeaderMap;
+import com.codebullets.sagalib.context.SagaExecutionContext;
+import com.codebullets.sagalib.processing.invocation.DefaultModuleCoordinator;
+import com.codebullets.sagalib.processing.invocation.ModuleCoordinatorFactory;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class ExecutionFramePoolTest {
+    private SagaEnvironment environment;
+
+    @BeforeEach
+    void initExecutionFramePoolTest() {
+        Provider<CurrentExecutionContext> contextProvider = SagaExecutionContext::new;
+        ModuleCoordinatorFactory coordinatorFactory = DefaultModuleCoordinator::new;
+
+        environment = SagaEnvironment.create(
+                null,
+                null,
+                contextProvider,
+                ImmutableSet.of(),
+                ImmutableSet.of(),
+                mock(InstanceResolver.class),
+                coordinatorFactory);
+    }
+
+    @Test
+    void acquire_recyclingEnabledFrameReleased_reusesContext() {
+        // given
+        ExecutionFramePool sut = new ExecutionFramePool(environment, ExecutionOptions.defaults().setRecycleContexts(true));
+        ExecutionFrame firstFrame = sut.acquire("first", new HeaderMap(), null);
+        CurrentExecutionContext firstContext = firstFrame.executionContext();
+        sut.release(firstFrame);
+
+        // when
+        ExecutionFrame secondFrame = sut.acquire("second", new HeaderMap(), null);
+
+        // then
+        assertThat("Expected context to be reused.", secondFrame.executionContext(), sameInstance(firstContext));
+        assertThat("Expected context to contain new message.", secondFrame.executionContext().message(), equalTo("second"));
+    }
+
+    @Test
+    void acquire_recyclingDisabled_createsNewContext() {
+        // given
+        ExecutionFramePool sut = new ExecutionFramePool(environment, ExecutionOptions.defaults());
+        ExecutionFrame firstFrame = sut.acquire("first", new HeaderMap(), null);
+        CurrentExecutionContext firstContext = firstFrame.executionContext();
+        sut.release(firstFrame);
+
+        // when
+        ExecutionFrame secondFrame = sut.acquire("second", new HeaderMap(), null);
+
+        // then
+        assertThat("Expected new context instance.", secondFrame.executionContext(), not(sameInstance(firstContext)));
+        assertThat("Expected first context to still be usable.", firstContext.message(), equalTo("first"));
+    }
+
+    @Test
+    void acquire_parentFrameNotReleased_returnsSeparateContext() {
+        // given
+        ExecutionFramePool sut = new ExecutionFramePool(environment, ExecutionOptions.defaults().setRecycleContexts(true));
+        ExecutionFrame parentFrame = sut.acquire("parent", new HeaderMap(), null);
+
+        // when
+        ExecutionFrame childFrame = sut.acquire("child", new HeaderMap(), parentFrame.executionContext());
+
+        // then
+        assertThat("Expected separate context for nested execution.", childFrame.executionContext(), not(sameInstance(parentFrame.executionContext())));
+        assertThat("Expected parent message to be unchanged.", parentFrame.executionContext().message(), equalTo("parent"));
+    }
+
+    @Test
+    void release_recyclingEnabled_releasedContextNotAccessible() {
+        // given
+        ExecutionFramePool sut = new ExecutionFramePool(environment, ExecutionOptions.defaults().setRecycleContexts(true));
+        ExecutionFrame frame = sut.acquire("message", new HeaderMap(), null);
+        CurrentExecutionContext escapedContext = frame.executionContext();
+
+        // when
+        sut.release(frame);
+
+        // then
+        assertThrows(IllegalStateException.class, escapedContext::message);
+    }
+
+    @Test
+    void acquire_allMessagesSampled_contextsShareTimings() {
+        // given
+        ExecutionOptions options = ExecutionOptions.defaults();
+        options.phaseTimings().setSampleRate(1);
+        ExecutionFramePool sut = new ExecutionFramePool(environment, options);
+
+        // when
+        ExecutionFrame frame = sut.acquire("message", new HeaderMap(), null);
+
+        // then
+        assertThat("Expected timings to be recorded.", frame.executionContext().phaseTimings().isEnabled(), equalTo(true));
+        assertThat("Expected lookup to record into same timings.", frame.lookupContext().phaseTimings(), sameInstance(frame.executionContext().phaseTimings()));
+    }
+
+    @Test
+    void acquire_samplingDisabled_timingsDisabled() {
+        // given
+        ExecutionFramePool sut = new ExecutionFramePool(environment, ExecutionOptions.defaults());
+
+        // when
+        ExecutionFrame frame = sut.acquire("message", new HeaderMap(), null);
+
+        // then
+        assertThat("Expected disabled timings.", frame.executionContext().phaseTimings(), sameInstance(PhaseTimings.disabled()));
+    }
+}
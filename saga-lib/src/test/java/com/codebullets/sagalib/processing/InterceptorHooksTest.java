@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AbstractLifetimeInterceptor;
+import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.InterceptorHook;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.SagaLifetimeInterceptor;
+import com.codebullets.sagalib.SelectiveLifetimeInterceptor;
+import com.codebullets.sagalib.TestSaga;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.mockito.Mockito.mock;
+
+class InterceptorHooksTest {
+    @Test
+    void forSagaType_plainInterceptor_calledForAllHooks() {
+        // given
+        SagaLifetimeInterceptor interceptor = mock(SagaLifetimeInterceptor.class);
+        InterceptorHooks sut = new InterceptorHooks(ImmutableList.of(interceptor));
+
+        // when
+        InterceptorHooks.SagaTypeInterceptors interceptors = sut.forSagaType(TestSaga.class);
+
+        // then
+        assertThat("Expected starting hook.", interceptors.starting(), arrayContaining(interceptor));
+        assertThat("Expected executing hook.", interceptors.handlerExecuting(), arrayContaining(interceptor));
+        assertThat("Expected executed hook.", interceptors.handlerExecuted(), arrayContaining(interceptor));
+        assertThat("Expected finished hook.", interceptors.finished(), arrayContaining(interceptor));
+    }
+
+    @Test
+    void forSagaType_abstractInterceptorOverwritesFinished_onlyCalledForFinished() {
+        // given
+        SagaLifetimeInterceptor interceptor = new FinishedInterceptor();
+        InterceptorHooks sut = new InterceptorHooks(ImmutableList.of(interceptor));
+
+        // when
+        InterceptorHooks.SagaTypeInterceptors interceptors = sut.forSagaType(TestSaga.class);
+
+        // then
+        assertThat("Expected no starting hook.", interceptors.starting(), emptyArray());
+        assertThat("Expected no executing hook.", interceptors.handlerExecuting(), emptyArray());
+        assertThat("Expected no executed hook.", interceptors.handlerExecuted(), emptyArray());
+        assertThat("Expected finished hook.", interceptors.finished(), arrayContaining(interceptor));
+    }
+
+    @Test
+    void forSagaType_selectiveInterceptorTargetsOtherSaga_notCalled() {
+        // given
+        SagaLifetimeInterceptor interceptor = new StartingInterceptor(Saga.class);
+        InterceptorHooks sut = new InterceptorHooks(ImmutableList.of(interceptor));
+
+        // when
+        InterceptorHooks.SagaTypeInterceptors interceptors = sut.forSagaType(TestSaga.class);
+
+        // then
+        assertThat("Expected interceptor not to be called for other saga type.", interceptors.starting(), emptyArray());
+    }
+
+    @Test
+    void forSagaType_selectiveInterceptorTargetsSaga_onlyDeclaredHookCalled() {
+        // given
+        SagaLifetimeInterceptor interceptor = new StartingInterceptor(TestSaga.class);
+        InterceptorHooks sut = new InterceptorHooks(ImmutableList.of(interceptor));
+
+        // when
+        InterceptorHooks.SagaTypeInterceptors interceptors = sut.forSagaType(TestSaga.class);
+
+        // then
+        assertThat("Expected starting hook.", interceptors.starting(), arrayContaining(interceptor));
+        assertThat("Expected no finished hook.", interceptors.finished(), emptyArray());
+    }
+
+    @Test
+    void forSagaType_selectiveInterceptorDeclaresNoHooks_notCalled() {
+        // given
+        SagaLifetimeInterceptor interceptor = new NoHooksInterceptor();
+        InterceptorHooks sut = new InterceptorHooks(ImmutableList.of(interceptor));
+
+        // when
+        InterceptorHooks.SagaTypeInterceptors interceptors = sut.forSagaType(TestSaga.class);
+
+        // then
+        assertThat("Expected no starting hook.", interceptors.starting(), emptyArray());
+        assertThat("Expected no executing hook.", interceptors.handlerExecuting(), emptyArray());
+        assertThat("Expected no executed hook.", interceptors.handlerExecuted(), emptyArray());
+        assertThat("Expected no finished hook.", interceptors.finished(), emptyArray());
+    }
+
+    private static class FinishedInterceptor extends AbstractLifetimeInterceptor {
+        @Override
+        public void onFinished(final Saga<?> saga, final ExecutionContext context) {
+        }
+    }
+
+    private static class StartingInterceptor extends AbstractLifetimeInterceptor implements SelectiveLifetimeInterceptor {
+        private final Class<?> targetSagaType;
+
+        StartingInterceptor(final Class<?> targetSagaType) {
+            this.targetSagaType = targetSagaType;
+        }
+
+        @Override
+        public Set<InterceptorHook> hooks() {
+            return EnumSet.of(InterceptorHook.STARTING);
+        }
+
+        @Override
+        public boolean interceptsSagaType(final Class<? extends Saga> sagaType) {
+            return targetSagaType.equals(sagaType);
+        }
+    }
+
+    private static class NoHooksInterceptor extends AbstractLifetimeInterceptor implements SelectiveLifetimeInterceptor {
+        @Override
+        public Set<InterceptorHook> hooks() {
+            return Collections.emptySet();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AbstractHandler;
+import com.codebullets.sagalib.AbstractSaga;
+import com.codebullets.sagalib.AbstractSagaState;
+import com.codebullets.sagalib.EventHandler;
+import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.KeyReaders;
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.SagaState;
+import com.codebullets.sagalib.StartsSaga;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.codebullets.sagalib.storage.InstanceKeySearchParam;
+import com.codebullets.sagalib.storage.MemoryStorage;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+
+class MailboxMessageStreamTest {
+    private static final int TIMEOUT_SECONDS = 5;
+
+    private ExecutorService workers;
+    private MessageStream sut;
+    private CounterSaga.Recorder recorder;
+    private CountingStorage storage;
+
+    @BeforeEach
+    void initMailboxMessageStreamTest() {
+        recorder = new CounterSaga.Recorder();
+        workers = Executors.newFixedThreadPool(2);
+        storage = new CountingStorage();
+
+        sut = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(CounterSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends com.codebullets.sagalib.Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new CounterSaga(recorder);
+                    }
+                })
+                .usingStorage(storage)
+                .usingExecutor(workers)
+                .usingMailboxExecution(MailboxMessageStream.DEFAULT_MAX_CACHED_SAGAS)
+                .build();
+    }
+
+    @AfterEach
+    void closeMailboxMessageStreamTest() throws Exception {
+        sut.close();
+    }
+
+    @Test
+    void handle_continuingMessages_reusesSagaInstance() throws Exception {
+        // given
+        sut.handle(new Start("a"));
+        sut.handle(new Increment("a", 1));
+        int createdInstances = recorder.createdInstances.get();
+
+        // when
+        sut.handle(new Increment("a", 2));
+        sut.handle(new Increment("a", 3));
+
+        // then
+        assertThat("Expected no additional saga instance.", recorder.createdInstances.get(), equalTo(createdInstances));
+        assertThat("Expected all messages handled.", recorder.values("a"), contains(1, 2, 3));
+    }
+
+    @Test
+    void handle_continuingMessagesOfCachedSaga_storageSearchedOnce() throws Exception {
+        // given
+        sut.handle(new Start("a"));
+        sut.handle(new Increment("a", 1));
+        int searches = storage.searches.get();
+
+        // when
+        sut.handle(new Increment("a", 2));
+        sut.handle(new Increment("a", 3));
+
+        // then
+        assertThat("Expected first continuing message to search the storage.", searches, equalTo(1));
+        assertThat("Expected later messages routed from memory.", storage.searches.get(), equalTo(searches));
+        assertThat("Expected all messages handled.", recorder.values("a"), contains(1, 2, 3));
+    }
+
+    @Test
+    void add_messagesForSameSaga_handledInOrder() throws Exception {
+        // given
+        int messageCount = 100;
+        sut.handle(new Start("a"));
+
+        // when
+        for (int i = 0; i < messageCount; ++i) {
+            sut.add(new Increment("a", i));
+        }
+
+        // then
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < messageCount; ++i) {
+            expected.add(i);
+        }
+
+        assertThat("Expected messages in order they were added.", recorder.awaitValues("a", messageCount), equalTo(expected));
+        assertThat("Expected no concurrent handling of single saga.", recorder.maxConcurrent.get(), equalTo(1));
+    }
+
+    @Test
+    void add_messagesForDifferentSagas_handledInParallel() throws Exception {
+        // given
+        sut.handle(new Start("a"));
+        sut.handle(new Start("b"));
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        // when
+        sut.add(new Block("a", bothRunning));
+        sut.add(new Block("b", bothRunning));
+
+        // then
+        assertThat("Expected both sagas to run at the same time.", recorder.parallelRuns.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), equalTo(true));
+    }
+
+    @Test
+    void handle_sagaFinished_nextMessageNotHandled() throws Exception {
+        // given
+        sut.handle(new Start("a"));
+        sut.handle(new Stop("a"));
+
+        // when
+        sut.handle(new Increment("a", 1));
+
+        // then
+        assertThat("Expected no message handled by finished saga.", recorder.values("a"), equalTo(Collections.emptyList()));
+    }
+
+    @Test
+    void handle_twoHandlersOfSameMessage_bothHandleEveryMessage() throws Exception {
+        // given
+        Queue<String> handled = new ConcurrentLinkedQueue<>();
+        MessageStream stream = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(FirstStartHandler.class, SecondStartHandler.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends com.codebullets.sagalib.Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) (sagaClass == FirstStartHandler.class ? new FirstStartHandler(handled) : new SecondStartHandler(handled));
+                    }
+                })
+                .usingExecutor(Executors.newFixedThreadPool(2))
+                .usingMailboxExecution(MailboxMessageStream.DEFAULT_MAX_CACHED_SAGAS)
+                .build();
+
+        // when
+        try {
+            stream.handle(new Start("a"));
+            stream.handle(new Start("b"));
+        } finally {
+            stream.close();
+        }
+
+        // then
+        assertThat("Expected every message handled by both handlers.", handled, containsInAnyOrder("first-a", "second-a", "first-b", "second-b"));
+    }
+
+    /**
+     * Saga counting the messages it received, tracking the number of instances created.
+     */
+    public static class CounterSaga extends AbstractSaga<CounterState> {
+        private final Recorder recorder;
+
+        public CounterSaga(final Recorder recorder) {
+            this.recorder = recorder;
+            recorder.createdInstances.incrementAndGet();
+        }
+
+        @Override
+        public void createNewState() {
+            setState(new CounterState());
+        }
+
+        @StartsSaga
+        public void start(final Start message) {
+            state().addInstanceKey(message.key);
+        }
+
+        @EventHandler
+        public void increment(final Increment message) {
+            int active = recorder.active.incrementAndGet();
+            recorder.maxConcurrent.accumulateAndGet(active, Math::max);
+
+            recorder.record(message.key, message.value);
+            recorder.active.decrementAndGet();
+        }
+
+        @EventHandler
+        public void block(final Block message) throws InterruptedException {
+            message.bothRunning.countDown();
+            if (message.bothRunning.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                recorder.parallelRuns.countDown();
+            }
+        }
+
+        @EventHandler
+        public void stop(final Stop message) {
+            setFinished();
+        }
+
+        @Override
+        public Collection<KeyReader> keyReaders() {
+            return ImmutableList.of(
+                    KeyReaders.forMessage(Increment.class, m -> m.key),
+                    KeyReaders.forMessage(Block.class, m -> m.key),
+                    KeyReaders.forMessage(Stop.class, m -> m.key));
+        }
+
+        /**
+         * Collects the values seen by all saga instances.
+         */
+        static class Recorder {
+            final AtomicInteger createdInstances = new AtomicInteger();
+            final AtomicInteger active = new AtomicInteger();
+            final AtomicInteger maxConcurrent = new AtomicInteger();
+            final CountDownLatch parallelRuns = new CountDownLatch(1);
+            private final List<String> keys = new ArrayList<>();
+            private final List<Integer> values = new ArrayList<>();
+
+            synchronized void record(final String key, final int value) {
+                keys.add(key);
+                values.add(value);
+                notifyAll();
+            }
+
+            synchronized List<Integer> awaitValues(final String key, final int count) throws InterruptedException {
+                long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+                List<Integer> keyValues = values(key);
+
+                while (keyValues.size() < count && System.currentTimeMillis() < deadline) {
+                    wait(TimeUnit.SECONDS.toMillis(1));
+                    keyValues = values(key);
+                }
+
+                return keyValues;
+            }
+
+            synchronized List<Integer> values(final String key) {
+                List<Integer> keyValues = new ArrayList<>();
+                for (int i = 0; i < keys.size(); ++i) {
+                    if (keys.get(i).equals(key)) {
+                        keyValues.add(values.get(i));
+                    }
+                }
+
+                return keyValues;
+            }
+        }
+    }
+
+    /**
+     * Handler without state, handling the same message as {@link SecondStartHandler}.
+     */
+    public static class FirstStartHandler extends AbstractHandler<Start> {
+        private final Queue<String> handled;
+
+        public FirstStartHandler(final Queue<String> handled) {
+            super(Start.class);
+            this.handled = handled;
+        }
+
+        @Override
+        public void handle(final Start event) {
+            handled.add("first-" + event.key);
+        }
+    }
+
+    /**
+     * Handler without state, handling the same message as {@link FirstStartHandler}.
+     */
+    public static class SecondStartHandler extends AbstractHandler<Start> {
+        private final Queue<String> handled;
+
+        public SecondStartHandler(final Queue<String> handled) {
+            super(Start.class);
+            this.handled = handled;
+        }
+
+        @Override
+        public void handle(final Start event) {
+            handled.add("second-" + event.key);
+        }
+    }
+
+    public static class CounterState extends AbstractSagaState<String> {
+    }
+
+    public static class Start {
+        private final String key;
+
+        Start(final String key) {
+            this.key = key;
+        }
+    }
+
+    public static class Increment {
+        private final String key;
+        private final int value;
+
+        Increment(final String key, final int value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    public static class Block {
+        private final String key;
+        private final CountDownLatch bothRunning;
+
+        Block(final String key, final CountDownLatch bothRunning) {
+            this.key = key;
+            this.bothRunning = bothRunning;
+        }
+    }
+
+    public static class Stop {
+        private final String key;
+
+        Stop(final String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Memory storage counting the searches by instance key.
+     */
+    static class CountingStorage extends MemoryStorage {
+        private final AtomicInteger searches = new AtomicInteger();
+
+        @Override
+        public Stream<? extends SagaState> loadAll(final Iterable<InstanceKeySearchParam> searchParams) {
+            searches.incrementAndGet();
+            return super.loadAll(searchParams);
+        }
+    }
+}
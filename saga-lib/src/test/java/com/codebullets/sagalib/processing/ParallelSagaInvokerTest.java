@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.Saga;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class ParallelSagaInvokerTest {
+    private ForkJoinPool pool;
+    private Saga orderedSaga;
+    private ParallelSagaInvoker sut;
+
+    @BeforeEach
+    void initParallelSagaInvokerTest() {
+        pool = new ForkJoinPool(4);
+        orderedSaga = mock(OrderedSaga.class);
+        sut = new ParallelSagaInvoker(pool, ImmutableList.of(orderedSaga.getClass()));
+    }
+
+    @AfterEach
+    void closeParallelSagaInvokerTest() {
+        pool.shutdown();
+    }
+
+    @Test
+    void isOrdered_typeInExecutionOrder_returnsTrue() {
+        // when
+        boolean isOrdered = sut.isOrdered(orderedSaga);
+
+        // then
+        assertThat("Expected saga to be ordered.", isOrdered, equalTo(true));
+    }
+
+    @Test
+    void isOrdered_typeNotInExecutionOrder_returnsFalse() {
+        // when
+        boolean isOrdered = sut.isOrdered(mock(Saga.class));
+
+        // then
+        assertThat("Expected saga not to be ordered.", isOrdered, equalTo(false));
+    }
+
+    @Test
+    void invokeAll_manySagas_returnsResultsInSagaOrder() throws Exception {
+        // given
+        List<SagaInstanceInfo> sagas = createSagas(100);
+
+        // when
+        List<SagaInstanceInfo> results = sut.invokeAll(sagas, saga -> saga);
+
+        // then
+        assertThat("Expected results in order of sagas.", results, equalTo(sagas));
+    }
+
+    @Test
+    void invokeAll_invocationFails_throwsFailure() {
+        // given
+        List<SagaInstanceInfo> sagas = createSagas(20);
+        InvocationTargetException failure = new InvocationTargetException(new IllegalStateException());
+
+        // when
+        InvocationTargetException thrown = assertThrows(InvocationTargetException.class, () -> sut.invokeAll(sagas, saga -> {
+            if (saga == sagas.get(10)) {
+                throw failure;
+            }
+
+            return saga;
+        }));
+
+        // then
+        assertThat("Expected failure of saga invocation.", thrown, sameInstance(failure));
+    }
+
+    private static List<SagaInstanceInfo> createSagas(final int count) {
+        List<SagaInstanceInfo> sagas = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            sagas.add(SagaInstanceInfo.define(mock(Saga.class), false));
+        }
+
+        return sagas;
+    }
+
+    private interface OrderedSaga extends Saga {
+    }
+}
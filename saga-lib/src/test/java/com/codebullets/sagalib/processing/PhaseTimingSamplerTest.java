@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.PhaseTimings;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PhaseTimingSamplerTest {
+    @Test
+    void sample_defaultRate_returnsDisabledTimings() {
+        // given
+        PhaseTimingSampler sut = new PhaseTimingSampler();
+
+        // when
+        PhaseTimings timings = sut.sample();
+
+        // then
+        assertThat("Expected shared disabled instance.", timings, sameInstance(PhaseTimings.disabled()));
+    }
+
+    @Test
+    void sample_rateChangedAtRuntime_returnsEnabledTimings() {
+        // given
+        PhaseTimingSampler sut = new PhaseTimingSampler();
+        sut.sample();
+
+        // when
+        sut.setSampleRate(1);
+        PhaseTimings timings = sut.sample();
+
+        // then
+        assertThat("Expected timings to be recorded.", timings.isEnabled(), equalTo(true));
+    }
+
+    @Test
+    void sample_disabledAfterEnabling_returnsDisabledTimings() {
+        // given
+        PhaseTimingSampler sut = new PhaseTimingSampler().setSampleRate(1);
+
+        // when
+        sut.disable();
+        PhaseTimings timings = sut.sample();
+
+        // then
+        assertThat("Expected timings not to be recorded.", timings.isEnabled(), equalTo(false));
+    }
+
+    @Test
+    void setSampleRate_rateAboveOne_throwsException() {
+        // given
+        PhaseTimingSampler sut = new PhaseTimingSampler();
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> sut.setSampleRate(2));
+    }
+}
@@ -16,6 +16,7 @@
 package com.codebullets.sagalib.processing;
 
 import com.codebullets.sagalib.ExecutionContext;
+import com.codebullets.sagalib.PhaseTimings;
 import com.codebullets.sagalib.Saga;
 import com.codebullets.sagalib.SagaLifetimeInterceptor;
 import com.codebullets.sagalib.SagaModule;
@@ -740,6 +741,7 @@ public class SagaExecutionTaskTest {
 
         when(context.error()).thenReturn(Optional.empty());
         when(context.saga()).thenReturn(saga);
+        when(context.phaseTimings()).thenReturn(PhaseTimings.disabled());
 
         doAnswer(invocationOnMock -> {
             Object message = invocationOnMock.getArguments()[0];
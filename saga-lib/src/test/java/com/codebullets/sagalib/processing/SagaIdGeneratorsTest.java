@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AbstractSaga;
+import com.codebullets.sagalib.AbstractSagaState;
+import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.SagaState;
+import com.codebullets.sagalib.StartsSaga;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.codebullets.sagalib.storage.MemoryStorage;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+class SagaIdGeneratorsTest {
+
+    @Test
+    void idGenerator_defaultOptions_usesSecureRandom() {
+        // when
+        SagaIdGenerator generator = ExecutionOptions.defaults().idGenerator();
+
+        // then
+        assertThat("Expected secure random ids by default.", generator, sameInstance(SagaIdGenerators.secureRandom()));
+    }
+
+    @Test
+    void nextId_fastRandom_returnsVersion4Uuid() {
+        // when
+        UUID id = SagaIdGenerators.fastRandom().nextId();
+
+        // then
+        assertThat("Expected random based version.", id.version(), equalTo(4));
+        assertThat("Expected IETF variant.", id.variant(), equalTo(2));
+    }
+
+    @Test
+    void nextId_timeOrdered_returnsIncreasingIds() {
+        // given
+        SagaIdGenerator sut = SagaIdGenerators.timeOrdered();
+        UUID previous = sut.nextId();
+
+        for (int i = 0; i < 10000; ++i) {
+            // when
+            UUID next = sut.nextId();
+
+            // then
+            assertThat("Expected time based version.", next.version(), equalTo(7));
+            assertThat("Expected ids to increase.", Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()), greaterThan(0));
+            previous = next;
+        }
+    }
+
+    @Test
+    void nextSagaId_timeOrdered_returnsSortedUlidStrings() {
+        // given
+        SagaIdGenerator sut = SagaIdGenerators.timeOrdered();
+        List<String> ids = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 10000; ++i) {
+            ids.add(sut.nextSagaId());
+        }
+
+        // then
+        List<String> sorted = new ArrayList<>(ids);
+        sorted.sort(String::compareTo);
+        assertThat("Expected ULID length.", ids.get(0).length(), equalTo(26));
+        assertThat("Expected ids in order of creation.", sorted, equalTo(ids));
+    }
+
+    @Test
+    void handle_customIdGenerator_assignsGeneratedSagaId() throws Exception {
+        // given
+        MemoryStorage storage = new MemoryStorage();
+        MessageStream sut = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(IdSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new IdSaga();
+                    }
+                })
+                .usingStorage(storage)
+                .usingIdGenerator(() -> new UUID(0, 1))
+                .build();
+
+        // when
+        sut.handle("start");
+        sut.close();
+
+        // then
+        SagaState state = storage.load(new UUID(0, 1).toString());
+        assertThat("Expected state stored using the generated id.", state.getType(), equalTo(IdSaga.class.getName()));
+    }
+
+    /**
+     * Saga started by any string, kept open.
+     */
+    public static class IdSaga extends AbstractSaga<IdState> {
+        @Override
+        public void createNewState() {
+            setState(new IdState());
+        }
+
+        @StartsSaga
+        public void start(final String message) {
+        }
+
+        @Override
+        public Collection<KeyReader> keyReaders() {
+            return Collections.emptyList();
+        }
+    }
+
+    public static class IdState extends AbstractSagaState<String> {
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AbstractHandler;
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.StatelessHandler;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.codebullets.sagalib.timeout.TimeoutManager;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+
+class SagaInstanceCreatorTest {
+    private AtomicInteger createdInstances;
+    private SagaInstanceCreator sut;
+
+    @BeforeEach
+    void initSagaInstanceCreatorTest() {
+        createdInstances = new AtomicInteger();
+
+        sut = new SagaInstanceCreator(new SagaProviderFactory() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                return () -> {
+                    createdInstances.incrementAndGet();
+                    return (T) (sagaClass == StatelessStringHandler.class ? new StatelessStringHandler() : new StringHandler());
+                };
+            }
+        }, mock(TimeoutManager.class));
+    }
+
+    @Test
+    void createNew_statelessHandlerTwice_returnsSameInstance() throws Exception {
+        // given
+        Saga first = sut.createNew(StatelessStringHandler.class);
+
+        // when
+        Saga second = sut.createNew(StatelessStringHandler.class);
+
+        // then
+        assertThat("Expected instance to be reused.", second, sameInstance(first));
+        assertThat("Expected a single instance created.", createdInstances.get(), equalTo(1));
+    }
+
+    @Test
+    void createNew_statelessHandlerOnOtherThread_returnsOtherInstance() throws Exception {
+        // given
+        Saga first = sut.createNew(StatelessStringHandler.class);
+
+        // when
+        Saga other = CompletableFuture.supplyAsync(() -> {
+            try {
+                return sut.createNew(StatelessStringHandler.class);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }).get();
+
+        // then
+        assertThat("Expected an instance per thread.", other, not(sameInstance(first)));
+    }
+
+    @Test
+    void createNew_statelessInstanceInvoked_returnsOtherInstance() throws Exception {
+        // given
+        Saga first = sut.createNew(StatelessStringHandler.class);
+
+        // when
+        Saga nested;
+        InvokedSagas.started(first);
+        try {
+            nested = sut.createNew(StatelessStringHandler.class);
+        } finally {
+            InvokedSagas.finished(first);
+        }
+
+        // then
+        assertThat("Expected separate instance while invoked.", nested, not(sameInstance(first)));
+        assertThat("Expected instance reused once invocation finished.", sut.createNew(StatelessStringHandler.class), sameInstance(first));
+    }
+
+    @Test
+    void handle_statelessHandlerHandlesOwnChildMessage_contextOfSenderKept() throws Exception {
+        // given
+        List<Integer> handled = new ArrayList<>();
+        MessageStream[] stream = new MessageStream[1];
+        stream[0] = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(CountdownHandler.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new CountdownHandler(stream, handled);
+                    }
+                })
+                .build();
+
+        // when
+        try {
+            stream[0].handle(2);
+        } finally {
+            stream[0].close();
+        }
+
+        // then
+        assertThat("Expected every handler to keep the context of its own message.", handled, contains(0, 1, 2));
+    }
+
+    @Test
+    void createNew_handlerNotMarked_createsNewInstance() throws Exception {
+        // given
+        Saga first = sut.createNew(StringHandler.class);
+
+        // when
+        Saga second = sut.createNew(StringHandler.class);
+
+        // then
+        assertThat("Expected a new instance for every call.", second, not(sameInstance(first)));
+    }
+
+    @Test
+    void createNew_statelessHandlerByFactory_keepsFixedState() {
+        // given
+        SagaInstanceFactory factory = new SagaInstanceFactory(sut);
+        Saga handler = factory.createNew(SagaType.startsNewSaga(StatelessStringHandler.class)).getSaga();
+        String sagaId = handler.state().getSagaId();
+
+        // when
+        Saga reused = factory.createNew(SagaType.startsNewSaga(StatelessStringHandler.class)).getSaga();
+
+        // then
+        assertThat("Expected reused handler.", reused, sameInstance(handler));
+        assertThat("Expected no new saga id assigned.", reused.state().getSagaId(), equalTo(sagaId));
+    }
+
+    /**
+     * Handler creating a new instance for every message.
+     */
+    public static class StringHandler extends AbstractHandler<String> {
+        public StringHandler() {
+            super(String.class);
+        }
+
+        @Override
+        public void handle(final String event) {
+        }
+    }
+
+    /**
+     * Handler dispatching the next lower number as child message before recording
+     * the message of its context.
+     */
+    @StatelessHandler
+    public static class CountdownHandler extends AbstractHandler<Integer> {
+        private final MessageStream[] stream;
+        private final List<Integer> handled;
+
+        public CountdownHandler(final MessageStream[] stream, final List<Integer> handled) {
+            super(Integer.class);
+            this.stream = stream;
+            this.handled = handled;
+        }
+
+        @Override
+        public void handle(final Integer event) {
+            if (event > 0) {
+                try {
+                    stream[0].handle(event - 1, context());
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+
+            handled.add((Integer) context().message());
+        }
+    }
+
+    /**
+     * Handler reusing its instances.
+     */
+    @StatelessHandler
+    public static class StatelessStringHandler extends AbstractHandler<String> {
+        public StatelessStringHandler() {
+            super(String.class);
+        }
+
+        @Override
+        public void handle(final String event) {
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AbstractSaga;
+import com.codebullets.sagalib.AbstractSagaState;
+import com.codebullets.sagalib.AbstractSingleEventSaga;
+import com.codebullets.sagalib.EventHandler;
+import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.KeyReaders;
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.StartsSaga;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SagaInstancePoolTest {
+
+    @Test
+    void acquire_releasedInstance_returnsRecycledInstance() {
+        // given
+        SagaInstancePool sut = new SagaInstancePool(1, ImmutableList.of(PooledSaga.class));
+        PooledSaga saga = new PooledSaga(new ArrayList<>(), new HashSet<>());
+        saga.createNewState();
+        saga.continueWith(new Continue("a"));
+        sut.release(saga);
+
+        // when
+        Saga acquired = sut.acquire(PooledSaga.class);
+
+        // then
+        assertThat("Expected released instance.", acquired, sameInstance(saga));
+        assertThat("Expected state to be cleared.", acquired.state(), nullValue());
+        assertThat("Expected finished flag to be reset.", acquired.isFinished(), equalTo(false));
+        assertThat("Expected reuse to be counted.", sut.reusedCount(), equalTo(1L));
+    }
+
+    @Test
+    void release_poolFull_dropsInstance() {
+        // given
+        SagaInstancePool sut = new SagaInstancePool(1, ImmutableList.of(PooledSaga.class));
+        sut.release(new PooledSaga(new ArrayList<>(), new HashSet<>()));
+        sut.release(new PooledSaga(new ArrayList<>(), new HashSet<>()));
+
+        // when
+        sut.acquire(PooledSaga.class);
+        Saga second = sut.acquire(PooledSaga.class);
+
+        // then
+        assertThat("Expected only a single instance kept.", second, nullValue());
+    }
+
+    @Test
+    void ctor_typeNotRecyclable_throwsException() {
+        // given
+        Collection<Class<? extends Saga>> types = ImmutableList.of(PooledSaga.class, NotRecyclableSaga.class);
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> new SagaInstancePool(1, types));
+    }
+
+    @Test
+    void handle_pooledSagaType_reusesInstanceWithLoadedState() throws Exception {
+        // given
+        List<String> handledKeys = new ArrayList<>();
+        Set<Saga> handlingInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+        MessageStream sut = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(PooledSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new PooledSaga(handledKeys, handlingInstances);
+                    }
+                })
+                .usingSagaPooling(2, ImmutableList.of(PooledSaga.class))
+                .build();
+
+        // when
+        sut.handle(new Start("a"));
+        sut.handle(new Start("b"));
+        sut.handle(new Continue("a"));
+        sut.close();
+
+        // then
+        assertThat("Expected a single instance for all messages.", handlingInstances, hasSize(1));
+        assertThat("Expected state of the matching saga.", handledKeys, contains("start:a", "start:b", "continue:a"));
+    }
+
+    /**
+     * Saga recording the key of its state for every handled message.
+     */
+    public static class PooledSaga extends AbstractSaga<PooledState> {
+        private final List<String> handledKeys;
+        private final Set<Saga> handlingInstances;
+
+        public PooledSaga(final List<String> handledKeys, final Set<Saga> handlingInstances) {
+            this.handledKeys = handledKeys;
+            this.handlingInstances = handlingInstances;
+        }
+
+        @Override
+        public void createNewState() {
+            setState(new PooledState());
+        }
+
+        @StartsSaga
+        public void start(final Start message) {
+            state().addInstanceKey(message.key);
+            state().key = message.key;
+            handledKeys.add("start:" + state().key);
+            handlingInstances.add(this);
+        }
+
+        @EventHandler
+        public void continueWith(final Continue message) {
+            handledKeys.add("continue:" + state().key);
+            handlingInstances.add(this);
+            setFinished();
+        }
+
+        @Override
+        public Collection<KeyReader> keyReaders() {
+            return ImmutableList.of(KeyReaders.forMessage(Continue.class, m -> m.key));
+        }
+    }
+
+    /**
+     * Saga without reset hook.
+     */
+    public static class NotRecyclableSaga extends AbstractSingleEventSaga {
+        @StartsSaga
+        public void start(final Start message) {
+        }
+    }
+
+    public static class PooledState extends AbstractSagaState<String> {
+        private String key;
+    }
+
+    public static class Start {
+        private final String key;
+
+        Start(final String key) {
+            this.key = key;
+        }
+    }
+
+    public static class Continue {
+        private final String key;
+
+        Continue(final String key) {
+            this.key = key;
+        }
+    }
+}
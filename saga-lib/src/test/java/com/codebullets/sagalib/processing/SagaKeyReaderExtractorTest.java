@@ -18,6 +18,9 @@ package com.codebullets.sagalib.processing;
 import com.codebullets.sagalib.*;
 import com.codebullets.sagalib.KeyReader;
 import com.codebullets.sagalib.context.LookupContext;
+import com.codebullets.sagalib.startup.MessageHandler;
+import com.codebullets.sagalib.startup.SagaHandlersMap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
@@ -31,6 +34,8 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -305,4 +310,27 @@ public class SagaKeyReaderExtractorTest {
         // then
         assertThat("Expected returned key to match key value provided reader.", foundKey, equalTo((Object) keyValue));
     }
-}
\ No newline at end of file
+
+    /**
+     * Given => Key readers of continued saga have been warmed up.
+     * When  => findSagaInstanceKey is executed.
+     * Then  => Returns the key without reading the key readers of the saga again.
+     */
+    @Test
+    public void findSagaInstanceKey_afterWarmUp_doesNotReadKeyReadersAgain() throws NoSuchMethodException {
+        // given
+        KeyReader reader = KeyReaders.forMessage(String.class, message -> message);
+        when(testSaga.keyReaders()).thenReturn(Lists.newArrayList(reader));
+
+        SagaHandlersMap handlers = new SagaHandlersMap(Saga.class);
+        handlers.add(MessageHandler.reflectionInvokedHandler(String.class, Object.class.getMethod("toString"), false));
+        sut.warmUp(ImmutableMap.of(Saga.class, handlers));
+
+        // when
+        Object foundKey = sut.findSagaInstanceKey(Saga.class, SagaLookupContext.forMessage("my key"));
+
+        // then
+        assertThat("Expected key read by warmed up reader.", foundKey, equalTo((Object) "my key"));
+        verify(testSaga, times(1)).keyReaders();
+    }
+}
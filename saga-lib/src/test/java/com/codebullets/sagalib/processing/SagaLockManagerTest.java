@@ -0,0 +1,316 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.AbstractSaga;
+import com.codebullets.sagalib.EventHandler;
+import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.KeyReaders;
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.StartsSaga;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Provider;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SagaLockManagerTest {
+    private static final int TIMEOUT_SECONDS = 5;
+
+    @Test
+    void ctor_stripesNotPowerOfTwo_roundedUp() {
+        // when
+        SagaLockManager sut = new SagaLockManager(100, 1, TimeUnit.SECONDS);
+
+        // then
+        assertThat("Expected stripes rounded to next power of two.", sut.stripes(), equalTo(128));
+    }
+
+    @Test
+    void acquire_duplicateSagaIds_lockedOnce() {
+        // given
+        SagaLockManager sut = new SagaLockManager();
+
+        // when
+        sut.acquire("a", "a", "a").release();
+
+        // then
+        assertThat("Expected a single acquisition.", sut.acquisitions(), equalTo(1L));
+    }
+
+    @Test
+    void acquire_sagaLockedByOtherThread_waitsForRelease() throws Exception {
+        // given
+        SagaLockManager sut = new SagaLockManager();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        SagaLockManager.Lease lease = sut.acquire("a");
+
+        try {
+            // when
+            Future<?> other = executor.submit(() -> sut.acquire("a").release());
+            waitUntilQueued(sut, other);
+            lease.release();
+            other.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        assertThat("Expected second acquisition to be contended.", sut.contendedAcquisitions(), equalTo(1L));
+    }
+
+    @Test
+    void acquire_nestedSagaLockedByOtherThread_throwsAfterTimeout() throws Exception {
+        // given
+        SagaLockManager sut = new SagaLockManager(SagaLockManager.DEFAULT_STRIPES, 10, TimeUnit.MILLISECONDS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch otherLocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        try {
+            executor.submit(() -> {
+                SagaLockManager.Lease lease = sut.acquire("b");
+                otherLocked.countDown();
+                done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                lease.release();
+                return null;
+            });
+            otherLocked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            SagaLockManager.Lease parent = sut.acquire("a");
+
+            // when / then
+            try {
+                assertThrows(IllegalStateException.class, () -> sut.acquire("b"));
+            } finally {
+                parent.release();
+            }
+        } finally {
+            done.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void acquire_nestedSagaAlreadyHeld_reentersLock() {
+        // given
+        SagaLockManager sut = new SagaLockManager();
+        SagaLockManager.Lease parent = sut.acquire("a");
+
+        // when
+        SagaLockManager.Lease child = sut.acquire("a");
+        child.release();
+        parent.release();
+
+        // then
+        assertThat("Expected no contention on reentrant lock.", sut.contendedAcquisitions(), equalTo(0L));
+    }
+
+    @Test
+    void add_messagesForSameSagaOnMultipleThreads_handledOneAtATime() throws Exception {
+        // given
+        int messageCount = 200;
+        MailboxMessageStreamTest.CounterSaga.Recorder recorder = new MailboxMessageStreamTest.CounterSaga.Recorder();
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        ExecutionOptions options = ExecutionOptions.defaults();
+        options.setSagaLocks(new SagaLockManager());
+
+        MessageStream stream = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(MailboxMessageStreamTest.CounterSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new MailboxMessageStreamTest.CounterSaga(recorder);
+                    }
+                })
+                .usingExecutor(workers)
+                .usingExecutionOptions(options)
+                .build();
+
+        try {
+            stream.handle(new MailboxMessageStreamTest.Start("a"));
+
+            // when
+            for (int i = 0; i < messageCount; ++i) {
+                stream.add(new MailboxMessageStreamTest.Increment("a", i));
+            }
+
+            // then
+            assertThat("Expected all messages handled.", recorder.awaitValues("a", messageCount), hasSize(messageCount));
+            assertThat("Expected no concurrent handling of single saga.", recorder.maxConcurrent.get(), equalTo(1));
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Test
+    void handle_parallelSagaSendsChildToLockedSaga_childHandled() throws Exception {
+        // given
+        AtomicReference<MessageStream> streamRef = new AtomicReference<>();
+        CountDownLatch childHandled = new CountDownLatch(1);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ExecutionOptions options = ExecutionOptions.defaults();
+        options.setSagaLocks(new SagaLockManager());
+        options.setParallelInvocation(pool);
+
+        MessageStream stream = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(PingSaga.class, PongSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) (sagaClass == PingSaga.class ? new PingSaga(streamRef) : new PongSaga(childHandled));
+                    }
+                })
+                .usingExecutionOptions(options)
+                .build();
+        streamRef.set(stream);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+
+        try {
+            stream.handle(new Open("a"));
+
+            // when
+            Future<?> handled = caller.submit(() -> {
+                stream.handle(new Ping("a"));
+                return null;
+            });
+
+            // then
+            handled.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertThat("Expected child message handled by locked saga.", childHandled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), equalTo(true));
+        } finally {
+            caller.shutdownNow();
+            stream.close();
+            pool.shutdownNow();
+        }
+    }
+
+    private static void waitUntilQueued(final SagaLockManager sut, final Future<?> other) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (sut.contendedAcquisitions() == 0 && !other.isDone() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Continued by {@link Ping}, sends a child message continuing the {@link PongSaga}.
+     */
+    public static class PingSaga extends AbstractSaga<MailboxMessageStreamTest.CounterState> {
+        private final AtomicReference<MessageStream> stream;
+
+        public PingSaga(final AtomicReference<MessageStream> stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void createNewState() {
+            setState(new MailboxMessageStreamTest.CounterState());
+        }
+
+        @StartsSaga
+        public void start(final Open message) {
+            state().addInstanceKey(message.key);
+        }
+
+        @EventHandler
+        public void ping(final Ping message) throws Exception {
+            stream.get().handle(new Pong(message.key), context());
+        }
+
+        @Override
+        public Collection<KeyReader> keyReaders() {
+            return ImmutableList.of(KeyReaders.forMessage(Ping.class, m -> m.key));
+        }
+    }
+
+    /**
+     * Continued by {@link Ping} along with the {@link PingSaga} and by the child message {@link Pong}.
+     */
+    public static class PongSaga extends AbstractSaga<MailboxMessageStreamTest.CounterState> {
+        private final CountDownLatch childHandled;
+
+        public PongSaga(final CountDownLatch childHandled) {
+            this.childHandled = childHandled;
+        }
+
+        @Override
+        public void createNewState() {
+            setState(new MailboxMessageStreamTest.CounterState());
+        }
+
+        @StartsSaga
+        public void start(final Open message) {
+            state().addInstanceKey(message.key);
+        }
+
+        @EventHandler
+        public void ping(final Ping message) {
+            // continued along with the ping saga, making both invoked in parallel
+        }
+
+        @EventHandler
+        public void pong(final Pong message) {
+            childHandled.countDown();
+        }
+
+        @Override
+        public Collection<KeyReader> keyReaders() {
+            return ImmutableList.of(
+                    KeyReaders.forMessage(Ping.class, m -> m.key),
+                    KeyReaders.forMessage(Pong.class, m -> m.key));
+        }
+    }
+
+    public static class Open {
+        private final String key;
+
+        Open(final String key) {
+            this.key = key;
+        }
+    }
+
+    public static class Ping {
+        private final String key;
+
+        Ping(final String key) {
+            this.key = key;
+        }
+    }
+
+    public static class Pong {
+        private final String key;
+
+        Pong(final String key) {
+            this.key = key;
+        }
+    }
+}
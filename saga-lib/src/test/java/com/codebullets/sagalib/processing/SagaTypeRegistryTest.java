@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.IntegerSaga;
+import com.codebullets.sagalib.NumberSaga;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.TestSaga;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SagaTypeRegistryTest {
+
+    @Test
+    void typeOf_registeredType_returnsType() {
+        // given
+        SagaTypeRegistry sut = SagaTypeRegistry.of(ImmutableList.<Class<? extends Saga>>of(TestSaga.class, IntegerSaga.class));
+
+        // when
+        Class<? extends Saga> type = sut.typeOf(IntegerSaga.class.getName());
+
+        // then
+        assertThat("Expected type to be found by name.", type, sameInstance(IntegerSaga.class));
+    }
+
+    @Test
+    void typeOf_unregisteredType_returnsNull() {
+        // given
+        SagaTypeRegistry sut = SagaTypeRegistry.of(ImmutableList.of(TestSaga.class));
+
+        // when
+        Class<? extends Saga> type = sut.typeOf(NumberSaga.class.getName());
+
+        // then
+        assertThat("Expected type not to be found by name.", type, nullValue());
+    }
+
+    @Test
+    void resolve_unregisteredType_loadsAndRegistersType() throws ClassNotFoundException {
+        // given
+        SagaTypeRegistry sut = SagaTypeRegistry.of(ImmutableList.of(TestSaga.class));
+
+        // when
+        Class<? extends Saga> type = sut.resolve(NumberSaga.class.getName());
+
+        // then
+        assertThat("Expected type to be loaded.", type, sameInstance(NumberSaga.class));
+        assertThat("Expected type to be registered.", sut.typeOf(NumberSaga.class.getName()), sameInstance(NumberSaga.class));
+        assertThat("Expected type count to include new type.", sut.size(), equalTo(2));
+    }
+
+    @Test
+    void resolve_noSagaType_throwsIllegalArgumentException() {
+        // given
+        SagaTypeRegistry sut = new SagaTypeRegistry();
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> sut.resolve(String.class.getName()));
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.processing.MailboxMessageStreamTest.Block;
+import com.codebullets.sagalib.processing.MailboxMessageStreamTest.CounterSaga;
+import com.codebullets.sagalib.processing.MailboxMessageStreamTest.Increment;
+import com.codebullets.sagalib.processing.MailboxMessageStreamTest.Start;
+import com.codebullets.sagalib.processing.MailboxMessageStreamTest.Stop;
+import com.codebullets.sagalib.AbstractSaga;
+import com.codebullets.sagalib.AbstractSagaState;
+import com.codebullets.sagalib.EventHandler;
+import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.KeyReaders;
+import com.codebullets.sagalib.StartsSaga;
+import com.codebullets.sagalib.metrics.SagaMetrics;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+class StagedMessageStreamTest {
+    private static final int TIMEOUT_SECONDS = 5;
+
+    private StagedMessageStream sut;
+    private CounterSaga.Recorder recorder;
+    private SagaMetrics metrics;
+
+    @BeforeEach
+    void initStagedMessageStreamTest() {
+        recorder = new CounterSaga.Recorder();
+        metrics = new SagaMetrics();
+
+        sut = (StagedMessageStream) EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(CounterSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends com.codebullets.sagalib.Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new CounterSaga(recorder);
+                    }
+                })
+                .usingStagedExecution(StagedExecutionOptions.defaults().setInvokeThreads(2))
+                .collectingMetrics(metrics)
+                .build();
+    }
+
+    @AfterEach
+    void closeStagedMessageStreamTest() throws Exception {
+        sut.close();
+    }
+
+    @Test
+    void handle_continuingMessages_seesStateOfPreviousMessage() throws Exception {
+        // given
+        sut.handle(new Start("a"));
+
+        // when
+        sut.handle(new Increment("a", 1));
+        sut.handle(new Increment("a", 2));
+
+        // then
+        assertThat("Expected all messages handled.", recorder.values("a"), contains(1, 2));
+        assertThat("Expected no message left in flight.", sut.inFlightCount(), equalTo(0));
+    }
+
+    @Test
+    void add_messagesForSameSaga_handledInOrder() throws Exception {
+        // given
+        int messageCount = 100;
+        sut.handle(new Start("a"));
+
+        // when
+        for (int i = 0; i < messageCount; ++i) {
+            sut.add(new Increment("a", i));
+        }
+
+        // then
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < messageCount; ++i) {
+            expected.add(i);
+        }
+
+        assertThat("Expected messages in order they were added.", recorder.awaitValues("a", messageCount), equalTo(expected));
+        assertThat("Expected no concurrent handling of single saga.", recorder.maxConcurrent.get(), equalTo(1));
+    }
+
+    @Test
+    void add_messagesForDifferentSagas_handledInParallel() throws Exception {
+        // given
+        sut.handle(new Start("a"));
+        sut.handle(new Start("b"));
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        // when
+        sut.add(new Block("a", bothRunning));
+        sut.add(new Block("b", bothRunning));
+
+        // then
+        assertThat("Expected both sagas to run at the same time.", recorder.parallelRuns.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), equalTo(true));
+    }
+
+    @Test
+    void handle_sagaFinished_nextMessageNotHandled() throws Exception {
+        // given
+        sut.handle(new Start("a"));
+        sut.handle(new Stop("a"));
+
+        // when
+        sut.handle(new Increment("a", 1));
+
+        // then
+        assertThat("Expected no message handled by finished saga.", recorder.values("a"), equalTo(Collections.emptyList()));
+    }
+
+    @Test
+    void handle_metricsCollected_latencyRecordedForEveryMessage() throws Exception {
+        // given
+        sut.handle(new Start("a"));
+
+        // when
+        sut.handle(new Increment("a", 1));
+        sut.handle(new Increment("a", 2));
+
+        // then
+        assertThat("Expected all messages counted.", metrics.messagesHandled(), equalTo(3L));
+        assertThat("Expected latency of all messages recorded.", metrics.messageLatency().count(), equalTo(3L));
+    }
+
+    @Test
+    void add_differentKeysOfSameSaga_noUpdateLost() throws Exception {
+        // given
+        int messageCount = 50;
+        TotalSaga.Totals totals = new TotalSaga.Totals();
+        StagedMessageStream stream = (StagedMessageStream) EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(TotalSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends com.codebullets.sagalib.Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new TotalSaga(totals);
+                    }
+                })
+                .usingStagedExecution(StagedExecutionOptions.defaults().setInvokeThreads(2))
+                .build();
+
+        try {
+            stream.handle(new OpenTotal("a", "alias-a"));
+
+            // when
+            for (int i = 0; i < messageCount; ++i) {
+                stream.add(new Add(i % 2 == 0 ? "a" : "alias-a"));
+            }
+
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (stream.inFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+
+            stream.handle(new Report("a"));
+        } finally {
+            stream.close();
+        }
+
+        // then
+        assertThat("Expected no concurrent handling of single saga.", totals.maxConcurrent.get(), equalTo(1));
+        assertThat("Expected all additions in saga state.", totals.reported.get(), equalTo(messageCount));
+    }
+
+    @Test
+    void queueDepth_idleStream_returnsZero() {
+        // when
+        int depth = sut.queueDepth(StagedMessageStream.Stage.PERSIST);
+
+        // then
+        assertThat("Expected no queued message.", depth, equalTo(0));
+    }
+
+    /**
+     * Saga reachable using two instance keys, summing up all additions in its state.
+     */
+    public static class TotalSaga extends AbstractSaga<TotalState> {
+        private final Totals totals;
+
+        public TotalSaga(final Totals totals) {
+            this.totals = totals;
+        }
+
+        @Override
+        public void createNewState() {
+            setState(new TotalState());
+        }
+
+        @StartsSaga
+        public void open(final OpenTotal message) {
+            state().addInstanceKey(message.key);
+            state().addInstanceKey(message.alias);
+        }
+
+        @EventHandler
+        public void add(final Add message) throws InterruptedException {
+            int active = totals.active.incrementAndGet();
+            totals.maxConcurrent.accumulateAndGet(active, Math::max);
+
+            int total = state().total;
+            Thread.sleep(1);
+            state().total = total + 1;
+
+            totals.active.decrementAndGet();
+        }
+
+        @EventHandler
+        public void report(final Report message) {
+            totals.reported.set(state().total);
+        }
+
+        @Override
+        public Collection<KeyReader> keyReaders() {
+            return ImmutableList.of(
+                    KeyReaders.forMessage(Add.class, m -> m.key),
+                    KeyReaders.forMessage(Report.class, m -> m.key));
+        }
+
+        static class Totals {
+            final AtomicInteger active = new AtomicInteger();
+            final AtomicInteger maxConcurrent = new AtomicInteger();
+            final AtomicInteger reported = new AtomicInteger(-1);
+        }
+    }
+
+    public static class TotalState extends AbstractSagaState<String> {
+        private int total;
+    }
+
+    public static class OpenTotal {
+        private final String key;
+        private final String alias;
+
+        OpenTotal(final String key, final String alias) {
+            this.key = key;
+            this.alias = alias;
+        }
+    }
+
+    public static class Add {
+        private final String key;
+
+        Add(final String key) {
+            this.key = key;
+        }
+    }
+
+    public static class Report {
+        private final String key;
+
+        Report(final String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Provider;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+class StatePrefetcherTest {
+    private Queue<Runnable> queuedMessages;
+    private MailboxMessageStreamTest.CounterSaga.Recorder recorder;
+    private StatePrefetcher sut;
+    private MessageStream stream;
+
+    @BeforeEach
+    void initStatePrefetcherTest() {
+        queuedMessages = new ArrayDeque<>();
+        recorder = new MailboxMessageStreamTest.CounterSaga.Recorder();
+        sut = new StatePrefetcher(Runnable::run);
+
+        stream = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(MailboxMessageStreamTest.CounterSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new MailboxMessageStreamTest.CounterSaga(recorder);
+                    }
+                })
+                .usingExecutor(queuedMessages::add)
+                .usingExecutionOptions(ExecutionOptions.defaults().setStatePrefetch(sut))
+                .build();
+    }
+
+    @AfterEach
+    void closeStatePrefetcherTest() throws Exception {
+        stream.close();
+    }
+
+    @Test
+    void add_sagaStarted_stateServedFromStaging() throws Exception {
+        // given
+        stream.handle(new MailboxMessageStreamTest.Start("a"));
+
+        // when
+        stream.add(new MailboxMessageStreamTest.Increment("a", 1));
+        runQueuedMessages();
+
+        // then
+        assertThat("Expected state lookup to be served from staged states.", sut.hits(), equalTo(1L));
+        assertThat("Expected message to be handled.", recorder.values("a"), contains(1));
+    }
+
+    @Test
+    void add_sameKeyTwice_secondMessageLoadsFromStorage() throws Exception {
+        // given
+        stream.handle(new MailboxMessageStreamTest.Start("a"));
+
+        // when
+        stream.add(new MailboxMessageStreamTest.Increment("a", 1));
+        stream.add(new MailboxMessageStreamTest.Increment("a", 2));
+        runQueuedMessages();
+
+        // then
+        assertThat("Expected one hit.", sut.hits(), equalTo(1L));
+        assertThat("Expected one miss.", sut.misses(), equalTo(1L));
+        assertThat("Expected both messages to be handled.", recorder.values("a"), contains(1, 2));
+    }
+
+    @Test
+    void add_sagaStartedAfterPrefetch_prefetchWastedAndSagaFound() throws Exception {
+        // given
+        stream.add(new MailboxMessageStreamTest.Increment("a", 1));
+
+        // when
+        stream.handle(new MailboxMessageStreamTest.Start("a"));
+        runQueuedMessages();
+
+        // then
+        assertThat("Expected outdated prefetch to be wasted.", sut.wastedPrefetches(), equalTo(1L));
+        assertThat("Expected message to be handled by started saga.", recorder.values("a"), contains(1));
+    }
+
+    @Test
+    void add_sagaFinishedByMessageWithSameKeys_finishedSagaNotCalled() throws Exception {
+        // given
+        stream.handle(new MailboxMessageStreamTest.Start("a"));
+        stream.add(new MailboxMessageStreamTest.Increment("a", 1));
+
+        // when
+        stream.handle(new MailboxMessageStreamTest.Stop("a"));
+        runQueuedMessages();
+
+        // then
+        assertThat("Expected staged states to be used by the first message.", sut.hits(), equalTo(1L));
+        assertThat("Expected queued message to load states from storage.", sut.misses(), equalTo(1L));
+        assertThat("Expected finished saga not to be called.", recorder.values("a"), empty());
+    }
+
+    private void runQueuedMessages() {
+        Runnable message = queuedMessages.poll();
+        while (message != null) {
+            message.run();
+            message = queuedMessages.poll();
+        }
+    }
+}
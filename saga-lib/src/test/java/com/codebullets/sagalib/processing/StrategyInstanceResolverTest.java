@@ -15,6 +15,7 @@
  */
 package com.codebullets.sagalib.processing;
 
+import com.codebullets.sagalib.PhaseTimings;
 import com.codebullets.sagalib.context.LookupContext;
 import com.google.common.collect.Lists;
 import org.junit.Before;
@@ -55,7 +56,7 @@ public class StrategyInstanceResolverTest {
     @Test
     public void resolve_finderReturnsStrategy_callResolveOnStrategy() {
         // given
-        LookupContext context = mock(LookupContext.class);
+        LookupContext context = mockContext();
         ResolveStrategy strategy = mockStrategy(context);
 
         // when
@@ -80,7 +81,7 @@ public class StrategyInstanceResolverTest {
         when(strategy.resolve(any())).thenReturn(Lists.newArrayList(instanceInfo));
 
         // when
-        Collection<SagaInstanceInfo> instances = sut.resolve(mock(LookupContext.class));
+        Collection<SagaInstanceInfo> instances = sut.resolve(mockContext());
 
         // then
         assertThat("Expected instance in result set.", instances, hasItem(instanceInfo));
@@ -100,7 +101,7 @@ public class StrategyInstanceResolverTest {
         when(strategy.resolve(any(LookupContext.class))).thenReturn(Collections.<SagaInstanceInfo>emptyList());
 
         // when
-        Collection<SagaInstanceInfo> instances = sut.resolve(null);
+        Collection<SagaInstanceInfo> instances = sut.resolve(mockContext());
 
         // then
         assertThat("Expected an empty list.", instances, hasSize(0));
@@ -112,6 +113,13 @@ public class StrategyInstanceResolverTest {
         return strategy;
     }
 
+    private LookupContext mockContext() {
+        LookupContext context = mock(LookupContext.class);
+        when(context.phaseTimings()).thenReturn(PhaseTimings.disabled());
+
+        return context;
+    }
+
     private ResolveStrategy mockStrategy(final LookupContext context) {
         ResolveStrategy strategy = mock(ResolveStrategy.class);
         when(strategyFinder.find(context)).thenReturn(Lists.newArrayList(strategy));
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.processing;
+
+import com.codebullets.sagalib.MessageStream;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.processing.MailboxMessageStreamTest.CounterSaga;
+import com.codebullets.sagalib.processing.MailboxMessageStreamTest.Increment;
+import com.codebullets.sagalib.startup.EventStreamBuilder;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class UnhandledMessagesTest {
+    private UnhandledMessages unhandledMessages;
+    private MessageStream sut;
+
+    @BeforeEach
+    void initUnhandledMessagesTest() {
+        unhandledMessages = new UnhandledMessages(1, TimeUnit.HOURS);
+        CounterSaga.Recorder recorder = new CounterSaga.Recorder();
+
+        sut = EventStreamBuilder.configure()
+                .usingScanner(() -> ImmutableList.of(CounterSaga.class))
+                .usingSagaProviderFactory(new SagaProviderFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends Saga> javax.inject.Provider<T> createProvider(final Class<T> sagaClass) {
+                        return () -> (T) new CounterSaga(recorder);
+                    }
+                })
+                .usingExecutionOptions(ExecutionOptions.defaults().setUnhandledMessages(unhandledMessages))
+                .build();
+    }
+
+    @AfterEach
+    void closeUnhandledMessagesTest() throws Exception {
+        sut.close();
+    }
+
+    @Test
+    void handle_messageTypeWithoutSaga_skipsSagaAndDeadMessageResolution() throws Exception {
+        // when
+        sut.handle("not handled by any saga");
+
+        // then
+        assertThat("Expected message counted as unhandled.", unhandledMessages.unhandledCount(), equalTo(1L));
+        assertThat("Expected saga and dead message resolution skipped.", unhandledMessages.skippedResolutionCount(), equalTo(2L));
+    }
+
+    @Test
+    void handle_handledTypeWithoutSagaInstance_resolvesAndCountsUnhandled() throws Exception {
+        // when
+        sut.handle(new Increment("unknown", 1));
+
+        // then
+        assertThat("Expected message counted as unhandled.", unhandledMessages.unhandledCount(), equalTo(1L));
+        assertThat("Expected only dead message resolution skipped.", unhandledMessages.skippedResolutionCount(), equalTo(1L));
+    }
+
+    @Test
+    void report_manyMessagesWithinInterval_countsAll() {
+        // when
+        for (int i = 0; i < 100; ++i) {
+            unhandledMessages.report(i);
+        }
+
+        // then
+        assertThat("Expected all messages counted.", unhandledMessages.unhandledCount(), equalTo(100L));
+    }
+}
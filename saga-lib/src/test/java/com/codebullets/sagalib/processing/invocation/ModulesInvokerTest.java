@@ -27,11 +27,13 @@ import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -52,7 +54,7 @@ public class ModulesInvokerTest {
         CurrentExecutionContext context = mock(CurrentExecutionContext.class);
 
         // when
-        ModulesInvoker.start(context, modules);
+        new ModulesInvoker(ModulesInvoker.toArray(modules)).startModules(context);
 
         // then
         verify(modules.get(0)).onStart(context);
@@ -64,7 +66,7 @@ public class ModulesInvokerTest {
     public void finish_allModulesStarted_callsFinishedOnAllModulesInReverseOrder() {
         // given
         CurrentExecutionContext context = mock(CurrentExecutionContext.class);
-        ModulesInvoker sut = ModulesInvoker.start(context, modules).getInvoker();
+        ModulesInvoker sut = startInvoker(context);
 
         // when
         sut.finish();
@@ -85,7 +87,7 @@ public class ModulesInvokerTest {
 
         // when
         try {
-            ModulesInvoker.start(context, modules);
+            new ModulesInvoker(ModulesInvoker.toArray(modules)).startModules(context);
         } catch (Exception e) {
             // is expected, module start() is exception neutral
         }
@@ -99,7 +101,7 @@ public class ModulesInvokerTest {
     public void error_allModulesStarted_callsErrorOnAllModulesInReverseOrder() {
         // given
         CurrentExecutionContext context = mock(CurrentExecutionContext.class);
-        ModulesInvoker sut = ModulesInvoker.start(context, modules).getInvoker();
+        ModulesInvoker sut = startInvoker(context);
 
         Object message = new Object();
         NullPointerException ex = new NullPointerException();
@@ -125,10 +127,10 @@ public class ModulesInvokerTest {
         doThrow(ex).when(modules.get(1)).onStart(context);
 
         // when
-        ModulesInvoker.StartResult result = ModulesInvoker.start(context, modules);
+        Exception startError = new ModulesInvoker(ModulesInvoker.toArray(modules)).startModules(context);
 
         // then
-        assertThat("Expected exception in returned result.", result.error().get(), equalTo(ex));
+        assertThat("Expected exception in returned result.", startError, equalTo(ex));
     }
 
     @Test
@@ -141,7 +143,7 @@ public class ModulesInvokerTest {
 
         // when
         try {
-            ModulesInvoker.start(context, modules);
+            new ModulesInvoker(ModulesInvoker.toArray(modules)).startModules(context);
         } catch (Exception e) {
             // expected
         }
@@ -154,7 +156,7 @@ public class ModulesInvokerTest {
     public void finish_moduleThrowsDuringFinish_callOtherModules() {
         // given
         CurrentExecutionContext context = mock(CurrentExecutionContext.class);
-        ModulesInvoker sut = ModulesInvoker.start(context, modules).getInvoker();
+        ModulesInvoker sut = startInvoker(context);
         doThrow(NullPointerException.class).when(modules.get(1)).onFinished(context);
 
         // when
@@ -170,7 +172,7 @@ public class ModulesInvokerTest {
     public void error_moduleThrowsDuringError_callOtherModules() {
         // given
         CurrentExecutionContext context = mock(CurrentExecutionContext.class);
-        ModulesInvoker sut = ModulesInvoker.start(context, modules).getInvoker();
+        ModulesInvoker sut = startInvoker(context);
         NullPointerException ex = new NullPointerException();
         Object message = new Object();
         doThrow(ex).when(modules.get(1)).onError(context, message, ex);
@@ -188,7 +190,7 @@ public class ModulesInvokerTest {
     public void error_moduleThrowsDuringError_returnsEncounteredException() {
         // given
         CurrentExecutionContext context = mock(CurrentExecutionContext.class);
-        ModulesInvoker sut = ModulesInvoker.start(context, modules).getInvoker();
+        ModulesInvoker sut = startInvoker(context);
         NullPointerException ex = new NullPointerException();
         Object message = new Object();
         doThrow(ex).when(modules.get(1)).onError(context, message, ex);
@@ -204,7 +206,7 @@ public class ModulesInvokerTest {
     public void finish_moduleThrowsDuringFinish_returnsEncounteredException() {
         // given
         CurrentExecutionContext context = mock(CurrentExecutionContext.class);
-        ModulesInvoker sut = ModulesInvoker.start(context, modules).getInvoker();
+        ModulesInvoker sut = startInvoker(context);
         NullPointerException ex = new NullPointerException();
         doThrow(ex).when(modules.get(2)).onFinished(context);
 
@@ -219,7 +221,7 @@ public class ModulesInvokerTest {
     public void finish_multipleModulesThrowsDuringFinish_returnsAllEncounteredException() {
         // given
         CurrentExecutionContext context = mock(CurrentExecutionContext.class);
-        ModulesInvoker sut = ModulesInvoker.start(context, modules).getInvoker();
+        ModulesInvoker sut = startInvoker(context);
         NullPointerException ex1 = new NullPointerException();
         NullPointerException ex2 = new NullPointerException();
         doThrow(ex1).when(modules.get(1)).onFinished(context);
@@ -232,4 +234,55 @@ public class ModulesInvokerTest {
         assertThat("Expected thrown exception 1 in returned collection.", errors, hasItem(ex1));
         assertThat("Expected thrown exception 2 in returned collection.", errors, hasItem(ex2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void finish_startErrorOnSecondModule_finishesFirstTwoInReverseOrder() {
+        // given
+        CurrentExecutionContext context = mock(CurrentExecutionContext.class);
+        doThrow(NullPointerException.class).when(modules.get(1)).onStart(context);
+        ModulesInvoker sut = startInvoker(context);
+
+        // when
+        sut.finish();
+
+        // then
+        InOrder inOrder = inOrder(modules.get(0), modules.get(1));
+        inOrder.verify(modules.get(1)).onFinished(context);
+        inOrder.verify(modules.get(0)).onFinished(context);
+        verify(modules.get(2), never()).onFinished(context);
+    }
+
+    @Test
+    public void finish_noModuleThrows_returnsEmptyCollection() {
+        // given
+        CurrentExecutionContext context = mock(CurrentExecutionContext.class);
+        ModulesInvoker sut = startInvoker(context);
+
+        // when
+        Collection<Exception> errors = sut.finish();
+
+        // then
+        assertThat("Expected no errors to be returned.", errors, empty());
+    }
+
+    @Test
+    public void finish_invokerReset_doesNotCallModules() {
+        // given
+        CurrentExecutionContext context = mock(CurrentExecutionContext.class);
+        ModulesInvoker sut = startInvoker(context);
+        sut.finish();
+
+        // when
+        sut.reset();
+        sut.finish();
+
+        // then
+        verify(modules.get(0), times(1)).onFinished(context);
+    }
+
+    private ModulesInvoker startInvoker(final CurrentExecutionContext context) {
+        ModulesInvoker invoker = new ModulesInvoker(ModulesInvoker.toArray(modules));
+        invoker.startModules(context);
+        return invoker;
+    }
+}
@@ -2,6 +2,8 @@ package com.codebullets.sagalib.startup;
 
 
 import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.TestSaga;
+import com.codebullets.sagalib.handling.DirectDescriptionSaga;
 import com.codebullets.sagalib.processing.SagaProviderFactory;
 import com.codebullets.sagalib.storage.StateStorage;
 import com.codebullets.sagalib.timeout.TimeoutManager;
@@ -9,13 +11,23 @@ import org.junit.Test;
 
 import javax.inject.Provider;
 
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
 
 /**
@@ -78,6 +90,64 @@ public class EventStreamBuilderTest {
         verify(closeable).close();
     }
 
+    /**
+     * Given => Stream is configured to warm up caches.
+     * When  => build is called.
+     * Then  => Providers of the known sagas are created before the first message is handled.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void build_warmUp_createsProvidersOfKnownSagas() {
+        // given
+        SagaProviderFactory providerFactory = mock(SagaProviderFactory.class);
+        when(providerFactory.createProvider(TestSaga.class)).thenReturn(TestSaga::new);
+        StreamBuilder streamBuilder = EventStreamBuilder.configure()
+                .usingScanner(() -> Collections.singletonList(TestSaga.class))
+                .usingSagaProviderFactory(providerFactory)
+                .warmUp();
+
+        // when
+        streamBuilder.build();
+
+        // then
+        verify(providerFactory, atLeastOnce()).createProvider(TestSaga.class);
+    }
+
+    /**
+     * Given => Stream is configured to analyze sagas in parallel.
+     * When  => build is called.
+     * Then  => Self describing sagas are created using the context class loader of the calling thread.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void build_parallelAnalysis_createsSagasWithCallerClassLoader() {
+        // given
+        ClassLoader callerClassLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        Collection<ClassLoader> usedClassLoaders = new ConcurrentLinkedQueue<>();
+        SagaProviderFactory providerFactory = mock(SagaProviderFactory.class);
+        when(providerFactory.createProvider(DirectDescriptionSaga.class)).thenReturn(() -> {
+            usedClassLoaders.add(Thread.currentThread().getContextClassLoader());
+            return new DirectDescriptionSaga(new HashMap<>());
+        });
+        StreamBuilder streamBuilder = EventStreamBuilder.configure()
+                .usingScanner(() -> Collections.singletonList(DirectDescriptionSaga.class))
+                .usingSagaProviderFactory(providerFactory)
+                .usingParallelAnalysis(2);
+
+        // when
+        ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(callerClassLoader);
+        try {
+            streamBuilder.build();
+        } finally {
+            Thread.currentThread().setContextClassLoader(previousClassLoader);
+        }
+
+        // then
+        assertThat("Expected saga to be created during analysis.", usedClassLoaders, not(empty()));
+        assertThat("Expected caller class loader to be used.", usedClassLoaders, everyItem(sameInstance(callerClassLoader)));
+    }
+
     private static class DummyProvider implements SagaProviderFactory {
         @Override
         public <T extends Saga> Provider<T> createProvider(final Class<T> sagaClass) {
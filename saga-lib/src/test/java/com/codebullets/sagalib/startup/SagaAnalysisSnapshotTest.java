@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.startup;
+
+import com.codebullets.sagalib.AbstractSaga;
+import com.codebullets.sagalib.EventHandler;
+import com.codebullets.sagalib.KeyReader;
+import com.codebullets.sagalib.Saga;
+import com.codebullets.sagalib.StartsSaga;
+import com.codebullets.sagalib.TestSaga;
+import com.codebullets.sagalib.TestSagaState;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SagaAnalysisSnapshotTest {
+
+    @Test
+    void read_writtenAnalysis_returnsSameHandlers() throws IOException {
+        // given
+        Map<Class<? extends Saga>, SagaHandlersMap> analysis = analyze(TestSaga.class, BatchSaga.class);
+        SagaHandlersMap described = new SagaHandlersMap(DescribedSaga.class);
+        described.add(MessageHandler.selfDescribedHandler(String.class, true));
+        described.add(MessageHandler.selfDescribedHandler(Integer.class, false));
+        analysis.put(DescribedSaga.class, described);
+
+        // when
+        Optional<Map<Class<? extends Saga>, SagaHandlersMap>> snapshot = readSnapshot(writeSnapshot(analysis));
+
+        // then
+        assertThat("Expected snapshot to be loaded.", snapshot.isPresent(), is(true));
+        assertThat("Expected same saga types.", snapshot.get().keySet(), equalTo(analysis.keySet()));
+        for (Class<? extends Saga> sagaType : analysis.keySet()) {
+            assertThat("Expected same handlers of " + sagaType, handlers(snapshot.get().get(sagaType)), equalTo(handlers(analysis.get(sagaType))));
+        }
+    }
+
+    @Test
+    void read_differentVersion_returnsEmpty() throws IOException {
+        // given
+        String content = writeSnapshot(analyze(TestSaga.class)).replace("version " + SagaAnalysisSnapshot.VERSION, "version 0");
+
+        // when
+        Optional<Map<Class<? extends Saga>, SagaHandlersMap>> snapshot = readSnapshot(content);
+
+        // then
+        assertThat("Expected snapshot of different version to be ignored.", snapshot.isPresent(), is(false));
+    }
+
+    @Test
+    void read_unknownSagaType_returnsEmpty() throws IOException {
+        // given
+        String content = writeSnapshot(analyze(TestSaga.class)).replace("saga " + TestSaga.class.getName() + " ", "saga com.example.RemovedSaga ");
+
+        // when
+        Optional<Map<Class<? extends Saga>, SagaHandlersMap>> snapshot = readSnapshot(content);
+
+        // then
+        assertThat("Expected snapshot with missing class to be ignored.", snapshot.isPresent(), is(false));
+    }
+
+    @Test
+    void read_handlerAddedAfterWrite_returnsEmpty() throws IOException {
+        // given
+        String content = writeSnapshot(analyze(BatchSaga.class)).replace("saga " + BatchSaga.class.getName() + " ", "saga " + ExtendedSaga.class.getName() + " ");
+
+        // when
+        Optional<Map<Class<? extends Saga>, SagaHandlersMap>> snapshot = readSnapshot(content);
+
+        // then
+        assertThat("Expected outdated snapshot to be ignored.", snapshot.isPresent(), is(false));
+    }
+
+    @Test
+    void read_sagaTypeAddedAfterWrite_returnsEmpty() throws IOException {
+        // given
+        String content = writeSnapshot(analyze(TestSaga.class));
+
+        // when
+        Optional<Map<Class<? extends Saga>, SagaHandlersMap>> snapshot = SagaAnalysisSnapshot.read(
+                new StringReader(content), getClass().getClassLoader(), ImmutableList.of(TestSaga.class, BatchSaga.class));
+
+        // then
+        assertThat("Expected snapshot missing a saga type to be ignored.", snapshot.isPresent(), is(false));
+    }
+
+    @Test
+    void read_allExpectedSagaTypes_returnsSnapshot() throws IOException {
+        // given
+        String content = writeSnapshot(analyze(TestSaga.class, BatchSaga.class));
+
+        // when
+        Optional<Map<Class<? extends Saga>, SagaHandlersMap>> snapshot = SagaAnalysisSnapshot.read(
+                new StringReader(content), getClass().getClassLoader(), ImmutableList.of(TestSaga.class));
+
+        // then
+        assertThat("Expected snapshot to be loaded.", snapshot.isPresent(), is(true));
+    }
+
+    @Test
+    void scanHandledMessageTypes_snapshotMissing_returnsFallbackResult() {
+        // given
+        Map<Class<? extends Saga>, SagaHandlersMap> fallbackResult = analyze(TestSaga.class);
+        SnapshotSagaAnalyzer sut = new SnapshotSagaAnalyzer("missing/saga-analysis.snapshot", getClass().getClassLoader(), () -> () -> fallbackResult);
+
+        // when
+        Map<Class<? extends Saga>, SagaHandlersMap> scanResult = sut.scanHandledMessageTypes();
+
+        // then
+        assertThat("Expected live analysis result.", scanResult, sameInstance(fallbackResult));
+    }
+
+    @SafeVarargs
+    private static Map<Class<? extends Saga>, SagaHandlersMap> analyze(final Class<? extends Saga>... sagaTypes) {
+        TypeScanner scanner = mock(TypeScanner.class);
+        when(scanner.scanForSagas()).thenReturn(ImmutableList.copyOf(sagaTypes));
+
+        return new HashMap<>(new AnnotationSagaAnalyzer(scanner).scanHandledMessageTypes());
+    }
+
+    private static String writeSnapshot(final Map<Class<? extends Saga>, SagaHandlersMap> analysis) throws IOException {
+        StringWriter writer = new StringWriter();
+        SagaAnalysisSnapshot.write(analysis, writer);
+        return writer.toString();
+    }
+
+    private Optional<Map<Class<? extends Saga>, SagaHandlersMap>> readSnapshot(final String content) throws IOException {
+        return SagaAnalysisSnapshot.read(new StringReader(content), getClass().getClassLoader());
+    }
+
+    private static Set<String> handlers(final SagaHandlersMap handlersMap) {
+        return handlersMap.messageHandlers().stream()
+                .map(h -> h.getMessageType() + "/" + h.getStartsSaga() + "/" + h.isBatch() + "/" + h.getMethodToInvoke())
+                .collect(Collectors.toSet());
+    }
+
+    public static class BatchSaga extends AbstractSaga<TestSagaState> {
+        @StartsSaga
+        public void start(final String message) {
+        }
+
+        @EventHandler(batch = true)
+        public void handleAll(final List<Integer> messages) {
+        }
+
+        @Override
+        public void createNewState() {
+            setState(new TestSagaState());
+        }
+
+        @Override
+        public Collection<KeyReader> keyReaders() {
+            return Collections.emptyList();
+        }
+    }
+
+    public static class DescribedSaga extends BatchSaga {
+    }
+
+    public static class ExtendedSaga extends BatchSaga {
+        @EventHandler
+        public void handle(final Long message) {
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.storage;
+
+import com.codebullets.sagalib.SagaState;
+import com.codebullets.sagalib.TestSagaState;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+
+class LongKeyIndexTest {
+
+    @Test
+    void collect_keySharedByStates_returnsAllStates() {
+        // given
+        LongKeyIndex sut = new LongKeyIndex();
+        TestSagaState first = new TestSagaState();
+        TestSagaState second = new TestSagaState();
+        sut.add(1L, first);
+        sut.add(1L, second);
+
+        // when
+        List<SagaState> states = new ArrayList<>();
+        sut.collect(1L, states);
+
+        // then
+        assertThat("Expected both states of the shared key.", states, containsInAnyOrder(first, second));
+    }
+
+    @Test
+    void collect_randomAddsAndRemoves_matchesMultimap() {
+        // given
+        LongKeyIndex sut = new LongKeyIndex();
+        SetMultimap<Long, SagaState> expected = HashMultimap.create();
+        List<SagaState> states = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            states.add(new TestSagaState());
+        }
+
+        // when
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; ++i) {
+            long key = random.nextInt(2000);
+            SagaState state = states.get(random.nextInt(states.size()));
+            if (random.nextBoolean()) {
+                sut.add(key, state);
+                expected.put(key, state);
+            } else {
+                sut.remove(key, state);
+                expected.remove(key, state);
+            }
+        }
+
+        // then
+        for (long key = 0; key < 2000; ++key) {
+            List<SagaState> found = new ArrayList<>();
+            sut.collect(key, found);
+            assertThat("Expected same states for key " + key, new HashSet<>(found), equalTo(expected.get(key)));
+        }
+
+        assertThat("Expected same number of keys.", sut.size(), equalTo(expected.keySet().size()));
+    }
+}
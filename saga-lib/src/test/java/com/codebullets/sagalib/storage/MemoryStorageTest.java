@@ -15,6 +15,7 @@
  */
 package com.codebullets.sagalib.storage;
 
+import com.codebullets.sagalib.LongKeySagaState;
 import com.codebullets.sagalib.SagaState;
 import com.codebullets.sagalib.TestSaga;
 import com.codebullets.sagalib.TestSagaState;
@@ -29,6 +30,8 @@ import java.util.Iterator;
 import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
@@ -231,6 +234,116 @@ public class MemoryStorageTest {
         return collection;
     }
 
+    /**
+     * Given => State with primitive keys has been saved.
+     * When  => loadByLongKey is called with one of the keys.
+     * Then  => Returns saved state.
+     */
+    @Test
+    public void loadByLongKey_longKeyStateSaved_returnsState() {
+        // given
+        LongState state = buildLongState(42L, 43L);
+        sut.save(state);
+
+        // when
+        Collection<? extends SagaState> states = sut.loadByLongKey(TestSaga.class.getName(), 43L);
+
+        // then
+        assertThat("Expected state found by primitive key.", states, contains(state));
+    }
+
+    /**
+     * Given => State with primitive keys has been saved.
+     * When  => load is called with boxed key.
+     * Then  => Returns saved state.
+     */
+    @Test
+    public void load_longKeyStateSavedBoxedKey_returnsState() {
+        // given
+        LongState state = buildLongState(42L);
+        sut.save(state);
+
+        // when
+        Collection<? extends SagaState> states = sut.load(TestSaga.class.getName(), 42L);
+
+        // then
+        assertThat("Expected state found by boxed key.", states, contains(state));
+    }
+
+    /**
+     * Given => State with primitive key has been saved.
+     * When  => key is removed and state saved again.
+     * Then  => State is no longer found by removed key.
+     */
+    @Test
+    public void loadByLongKey_keyRemovedAndSaved_returnsEmptyList() {
+        // given
+        LongState state = buildLongState(42L, 43L);
+        sut.save(state);
+
+        // when
+        state.removeInstanceKey(42L);
+        sut.save(state);
+
+        // then
+        assertThat("Expected removed key not found.", sut.loadByLongKey(TestSaga.class.getName(), 42L), empty());
+        assertThat("Expected remaining key found.", sut.loadByLongKey(TestSaga.class.getName(), 43L), contains(state));
+    }
+
+    /**
+     * Given => Two states share the same instance key.
+     * When  => one state removes the key and is saved again.
+     * Then  => Key still returns the other state.
+     */
+    @Test
+    public void load_sharedKeyRemovedFromOneState_returnsOtherState() {
+        // given
+        TestSagaState first = buildState("shared");
+        TestSagaState second = buildState("shared");
+        sut.save(first);
+        sut.save(second);
+
+        // when
+        first.removeInstanceKey("shared");
+        sut.save(first);
+
+        // then
+        assertThat("Expected only remaining state for shared key.", sut.load(TestSaga.class.getName(), "shared"), contains(second));
+    }
+
+    /**
+     * Given => State has been saved.
+     * When  => other instance with same saga id and different key is saved.
+     * Then  => Only the new key returns the new instance.
+     */
+    @Test
+    public void load_stateReplacedByOtherInstance_returnsNewInstanceForNewKey() {
+        // given
+        TestSagaState original = buildState("oldKey");
+        sut.save(original);
+        TestSagaState replacement = buildState("newKey");
+        replacement.setSagaId(original.getSagaId());
+
+        // when
+        sut.save(replacement);
+
+        // then
+        assertThat("Expected old key to be removed.", sut.load(TestSaga.class.getName(), "oldKey"), empty());
+        assertThat("Expected new key to return new instance.", sut.load(TestSaga.class.getName(), "newKey"), contains(replacement));
+    }
+
+    private LongState buildLongState(final long... instanceKeys) {
+        LongState state = new LongState();
+        for (long key : instanceKeys) {
+            state.addInstanceKey(key);
+        }
+
+        state.setSagaId("SagaId_" + RandomStringUtils.randomAlphanumeric(10));
+        state.setType(TestSaga.class.getName());
+
+        return state;
+    }
+
     private TestSagaState buildState() {
         return buildState("InstanceKey_" + RandomStringUtils.randomAlphanumeric(10));
     }
@@ -257,4 +370,7 @@ public class MemoryStorageTest {
 
         return buildState(keys);
     }
-}
\ No newline at end of file
+
+    private static class LongState extends LongKeySagaState {
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2018 Stefan Domnanovits
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.codebullets.sagalib.storage;
+
+import com.codebullets.sagalib.SagaState;
+import com.codebullets.sagalib.TestSaga;
+import com.codebullets.sagalib.TestSagaState;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PipelinedStateStorageTest {
+    private static final String KEY = "key";
+
+    private Queue<Runnable> queuedWrites;
+    private MemoryStorage memoryStorage;
+    private PipelinedStateStorage sut;
+
+    @BeforeEach
+    void initPipelinedStateStorageTest() {
+        queuedWrites = new ArrayDeque<>();
+        memoryStorage = new MemoryStorage();
+        sut = new PipelinedStateStorage(new DeferredWrites());
+    }
+
+    @Test
+    void load_savePending_returnsPendingState() {
+        // given
+        TestSagaState state = buildState("saga1");
+        sut.save(state);
+
+        // when
+        SagaState loaded = sut.load(state.getSagaId());
+
+        // then
+        assertThat("Expected pending state to be returned.", loaded, sameInstance(state));
+        assertThat("Expected state not to be stored yet.", memoryStorage.load(state.getSagaId()), nullValue());
+    }
+
+    @Test
+    void loadAll_newStatePending_containsPendingState() {
+        // given
+        TestSagaState state = buildState("saga1");
+        sut.save(state);
+
+        // when
+        List<SagaState> loaded = loadAll();
+
+        // then
+        assertThat("Expected pending state to be found by instance key.", loaded, contains((SagaState) state));
+    }
+
+    @Test
+    void loadAll_deletePending_excludesDeletedState() {
+        // given
+        TestSagaState state = buildState("saga1");
+        sut.save(state);
+        runQueuedWrites();
+        sut.delete(state.getSagaId());
+
+        // when
+        List<SagaState> loaded = loadAll();
+
+        // then
+        assertThat("Expected deleted state not to be returned.", loaded, empty());
+    }
+
+    @Test
+    void loadAll_pendingStateNoLongerHasKey_excludesState() {
+        // given
+        TestSagaState state = buildState("saga1");
+        sut.save(state);
+        runQueuedWrites();
+        state.removeInstanceKey(KEY);
+        sut.save(state);
+
+        // when
+        List<SagaState> loaded = loadAll();
+
+        // then
+        assertThat("Expected pending state without the searched key not to be returned.", loaded, empty());
+    }
+
+    @Test
+    void save_stateChangedWhileWritePending_writesStateOfSave() {
+        // given
+        TestSagaState state = buildState("saga1");
+        sut = new PipelinedStateStorage(new DeferredWrites(), PipelinedStateStorageTest::copyOf);
+        sut.save(state);
+
+        // when
+        state.addInstanceKey("changedAfterSave");
+        runQueuedWrites();
+
+        // then
+        SagaState stored = memoryStorage.load(state.getSagaId());
+        assertThat("Expected copy of the state written.", stored, not(sameInstance(state)));
+        assertThat("Expected key added after the save not to be written.", stored.instanceKeys().contains("changedAfterSave"), equalTo(false));
+    }
+
+    @Test
+    void save_noCopier_stateHandedToStorage() {
+        // given
+        TestSagaState state = buildState("saga1");
+        sut = new PipelinedStateStorage(new BlockingStorageAdapter(memoryStorage, Runnable::run));
+
+        // when
+        sut.save(state);
+
+        // then
+        assertThat("Expected state itself to be written.", memoryStorage.load(state.getSagaId()), sameInstance(state));
+    }
+
+    @Test
+    void delete_savePending_deletedAfterSave() {
+        // given
+        TestSagaState state = buildState("saga1");
+        sut.save(state);
+
+        // when
+        sut.delete(state.getSagaId());
+        runQueuedWrites();
+
+        // then
+        assertThat("Expected state to be deleted after it has been saved.", memoryStorage.load(state.getSagaId()), nullValue());
+        assertThat("Expected no more pending writes.", sut.pendingWrites(), equalTo(0));
+    }
+
+    @Test
+    void save_writeFails_failureCountedAndPendingStateRemoved() {
+        // given
+        TestSagaState state = buildState("saga1");
+        sut = new PipelinedStateStorage(new FailingStorage());
+
+        // when
+        sut.save(state);
+
+        // then
+        assertThat("Expected failed write to be counted.", sut.failedWrites(), equalTo(1L));
+        assertThat("Expected no more pending writes.", sut.pendingWrites(), equalTo(0));
+    }
+
+    @Test
+    void load_earlierWriteFailed_failureReportedOnce() {
+        // given
+        TestSagaState state = buildState("saga1");
+        FailingWrites storage = new FailingWrites();
+        sut = new PipelinedStateStorage(storage, PipelinedStateStorageTest::copyOf);
+        sut.save(state);
+
+        // when
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> sut.load(state.getSagaId()));
+        storage.failing = false;
+        sut.save(state);
+
+        // then
+        assertThat("Expected failure of the write as cause.", error.getCause().getMessage(), equalTo("Storage not available."));
+        assertThat("Expected state of next save to be written.", memoryStorage.load(state.getSagaId()), not(nullValue()));
+    }
+
+    @Test
+    void flush_writeFailed_throwsFailure() {
+        // given
+        TestSagaState state = buildState("saga1");
+        sut = new PipelinedStateStorage(new FailingWrites(), PipelinedStateStorageTest::copyOf);
+        sut.save(state);
+
+        // when
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> sut.flush());
+
+        // then
+        assertThat("Expected failure of the write as cause.", error.getCause().getMessage(), equalTo("Storage not available."));
+        assertThat("Expected load not to report the failure again.", sut.load(state.getSagaId()), nullValue());
+    }
+
+    private List<SagaState> loadAll() {
+        return sut.loadAll(ImmutableList.of(new InstanceKeySearchParam(TestSaga.class.getName(), KEY)))
+                .collect(Collectors.toList());
+    }
+
+    private void runQueuedWrites() {
+        Runnable write = queuedWrites.poll();
+        while (write != null) {
+            write.run();
+            write = queuedWrites.poll();
+        }
+    }
+
+    private static SagaState copyOf(final SagaState state) {
+        TestSagaState copy = buildState(state.getSagaId());
+        copy.removeInstanceKey(KEY);
+        for (Object key : state.instanceKeys()) {
+            copy.addInstanceKey((String) key);
+        }
+
+        return copy;
+    }
+
+    private static TestSagaState buildState(final String sagaId) {
+        TestSagaState state = new TestSagaState();
+        state.addInstanceKey(KEY);
+        state.setSagaId(sagaId);
+        state.setType(TestSaga.class.getName());
+
+        return state;
+    }
+
+    /**
+     * Performs loads right away, writes are queued until run by the test.
+     */
+    private class DeferredWrites implements AsyncStateStorage {
+        private final AsyncStateStorage reads = new BlockingStorageAdapter(memoryStorage, Runnable::run);
+        private final AsyncStateStorage writes = new BlockingStorageAdapter(memoryStorage, queuedWrites::add);
+
+        @Override
+        public CompletionStage<Void> save(final SagaState state) {
+            return writes.save(state);
+        }
+
+        @Override
+        public CompletionStage<SagaState> load(final String sagaId) {
+            return reads.load(sagaId);
+        }
+
+        @Override
+        public CompletionStage<Void> delete(final String sagaId) {
+            return writes.delete(sagaId);
+        }
+
+        @Override
+        public CompletionStage<Collection<SagaState>> loadAll(final Iterable<InstanceKeySearchParam> searchParams) {
+            return reads.loadAll(searchParams);
+        }
+    }
+
+    /**
+     * Writes fail while failing is set, all other operations are performed right away.
+     */
+    private class FailingWrites implements AsyncStateStorage {
+        private final AsyncStateStorage storage = new BlockingStorageAdapter(memoryStorage, Runnable::run);
+        private boolean failing = true;
+
+        @Override
+        public CompletionStage<Void> save(final SagaState state) {
+            return failing ? FailingStorage.failed() : storage.save(state);
+        }
+
+        @Override
+        public CompletionStage<SagaState> load(final String sagaId) {
+            return storage.load(sagaId);
+        }
+
+        @Override
+        public CompletionStage<Void> delete(final String sagaId) {
+            return failing ? FailingStorage.failed() : storage.delete(sagaId);
+        }
+
+        @Override
+        public CompletionStage<Collection<SagaState>> loadAll(final Iterable<InstanceKeySearchParam> searchParams) {
+            return storage.loadAll(searchParams);
+        }
+    }
+
+    private static class FailingStorage implements AsyncStateStorage {
+        @Override
+        public CompletionStage<Void> save(final SagaState state) {
+            return failed();
+        }
+
+        @Override
+        public CompletionStage<SagaState> load(final String sagaId) {
+            return failed();
+        }
+
+        @Override
+        public CompletionStage<Void> delete(final String sagaId) {
+            return failed();
+        }
+
+        @Override
+        public CompletionStage<Collection<SagaState>> loadAll(final Iterable<InstanceKeySearchParam> searchParams) {
+            return failed();
+        }
+
+        private static <T> CompletionStage<T> failed() {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("Storage not available."));
+            return future;
+        }
+    }
+}